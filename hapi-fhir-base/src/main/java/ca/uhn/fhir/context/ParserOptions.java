@@ -37,6 +37,7 @@ public class ParserOptions {
 	private boolean myStripVersionsFromReferences = true;
 	private Set<String> myDontStripVersionsFromReferencesAtPaths = Collections.emptySet();
 	private boolean myOverrideResourceIdWithBundleEntryFullUrl = true;
+	private boolean myUseStreamingJsonParser = false;
 
 	/**
 	 * If supplied value(s), any resource references at the specified paths will have their
@@ -166,4 +167,56 @@ public class ParserOptions {
 		return this;
 	}
 
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the JSON parser will read incoming
+	 * content using a token-streaming parser based on the Jackson library (see
+	 * {@link ca.uhn.fhir.parser.json.JacksonStructure}) instead of first building a complete Gson
+	 * document tree. The streaming parser requires considerably less memory for large documents such
+	 * as transaction Bundles.
+	 * <p>
+	 * Parsed resources and error handler callbacks are the same in both modes, and both accept comments,
+	 * single quoted strings, unquoted field names and <code>NaN</code>/<code>Infinity</code>. The
+	 * streaming parser rejects some rarer Gson leniencies (e.g. unquoted string values), and for
+	 * malformed JSON the {@link ca.uhn.fhir.parser.DataFormatException} message contains the syntax
+	 * error reported by Jackson instead of the one reported by Gson.
+	 * </p>
+	 * <p>
+	 * Note that this mode requires <code>com.fasterxml.jackson.core:jackson-core</code> to be present
+	 * on the classpath.
+	 * </p>
+	 *
+	 * @return Returns <code>true</code> if the streaming JSON parser is enabled
+	 * @since 4.3.0
+	 */
+	public boolean isUseStreamingJsonParser() {
+		return myUseStreamingJsonParser;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the JSON parser will read incoming
+	 * content using a token-streaming parser based on the Jackson library (see
+	 * {@link ca.uhn.fhir.parser.json.JacksonStructure}) instead of first building a complete Gson
+	 * document tree. The streaming parser requires considerably less memory for large documents such
+	 * as transaction Bundles.
+	 * <p>
+	 * Parsed resources and error handler callbacks are the same in both modes, and both accept comments,
+	 * single quoted strings, unquoted field names and <code>NaN</code>/<code>Infinity</code>. The
+	 * streaming parser rejects some rarer Gson leniencies (e.g. unquoted string values), and for
+	 * malformed JSON the {@link ca.uhn.fhir.parser.DataFormatException} message contains the syntax
+	 * error reported by Jackson instead of the one reported by Gson.
+	 * </p>
+	 * <p>
+	 * Note that this mode requires <code>com.fasterxml.jackson.core:jackson-core</code> to be present
+	 * on the classpath.
+	 * </p>
+	 *
+	 * @param theUseStreamingJsonParser Should the streaming JSON parser be used
+	 * @return Returns a reference to <code>this</code> parser so that method calls can be chained together
+	 * @since 4.3.0
+	 */
+	public ParserOptions setUseStreamingJsonParser(boolean theUseStreamingJsonParser) {
+		myUseStreamingJsonParser = theUseStreamingJsonParser;
+		return this;
+	}
+
 }
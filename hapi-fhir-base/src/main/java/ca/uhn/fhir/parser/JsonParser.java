@@ -172,7 +172,12 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 	@Override
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, Reader theReader) {
-		JsonLikeStructure jsonStructure = new GsonStructure();
+		JsonLikeStructure jsonStructure;
+		if (myContext.getParserOptions().isUseStreamingJsonParser()) {
+			jsonStructure = new JacksonStructure();
+		} else {
+			jsonStructure = new GsonStructure();
+		}
 		jsonStructure.load(theReader);
 
 		T retVal = doParseResource(theResourceType, jsonStructure);
@@ -0,0 +1,346 @@
+package ca.uhn.fhir.parser.json;
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.parser.DataFormatException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link JsonLikeStructure} implementation which reads the JSON document token-by-token
+ * using the Jackson streaming API, and builds the {@link JsonLikeValue} structure directly
+ * from the token stream.
+ * <p>
+ * Unlike {@link GsonStructure}, no intermediate document tree is created (GsonStructure first
+ * builds a complete Gson <code>JsonObject</code> tree and then lazily wraps each node in a second
+ * tree of adapter objects). Field names are canonicalized by the Jackson parser, so the repeated
+ * element names found in large Bundles share a single String instance. This substantially reduces
+ * the heap required to parse large documents.
+ * </p>
+ * <p>
+ * The same lenient syntax as the Gson based parser is accepted: comments, single quoted strings,
+ * unquoted field names and <code>NaN</code>/<code>Infinity</code>. Gson additionally accepts
+ * unquoted string values, <code>;</code> between values and <code>=</code>/<code>=&gt;</code>
+ * between names and values, which are rejected here.
+ * </p>
+ * <p>
+ * Encoding is unaffected by this class: {@link #getJsonLikeWriter(Writer)} returns the same
+ * writer as {@link GsonStructure}.
+ * </p>
+ * <p>
+ * This class requires the <code>com.fasterxml.jackson.core:jackson-core</code> library to be
+ * present on the classpath. It is enabled for the default JSON parser via
+ * {@link ca.uhn.fhir.context.ParserOptions#setUseStreamingJsonParser(boolean)}.
+ * </p>
+ */
+public class JacksonStructure implements JsonLikeStructure {
+
+	/**
+	 * Gson is lenient when reading from a Reader, so the same non-standard syntax
+	 * is accepted here
+	 */
+	private static final JsonFactory ourJsonFactory = new JsonFactory()
+		.enable(JsonParser.Feature.ALLOW_COMMENTS)
+		.enable(JsonParser.Feature.ALLOW_YAML_COMMENTS)
+		.enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES)
+		.enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
+		.enable(JsonParser.Feature.ALLOW_NON_NUMERIC_NUMBERS);
+	private static final JacksonJsonValue TRUE = new JacksonJsonValue(JsonLikeValue.ScalarType.BOOLEAN, "true");
+	private static final JacksonJsonValue FALSE = new JacksonJsonValue(JsonLikeValue.ScalarType.BOOLEAN, "false");
+
+	private JsonLikeValue myRoot;
+	private GsonWriter myJsonLikeWriter;
+
+	public JacksonStructure() {
+		super();
+	}
+
+	@Override
+	public JsonLikeStructure getInstance() {
+		return new JacksonStructure();
+	}
+
+	@Override
+	public void load(Reader theReader) throws DataFormatException {
+		load(theReader, false);
+	}
+
+	@Override
+	public void load(Reader theReader, boolean theAllowArray) throws DataFormatException {
+		PushbackReader pbr = new PushbackReader(theReader);
+		try {
+			int nextInt;
+			while (true) {
+				nextInt = pbr.read();
+				if (nextInt == -1) {
+					throw new DataFormatException("Did not find any content to parse");
+				}
+				if (nextInt == '{') {
+					pbr.unread(nextInt);
+					break;
+				}
+				if (Character.isWhitespace(nextInt)) {
+					continue;
+				}
+				if (theAllowArray) {
+					if (nextInt == '[') {
+						pbr.unread(nextInt);
+						break;
+					}
+					throw new DataFormatException("Content does not appear to be FHIR JSON, first non-whitespace character was: '" + (char) nextInt + "' (must be '{' or '[')");
+				}
+				throw new DataFormatException("Content does not appear to be FHIR JSON, first non-whitespace character was: '" + (char) nextInt + "' (must be '{')");
+			}
+
+			readRoot(ourJsonFactory.createParser(pbr));
+		} catch (JsonParseException e) {
+			throw newParseException(e);
+		} catch (Exception e) {
+			throw new DataFormatException("Failed to parse JSON content, error was: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Loads the structure from the given Jackson parser, which is closed once the document
+	 * has been read. The parser may read any data format which is supported by a Jackson
+	 * <code>JsonFactory</code>, such as the binary Smile format.
+	 *
+	 * @see JacksonWriter
+	 */
+	public void load(JsonParser theParser) throws DataFormatException {
+		try {
+			readRoot(theParser);
+		} catch (JsonParseException e) {
+			throw newParseException(e);
+		} catch (IOException e) {
+			throw new DataFormatException("Failed to parse JSON content, error was: " + e.getMessage(), e);
+		}
+	}
+
+	private void readRoot(JsonParser theParser) throws IOException {
+		try (JsonParser parser = theParser) {
+			myRoot = readValue(parser, parser.nextToken());
+			if (parser.nextToken() != null) {
+				throw new DataFormatException("JSON document was not fully consumed.");
+			}
+		}
+	}
+
+	@Override
+	public JsonLikeWriter getJsonLikeWriter(Writer theWriter) {
+		if (null == myJsonLikeWriter) {
+			myJsonLikeWriter = new GsonWriter(theWriter);
+		}
+		return myJsonLikeWriter;
+	}
+
+	@Override
+	public JsonLikeWriter getJsonLikeWriter() {
+		if (null == myJsonLikeWriter) {
+			myJsonLikeWriter = new GsonWriter();
+		}
+		return myJsonLikeWriter;
+	}
+
+	@Override
+	public JsonLikeObject getRootObject() throws DataFormatException {
+		if (myRoot != null && myRoot.isObject()) {
+			return myRoot.getAsObject();
+		}
+		throw new DataFormatException("Content must be a valid JSON Object. It must start with '{'.");
+	}
+
+	@Override
+	public JsonLikeArray getRootArray() throws DataFormatException {
+		if (myRoot != null && myRoot.isArray()) {
+			return myRoot.getAsArray();
+		}
+		throw new DataFormatException("Content must be a valid JSON Array. It must start with '['.");
+	}
+
+	private static DataFormatException newParseException(JsonParseException theException) {
+		if (theException.getMessage().contains("(code 39)")) {
+			return new DataFormatException("Failed to parse JSON encoded FHIR content: " + theException.getMessage() + " - This may indicate that single quotes are being used as JSON escapes where double quotes are required", theException);
+		}
+		return new DataFormatException("Failed to parse JSON encoded FHIR content: " + theException.getMessage(), theException);
+	}
+
+	private static JsonLikeValue readValue(JsonParser theParser, JsonToken theToken) throws IOException {
+		if (theToken == null) {
+			throw new DataFormatException("Unexpected end of JSON content");
+		}
+		switch (theToken) {
+			case START_OBJECT: {
+				JacksonJsonObject retVal = new JacksonJsonObject();
+				for (JsonToken next = theParser.nextToken(); next != JsonToken.END_OBJECT; next = theParser.nextToken()) {
+					if (next != JsonToken.FIELD_NAME) {
+						throw new DataFormatException("Unexpected JSON token " + next + " at " + theParser.getCurrentLocation());
+					}
+					String name = theParser.getCurrentName();
+					retVal.put(name, readValue(theParser, theParser.nextToken()));
+				}
+				return retVal;
+			}
+			case START_ARRAY: {
+				JacksonJsonArray retVal = new JacksonJsonArray();
+				for (JsonToken next = theParser.nextToken(); next != JsonToken.END_ARRAY; next = theParser.nextToken()) {
+					retVal.add(readValue(theParser, next));
+				}
+				return retVal;
+			}
+			case VALUE_STRING:
+				return new JacksonJsonValue(JsonLikeValue.ScalarType.STRING, theParser.getText());
+			case VALUE_NUMBER_FLOAT:
+				if (theParser.isNaN()) {
+					// Gson reads NaN and Infinity as unquoted strings
+					return new JacksonJsonValue(JsonLikeValue.ScalarType.STRING, theParser.getText());
+				}
+				// Keep the original text so that decimal precision is preserved
+				return new JacksonJsonValue(JsonLikeValue.ScalarType.NUMBER, theParser.getText());
+			case VALUE_NUMBER_INT:
+				// Keep the original text so that decimal precision is preserved
+				return new JacksonJsonValue(JsonLikeValue.ScalarType.NUMBER, theParser.getText());
+			case VALUE_TRUE:
+				return TRUE;
+			case VALUE_FALSE:
+				return FALSE;
+			case VALUE_NULL:
+				return JsonLikeValue.NULL;
+			default:
+				throw new DataFormatException("Unexpected JSON token " + theToken + " at " + theParser.getCurrentLocation());
+		}
+	}
+
+	private static class JacksonJsonObject extends JsonLikeObject {
+		private final Map<String, JsonLikeValue> myChildren = new LinkedHashMap<>();
+
+		void put(String theName, JsonLikeValue theValue) {
+			myChildren.put(theName, theValue);
+		}
+
+		@Override
+		public Object getValue() {
+			return null;
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return myChildren.keySet();
+		}
+
+		@Override
+		public JsonLikeValue get(String theKey) {
+			return myChildren.get(theKey);
+		}
+	}
+
+	private static class JacksonJsonArray extends JsonLikeArray {
+		private final List<JsonLikeValue> myChildren = new ArrayList<>();
+
+		void add(JsonLikeValue theValue) {
+			myChildren.add(theValue);
+		}
+
+		@Override
+		public Object getValue() {
+			return null;
+		}
+
+		@Override
+		public int size() {
+			return myChildren.size();
+		}
+
+		@Override
+		public JsonLikeValue get(int theIndex) {
+			return myChildren.get(theIndex);
+		}
+	}
+
+	private static class JacksonJsonValue extends JsonLikeValue {
+		private final ScalarType myScalarType;
+		private final String myText;
+
+		JacksonJsonValue(ScalarType theScalarType, String theText) {
+			myScalarType = theScalarType;
+			myText = theText;
+		}
+
+		@Override
+		public ValueType getJsonType() {
+			return ValueType.SCALAR;
+		}
+
+		@Override
+		public ScalarType getDataType() {
+			return myScalarType;
+		}
+
+		@Override
+		public Object getValue() {
+			switch (myScalarType) {
+				case NUMBER:
+					return new BigDecimal(myText);
+				case BOOLEAN:
+					return Boolean.valueOf(myText);
+				case STRING:
+				default:
+					return myText;
+			}
+		}
+
+		@Override
+		public Number getAsNumber() {
+			return myScalarType == ScalarType.NUMBER ? new BigDecimal(myText) : null;
+		}
+
+		@Override
+		public String getAsString() {
+			return myText;
+		}
+
+		@Override
+		public boolean getAsBoolean() {
+			if (myScalarType == ScalarType.BOOLEAN) {
+				return Boolean.parseBoolean(myText);
+			}
+			return super.getAsBoolean();
+		}
+
+		@Override
+		public String toString() {
+			return myText;
+		}
+	}
+
+}
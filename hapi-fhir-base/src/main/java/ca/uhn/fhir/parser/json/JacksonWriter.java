@@ -0,0 +1,234 @@
+package ca.uhn.fhir.parser.json;
+/*
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * {@link JsonLikeWriter} implementation which writes to a Jackson {@link JsonGenerator}.
+ * <p>
+ * Because the generator is supplied by the caller, this writer is not limited to textual
+ * JSON: any data format supported by a Jackson <code>JsonFactory</code> (e.g. the binary
+ * Smile format) may be produced. Together with {@link JacksonStructure#load(com.fasterxml.jackson.core.JsonParser)}
+ * this allows resources to be encoded to and parsed from such formats without an
+ * intermediate JSON string.
+ * </p>
+ * <p>
+ * The {@link #setWriter(java.io.Writer) writer} property is not used by this class.
+ * </p>
+ */
+public class JacksonWriter extends JsonLikeWriter {
+
+	private final JsonGenerator myGenerator;
+
+	public JacksonWriter(JsonGenerator theGenerator) {
+		Validate.notNull(theGenerator, "theGenerator must not be null");
+		myGenerator = theGenerator;
+	}
+
+	@Override
+	public JsonLikeWriter init() {
+		if (isPrettyPrint()) {
+			myGenerator.useDefaultPrettyPrinter();
+		}
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter flush() throws IOException {
+		myGenerator.flush();
+		return this;
+	}
+
+	@Override
+	public void close() throws IOException {
+		myGenerator.close();
+	}
+
+	@Override
+	public JsonLikeWriter beginObject() throws IOException {
+		myGenerator.writeStartObject();
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter beginArray() throws IOException {
+		myGenerator.writeStartArray();
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter beginObject(String name) throws IOException {
+		myGenerator.writeFieldName(name);
+		myGenerator.writeStartObject();
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter beginArray(String name) throws IOException {
+		myGenerator.writeFieldName(name);
+		myGenerator.writeStartArray();
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter write(String value) throws IOException {
+		myGenerator.writeString(value);
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter write(BigInteger value) throws IOException {
+		myGenerator.writeNumber(value);
+		return this;
+	}
+
+	/**
+	 * Textual formats write the decimal's own text, so precision such as <code>1.50</code> is kept.
+	 * Binary formats (e.g. Smile) store numbers as binary values, and a decimal such as
+	 * <code>0.0000001</code> would be read back as <code>1E-7</code>. Decimals whose text wouldn't
+	 * survive that are written as string values instead, which the parser reads back unchanged.
+	 */
+	@Override
+	public JsonLikeWriter write(BigDecimal value) throws IOException {
+		if (value == null || myGenerator.canWriteFormattedNumbers()) {
+			myGenerator.writeNumber(value);
+			return this;
+		}
+		String text = value.toString();
+		BigDecimal binaryValue = new BigDecimal(text);
+		if (binaryValue.toString().equals(text)) {
+			myGenerator.writeNumber(binaryValue);
+		} else {
+			myGenerator.writeString(text);
+		}
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter write(long value) throws IOException {
+		myGenerator.writeNumber(value);
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter write(double value) throws IOException {
+		myGenerator.writeNumber(value);
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter write(Boolean value) throws IOException {
+		if (value == null) {
+			myGenerator.writeNull();
+		} else {
+			myGenerator.writeBoolean(value);
+		}
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter write(boolean value) throws IOException {
+		myGenerator.writeBoolean(value);
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter writeNull() throws IOException {
+		myGenerator.writeNull();
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter write(String name, String value) throws IOException {
+		myGenerator.writeFieldName(name);
+		return write(value);
+	}
+
+	@Override
+	public JsonLikeWriter write(String name, BigInteger value) throws IOException {
+		myGenerator.writeFieldName(name);
+		return write(value);
+	}
+
+	@Override
+	public JsonLikeWriter write(String name, BigDecimal value) throws IOException {
+		myGenerator.writeFieldName(name);
+		return write(value);
+	}
+
+	@Override
+	public JsonLikeWriter write(String name, long value) throws IOException {
+		myGenerator.writeFieldName(name);
+		return write(value);
+	}
+
+	@Override
+	public JsonLikeWriter write(String name, double value) throws IOException {
+		myGenerator.writeFieldName(name);
+		return write(value);
+	}
+
+	@Override
+	public JsonLikeWriter write(String name, Boolean value) throws IOException {
+		myGenerator.writeFieldName(name);
+		return write(value);
+	}
+
+	@Override
+	public JsonLikeWriter write(String name, boolean value) throws IOException {
+		myGenerator.writeFieldName(name);
+		return write(value);
+	}
+
+	@Override
+	public JsonLikeWriter writeNull(String name) throws IOException {
+		myGenerator.writeFieldName(name);
+		return writeNull();
+	}
+
+	@Override
+	public JsonLikeWriter endObject() throws IOException {
+		myGenerator.writeEndObject();
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter endArray() throws IOException {
+		myGenerator.writeEndArray();
+		return this;
+	}
+
+	@Override
+	public JsonLikeWriter endBlock() throws IOException {
+		if (myGenerator.getOutputContext().inArray()) {
+			myGenerator.writeEndArray();
+		} else {
+			myGenerator.writeEndObject();
+		}
+		return this;
+	}
+
+}
@@ -202,6 +202,7 @@ public class Constants {
 	public static final int STATUS_HTTP_422_UNPROCESSABLE_ENTITY = 422;
 	public static final int STATUS_HTTP_500_INTERNAL_ERROR = 500;
 	public static final int STATUS_HTTP_501_NOT_IMPLEMENTED = 501;
+	public static final int STATUS_HTTP_503_SERVICE_UNAVAILABLE = 503;
 	public static final String TAG_SUBSETTED_CODE = "SUBSETTED";
 	public static final String TAG_SUBSETTED_SYSTEM_DSTU3 = "http://hl7.org/fhir/v3/ObservationValue";
 	public static final String TAG_SUBSETTED_SYSTEM_R4 = "http://terminology.hl7.org/CodeSystem/v3-ObservationValue";
@@ -228,6 +229,10 @@ public class Constants {
 	public static final String CT_FHIR_NDJSON = "application/fhir+ndjson";
 	public static final String CT_APP_NDJSON = "application/ndjson";
 	public static final String CT_NDJSON = "ndjson";
+	/**
+	 * @since 4.3.0
+	 */
+	public static final String CT_GZIP = "application/gzip";
 	public static final Set<String> CTS_NDJSON;
 	public static final String HEADER_PREFER_RESPOND_ASYNC = "respond-async";
 	public static final int STATUS_HTTP_412_PAYLOAD_TOO_LARGE = 413;
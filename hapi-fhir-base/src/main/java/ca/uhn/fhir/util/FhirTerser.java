@@ -607,17 +607,41 @@ public class FhirTerser {
 	 * @throws IllegalArgumentException If theTarget does not contain both a resource type and ID
 	 */
 	public boolean isSourceInCompartmentForTarget(String theCompartmentName, IBaseResource theSource, IIdType theTarget) {
-		Validate.notBlank(theCompartmentName, "theCompartmentName must not be null or blank");
-		Validate.notNull(theSource, "theSource must not be null");
 		Validate.notNull(theTarget, "theTarget must not be null");
-		Validate.notBlank(defaultString(theTarget.getResourceType()), "theTarget must have a populated resource type (theTarget.getResourceType() does not return a value)");
-		Validate.notBlank(defaultString(theTarget.getIdPart()), "theTarget must have a populated ID (theTarget.getIdPart() does not return a value)");
+		return isSourceInCompartmentForTarget(theCompartmentName, theSource, Collections.singletonList(theTarget));
+	}
 
-		String wantRef = theTarget.toUnqualifiedVersionless().getValue();
+	/**
+	 * Returns <code>true</code> if <code>theSource</code> is in the compartment named <code>theCompartmentName</code>
+	 * belonging to any of the resources in <code>theTargets</code>. This is equivalent to calling
+	 * {@link #isSourceInCompartmentForTarget(String, IBaseResource, IIdType)} for each target, but only
+	 * walks <code>theSource</code> once.
+	 *
+	 * @param theCompartmentName The name of the compartment
+	 * @param theSource          The potential member of the compartment
+	 * @param theTargets         The owners of the compartment. Note that both the resource type and ID must be filled in on each IIdType or the method will throw an {@link IllegalArgumentException}
+	 * @return <code>true</code> if <code>theSource</code> is in the compartment of at least one of the targets
+	 * @throws IllegalArgumentException If any of theTargets does not contain both a resource type and ID
+	 */
+	public boolean isSourceInCompartmentForTarget(String theCompartmentName, IBaseResource theSource, Collection<? extends IIdType> theTargets) {
+		Validate.notBlank(theCompartmentName, "theCompartmentName must not be null or blank");
+		Validate.notNull(theSource, "theSource must not be null");
+		Validate.notNull(theTargets, "theTargets must not be null");
+
+		Set<String> wantRefs = new HashSet<>();
+		for (IIdType nextTarget : theTargets) {
+			Validate.notNull(nextTarget, "theTarget must not be null");
+			Validate.notBlank(defaultString(nextTarget.getResourceType()), "theTarget must have a populated resource type (theTarget.getResourceType() does not return a value)");
+			Validate.notBlank(defaultString(nextTarget.getIdPart()), "theTarget must have a populated ID (theTarget.getIdPart() does not return a value)");
+			wantRefs.add(nextTarget.toUnqualifiedVersionless().getValue());
+		}
+		if (wantRefs.isEmpty()) {
+			return false;
+		}
 
 		RuntimeResourceDefinition sourceDef = myContext.getResourceDefinition(theSource);
 		if (theSource.getIdElement().hasIdPart()) {
-			if (wantRef.equals(sourceDef.getName() + '/' + theSource.getIdElement().getIdPart())) {
+			if (wantRefs.contains(sourceDef.getName() + '/' + theSource.getIdElement().getIdPart())) {
 				return true;
 			}
 		}
@@ -669,7 +693,7 @@ public class FhirTerser {
 						}
 					}
 
-					if (wantRef.equals(nextRef)) {
+					if (wantRefs.contains(nextRef)) {
 						return true;
 					}
 				}
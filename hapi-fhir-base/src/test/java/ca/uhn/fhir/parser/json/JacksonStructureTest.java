@@ -0,0 +1,173 @@
+package ca.uhn.fhir.parser.json;
+
+import ca.uhn.fhir.parser.DataFormatException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JacksonStructureTest {
+
+	private static final String TEST_JSONTYPES_DATA =
+		"{" +
+			"    \"scalar-string\":\"A scalar string\"," +
+			"    \"scalar-number\":11111," +
+			"    \"scalar-decimal\":1.100," +
+			"    \"scalar-boolean\":true," +
+			"    \"null-value\":null," +
+			"    \"object-value\":{" +
+			"        \"lastUpdated\":\"3900-09-20T10:10:10.000-07:00\"," +
+			"        \"deleted\":\"3909-09-20T10:10:10.000-07:00\"" +
+			"    }," +
+			"    \"array-value\":[" +
+			"        12345," +
+			"        {" +
+			"            \"value\":\"15250\"" +
+			"        }" +
+			"    ]" +
+			"}";
+
+	@Test
+	public void testJsonAndDataTypes() {
+		JsonLikeStructure jsonStructure = new JacksonStructure();
+		jsonStructure.load(new StringReader(TEST_JSONTYPES_DATA));
+
+		JsonLikeObject rootObject = jsonStructure.getRootObject();
+		assertNotNull(rootObject);
+		assertEquals(JsonLikeValue.ValueType.OBJECT, rootObject.getJsonType());
+		assertEquals("[scalar-string, scalar-number, scalar-decimal, scalar-boolean, null-value, object-value, array-value]", rootObject.keySet().toString());
+
+		JsonLikeValue value = rootObject.get("object-value");
+		assertTrue(value.isObject());
+		assertEquals("3909-09-20T10:10:10.000-07:00", value.getAsObject().get("deleted").getAsString());
+
+		value = rootObject.get("array-value");
+		assertTrue(value.isArray());
+		JsonLikeArray array = value.getAsArray();
+		assertEquals(2, array.size());
+		assertEquals(JsonLikeValue.ScalarType.NUMBER, array.get(0).getDataType());
+		assertTrue(array.get(1).isObject());
+
+		value = rootObject.get("scalar-string");
+		assertTrue(value.isString());
+		assertEquals("A scalar string", value.getAsString());
+
+		value = rootObject.get("scalar-number");
+		assertTrue(value.isNumber());
+		assertEquals(11111, value.getAsNumber().intValue());
+
+		// Decimal precision must be preserved
+		value = rootObject.get("scalar-decimal");
+		assertEquals("1.100", value.getAsString());
+		assertEquals(new BigDecimal("1.100"), value.getAsNumber());
+
+		value = rootObject.get("scalar-boolean");
+		assertEquals(JsonLikeValue.ScalarType.BOOLEAN, value.getDataType());
+		assertTrue(value.getAsBoolean());
+
+		value = rootObject.get("null-value");
+		assertTrue(value.isNull());
+
+		assertNull(rootObject.get("missing"));
+	}
+
+	@Test
+	public void testLoadArray() {
+		JsonLikeStructure jsonStructure = new JacksonStructure();
+		jsonStructure.load(new StringReader("  [ {\"a\":false}, 1 ]"), true);
+
+		JsonLikeArray rootArray = jsonStructure.getRootArray();
+		assertEquals(2, rootArray.size());
+		assertFalse(rootArray.get(0).getAsObject().get("a").getAsBoolean());
+	}
+
+	@Test
+	public void testInvalidFirstCharacter() {
+		try {
+			new JacksonStructure().load(new StringReader("  FOO"));
+			fail();
+		} catch (DataFormatException e) {
+			assertEquals("Failed to parse JSON content, error was: Content does not appear to be FHIR JSON, first non-whitespace character was: 'F' (must be '{')", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testEmptyContent() {
+		try {
+			new JacksonStructure().load(new StringReader("   "));
+			fail();
+		} catch (DataFormatException e) {
+			assertEquals("Failed to parse JSON content, error was: Did not find any content to parse", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSingleQuotes() {
+		try {
+			new JacksonStructure().load(new StringReader("{'resourceType':'Patient'}"));
+			fail();
+		} catch (DataFormatException e) {
+			assertThat(e.getMessage(), containsString("Failed to parse JSON encoded FHIR content: "));
+			assertThat(e.getMessage(), containsString("single quotes"));
+		}
+	}
+
+	@Test
+	public void testTrailingContent() {
+		try {
+			new JacksonStructure().load(new StringReader("{\"a\":1} {\"b\":2}"));
+			fail();
+		} catch (DataFormatException e) {
+			assertThat(e.getMessage(), containsString("JSON document was not fully consumed"));
+		}
+	}
+
+	@Test
+	public void testWriteWithJacksonWriterAndLoadFromJacksonParser() throws Exception {
+		JsonFactory factory = new JsonFactory();
+		StringWriter output = new StringWriter();
+		try (JsonGenerator generator = factory.createGenerator(output)) {
+			JsonLikeWriter writer = new JacksonWriter(generator);
+			writer.init();
+			writer.beginObject();
+			writer.write("string", "A \"string\"");
+			writer.write("decimal", new BigDecimal("1.100"));
+			writer.write("boolean", true);
+			writer.writeNull("null");
+			writer.beginArray("array");
+			writer.write(12345L);
+			writer.beginObject();
+			writer.write("value", "15250");
+			writer.endBlock();
+			writer.endBlock();
+			writer.endObject();
+			writer.flush();
+		}
+		assertEquals("{\"string\":\"A \\\"string\\\"\",\"decimal\":1.100,\"boolean\":true,\"null\":null,\"array\":[12345,{\"value\":\"15250\"}]}", output.toString());
+
+		JacksonStructure jsonStructure = new JacksonStructure();
+		jsonStructure.load(factory.createParser(output.toString()));
+
+		JsonLikeObject rootObject = jsonStructure.getRootObject();
+		assertEquals("A \"string\"", rootObject.get("string").getAsString());
+		assertEquals(new BigDecimal("1.100"), rootObject.get("decimal").getAsNumber());
+		assertTrue(rootObject.get("boolean").getAsBoolean());
+		assertTrue(rootObject.get("null").isNull());
+		JsonLikeArray array = rootObject.get("array").getAsArray();
+		assertEquals(2, array.size());
+		assertEquals("15250", array.get(1).getAsObject().get("value").getAsString());
+	}
+
+}
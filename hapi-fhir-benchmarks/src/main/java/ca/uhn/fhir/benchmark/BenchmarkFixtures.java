@@ -0,0 +1,207 @@
+package ca.uhn.fhir.benchmark;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.DateType;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds realistic looking (and deterministic) clinical content for the benchmarks
+ */
+public class BenchmarkFixtures {
+
+	public static final String LOINC_SYSTEM = "http://loinc.org";
+	public static final String SNOMED_SYSTEM = "http://snomed.info/sct";
+	public static final String RXNORM_SYSTEM = "http://www.nlm.nih.gov/research/umls/rxnorm";
+	public static final String MRN_SYSTEM = "http://example.com/fhir/mrn";
+
+	private static final String[] FAMILY_NAMES = {"Smith", "Jones", "Nguyen", "Tremblay", "Singh", "Garcia", "Roy", "Wilson"};
+	private static final String[] GIVEN_NAMES = {"Alex", "Sam", "Jordan", "Taylor", "Morgan", "Casey", "Jamie", "Robin"};
+	private static final String[][] VITALS = {
+		{"8867-4", "Heart rate", "/min"},
+		{"9279-1", "Respiratory rate", "/min"},
+		{"8310-5", "Body temperature", "Cel"},
+		{"29463-7", "Body weight", "kg"},
+		{"8302-2", "Body height", "cm"}
+	};
+	private static final String[][] CONDITIONS = {
+		{"44054006", "Diabetes mellitus type 2"},
+		{"38341003", "Hypertensive disorder"},
+		{"195967001", "Asthma"},
+		{"13645005", "Chronic obstructive lung disease"}
+	};
+	private static final String[][] MEDICATIONS = {
+		{"860975", "Metformin 500 MG Oral Tablet"},
+		{"197361", "Amlodipine 5 MG Oral Tablet"},
+		{"745679", "Albuterol 0.09 MG/ACTUAT Inhaler"}
+	};
+
+	private BenchmarkFixtures() {
+		// non instantiable
+	}
+
+	/**
+	 * Creates a collection of resources for a single patient: the patient itself,
+	 * an encounter, a number of vital sign and blood pressure observations, conditions
+	 * and medication requests. References between the resources use the given
+	 * patient ID.
+	 */
+	public static List<Resource> createPatientRecord(int thePatientIndex, int theObservationCount) {
+		Random random = new Random(thePatientIndex);
+		List<Resource> retVal = new ArrayList<>();
+
+		String patientId = "PT" + thePatientIndex;
+		Patient patient = createPatient(thePatientIndex);
+		patient.setId(new IdType("Patient", patientId));
+		retVal.add(patient);
+		Reference patientRef = new Reference("Patient/" + patientId);
+
+		Encounter encounter = new Encounter();
+		encounter.setId(new IdType("Encounter", "ENC" + thePatientIndex));
+		encounter.setStatus(Encounter.EncounterStatus.FINISHED);
+		encounter.getClass_().setSystem("http://terminology.hl7.org/CodeSystem/v3-ActCode").setCode("AMB");
+		encounter.setSubject(patientRef);
+		encounter.setPeriod(new Period().setStartElement(new DateTimeType("2019-03-01T10:00:00Z")).setEndElement(new DateTimeType("2019-03-01T10:45:00Z")));
+		retVal.add(encounter);
+		Reference encounterRef = new Reference("Encounter/" + encounter.getIdElement().getIdPart());
+
+		for (int i = 0; i < theObservationCount; i++) {
+			Observation obs;
+			if (i % 6 == 5) {
+				obs = createBloodPressure(random, patientRef, encounterRef);
+			} else {
+				obs = createVitalSign(random, VITALS[i % VITALS.length], patientRef, encounterRef);
+			}
+			obs.setId(new IdType("Observation", "OBS" + thePatientIndex + "-" + i));
+			retVal.add(obs);
+		}
+
+		for (int i = 0; i < CONDITIONS.length; i++) {
+			if (random.nextBoolean()) {
+				Condition condition = new Condition();
+				condition.setId(new IdType("Condition", "CON" + thePatientIndex + "-" + i));
+				condition.getClinicalStatus().addCoding().setSystem("http://terminology.hl7.org/CodeSystem/condition-clinical").setCode("active");
+				condition.getCode().addCoding().setSystem(SNOMED_SYSTEM).setCode(CONDITIONS[i][0]).setDisplay(CONDITIONS[i][1]);
+				condition.getCode().setText(CONDITIONS[i][1]);
+				condition.setSubject(patientRef);
+				condition.setEncounter(encounterRef);
+				condition.setOnset(new DateTimeType("2015-0" + (1 + i) + "-15"));
+				retVal.add(condition);
+			}
+		}
+
+		for (int i = 0; i < MEDICATIONS.length; i++) {
+			MedicationRequest medRequest = new MedicationRequest();
+			medRequest.setId(new IdType("MedicationRequest", "MR" + thePatientIndex + "-" + i));
+			medRequest.setStatus(MedicationRequest.MedicationRequestStatus.ACTIVE);
+			medRequest.setIntent(MedicationRequest.MedicationRequestIntent.ORDER);
+			CodeableConcept medication = new CodeableConcept();
+			medication.addCoding().setSystem(RXNORM_SYSTEM).setCode(MEDICATIONS[i][0]).setDisplay(MEDICATIONS[i][1]);
+			medRequest.setMedication(medication);
+			medRequest.setSubject(patientRef);
+			medRequest.setEncounter(encounterRef);
+			medRequest.setAuthoredOnElement(new DateTimeType("2019-03-01T10:30:00Z"));
+			medRequest.addDosageInstruction().setText("Take one tablet by mouth daily");
+			retVal.add(medRequest);
+		}
+
+		return retVal;
+	}
+
+	public static Patient createPatient(int thePatientIndex) {
+		Patient patient = new Patient();
+		patient.addIdentifier().setSystem(MRN_SYSTEM).setValue("MRN" + thePatientIndex);
+		patient.addName()
+			.setFamily(FAMILY_NAMES[thePatientIndex % FAMILY_NAMES.length])
+			.addGiven(GIVEN_NAMES[thePatientIndex % GIVEN_NAMES.length])
+			.addGiven(GIVEN_NAMES[(thePatientIndex + 3) % GIVEN_NAMES.length]);
+		patient.setGender(thePatientIndex % 2 == 0 ? Enumerations.AdministrativeGender.FEMALE : Enumerations.AdministrativeGender.MALE);
+		patient.setBirthDateElement(new DateType("19" + (40 + thePatientIndex % 60) + "-0" + (1 + thePatientIndex % 9) + "-1" + (thePatientIndex % 9)));
+		patient.addAddress()
+			.addLine((100 + thePatientIndex) + " Main Street")
+			.addLine("Unit " + (thePatientIndex % 20))
+			.setCity("Toronto")
+			.setState("ON")
+			.setPostalCode("M5G 2C4")
+			.setCountry("CA");
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("416-555-" + String.format("%04d", thePatientIndex % 10000));
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.EMAIL).setValue("patient" + thePatientIndex + "@example.com");
+		return patient;
+	}
+
+	/**
+	 * Creates a transaction Bundle containing {@literal thePatientCount} patient records
+	 */
+	public static Bundle createTransactionBundle(int thePatientCount, int theObservationsPerPatient) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.TRANSACTION);
+		for (int i = 0; i < thePatientCount; i++) {
+			for (Resource next : createPatientRecord(i, theObservationsPerPatient)) {
+				String url = next.getIdElement().toUnqualifiedVersionless().getValue();
+				bundle
+					.addEntry()
+					.setFullUrl(url)
+					.setResource(next)
+					.getRequest()
+					.setMethod(Bundle.HTTPVerb.PUT)
+					.setUrl(url);
+			}
+		}
+		return bundle;
+	}
+
+	private static Observation createVitalSign(Random theRandom, String[] theVital, Reference thePatientRef, Reference theEncounterRef) {
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.addCategory().addCoding().setSystem("http://terminology.hl7.org/CodeSystem/observation-category").setCode("vital-signs");
+		obs.getCode().addCoding().setSystem(LOINC_SYSTEM).setCode(theVital[0]).setDisplay(theVital[1]);
+		obs.getCode().setText(theVital[1]);
+		obs.setSubject(thePatientRef);
+		obs.setEncounter(theEncounterRef);
+		obs.setEffective(new DateTimeType(new Date(1550000000000L + theRandom.nextInt(100000000))));
+		obs.setValue(new Quantity()
+			.setValue(20 + theRandom.nextInt(8000) / 100.0)
+			.setSystem("http://unitsofmeasure.org")
+			.setCode(theVital[2])
+			.setUnit(theVital[2]));
+		return obs;
+	}
+
+	private static Observation createBloodPressure(Random theRandom, Reference thePatientRef, Reference theEncounterRef) {
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.addCategory().addCoding().setSystem("http://terminology.hl7.org/CodeSystem/observation-category").setCode("vital-signs");
+		obs.getCode().addCoding().setSystem(LOINC_SYSTEM).setCode("85354-9").setDisplay("Blood pressure panel");
+		obs.setSubject(thePatientRef);
+		obs.setEncounter(theEncounterRef);
+		obs.setEffective(new DateTimeType(new Date(1550000000000L + theRandom.nextInt(100000000))));
+
+		Observation.ObservationComponentComponent systolic = obs.addComponent();
+		systolic.getCode().addCoding().setSystem(LOINC_SYSTEM).setCode("8480-6").setDisplay("Systolic blood pressure");
+		systolic.setValue(new Quantity().setValue(100 + theRandom.nextInt(60)).setSystem("http://unitsofmeasure.org").setCode("mm[Hg]").setUnit("mmHg"));
+
+		Observation.ObservationComponentComponent diastolic = obs.addComponent();
+		diastolic.getCode().addCoding().setSystem(LOINC_SYSTEM).setCode("8462-4").setDisplay("Diastolic blood pressure");
+		diastolic.setValue(new Quantity().setValue(60 + theRandom.nextInt(40)).setSystem("http://unitsofmeasure.org").setCode("mm[Hg]").setUnit("mmHg"));
+
+		return obs;
+	}
+
+}
@@ -0,0 +1,51 @@
+package ca.uhn.fhir.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point for the benchmark JAR. This accepts exactly the same command line
+ * arguments as the standard JMH runner, but unless a result format/file is
+ * specified explicitly the results are written as JSON to
+ * <code>target/jmh-result.json</code> so that runs against different releases
+ * can be compared by tooling.
+ */
+public class BenchmarkRunner {
+
+	static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+	public static void main(String[] theArgs) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions cmdOptions = new CommandLineOptions(theArgs);
+		if (cmdOptions.shouldHelp()) {
+			cmdOptions.showHelp();
+			return;
+		}
+		if (cmdOptions.shouldList()) {
+			new Runner(cmdOptions).list();
+			return;
+		}
+
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(cmdOptions);
+		if (!cmdOptions.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (!cmdOptions.getResult().hasValue()) {
+			builder.result(DEFAULT_RESULT_FILE);
+		}
+		if (cmdOptions.getIncludes().isEmpty()) {
+			builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+		}
+
+		Options options = builder.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,67 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.FhirTerser;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Reference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path based value access using {@link FhirTerser}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FhirTerserBenchmark {
+
+	private FhirTerser myTerser;
+	private Observation myObservation;
+	private Bundle myBundle;
+
+	@Setup
+	public void setup() {
+		FhirContext ctx = FhirContext.forR4();
+		myTerser = ctx.newTerser();
+		myBundle = BenchmarkFixtures.createTransactionBundle(10, 20);
+		myObservation = (Observation) myBundle
+			.getEntry()
+			.stream()
+			.map(Bundle.BundleEntryComponent::getResource)
+			.filter(t -> t instanceof Observation && ((Observation) t).hasComponent())
+			.findFirst()
+			.orElseThrow(IllegalStateException::new);
+	}
+
+	@Benchmark
+	public List<IBase> getValuesSimplePath() {
+		return myTerser.getValues(myObservation, "Observation.subject");
+	}
+
+	@Benchmark
+	public List<IBase> getValuesNestedRepeatingPath() {
+		return myTerser.getValues(myObservation, "Observation.component.code.coding.code");
+	}
+
+	@Benchmark
+	public List<Reference> getAllPopulatedReferencesInBundle() {
+		return myTerser.getAllPopulatedChildElementsOfType(myBundle, Reference.class);
+	}
+
+}
@@ -0,0 +1,72 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.IndexedSearchParamExtractor;
+import org.hl7.fhir.r4.model.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory criteria matching, as performed by the subscription matcher for
+ * every (resource, subscription) pair
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryResourceMatcherBenchmark {
+
+	@Param({
+		"Observation?code=http://loinc.org|8867-4",
+		"Observation?subject=Patient/PT0&status=final",
+		"Observation?code=http://loinc.org|85354-9&component-code=http://loinc.org|8480-6",
+		"Observation?value-quantity=gt50"
+	})
+	public String myCriteria;
+
+	private InMemoryResourceMatcher myMatcher;
+	private IndexedSearchParamExtractor myIndexedSearchParamExtractor;
+	private Observation myObservation;
+	private ResourceIndexedSearchParams myIndexedSearchParams;
+
+	@Setup
+	public void setup(JpaR4State theState) {
+		myMatcher = theState.getBean(InMemoryResourceMatcher.class);
+		myIndexedSearchParamExtractor = theState.getBean(IndexedSearchParamExtractor.class);
+		myObservation = (Observation) BenchmarkFixtures.createPatientRecord(0, 1).get(2);
+		myIndexedSearchParams = myIndexedSearchParamExtractor.extractIndexedSearchParams(myObservation, null);
+	}
+
+	/**
+	 * Matching against previously extracted index values
+	 */
+	@Benchmark
+	public InMemoryMatchResult match() {
+		return myMatcher.match(myCriteria, myObservation, myIndexedSearchParams);
+	}
+
+	/**
+	 * Matching including the index extraction step
+	 */
+	@Benchmark
+	public InMemoryMatchResult extractAndMatch() {
+		ResourceIndexedSearchParams params = myIndexedSearchParamExtractor.extractIndexedSearchParams(myObservation, null);
+		return myMatcher.match(myCriteria, myObservation, params);
+	}
+
+}
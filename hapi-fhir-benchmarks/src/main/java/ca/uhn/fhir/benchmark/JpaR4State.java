@@ -0,0 +1,65 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.jpa.dao.IFhirSystemDao;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Meta;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Benchmark state holding a running R4 JPA server context. The context is
+ * created once per trial (i.e. once per fork) since startup is expensive.
+ */
+@State(Scope.Benchmark)
+public class JpaR4State {
+
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(JpaR4State.class);
+	private AnnotationConfigApplicationContext myAppCtx;
+
+	public <T> T getBean(Class<T> theType) {
+		return getAppCtx().getBean(theType);
+	}
+
+	private synchronized AnnotationConfigApplicationContext getAppCtx() {
+		if (myAppCtx == null) {
+			ourLog.info("Starting JPA benchmark context");
+			myAppCtx = new AnnotationConfigApplicationContext(BenchmarkJpaR4Config.class);
+		}
+		return myAppCtx;
+	}
+
+	/**
+	 * Stores {@literal thePatientCount} patient records (see {@link BenchmarkFixtures#createPatientRecord(int, int)})
+	 * using a series of transactions
+	 */
+	@SuppressWarnings("unchecked")
+	public void populate(int thePatientCount, int theObservationsPerPatient) {
+		IFhirSystemDao<Bundle, Meta> systemDao = getBean(IFhirSystemDao.class);
+		int chunkSize = 10;
+		for (int start = 0; start < thePatientCount; start += chunkSize) {
+			Bundle bundle = new Bundle();
+			bundle.setType(Bundle.BundleType.TRANSACTION);
+			int end = Math.min(start + chunkSize, thePatientCount);
+			for (int i = start; i < end; i++) {
+				BenchmarkFixtures.createPatientRecord(i, theObservationsPerPatient).forEach(t -> {
+					String url = t.getIdElement().toUnqualifiedVersionless().getValue();
+					bundle.addEntry().setFullUrl(url).setResource(t).getRequest().setMethod(Bundle.HTTPVerb.PUT).setUrl(url);
+				});
+			}
+			systemDao.transaction(null, bundle);
+		}
+		ourLog.info("Populated {} patient records", thePatientCount);
+	}
+
+	@TearDown(Level.Trial)
+	public synchronized void tearDown() {
+		if (myAppCtx != null) {
+			myAppCtx.close();
+			myAppCtx = null;
+		}
+	}
+
+}
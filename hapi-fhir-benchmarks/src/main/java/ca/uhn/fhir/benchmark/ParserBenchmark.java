@@ -0,0 +1,69 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and parses transaction Bundles of various sizes using
+ * the JSON and XML parsers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	@Param({"10", "100"})
+	public int myPatientCount;
+
+	@Param({"JSON", "XML"})
+	public String myEncoding;
+
+	private FhirContext myCtx;
+	private Bundle myBundle;
+	private String myEncodedBundle;
+
+	@Setup
+	public void setup() {
+		myCtx = FhirContext.forR4();
+		myBundle = BenchmarkFixtures.createTransactionBundle(myPatientCount, 20);
+		myEncodedBundle = newParser().encodeResourceToString(myBundle);
+	}
+
+	@Benchmark
+	public String encodeBundle() {
+		return newParser().encodeResourceToString(myBundle);
+	}
+
+	@Benchmark
+	public Bundle parseBundle() {
+		return newParser().parseResource(Bundle.class, myEncodedBundle);
+	}
+
+	private IParser newParser() {
+		switch (myEncoding) {
+			case "XML":
+				return myCtx.newXmlParser();
+			case "JSON":
+			default:
+				return myCtx.newJsonParser();
+		}
+	}
+
+}
@@ -0,0 +1,290 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.Create;
+import ca.uhn.fhir.rest.annotation.Delete;
+import ca.uhn.fhir.rest.annotation.History;
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.annotation.RequiredParam;
+import ca.uhn.fhir.rest.annotation.ResourceParam;
+import ca.uhn.fhir.rest.annotation.Search;
+import ca.uhn.fhir.rest.annotation.Update;
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.ResourceBinding;
+import ca.uhn.fhir.rest.server.RestfulServer;
+import ca.uhn.fhir.rest.server.method.BaseMethodBinding;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.ServletException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selection of the method binding that handles an incoming request, for a resource
+ * provider with a typical number of search methods and operations. The
+ * <code>linearScan</code> benchmark asks every binding for the resource type in turn,
+ * which is how requests were routed before the bindings were indexed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestfulServerRoutingBenchmark {
+
+	@Param({"read", "search", "create", "operation"})
+	public String myRequestKind;
+
+	private RestfulServer myServer;
+	private List<BaseMethodBinding<?>> myPatientBindings;
+	private ServletRequestDetails myRequest;
+
+	@Setup
+	public void setup() throws ServletException {
+		myServer = new RestfulServer(FhirContext.forR4());
+		myServer.setResourceProviders(new PatientProvider());
+		myServer.init();
+
+		myPatientBindings = myServer
+			.getResourceBindings()
+			.stream()
+			.filter(t -> "Patient".equals(t.getResourceName()))
+			.map(ResourceBinding::getMethodBindings)
+			.findFirst()
+			.orElseThrow(IllegalStateException::new);
+
+		myRequest = new ServletRequestDetails(myServer.getInterceptorService());
+		myRequest.setServer(myServer);
+		myRequest.setResourceName("Patient");
+		Map<String, String[]> parameters = new HashMap<>();
+		switch (myRequestKind) {
+			case "read":
+				myRequest.setRequestType(RequestTypeEnum.GET);
+				myRequest.setId(new IdType("Patient/123"));
+				break;
+			case "search":
+				myRequest.setRequestType(RequestTypeEnum.GET);
+				parameters.put(Patient.SP_BIRTHDATE, new String[]{"2000-01-01"});
+				break;
+			case "create":
+				myRequest.setRequestType(RequestTypeEnum.POST);
+				break;
+			case "operation":
+				myRequest.setRequestType(RequestTypeEnum.POST);
+				myRequest.setId(new IdType("Patient/123"));
+				myRequest.setOperation("$op20");
+				break;
+			default:
+				throw new IllegalStateException("Unknown request kind: " + myRequestKind);
+		}
+		myRequest.setParameters(parameters);
+
+		if (indexed() == null || indexed() != linearScan()) {
+			throw new IllegalStateException("Routing mismatch for request kind: " + myRequestKind);
+		}
+	}
+
+	@Benchmark
+	public BaseMethodBinding<?> indexed() {
+		return myServer.determineResourceMethod(myRequest, "Patient");
+	}
+
+	@Benchmark
+	public BaseMethodBinding<?> linearScan() {
+		for (BaseMethodBinding<?> next : myPatientBindings) {
+			if (next.incomingServerRequestMatchesMethod(myRequest)) {
+				return next;
+			}
+		}
+		return null;
+	}
+
+	public static class PatientProvider implements IResourceProvider {
+
+		@Override
+		public Class<Patient> getResourceType() {
+			return Patient.class;
+		}
+
+		@Read(version = true)
+		public Patient read(@IdParam IdType theId) {
+			return new Patient();
+		}
+
+		@Create
+		public MethodOutcome create(@ResourceParam Patient thePatient) {
+			return new MethodOutcome();
+		}
+
+		@Update
+		public MethodOutcome update(@IdParam IdType theId, @ResourceParam Patient thePatient) {
+			return new MethodOutcome();
+		}
+
+		@Delete
+		public MethodOutcome delete(@IdParam IdType theId) {
+			return new MethodOutcome();
+		}
+
+		@History
+		public List<Patient> history(@IdParam IdType theId) {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchAll() {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchByName(@RequiredParam(name = Patient.SP_NAME) StringParam theName) {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchByFamily(@RequiredParam(name = Patient.SP_FAMILY) StringParam theFamily) {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchByIdentifier(@RequiredParam(name = Patient.SP_IDENTIFIER) TokenParam theIdentifier) {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchByGender(@RequiredParam(name = Patient.SP_GENDER) TokenParam theGender) {
+			return null;
+		}
+
+		@Search
+		public List<Patient> searchByBirthDate(@RequiredParam(name = Patient.SP_BIRTHDATE) DateParam theBirthDate) {
+			return null;
+		}
+
+		@Operation(name = "$op01")
+		public Parameters op01(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op02")
+		public Parameters op02(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op03")
+		public Parameters op03(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op04")
+		public Parameters op04(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op05")
+		public Parameters op05(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op06")
+		public Parameters op06(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op07")
+		public Parameters op07(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op08")
+		public Parameters op08(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op09")
+		public Parameters op09(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op10")
+		public Parameters op10(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op11")
+		public Parameters op11(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op12")
+		public Parameters op12(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op13")
+		public Parameters op13(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op14")
+		public Parameters op14(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op15")
+		public Parameters op15(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op16")
+		public Parameters op16(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op17")
+		public Parameters op17(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op18")
+		public Parameters op18(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op19")
+		public Parameters op19(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+		@Operation(name = "$op20")
+		public Parameters op20(@IdParam IdType theId) {
+			return new Parameters();
+		}
+
+	}
+
+}
@@ -0,0 +1,129 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.jpa.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.dao.IResultIterator;
+import ca.uhn.fhir.jpa.dao.ISearchBuilder;
+import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
+import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
+import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JPA search against an H2 database: PID query generation/execution in
+ * {@link ISearchBuilder#createQuery(SearchParameterMap, SearchRuntimeDetails, ca.uhn.fhir.rest.api.server.RequestDetails)},
+ * resource loading in {@link ISearchBuilder#loadResourcesByPid(java.util.Collection, java.util.Collection, List, boolean, ca.uhn.fhir.rest.api.server.RequestDetails)},
+ * and the full synchronous DAO search path that combines the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBuilderBenchmark {
+
+	private static final int PATIENT_COUNT = 50;
+	private static final int OBSERVATIONS_PER_PATIENT = 20;
+
+	@Param({"10", "100"})
+	public int myPageSize;
+
+	private IFhirResourceDao<Observation> myObservationDao;
+	private SearchBuilderFactory mySearchBuilderFactory;
+	private TransactionTemplate myTxTemplate;
+	private List<ResourcePersistentId> myPids;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup(JpaR4State theState) {
+		theState.populate(PATIENT_COUNT, OBSERVATIONS_PER_PATIENT);
+
+		myObservationDao = theState.getBean(DaoRegistry.class).getResourceDao("Observation");
+		mySearchBuilderFactory = theState.getBean(SearchBuilderFactory.class);
+		myTxTemplate = new TransactionTemplate(theState.getBean(PlatformTransactionManager.class));
+
+		SearchParameterMap allObservations = new SearchParameterMap();
+		allObservations.setLoadSynchronous(true);
+		myPids = fetchPids(allObservations);
+	}
+
+	@Benchmark
+	public List<ResourcePersistentId> createQueryByCode() {
+		SearchParameterMap map = new SearchParameterMap();
+		map.setLoadSynchronous(true);
+		map.add(Observation.SP_CODE, new TokenParam(BenchmarkFixtures.LOINC_SYSTEM, "8867-4"));
+		return fetchPids(map);
+	}
+
+	@Benchmark
+	public List<ResourcePersistentId> createQueryBySubjectAndCode() {
+		SearchParameterMap map = new SearchParameterMap();
+		map.setLoadSynchronous(true);
+		map.add(Observation.SP_SUBJECT, new ReferenceParam("Patient/PT1"));
+		map.add(Observation.SP_CODE, new TokenParam(BenchmarkFixtures.LOINC_SYSTEM, "8867-4"));
+		return fetchPids(map);
+	}
+
+	@Benchmark
+	public List<IBaseResource> loadResourcesByPid() {
+		return myTxTemplate.execute(t -> {
+			List<IBaseResource> retVal = new ArrayList<>();
+			newSearchBuilder().loadResourcesByPid(myPids, new ArrayList<>(), retVal, false, null);
+			return retVal;
+		});
+	}
+
+	@Benchmark
+	public List<IBaseResource> daoSearchByCode() {
+		SearchParameterMap map = new SearchParameterMap();
+		map.setLoadSynchronous(true);
+		map.setCount(myPageSize);
+		map.add(Observation.SP_CODE, new TokenParam(BenchmarkFixtures.LOINC_SYSTEM, "8867-4"));
+		IBundleProvider outcome = myObservationDao.search(map);
+		return outcome.getResources(0, myPageSize);
+	}
+
+	private List<ResourcePersistentId> fetchPids(SearchParameterMap theMap) {
+		return myTxTemplate.execute(t -> {
+			List<ResourcePersistentId> retVal = new ArrayList<>();
+			try (IResultIterator iter = newSearchBuilder().createQuery(theMap, new SearchRuntimeDetails(null, UUID.randomUUID().toString()), null)) {
+				while (iter.hasNext() && retVal.size() < myPageSize) {
+					retVal.add(iter.next());
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return retVal;
+		});
+	}
+
+	private ISearchBuilder newSearchBuilder() {
+		return mySearchBuilderFactory.newSearchBuilder(myObservationDao, "Observation", Observation.class);
+	}
+
+}
@@ -0,0 +1,103 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.model.entity.ModelConfig;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamDate;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamQuantity;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.PathAndRef;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.matcher.IndexedSearchParamExtractor;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search parameter index extraction, as performed on every resource write
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchParamExtractorBenchmark {
+
+	/**
+	 * Should simple paths be evaluated using a single traversal (see {@link ModelConfig#setSearchParamPathTreeEnabled(boolean)})
+	 */
+	@Param({"false", "true"})
+	public boolean myPathTree;
+
+	private ISearchParamExtractor mySearchParamExtractor;
+	private IndexedSearchParamExtractor myIndexedSearchParamExtractor;
+	private Patient myPatient;
+	private Observation myObservation;
+
+	@Setup
+	public void setup(JpaR4State theState) {
+		mySearchParamExtractor = theState.getBean(ISearchParamExtractor.class);
+		myIndexedSearchParamExtractor = theState.getBean(IndexedSearchParamExtractor.class);
+		theState.getBean(ModelConfig.class).setSearchParamPathTreeEnabled(myPathTree);
+
+		List<Resource> record = BenchmarkFixtures.createPatientRecord(0, 6);
+		myPatient = (Patient) record.get(0);
+		myObservation = record
+			.stream()
+			.filter(t -> t instanceof Observation && ((Observation) t).hasComponent())
+			.map(t -> (Observation) t)
+			.findFirst()
+			.orElseThrow(IllegalStateException::new);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<BaseResourceIndexedSearchParam> extractTokensObservation() {
+		return mySearchParamExtractor.extractSearchParamTokens(myObservation);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamQuantity> extractQuantitiesObservation() {
+		return mySearchParamExtractor.extractSearchParamQuantity(myObservation);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamDate> extractDatesObservation() {
+		return mySearchParamExtractor.extractSearchParamDates(myObservation);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<PathAndRef> extractLinksObservation() {
+		return mySearchParamExtractor.extractResourceLinks(myObservation);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamString> extractStringsPatient() {
+		return mySearchParamExtractor.extractSearchParamStrings(myPatient);
+	}
+
+	@Benchmark
+	public ResourceIndexedSearchParams extractAllObservation() {
+		return myIndexedSearchParamExtractor.extractIndexedSearchParams(myObservation, null);
+	}
+
+	@Benchmark
+	public ResourceIndexedSearchParams extractAllPatient() {
+		return myIndexedSearchParamExtractor.extractIndexedSearchParams(myPatient, null);
+	}
+
+}
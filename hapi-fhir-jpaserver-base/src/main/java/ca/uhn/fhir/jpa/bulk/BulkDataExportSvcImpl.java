@@ -21,10 +21,12 @@ package ca.uhn.fhir.jpa.bulk;
  */
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.binstore.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.dao.*;
 import ca.uhn.fhir.jpa.dao.data.IBulkExportCollectionDao;
 import ca.uhn.fhir.jpa.dao.data.IBulkExportCollectionFileDao;
 import ca.uhn.fhir.jpa.dao.data.IBulkExportJobDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
 import ca.uhn.fhir.jpa.entity.BulkExportCollectionEntity;
 import ca.uhn.fhir.jpa.entity.BulkExportCollectionFileEntity;
 import ca.uhn.fhir.jpa.entity.BulkExportJobEntity;
@@ -32,23 +34,28 @@ import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
 import ca.uhn.fhir.jpa.model.sched.HapiJob;
 import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
 import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
-import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
-import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.util.ExpungeOptions;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.rest.api.Constants;
-import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.util.BinaryUtil;
 import ca.uhn.fhir.util.StopWatch;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.time.DateUtils;
+import org.hibernate.search.util.impl.Executors;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.hl7.fhir.r4.model.InstantType;
 import org.quartz.JobExecutionContext;
 import org.slf4j.Logger;
@@ -58,16 +65,24 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.transaction.Transactional;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.util.UrlUtil.escapeUrlParam;
@@ -76,6 +91,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 
 	private static final Logger ourLog = LoggerFactory.getLogger(BulkDataExportSvcImpl.class);
+	private static final long HEARTBEAT_INTERVAL_MILLIS = DateUtils.MILLIS_PER_MINUTE;
 	private int myReuseBulkExportForMillis = (int) (60 * DateUtils.MILLIS_PER_MINUTE);
 
 	@Autowired
@@ -94,10 +110,22 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 	private PlatformTransactionManager myTxManager;
 	@Autowired
 	private SearchBuilderFactory mySearchBuilderFactory;
+	@Autowired
+	private DaoConfig myDaoConfig;
+	@Autowired(required = false)
+	private IBinaryStorageSvc myBinaryStorageSvc;
+	@Autowired
+	private IResourceTableDao myResourceTableDao;
 	private TransactionTemplate myTxTemplate;
+	private TransactionTemplate myHeartbeatTxTemplate;
+
+	private ThreadFactory myThreadFactory = new BasicThreadFactory.Builder().namingPattern("BulkExport-%d").build();
+	private ThreadPoolExecutor myTaskExecutor;
 
 	private long myFileMaxChars = 500 * FileUtils.ONE_KB;
+	private int myMaxResourcesPerWorkUnit = 50000;
 	private int myRetentionPeriod = (int) (2 * DateUtils.MILLIS_PER_HOUR);
+	private long myStaleJobMillis = 15 * DateUtils.MILLIS_PER_MINUTE;
 
 	/**
 	 * This method is called by the scheduler to run a pass of the
@@ -107,6 +135,8 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 	@Override
 	public synchronized void buildExportFiles() {
 
+		failStaleJobs();
+
 		Optional<BulkExportJobEntity> jobToProcessOpt = myTxTemplate.execute(t -> {
 			Pageable page = PageRequest.of(0, 1);
 			Slice<BulkExportJobEntity> submittedJobs = myBulkExportJobDao.findByStatus(page, BulkJobStatusEnum.SUBMITTED);
@@ -123,26 +153,54 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 		String jobUuid = jobToProcessOpt.get().getJobId();
 
 		try {
-			myTxTemplate.execute(t -> {
-				processJob(jobUuid);
-				return null;
-			});
+			processJob(jobUuid);
 		} catch (Exception e) {
 			ourLog.error("Failure while preparing bulk export extract", e);
-			myTxTemplate.execute(t -> {
-				Optional<BulkExportJobEntity> submittedJobs = myBulkExportJobDao.findByJobId(jobUuid);
-				if (submittedJobs.isPresent()) {
-					BulkExportJobEntity jobEntity = submittedJobs.get();
-					jobEntity.setStatus(BulkJobStatusEnum.ERROR);
-					jobEntity.setStatusMessage(e.getMessage());
-					myBulkExportJobDao.save(jobEntity);
-				}
-				return null;
-			});
+			failJob(jobUuid, e.getMessage());
 		}
 
 	}
 
+	/**
+	 * A job that is BUILDING has its status time refreshed regularly while its files are
+	 * generated (see {@link JobHeartbeat}). If this stops happening for long enough, the
+	 * node building the job has probably gone away (e.g. it was restarted mid-export), so
+	 * the job is marked as failed and any files it produced are removed.
+	 */
+	private void failStaleJobs() {
+		Date cutoff = new Date(System.currentTimeMillis() - myStaleJobMillis);
+		List<String> staleJobs = myTxTemplate.execute(t -> {
+			Pageable page = PageRequest.of(0, 100);
+			Slice<BulkExportJobEntity> jobs = myBulkExportJobDao.findByStatusAndStatusTimeBefore(page, BulkJobStatusEnum.BUILDING, cutoff);
+			return jobs.stream().map(BulkExportJobEntity::getJobId).collect(Collectors.toList());
+		});
+
+		for (String next : staleJobs) {
+			ourLog.warn("Bulk export job {} has not made progress since {}, marking it as failed", next, cutoff);
+			failJob(next, "Job was abandoned while building");
+		}
+	}
+
+	/**
+	 * Marks a job as failed, and deletes any files it has already produced
+	 */
+	private void failJob(String theJobUuid, String theMessage) {
+		myTxTemplate.execute(t -> {
+			Optional<BulkExportJobEntity> submittedJobs = myBulkExportJobDao.findByJobId(theJobUuid);
+			if (submittedJobs.isPresent()) {
+				BulkExportJobEntity jobEntity = submittedJobs.get();
+				jobEntity.setStatus(BulkJobStatusEnum.ERROR);
+				jobEntity.setStatusMessage(theMessage);
+				myBulkExportJobDao.save(jobEntity);
+
+				for (BulkExportCollectionEntity nextCollection : jobEntity.getCollections()) {
+					deleteFiles(nextCollection);
+				}
+			}
+			return null;
+		});
+	}
+
 
 	/**
 	 * This method is called by the scheduler to run a pass of the
@@ -168,15 +226,7 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 
 				BulkExportJobEntity job = myBulkExportJobDao.getOne(jobToDelete.get().getId());
 				for (BulkExportCollectionEntity nextCollection : job.getCollections()) {
-					for (BulkExportCollectionFileEntity nextFile : nextCollection.getFiles()) {
-
-						ourLog.info("Purging bulk data file: {}", nextFile.getResourceId());
-						getBinaryDao().delete(toId(nextFile.getResourceId()));
-						getBinaryDao().forceExpungeInExistingTransaction(toId(nextFile.getResourceId()), new ExpungeOptions().setExpungeDeletedResources(true).setExpungeOldVersions(true), null);
-						myBulkExportCollectionFileDao.deleteByPid(nextFile.getId());
-
-					}
-
+					deleteFiles(nextCollection);
 					myBulkExportCollectionDao.deleteByPid(nextCollection.getId());
 				}
 
@@ -191,9 +241,33 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 
 	}
 
+	/**
+	 * Deletes the files belonging to a collection, along with the Binary resources holding them.
+	 * Must be called within a transaction.
+	 */
+	private void deleteFiles(BulkExportCollectionEntity theCollection) {
+		for (BulkExportCollectionFileEntity nextFile : theCollection.getFiles()) {
+
+			ourLog.info("Purging bulk data file: {}", nextFile.getResourceId());
+			getBinaryDao().delete(toId(nextFile.getResourceId()));
+			getBinaryDao().forceExpungeInExistingTransaction(toId(nextFile.getResourceId()), new ExpungeOptions().setExpungeDeletedResources(true).setExpungeOldVersions(true), null);
+			myBulkExportCollectionFileDao.deleteByPid(nextFile.getId());
+
+		}
+	}
+
 	private void processJob(String theJobUuid) {
 
-		Optional<BulkExportJobEntity> jobOpt = myBulkExportJobDao.findByJobId(theJobUuid);
+		Optional<BulkExportJobEntity> jobOpt = myTxTemplate.execute(t -> {
+			Optional<BulkExportJobEntity> job = myBulkExportJobDao.findByJobId(theJobUuid);
+			job.ifPresent(theJob -> {
+				theJob.setStatus(BulkJobStatusEnum.BUILDING);
+				myBulkExportJobDao.save(theJob);
+				// Initialize the collections so that they can be used outside of this transaction
+				theJob.getCollections().size();
+			});
+			return job;
+		});
 		if (!jobOpt.isPresent()) {
 			ourLog.info("Job appears to be deleted");
 			return;
@@ -201,102 +275,258 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 
 		StopWatch jobStopwatch = new StopWatch();
 		AtomicInteger jobResourceCounter = new AtomicInteger();
+		JobHeartbeat heartbeat = new JobHeartbeat(theJobUuid);
 
 		BulkExportJobEntity job = jobOpt.get();
 		ourLog.info("Bulk export starting generation for batch export job: {}", job);
+		Date since = job.getSince() != null ? job.getSince() : new Date(0);
+
+		/*
+		 * Each resource type is split into work units of up to myMaxResourcesPerWorkUnit
+		 * resources, and each work unit is exported to its own file(s) by a worker thread
+		 * in its own transaction. The PIDs for each work unit are read on this thread in
+		 * a short transaction of their own, so that no transaction is held open while this
+		 * thread blocks waiting for room in the worker queue. As soon as a work unit fails
+		 * the job can no longer succeed, so no further work units are submitted and the
+		 * remaining ones are abandoned.
+		 */
+		List<Future<?>> workUnits = new ArrayList<>();
+		AtomicBoolean jobAborted = new AtomicBoolean();
+		try {
+			for (BulkExportCollectionEntity nextCollection : job.getCollections()) {
+				if (jobAborted.get()) {
+					break;
+				}
+				Long collectionPid = nextCollection.getId();
+				String nextType = nextCollection.getResourceType();
+				ourLog.info("Bulk export assembling export of type {} for job {}", nextType, theJobUuid);
+
+				long lastPid = -1L;
+				while (!jobAborted.get()) {
+					long previousPid = lastPid;
+					List<ResourcePersistentId> pids = myTxTemplate.execute(t -> {
+						Pageable page = PageRequest.of(0, myMaxResourcesPerWorkUnit);
+						Slice<Long> ids = myResourceTableDao.findIdsOfNonDeletedResourcesOfTypeUpdatedSince(page, nextType, since, previousPid);
+						return ids.stream().map(ResourcePersistentId::new).collect(Collectors.toList());
+					});
+					if (pids.isEmpty()) {
+						break;
+					}
+					lastPid = pids.get(pids.size() - 1).getIdAsLong();
+
+					workUnits.add(myTaskExecutor.submit(() -> {
+						if (jobAborted.get()) {
+							return;
+						}
+						try {
+							myTxTemplate.execute(t2 -> {
+								storeResultsToFiles(collectionPid, nextType, pids, jobResourceCounter, jobStopwatch, heartbeat, jobAborted);
+								return null;
+							});
+						} catch (RuntimeException e) {
+							jobAborted.set(true);
+							throw e;
+						}
+					}));
+					heartbeat.beat();
+
+					if (pids.size() < myMaxResourcesPerWorkUnit) {
+						break;
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			jobAborted.set(true);
+			cancelQueuedWorkUnits(workUnits);
+			try {
+				awaitWorkUnits(workUnits, jobAborted);
+			} catch (RuntimeException e2) {
+				e.addSuppressed(e2);
+			}
+			throw e;
+		}
+		awaitWorkUnits(workUnits, jobAborted);
 
-		for (BulkExportCollectionEntity nextCollection : job.getCollections()) {
-
-			String nextType = nextCollection.getResourceType();
-			IFhirResourceDao dao = myDaoRegistry.getResourceDao(nextType);
+		myTxTemplate.execute(t -> {
+			BulkExportJobEntity completedJob = myBulkExportJobDao.findByJobId(theJobUuid).orElseThrow(() -> new ResourceNotFoundException(theJobUuid));
+			completedJob.setStatus(BulkJobStatusEnum.COMPLETE);
+			updateExpiry(completedJob);
+			myBulkExportJobDao.save(completedJob);
+			return null;
+		});
 
-			ourLog.info("Bulk export assembling export of type {} for job {}", nextType, theJobUuid);
+		ourLog.info("Bulk export completed job in {}: {}", jobStopwatch, job);
 
-			Class<? extends IBaseResource> nextTypeClass = myContext.getResourceDefinition(nextType).getImplementingClass();
-			ISearchBuilder sb = mySearchBuilderFactory.newSearchBuilder(dao, nextType, nextTypeClass);
+	}
 
-			SearchParameterMap map = new SearchParameterMap();
-			map.setLoadSynchronous(true);
-			if (job.getSince() != null) {
-				map.setLastUpdated(new DateRangeParam(job.getSince(), null));
+	/**
+	 * Waits for all of the given work units to finish, and then rethrows the first failure (if any).
+	 * Any other failures are attached to it as suppressed exceptions. Once a failure has been seen,
+	 * the job is aborted and work units which have not started yet are cancelled.
+	 */
+	private void awaitWorkUnits(List<Future<?>> theWorkUnits, AtomicBoolean theJobAborted) {
+		RuntimeException firstFailure = null;
+		for (Future<?> next : theWorkUnits) {
+			try {
+				next.get();
+			} catch (CancellationException e) {
+				// This work unit was never started
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(e);
+			} catch (ExecutionException e) {
+				RuntimeException failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new InternalErrorException(e.getCause());
+				if (firstFailure == null) {
+					firstFailure = failure;
+					theJobAborted.set(true);
+					cancelQueuedWorkUnits(theWorkUnits);
+				} else {
+					firstFailure.addSuppressed(failure);
+				}
 			}
-
-			IResultIterator resultIterator = sb.createQuery(map, new SearchRuntimeDetails(null, theJobUuid), null);
-			storeResultsToFiles(nextCollection, sb, resultIterator, jobResourceCounter, jobStopwatch);
 		}
 
-		job.setStatus(BulkJobStatusEnum.COMPLETE);
-		updateExpiry(job);
-		myBulkExportJobDao.save(job);
-
-		ourLog.info("Bulk export completed job in {}: {}", jobStopwatch, job);
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+	}
 
+	/**
+	 * Cancels the work units which are still waiting in the executor queue. Work units which
+	 * are already running are left alone so that they can still be waited for (they stop early
+	 * once the job is aborted), since a cancelled {@link Future} no longer reports when its
+	 * task actually finishes.
+	 */
+	private void cancelQueuedWorkUnits(List<Future<?>> theWorkUnits) {
+		for (Future<?> next : theWorkUnits) {
+			if (myTaskExecutor.remove((Runnable) next)) {
+				next.cancel(false);
+			}
+		}
 	}
 
-	private void storeResultsToFiles(BulkExportCollectionEntity theExportCollection, ISearchBuilder theSearchBuilder, IResultIterator theResultIterator, AtomicInteger theJobResourceCounter, StopWatch theJobStopwatch) {
+	/**
+	 * Refreshes the status time of a BUILDING job (at most once per {@link #HEARTBEAT_INTERVAL_MILLIS})
+	 * so that other passes of the generator can tell that it is still being worked on. Each
+	 * update is made in its own transaction, so that the job row is never locked by a worker
+	 * transaction.
+	 */
+	private class JobHeartbeat {
+		private final String myJobUuid;
+		private final AtomicLong myLastBeat = new AtomicLong(System.currentTimeMillis());
+
+		JobHeartbeat(String theJobUuid) {
+			myJobUuid = theJobUuid;
+		}
 
-		try (IResultIterator query = theResultIterator) {
-			if (!query.hasNext()) {
+		void beat() {
+			long now = System.currentTimeMillis();
+			long last = myLastBeat.get();
+			if (now - last < HEARTBEAT_INTERVAL_MILLIS || !myLastBeat.compareAndSet(last, now)) {
 				return;
 			}
+			myHeartbeatTxTemplate.execute(t -> myBulkExportJobDao.updateStatusTime(myJobUuid, BulkJobStatusEnum.BUILDING, new Date(now)));
+		}
+	}
 
-			AtomicInteger fileCounter = new AtomicInteger(0);
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-			OutputStreamWriter writer = new OutputStreamWriter(outputStream, Constants.CHARSET_UTF8);
-			IParser parser = myContext.newJsonParser().setPrettyPrint(false);
-
-			List<ResourcePersistentId> pidsSpool = new ArrayList<>();
-			List<IBaseResource> resourcesSpool = new ArrayList<>();
-			while (query.hasNext()) {
-				pidsSpool.add(query.next());
-				fileCounter.incrementAndGet();
-				theJobResourceCounter.incrementAndGet();
+	private void storeResultsToFiles(Long theCollectionPid, String theResourceType, List<ResourcePersistentId> thePids, AtomicInteger theJobResourceCounter, StopWatch theJobStopwatch, JobHeartbeat theHeartbeat, AtomicBoolean theJobAborted) {
+		IFhirResourceDao<?> dao = myDaoRegistry.getResourceDao(theResourceType);
+		Class<? extends IBaseResource> typeClass = myContext.getResourceDefinition(theResourceType).getImplementingClass();
+		ISearchBuilder searchBuilder = mySearchBuilderFactory.newSearchBuilder(dao, theResourceType, typeClass);
+		BulkExportCollectionEntity collection = myBulkExportCollectionDao.getOne(theCollectionPid);
 
-				if (pidsSpool.size() >= 10 || !query.hasNext()) {
+		IParser parser = myContext.newJsonParser().setPrettyPrint(false);
+		int batchSize = myDaoConfig.getBulkExportBatchSize();
+		Iterator<ResourcePersistentId> pidIterator = thePids.iterator();
 
-					theSearchBuilder.loadResourcesByPid(pidsSpool, Collections.emptyList(), resourcesSpool, false, null);
+		// Resources are loaded a batch at a time, as the files are written
+		Iterator<IBaseResource> resourceIterator = new AbstractIterator<IBaseResource>() {
+			private Iterator<IBaseResource> myBatch = Collections.emptyIterator();
 
-					for (IBaseResource nextFileResource : resourcesSpool) {
-						parser.encodeResourceToWriter(nextFileResource, writer);
-						writer.append("\n");
+			@Override
+			protected IBaseResource computeNext() {
+				if (theJobAborted.get()) {
+					return endOfData();
+				}
+				while (!myBatch.hasNext()) {
+					if (!pidIterator.hasNext()) {
+						return endOfData();
 					}
-
-					pidsSpool.clear();
-					resourcesSpool.clear();
-
-					if (outputStream.size() >= myFileMaxChars || !query.hasNext()) {
-						Optional<IIdType> createdId = flushToFiles(theExportCollection, fileCounter, outputStream);
-						createdId.ifPresent(theIIdType -> ourLog.info("Created resource {} for bulk export file containing {} resources of type {} - Total {} resources ({}/sec)", theIIdType.toUnqualifiedVersionless().getValue(), fileCounter.get(), theExportCollection.getResourceType(), theJobResourceCounter.get(), theJobStopwatch.formatThroughput(theJobResourceCounter.get(), TimeUnit.SECONDS)));
-						fileCounter.set(0);
+					List<ResourcePersistentId> pids = new ArrayList<>();
+					while (pids.size() < batchSize && pidIterator.hasNext()) {
+						pids.add(pidIterator.next());
 					}
-
+					theJobResourceCounter.addAndGet(pids.size());
+					List<IBaseResource> resources = new ArrayList<>();
+					searchBuilder.loadResourcesByPid(pids, Collections.emptyList(), resources, false, null);
+					myBatch = resources.iterator();
 				}
+				return myBatch.next();
 			}
+		};
 
+		try {
+			while (resourceIterator.hasNext()) {
+				try (NdJsonResourceInputStream fileStream = new NdJsonResourceInputStream(resourceIterator, parser, myFileMaxChars, myDaoConfig.isBulkExportGzipEnabled())) {
+					Optional<IIdType> createdId = flushToFile(collection, fileStream);
+					createdId.ifPresent(theIIdType -> ourLog.info("Created resource {} for bulk export file containing {} resources of type {} - Total {} resources ({}/sec)", theIIdType.toUnqualifiedVersionless().getValue(), fileStream.getResourceCount(), theResourceType, theJobResourceCounter.get(), theJobStopwatch.formatThroughput(theJobResourceCounter.get(), TimeUnit.SECONDS)));
+					theHeartbeat.beat();
+				}
+			}
 		} catch (IOException e) {
 			throw new InternalErrorException(e);
 		}
 	}
 
-	private Optional<IIdType> flushToFiles(BulkExportCollectionEntity theCollection, AtomicInteger theCounter, ByteArrayOutputStream theOutputStream) {
-		if (theOutputStream.size() > 0) {
-			IBaseBinary binary = BinaryUtil.newBinary(myContext);
-			binary.setContentType(Constants.CT_FHIR_NDJSON);
-			binary.setContent(theOutputStream.toByteArray());
-
-			IIdType createdId = getBinaryDao().create(binary).getResource().getIdElement();
+	@SuppressWarnings("unchecked")
+	private Optional<IIdType> flushToFile(BulkExportCollectionEntity theCollection, NdJsonResourceInputStream theFileStream) throws IOException {
+		if (!theFileStream.hasResources()) {
+			return Optional.empty();
+		}
 
-			BulkExportCollectionFileEntity file = new BulkExportCollectionFileEntity();
-			theCollection.getFiles().add(file);
-			file.setCollection(theCollection);
-			file.setResource(createdId.getIdPart());
-			myBulkExportCollectionFileDao.saveAndFlush(file);
-			theOutputStream.reset();
+		// Compressed files are labelled as such, since the content is no longer plain NDJSON
+		String contentType = theFileStream.isGzip() ? Constants.CT_GZIP : Constants.CT_FHIR_NDJSON;
+
+		IBaseBinary binary = BinaryUtil.newBinary(myContext);
+		binary.setContentType(contentType);
+
+		IIdType createdId;
+		if (myDaoConfig.isBulkExportUseBinaryStorage() && myBinaryStorageSvc != null) {
+
+			/*
+			 * The blob ID is assigned up front so that the Binary can be created (and
+			 * receive its resource ID) before the content is streamed into storage
+			 */
+			String blobId = myBinaryStorageSvc.newBlobId();
+			IBaseHasExtensions data = (IBaseHasExtensions) BinaryUtil.getOrCreateData(myContext, binary);
+			IBaseExtension<?, ?> ext = data.addExtension();
+			ext.setUrl(JpaConstants.EXT_EXTERNALIZED_BINARY_ID);
+			ext.setUserData(JpaConstants.EXTENSION_EXT_SYSTEMDEFINED, Boolean.TRUE);
+			IPrimitiveType<String> blobIdString = (IPrimitiveType<String>) myContext.getElementDefinition("string").newInstance();
+			blobIdString.setValueAsString(blobId);
+			ext.setValue(blobIdString);
+
+			createdId = getBinaryDao().create(binary).getResource().getIdElement();
+			myBinaryStorageSvc.storeBlob(createdId.toUnqualifiedVersionless(), blobId, contentType, theFileStream);
+
+		} else {
+
+			/*
+			 * A Binary resource holds its content as a byte[], so the file has to be read into
+			 * memory here. The stream stops at the maximum file size, so this is bounded by
+			 * the file size rather than by the number of resources in a batch.
+			 */
+			binary.setContent(IOUtils.toByteArray(theFileStream));
+			createdId = getBinaryDao().create(binary).getResource().getIdElement();
 
-			return Optional.of(createdId);
 		}
 
-		return Optional.empty();
+		BulkExportCollectionFileEntity file = new BulkExportCollectionFileEntity();
+		file.setCollection(theCollection);
+		file.setResource(createdId.getIdPart());
+		myBulkExportCollectionFileDao.saveAndFlush(file);
+
+		return Optional.of(createdId);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -307,6 +537,21 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 	@PostConstruct
 	public void start() {
 		myTxTemplate = new TransactionTemplate(myTxManager);
+		myHeartbeatTxTemplate = new TransactionTemplate(myTxManager);
+		myHeartbeatTxTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		/*
+		 * The core pool size must equal the maximum: with a bounded queue, a pool only grows
+		 * beyond its core size once the queue is full.
+		 */
+		int threadCount = myDaoConfig.getBulkExportThreadCount();
+		myTaskExecutor = new ThreadPoolExecutor(threadCount, threadCount,
+			60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(100),
+			myThreadFactory,
+			new Executors.BlockPolicy()
+		);
+		myTaskExecutor.allowCoreThreadTimeOut(true);
 
 		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
 		jobDetail.setId(getClass().getName());
@@ -314,6 +559,21 @@ public class BulkDataExportSvcImpl implements IBulkDataExportSvc {
 		mySchedulerService.scheduleClusteredJob(10 * DateUtils.MILLIS_PER_SECOND, jobDetail);
 	}
 
+	@PreDestroy
+	public void stop() {
+		myTaskExecutor.shutdown();
+	}
+
+	@VisibleForTesting
+	void setStaleJobMillisForUnitTest(long theStaleJobMillis) {
+		myStaleJobMillis = theStaleJobMillis;
+	}
+
+	@VisibleForTesting
+	void setMaxResourcesPerWorkUnitForUnitTest(int theMaxResourcesPerWorkUnit) {
+		myMaxResourcesPerWorkUnit = theMaxResourcesPerWorkUnit;
+	}
+
 	public static class Job implements HapiJob {
 		@Autowired
 		private IBulkDataExportSvc myTarget;
@@ -0,0 +1,175 @@
+package ca.uhn.fhir.jpa.bulk;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.api.Constants;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An InputStream which produces the NDJSON encoding of a series of resources,
+ * pulling the next resources from an iterator only when the bytes produced so
+ * far have been consumed. This allows a bulk export file to be written to a
+ * target (such as a binary storage service) without ever holding more than a
+ * single batch of resources in memory, as long as the iterator loads its
+ * resources in batches.
+ * <p>
+ * The stream ends once the iterator has no more resources, or once the
+ * (uncompressed) size of the content reaches the given maximum. The size is
+ * checked before each resource is encoded, so a file only exceeds the maximum
+ * by at most one resource. Any resources not yet taken from the iterator remain
+ * available for the next file.
+ * </p>
+ */
+class NdJsonResourceInputStream extends InputStream {
+
+	private static final int MIN_CHUNK_SIZE = 8 * 1024;
+
+	private final Iterator<IBaseResource> myResources;
+	private final IParser myParser;
+	private final long myMaxUncompressedBytes;
+	private final ByteArrayOutputStream myBuffer = new ByteArrayOutputStream();
+	private final CountingOutputStream myCountingOutputStream;
+	private final Writer myWriter;
+	private final boolean myGzip;
+	private byte[] myChunk = new byte[0];
+	private int myChunkPosition;
+	private int myResourceCount;
+	private boolean myFinished;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theResources            The resources to encode
+	 * @param theParser              The parser to encode with (should be a non-pretty-printing JSON parser)
+	 * @param theMaxUncompressedBytes The stream will end once at least this many bytes have been encoded
+	 * @param theGzip                Should the content be gzip compressed
+	 */
+	NdJsonResourceInputStream(Iterator<IBaseResource> theResources, IParser theParser, long theMaxUncompressedBytes, boolean theGzip) throws IOException {
+		myResources = theResources;
+		myParser = theParser;
+		myMaxUncompressedBytes = theMaxUncompressedBytes;
+		myGzip = theGzip;
+
+		OutputStream target = myBuffer;
+		if (theGzip) {
+			target = new GZIPOutputStream(myBuffer);
+		}
+		myCountingOutputStream = new CountingOutputStream(target);
+		myWriter = new OutputStreamWriter(myCountingOutputStream, Constants.CHARSET_UTF8);
+	}
+
+	/**
+	 * Returns <code>true</code> if the content of this stream is gzip compressed
+	 */
+	boolean isGzip() {
+		return myGzip;
+	}
+
+	/**
+	 * Returns the number of resources that have been encoded into this stream so far
+	 */
+	int getResourceCount() {
+		return myResourceCount;
+	}
+
+	/**
+	 * Returns <code>true</code> if this stream contains at least one resource. This method
+	 * may take the first resources from the iterator.
+	 */
+	boolean hasResources() throws IOException {
+		fillChunk();
+		return myResourceCount > 0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		fillChunk();
+		if (myChunkPosition >= myChunk.length) {
+			return -1;
+		}
+		return myChunk[myChunkPosition++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] theBuffer, int theOffset, int theLength) throws IOException {
+		if (theLength == 0) {
+			return 0;
+		}
+		fillChunk();
+		int available = myChunk.length - myChunkPosition;
+		if (available <= 0) {
+			return -1;
+		}
+		int count = Math.min(available, theLength);
+		System.arraycopy(myChunk, myChunkPosition, theBuffer, theOffset, count);
+		myChunkPosition += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return myChunk.length - myChunkPosition;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!myFinished) {
+			myFinished = true;
+			myWriter.close();
+		}
+	}
+
+	private void fillChunk() throws IOException {
+		while (myChunkPosition >= myChunk.length && !myFinished) {
+
+			// Encode resources one at a time so that the size limit is checked for each of them
+			while (myBuffer.size() < MIN_CHUNK_SIZE) {
+				if (myCountingOutputStream.getByteCount() >= myMaxUncompressedBytes || !myResources.hasNext()) {
+					// Closing the writer also writes the gzip trailer (if any) to the buffer
+					myWriter.close();
+					myFinished = true;
+					break;
+				}
+
+				myParser.encodeResourceToWriter(myResources.next(), myWriter);
+				myWriter.append('\n');
+				myWriter.flush();
+				myResourceCount++;
+			}
+
+			myChunk = myBuffer.toByteArray();
+			myChunkPosition = 0;
+			myBuffer.reset();
+		}
+	}
+
+}
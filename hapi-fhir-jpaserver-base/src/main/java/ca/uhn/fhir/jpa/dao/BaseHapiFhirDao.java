@@ -39,6 +39,7 @@ import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.model.primitive.InstantDt;
 import ca.uhn.fhir.model.valueset.BundleEntryTransactionMethodEnum;
 import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IJsonLikeParser;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.parser.LenientErrorHandler;
 import ca.uhn.fhir.rest.api.Constants;
@@ -832,8 +833,11 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			return null;
 		}
 
-		// 2. get The text
-		String resourceText = decodeResource(resourceBytes, resourceEncoding);
+		// 2. get The text (Smile content is parsed directly from the bytes instead)
+		String resourceText = null;
+		if (resourceEncoding != ResourceEncodingEnum.SMILE) {
+			resourceText = decodeResource(resourceBytes, resourceEncoding);
+		}
 
 		// 3. Use the appropriate custom type if one is specified in the context
 		Class<R> resourceType = theResourceType;
@@ -860,7 +864,11 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			parser.setParserErrorHandler(new LenientErrorHandler(false).setErrorOnInvalidValue(false));
 
 			try {
-				retVal = parser.parseResource(resourceType, resourceText);
+				if (resourceEncoding == ResourceEncodingEnum.SMILE) {
+					retVal = SmileUtil.parse((IJsonLikeParser) parser, resourceType, resourceBytes);
+				} else {
+					retVal = parser.parseResource(resourceType, resourceText);
+				}
 			} catch (Exception e) {
 				StringBuilder b = new StringBuilder();
 				b.append("Failed to parse database resource[");
@@ -1436,6 +1444,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			case JSONC:
 				resourceText = GZipUtil.decompress(theResourceBytes);
 				break;
+			case SMILE:
+				resourceText = SmileUtil.toJson(theResourceBytes);
+				break;
 			case DEL:
 				break;
 		}
@@ -1446,8 +1457,14 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		byte[] bytes;
 		IParser parser = theEncoding.newParser(theContext);
 		parser.setDontEncodeElements(theExcludeElements);
-		String encoded = parser.encodeResourceToString(theResource);
 
+		if (theEncoding == ResourceEncodingEnum.SMILE) {
+			bytes = SmileUtil.encode((IJsonLikeParser) parser, theResource);
+			ourLog.debug("Encoded resource body as {} bytes", bytes.length);
+			return bytes;
+		}
+
+		String encoded = parser.encodeResourceToString(theResource);
 
 		switch (theEncoding) {
 			case JSON:
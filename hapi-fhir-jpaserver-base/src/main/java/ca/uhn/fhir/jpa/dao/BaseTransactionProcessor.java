@@ -62,6 +62,8 @@ import ca.uhn.fhir.util.UrlUtil;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ArrayListMultimap;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.hibernate.search.util.impl.Executors;
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.instance.model.api.IAnyResource;
@@ -80,7 +82,13 @@ import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.commons.lang3.StringUtils.defaultString;
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -103,10 +111,30 @@ public abstract class BaseTransactionProcessor {
 	private IInterceptorBroadcaster myInterceptorBroadcaster;
 	@Autowired
 	private MatchResourceUrlService myMatchResourceUrlService;
+	@Autowired
+	private DaoConfig myDaoConfig;
+	private ThreadPoolExecutor myBatchExecutor;
 
 	@PostConstruct
 	public void start() {
+		int poolSize = myDaoConfig.getBundleBatchPoolSize();
+		if (poolSize > 1) {
+			myBatchExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+				60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(100),
+				new BasicThreadFactory.Builder().namingPattern("BundleBatch-%d").build(),
+				new Executors.BlockPolicy()
+			);
+			myBatchExecutor.allowCoreThreadTimeOut(true);
+		}
+	}
 
+	@PreDestroy
+	public void stop() {
+		if (myBatchExecutor != null) {
+			myBatchExecutor.shutdown();
+			myBatchExecutor = null;
+		}
 	}
 
 	public <BUNDLE extends IBaseBundle> BUNDLE transaction(RequestDetails theRequestDetails, BUNDLE theRequest) {
@@ -259,48 +287,90 @@ public abstract class BaseTransactionProcessor {
 		 * For batch, we handle each entry as a mini-transaction in its own database transaction so that if one fails, it doesn't prevent others
 		 */
 
-		for (final Object nextRequestEntry : myVersionAdapter.getEntries(theRequest)) {
-
-			BaseServerResponseExceptionHolder caughtEx = new BaseServerResponseExceptionHolder();
+		List<IBase> requestEntries = myVersionAdapter.getEntries(theRequest);
+		boolean canCopyRequestDetails = theRequestDetails == null || theRequestDetails instanceof ServletRequestDetails;
+		if (myBatchExecutor != null && requestEntries.size() > 1 && canCopyRequestDetails) {
 
-			try {
-				IBaseBundle subRequestBundle = myVersionAdapter.createBundle(org.hl7.fhir.r4.model.Bundle.BundleType.TRANSACTION.toCode());
-				myVersionAdapter.addEntry(subRequestBundle, (IBase) nextRequestEntry);
+			/*
+			 * Interceptors and the DAOs keep per-request state in the user data map of the
+			 * RequestDetails, which isn't thread safe, so each entry gets its own copy of the
+			 * request details to work with
+			 */
+			List<Future<BatchEntryOutcome>> futures = new ArrayList<>(requestEntries.size());
+			for (IBase nextRequestEntry : requestEntries) {
+				futures.add(myBatchExecutor.submit(() -> processBatchEntry(theRequestDetails, nextRequestEntry, true)));
+			}
+			for (Future<BatchEntryOutcome> nextFuture : futures) {
+				BatchEntryOutcome outcome;
+				try {
+					outcome = nextFuture.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InternalErrorException(e);
+				} catch (ExecutionException e) {
+					throw new InternalErrorException(e.getCause());
+				}
+				addBatchEntryOutcome(resp, outcome);
+			}
 
-				IBaseBundle nextResponseBundle = processTransactionAsSubRequest((ServletRequestDetails) theRequestDetails, subRequestBundle, "Batch sub-request");
+		} else {
+			for (IBase nextRequestEntry : requestEntries) {
+				addBatchEntryOutcome(resp, processBatchEntry(theRequestDetails, nextRequestEntry, false));
+			}
+		}
 
-				IBase subResponseEntry = (IBase) myVersionAdapter.getEntries(nextResponseBundle).get(0);
-				myVersionAdapter.addEntry(resp, subResponseEntry);
+		long delay = System.currentTimeMillis() - start;
+		ourLog.info("Batch completed in {}ms", new Object[]{delay});
 
-				/*
-				 * If the individual entry didn't have a resource in its response, bring the sub-transaction's OperationOutcome across so the client can see it
-				 */
-				if (myVersionAdapter.getResource(subResponseEntry) == null) {
-					IBase nextResponseBundleFirstEntry = (IBase) myVersionAdapter.getEntries(nextResponseBundle).get(0);
-					myVersionAdapter.setResource(subResponseEntry, myVersionAdapter.getResource(nextResponseBundleFirstEntry));
-				}
+		return resp;
+	}
 
-			} catch (BaseServerResponseException e) {
-				caughtEx.setException(e);
-			} catch (Throwable t) {
-				ourLog.error("Failure during BATCH sub transaction processing", t);
-				caughtEx.setException(new InternalErrorException(t));
+	/**
+	 * @param theCopyRequestDetails If true, the entry is processed using its own copy of the request details
+	 */
+	private BatchEntryOutcome processBatchEntry(RequestDetails theRequestDetails, IBase theRequestEntry, boolean theCopyRequestDetails) {
+		BatchEntryOutcome retVal = new BatchEntryOutcome();
+		try {
+			ServletRequestDetails requestDetails = (ServletRequestDetails) theRequestDetails;
+			if (theCopyRequestDetails && requestDetails != null) {
+				requestDetails = ServletRequestUtil.copyServletRequestDetails(requestDetails);
 			}
 
-			if (caughtEx.getException() != null) {
-				IBase nextEntry = myVersionAdapter.addEntry(resp);
+			IBaseBundle subRequestBundle = myVersionAdapter.createBundle(org.hl7.fhir.r4.model.Bundle.BundleType.TRANSACTION.toCode());
+			myVersionAdapter.addEntry(subRequestBundle, theRequestEntry);
+
+			IBaseBundle nextResponseBundle = processTransactionAsSubRequest(requestDetails, subRequestBundle, "Batch sub-request");
 
-				populateEntryWithOperationOutcome(caughtEx.getException(), nextEntry);
+			IBase subResponseEntry = (IBase) myVersionAdapter.getEntries(nextResponseBundle).get(0);
+			retVal.setResponseEntry(subResponseEntry);
 
-				myVersionAdapter.setResponseStatus(nextEntry, toStatusString(caughtEx.getException().getStatusCode()));
+			/*
+			 * If the individual entry didn't have a resource in its response, bring the sub-transaction's OperationOutcome across so the client can see it
+			 */
+			if (myVersionAdapter.getResource(subResponseEntry) == null) {
+				IBase nextResponseBundleFirstEntry = (IBase) myVersionAdapter.getEntries(nextResponseBundle).get(0);
+				myVersionAdapter.setResource(subResponseEntry, myVersionAdapter.getResource(nextResponseBundleFirstEntry));
 			}
 
+		} catch (BaseServerResponseException e) {
+			retVal.setException(e);
+		} catch (Throwable t) {
+			ourLog.error("Failure during BATCH sub transaction processing", t);
+			retVal.setException(new InternalErrorException(t));
 		}
+		return retVal;
+	}
 
-		long delay = System.currentTimeMillis() - start;
-		ourLog.info("Batch completed in {}ms", new Object[]{delay});
+	private void addBatchEntryOutcome(IBaseBundle theResponse, BatchEntryOutcome theOutcome) {
+		if (theOutcome.getException() != null) {
+			IBase nextEntry = myVersionAdapter.addEntry(theResponse);
 
-		return resp;
+			populateEntryWithOperationOutcome(theOutcome.getException(), nextEntry);
+
+			myVersionAdapter.setResponseStatus(nextEntry, toStatusString(theOutcome.getException().getStatusCode()));
+		} else {
+			myVersionAdapter.addEntry(theResponse, theOutcome.getResponseEntry());
+		}
 	}
 
 	private IBaseBundle processTransaction(final ServletRequestDetails theRequestDetails, final IBaseBundle theRequest, final String theActionName) {
@@ -1168,6 +1238,18 @@ public abstract class BaseTransactionProcessor {
 
 	}
 
+	private static class BatchEntryOutcome extends BaseServerResponseExceptionHolder {
+		private IBase myResponseEntry;
+
+		IBase getResponseEntry() {
+			return myResponseEntry;
+		}
+
+		void setResponseEntry(IBase theResponseEntry) {
+			myResponseEntry = theResponseEntry;
+		}
+	}
+
 	private static class BaseServerResponseExceptionHolder {
 		private BaseServerResponseException myException;
 
@@ -54,6 +54,42 @@ public class DaoConfig {
 	 * @see #setTranslationCachesExpireAfterWriteInMinutes(Long)
 	 */
 	public static final Long DEFAULT_TRANSLATION_CACHES_EXPIRE_AFTER_WRITE_IN_MINUTES = 60L;
+	/**
+	 * Default value for {@link #setForcedIdCacheSize(int)}: 10000 entries
+	 *
+	 * @see #setForcedIdCacheSize(int)
+	 */
+	public static final int DEFAULT_FORCED_ID_CACHE_SIZE = 10000;
+	/**
+	 * Default value for {@link #setForcedIdCacheExpireAfterWriteInMinutes(long)}: 10 minutes
+	 *
+	 * @see #setForcedIdCacheExpireAfterWriteInMinutes(long)
+	 */
+	public static final long DEFAULT_FORCED_ID_CACHE_EXPIRE_AFTER_WRITE_IN_MINUTES = 10;
+	/**
+	 * Default value for {@link #setBulkExportBatchSize(int)}: 500 resources
+	 *
+	 * @see #setBulkExportBatchSize(int)
+	 */
+	public static final int DEFAULT_BULK_EXPORT_BATCH_SIZE = 500;
+	/**
+	 * Default value for {@link #setSearchCoordinatorThreadCount(int)}: 50 threads
+	 *
+	 * @see #setSearchCoordinatorThreadCount(int)
+	 */
+	public static final int DEFAULT_SEARCH_COORDINATOR_THREAD_COUNT = 50;
+	/**
+	 * Default value for {@link #setSearchCoordinatorQueueCapacity(int)}: 1000 searches
+	 *
+	 * @see #setSearchCoordinatorQueueCapacity(int)
+	 */
+	public static final int DEFAULT_SEARCH_COORDINATOR_QUEUE_CAPACITY = 1000;
+	/**
+	 * Default value for {@link #setBundleBatchPoolSize(int)}: 1 (entries are processed sequentially)
+	 *
+	 * @see #setBundleBatchPoolSize(int)
+	 */
+	public static final int DEFAULT_BUNDLE_BATCH_POOL_SIZE = 1;
 	/**
 	 * See {@link #setStatusBasedReindexingDisabled(boolean)}
 	 */
@@ -74,6 +110,12 @@ public class DaoConfig {
 	)));
 	// update setter javadoc if default changes
 	public static final int DEFAULT_MAX_EXPANSION_SIZE = 1000;
+	/**
+	 * Default value for {@link #setPreExpandValueSetsThreadCount(int)}
+	 *
+	 * @since 4.3.0
+	 */
+	public static final int DEFAULT_PRE_EXPAND_VALUE_SETS_THREAD_COUNT = 1;
 	/**
 	 * Default value for {@link #setMaximumSearchResultCountInTransaction(Integer)}
 	 *
@@ -94,6 +136,17 @@ public class DaoConfig {
 	 * update setter javadoc if default changes
 	 */
 	private Long myTranslationCachesExpireAfterWriteInMinutes = DEFAULT_TRANSLATION_CACHES_EXPIRE_AFTER_WRITE_IN_MINUTES;
+	/**
+	 * update setter javadoc if default changes
+	 */
+	private int myForcedIdCacheSize = DEFAULT_FORCED_ID_CACHE_SIZE;
+	private long myForcedIdCacheExpireAfterWriteInMinutes = DEFAULT_FORCED_ID_CACHE_EXPIRE_AFTER_WRITE_IN_MINUTES;
+	private int myBulkExportBatchSize = DEFAULT_BULK_EXPORT_BATCH_SIZE;
+	private boolean myBulkExportUseBinaryStorage;
+	private boolean myBulkExportGzipEnabled;
+	private int mySearchCoordinatorThreadCount = DEFAULT_SEARCH_COORDINATOR_THREAD_COUNT;
+	private int mySearchCoordinatorQueueCapacity = DEFAULT_SEARCH_COORDINATOR_QUEUE_CAPACITY;
+	private int myBundleBatchPoolSize = DEFAULT_BUNDLE_BATCH_POOL_SIZE;
 	/**
 	 * update setter javadoc if default changes
 	 */
@@ -143,6 +196,7 @@ public class DaoConfig {
 	private int myExpungeBatchSize = DEFAULT_EXPUNGE_BATCH_SIZE;
 	private int myReindexThreadCount;
 	private int myExpungeThreadCount;
+	private int myBulkExportThreadCount;
 	private Set<String> myBundleTypesAllowedForStorage;
 	private boolean myValidateSearchParameterExpressionsOnSave = true;
 	private List<Integer> mySearchPreFetchThresholds = Arrays.asList(500, 2000, -1);
@@ -182,6 +236,18 @@ public class DaoConfig {
 	 * @since 4.2.0
 	 */
 	private boolean myPopulateIdentifierInAutoCreatedPlaceholderReferenceTargets;
+	/**
+	 * @since 4.3.0
+	 */
+	private boolean myTermHierarchyIndexEnabled = false;
+	/**
+	 * @since 4.3.0
+	 */
+	private boolean myInMemoryValueSetExpansionPagingEnabled = false;
+	/**
+	 * @since 4.3.0
+	 */
+	private int myPreExpandValueSetsThreadCount = DEFAULT_PRE_EXPAND_VALUE_SETS_THREAD_COUNT;
 
 	/**
 	 * Constructor
@@ -193,6 +259,7 @@ public class DaoConfig {
 		setMarkResourcesForReindexingUponSearchParameterChange(true);
 		setReindexThreadCount(Runtime.getRuntime().availableProcessors());
 		setExpungeThreadCount(Runtime.getRuntime().availableProcessors());
+		setBulkExportThreadCount(Runtime.getRuntime().availableProcessors());
 		setBundleTypesAllowedForStorage(DEFAULT_BUNDLE_TYPES_ALLOWED_FOR_STORAGE);
 
 		if ("true".equalsIgnoreCase(System.getProperty(DISABLE_STATUS_BASED_REINDEX))) {
@@ -670,10 +737,32 @@ public class DaoConfig {
 		myExpungeThreadCount = Math.max(myExpungeThreadCount, 1); // Minimum of 1
 	}
 
+	/**
+	 * Specifies the encoding used to store resource bodies in the resource history table. Changing
+	 * this setting affects only resource versions written afterwards: each stored version records
+	 * its own encoding, so existing rows remain readable regardless of this setting.
+	 * <p>
+	 * The default is {@link ResourceEncodingEnum#JSONC} (gzip compressed JSON). {@link ResourceEncodingEnum#SMILE}
+	 * (binary JSON) is typically somewhat larger than JSONC but considerably smaller than
+	 * uncompressed JSON, and is the fastest encoding to read and write since it requires neither
+	 * decompression nor text parsing.
+	 * </p>
+	 */
 	public ResourceEncodingEnum getResourceEncoding() {
 		return myResourceEncoding;
 	}
 
+	/**
+	 * Specifies the encoding used to store resource bodies in the resource history table. Changing
+	 * this setting affects only resource versions written afterwards: each stored version records
+	 * its own encoding, so existing rows remain readable regardless of this setting.
+	 * <p>
+	 * The default is {@link ResourceEncodingEnum#JSONC} (gzip compressed JSON). {@link ResourceEncodingEnum#SMILE}
+	 * (binary JSON) is typically somewhat larger than JSONC but considerably smaller than
+	 * uncompressed JSON, and is the fastest encoding to read and write since it requires neither
+	 * decompression nor text parsing.
+	 * </p>
+	 */
 	public void setResourceEncoding(ResourceEncodingEnum theResourceEncoding) {
 		myResourceEncoding = theResourceEncoding;
 	}
@@ -818,6 +907,299 @@ public class DaoConfig {
 		myTranslationCachesExpireAfterWriteInMinutes = translationCachesExpireAfterWriteInMinutes;
 	}
 
+	/**
+	 * Specifies the maximum number of entries held in each of the in-memory caches used to
+	 * translate between client assigned (forced) resource IDs and internal resource PIDs.
+	 * Entries are removed from these caches when the corresponding resource is expunged.
+	 * Set to <code>0</code> to disable these caches. Defaults to {@value #DEFAULT_FORCED_ID_CACHE_SIZE}.
+	 *
+	 * @since 4.3.0
+	 */
+	public int getForcedIdCacheSize() {
+		return myForcedIdCacheSize;
+	}
+
+	/**
+	 * Specifies the maximum number of entries held in each of the in-memory caches used to
+	 * translate between client assigned (forced) resource IDs and internal resource PIDs.
+	 * Entries are removed from these caches when the corresponding resource is expunged.
+	 * Set to <code>0</code> to disable these caches. Defaults to {@value #DEFAULT_FORCED_ID_CACHE_SIZE}.
+	 * <p>
+	 * This setting is read when the server starts, so changes made after startup have no effect.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setForcedIdCacheSize(int theForcedIdCacheSize) {
+		Validate.isTrue(theForcedIdCacheSize >= 0, "theForcedIdCacheSize must not be negative");
+		myForcedIdCacheSize = theForcedIdCacheSize;
+	}
+
+	/**
+	 * Specifies the number of minutes for which an entry is kept in the caches used to translate
+	 * between client assigned (forced) resource IDs and internal resource PIDs (see
+	 * {@link #setForcedIdCacheSize(int)}). Defaults to {@value #DEFAULT_FORCED_ID_CACHE_EXPIRE_AFTER_WRITE_IN_MINUTES}.
+	 *
+	 * @since 4.3.0
+	 */
+	public long getForcedIdCacheExpireAfterWriteInMinutes() {
+		return myForcedIdCacheExpireAfterWriteInMinutes;
+	}
+
+	/**
+	 * Specifies the number of minutes for which an entry is kept in the caches used to translate
+	 * between client assigned (forced) resource IDs and internal resource PIDs (see
+	 * {@link #setForcedIdCacheSize(int)}). Defaults to {@value #DEFAULT_FORCED_ID_CACHE_EXPIRE_AFTER_WRITE_IN_MINUTES}.
+	 * <p>
+	 * A forced ID never changes once it has been assigned, but it is removed when its resource is
+	 * expunged. Expunging only removes the entry from the caches of the server that performs it, so
+	 * when several servers share a database, the others may keep resolving the expunged forced ID
+	 * (or the expunged PID) for up to this many minutes.
+	 * </p>
+	 * <p>
+	 * This setting is read when the server starts, so changes made after startup have no effect.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setForcedIdCacheExpireAfterWriteInMinutes(long theForcedIdCacheExpireAfterWriteInMinutes) {
+		Validate.isTrue(theForcedIdCacheExpireAfterWriteInMinutes > 0, "theForcedIdCacheExpireAfterWriteInMinutes must be greater than 0");
+		myForcedIdCacheExpireAfterWriteInMinutes = theForcedIdCacheExpireAfterWriteInMinutes;
+	}
+
+	/**
+	 * Specifies the number of resources that will be loaded from the database at
+	 * a time while generating bulk export files. Defaults to {@value #DEFAULT_BULK_EXPORT_BATCH_SIZE}.
+	 *
+	 * @since 4.3.0
+	 */
+	public int getBulkExportBatchSize() {
+		return myBulkExportBatchSize;
+	}
+
+	/**
+	 * Specifies the number of resources that will be loaded from the database at
+	 * a time while generating bulk export files. Defaults to {@value #DEFAULT_BULK_EXPORT_BATCH_SIZE}.
+	 *
+	 * @since 4.3.0
+	 */
+	public void setBulkExportBatchSize(int theBulkExportBatchSize) {
+		Validate.isTrue(theBulkExportBatchSize > 0, "theBulkExportBatchSize must be greater than 0");
+		myBulkExportBatchSize = theBulkExportBatchSize;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>) and a binary storage service
+	 * (see {@link ca.uhn.fhir.jpa.binstore.IBinaryStorageSvc}) has been configured, bulk export
+	 * files will be streamed directly into the binary storage service as they are generated,
+	 * and the <code>Binary</code> resources created for the export will only contain a reference
+	 * to the stored content. This avoids holding complete export files in memory.
+	 * <p>
+	 * If set to <code>false</code>, or if no binary storage service is configured, the file
+	 * contents are stored within the <code>Binary</code> resources in the database.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public boolean isBulkExportUseBinaryStorage() {
+		return myBulkExportUseBinaryStorage;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>) and a binary storage service
+	 * (see {@link ca.uhn.fhir.jpa.binstore.IBinaryStorageSvc}) has been configured, bulk export
+	 * files will be streamed directly into the binary storage service as they are generated,
+	 * and the <code>Binary</code> resources created for the export will only contain a reference
+	 * to the stored content. This avoids holding complete export files in memory.
+	 * <p>
+	 * If set to <code>false</code>, or if no binary storage service is configured, the file
+	 * contents are stored within the <code>Binary</code> resources in the database.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setBulkExportUseBinaryStorage(boolean theBulkExportUseBinaryStorage) {
+		myBulkExportUseBinaryStorage = theBulkExportUseBinaryStorage;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the NDJSON content of bulk
+	 * export files will be compressed using gzip. The <code>Binary</code> resources holding
+	 * compressed files have the <code>application/gzip</code> content type instead of
+	 * <code>application/fhir+ndjson</code>, and they are served with that content type.
+	 *
+	 * @since 4.3.0
+	 */
+	public boolean isBulkExportGzipEnabled() {
+		return myBulkExportGzipEnabled;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the NDJSON content of bulk
+	 * export files will be compressed using gzip. The <code>Binary</code> resources holding
+	 * compressed files have the <code>application/gzip</code> content type instead of
+	 * <code>application/fhir+ndjson</code>, and they are served with that content type.
+	 *
+	 * @since 4.3.0
+	 */
+	public void setBulkExportGzipEnabled(boolean theBulkExportGzipEnabled) {
+		myBulkExportGzipEnabled = theBulkExportGzipEnabled;
+	}
+
+	/**
+	 * This setting controls the number of threads used to generate bulk export files. Each
+	 * resource type in an export job (and each block of resources within a large resource type)
+	 * is exported by a separate worker thread.
+	 * <p>
+	 * The default value is set to the number of available processors
+	 * (via <code>Runtime.getRuntime().availableProcessors()</code>). Value
+	 * for this setting must be a positive integer.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public int getBulkExportThreadCount() {
+		return myBulkExportThreadCount;
+	}
+
+	/**
+	 * This setting controls the number of threads used to generate bulk export files. Each
+	 * resource type in an export job (and each block of resources within a large resource type)
+	 * is exported by a separate worker thread.
+	 * <p>
+	 * The default value is set to the number of available processors
+	 * (via <code>Runtime.getRuntime().availableProcessors()</code>). Value
+	 * for this setting must be a positive integer.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setBulkExportThreadCount(int theBulkExportThreadCount) {
+		myBulkExportThreadCount = theBulkExportThreadCount;
+		myBulkExportThreadCount = Math.max(myBulkExportThreadCount, 1); // Minimum of 1
+	}
+
+	/**
+	 * This setting controls the maximum number of asynchronous searches which will be
+	 * executed concurrently. Each running search holds a database connection, so this value
+	 * should be kept comfortably below the size of the database connection pool. Searches
+	 * submitted while all threads are busy are queued (see {@link #setSearchCoordinatorQueueCapacity(int)}).
+	 * <p>
+	 * The default value is {@value #DEFAULT_SEARCH_COORDINATOR_THREAD_COUNT}. Value for this setting
+	 * must be a positive integer. Changes to this setting take effect when the server is restarted.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public int getSearchCoordinatorThreadCount() {
+		return mySearchCoordinatorThreadCount;
+	}
+
+	/**
+	 * This setting controls the maximum number of asynchronous searches which will be
+	 * executed concurrently. Each running search holds a database connection, so this value
+	 * should be kept comfortably below the size of the database connection pool. Searches
+	 * submitted while all threads are busy are queued (see {@link #setSearchCoordinatorQueueCapacity(int)}).
+	 * <p>
+	 * The default value is {@value #DEFAULT_SEARCH_COORDINATOR_THREAD_COUNT}. Value for this setting
+	 * must be a positive integer. Changes to this setting take effect when the server is restarted.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setSearchCoordinatorThreadCount(int theSearchCoordinatorThreadCount) {
+		mySearchCoordinatorThreadCount = theSearchCoordinatorThreadCount;
+		mySearchCoordinatorThreadCount = Math.max(mySearchCoordinatorThreadCount, 1); // Minimum of 1
+	}
+
+	/**
+	 * This setting controls the maximum number of new asynchronous searches which may be waiting
+	 * for a free search thread (see {@link #setSearchCoordinatorThreadCount(int)}). Once this many
+	 * searches are waiting, new searches are rejected with an HTTP 503 (Service Unavailable) response
+	 * instead of being queued. Searches that are continuing to fetch results for an existing
+	 * search are always queued.
+	 * <p>
+	 * The default value is {@value #DEFAULT_SEARCH_COORDINATOR_QUEUE_CAPACITY}. Value for this setting
+	 * must be a non-negative integer.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public int getSearchCoordinatorQueueCapacity() {
+		return mySearchCoordinatorQueueCapacity;
+	}
+
+	/**
+	 * This setting controls the maximum number of new asynchronous searches which may be waiting
+	 * for a free search thread (see {@link #setSearchCoordinatorThreadCount(int)}). Once this many
+	 * searches are waiting, new searches are rejected with an HTTP 503 (Service Unavailable) response
+	 * instead of being queued. Searches that are continuing to fetch results for an existing
+	 * search are always queued.
+	 * <p>
+	 * The default value is {@value #DEFAULT_SEARCH_COORDINATOR_QUEUE_CAPACITY}. Value for this setting
+	 * must be a non-negative integer.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setSearchCoordinatorQueueCapacity(int theSearchCoordinatorQueueCapacity) {
+		Validate.isTrue(theSearchCoordinatorQueueCapacity >= 0, "theSearchCoordinatorQueueCapacity must not be negative");
+		mySearchCoordinatorQueueCapacity = theSearchCoordinatorQueueCapacity;
+	}
+
+	/**
+	 * This setting controls the number of threads used to process the entries in a
+	 * <code>batch</code> Bundle. Because the entries in a batch are independent of each other
+	 * (each one is processed in its own database transaction), they may be processed concurrently,
+	 * with the results returned in the original entry order. Each thread requires its own
+	 * database connection.
+	 * <p>
+	 * When entries are processed concurrently, each entry is processed using its own copy of the
+	 * {@link ca.uhn.fhir.rest.api.server.RequestDetails} of the incoming request, so values that
+	 * interceptors store in {@link ca.uhn.fhir.rest.api.server.RequestDetails#getUserData()} while
+	 * processing an entry are not visible to other entries or to the incoming request.
+	 * <code>transaction</code> Bundles, and batches received through a server which does not use
+	 * {@link ca.uhn.fhir.rest.server.servlet.ServletRequestDetails} (e.g. the JAX-RS server), are
+	 * always processed on the calling thread.
+	 * </p>
+	 * <p>
+	 * The default value is {@value #DEFAULT_BUNDLE_BATCH_POOL_SIZE}, meaning that entries are
+	 * processed sequentially on the calling thread. Value for this setting must be a positive integer.
+	 * Changes to this setting take effect when the server is restarted.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public int getBundleBatchPoolSize() {
+		return myBundleBatchPoolSize;
+	}
+
+	/**
+	 * This setting controls the number of threads used to process the entries in a
+	 * <code>batch</code> Bundle. Because the entries in a batch are independent of each other
+	 * (each one is processed in its own database transaction), they may be processed concurrently,
+	 * with the results returned in the original entry order. Each thread requires its own
+	 * database connection.
+	 * <p>
+	 * When entries are processed concurrently, each entry is processed using its own copy of the
+	 * {@link ca.uhn.fhir.rest.api.server.RequestDetails} of the incoming request, so values that
+	 * interceptors store in {@link ca.uhn.fhir.rest.api.server.RequestDetails#getUserData()} while
+	 * processing an entry are not visible to other entries or to the incoming request.
+	 * <code>transaction</code> Bundles are always processed on the calling thread.
+	 * </p>
+	 * <p>
+	 * The default value is {@value #DEFAULT_BUNDLE_BATCH_POOL_SIZE}, meaning that entries are
+	 * processed sequentially on the calling thread. Value for this setting must be a positive integer.
+	 * Changes to this setting take effect when the server is restarted.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setBundleBatchPoolSize(int theBundleBatchPoolSize) {
+		myBundleBatchPoolSize = theBundleBatchPoolSize;
+		myBundleBatchPoolSize = Math.max(myBundleBatchPoolSize, 1); // Minimum of 1
+	}
+
 	/**
 	 * This setting may be used to advise the server that any references found in
 	 * resources that have any of the base URLs given here will be treated as logical
@@ -1907,6 +2289,149 @@ public class DaoConfig {
 		setPreExpandValueSetsDefaultCount(Math.min(getPreExpandValueSetsDefaultCount(), getPreExpandValueSetsMaxCount()));
 	}
 
+	/**
+	 * <p>
+	 * This is the number of ValueSets which are pre-expanded concurrently by the scheduled pre-expansion job when
+	 * {@link DaoConfig#isPreExpandValueSets()} returns {@code true}. Each ValueSet is still expanded by a single
+	 * thread, so increasing this value speeds up the pre-expansion of many ValueSets (e.g. after a large code
+	 * system has been loaded), at the cost of additional load on the database.
+	 * </p>
+	 * <p>
+	 * The threads only coordinate which ValueSet each of them expands within a single server. The job is scheduled
+	 * as a clustered job so that it normally runs on one server at a time, but nothing else prevents two servers
+	 * sharing a database from expanding the same ValueSet concurrently.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code 1}.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public int getPreExpandValueSetsThreadCount() {
+		return myPreExpandValueSetsThreadCount;
+	}
+
+	/**
+	 * <p>
+	 * This is the number of ValueSets which are pre-expanded concurrently by the scheduled pre-expansion job when
+	 * {@link DaoConfig#isPreExpandValueSets()} returns {@code true}. Each ValueSet is still expanded by a single
+	 * thread, so increasing this value speeds up the pre-expansion of many ValueSets (e.g. after a large code
+	 * system has been loaded), at the cost of additional load on the database.
+	 * </p>
+	 * <p>
+	 * The threads only coordinate which ValueSet each of them expands within a single server. The job is scheduled
+	 * as a clustered job so that it normally runs on one server at a time, but nothing else prevents two servers
+	 * sharing a database from expanding the same ValueSet concurrently.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code 1}.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setPreExpandValueSetsThreadCount(int thePreExpandValueSetsThreadCount) {
+		Validate.isTrue(thePreExpandValueSetsThreadCount > 0, "thePreExpandValueSetsThreadCount must be > 0");
+		myPreExpandValueSetsThreadCount = thePreExpandValueSetsThreadCount;
+	}
+
+	/**
+	 * <p>
+	 * If set to {@code true}, an in-memory index of the concept hierarchy is built the first time it is
+	 * needed for each stored code system version, and is used to answer {@code :above} and {@code :below}
+	 * token searches and the CodeSystem {@code $subsumes} operation without loading the individual concepts
+	 * from the database. This greatly speeds up these operations for large hierarchical code systems such as
+	 * SNOMED CT and LOINC, at the cost of holding a copy of every code (plus a few bytes per concept and per
+	 * parent/child relationship) in memory for each code system version in use.
+	 * </p>
+	 * <p>
+	 * Indexes are discarded when code system changes made by this server are committed. In a clustered
+	 * environment, changes made by other servers are only picked up once the index expires (10 minutes
+	 * after it was built).
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code false}.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public boolean isTermHierarchyIndexEnabled() {
+		return myTermHierarchyIndexEnabled;
+	}
+
+	/**
+	 * <p>
+	 * If set to {@code true}, an in-memory index of the concept hierarchy is built the first time it is
+	 * needed for each stored code system version, and is used to answer {@code :above} and {@code :below}
+	 * token searches and the CodeSystem {@code $subsumes} operation without loading the individual concepts
+	 * from the database. This greatly speeds up these operations for large hierarchical code systems such as
+	 * SNOMED CT and LOINC, at the cost of holding a copy of every code (plus a few bytes per concept and per
+	 * parent/child relationship) in memory for each code system version in use.
+	 * </p>
+	 * <p>
+	 * Indexes are discarded when code system changes made by this server are committed. In a clustered
+	 * environment, changes made by other servers are only picked up once the index expires (10 minutes
+	 * after it was built).
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code false}.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setTermHierarchyIndexEnabled(boolean theTermHierarchyIndexEnabled) {
+		myTermHierarchyIndexEnabled = theTermHierarchyIndexEnabled;
+	}
+
+	/**
+	 * <p>
+	 * If set to {@code true}, ValueSet {@code $expand} operations which can not be served from the pre-expanded
+	 * terminology tables (e.g. because pre-expansion has not finished yet) honour the {@code offset} and
+	 * {@code count} parameters. Concepts are streamed from the terminology database, only the requested page
+	 * is materialized, and the expansion stops as soon as the page is full. In this case
+	 * {@code ValueSet.expansion.total} is only populated when the final page has been reached, since the
+	 * remainder of the expansion is never computed. ValueSets with {@code compose.exclude} rules are always
+	 * expanded fully before the page is selected. Since every concept before the page is still walked, the
+	 * expansion fails if {@code offset + count} is greater than {@link #getMaximumExpansionSize()}.
+	 * </p>
+	 * <p>
+	 * If set to {@code false}, these expansions return every concept (up to
+	 * {@link #getMaximumExpansionSize()}) regardless of the {@code offset} and {@code count} parameters.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code false}.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public boolean isInMemoryValueSetExpansionPagingEnabled() {
+		return myInMemoryValueSetExpansionPagingEnabled;
+	}
+
+	/**
+	 * <p>
+	 * If set to {@code true}, ValueSet {@code $expand} operations which can not be served from the pre-expanded
+	 * terminology tables (e.g. because pre-expansion has not finished yet) honour the {@code offset} and
+	 * {@code count} parameters. Concepts are streamed from the terminology database, only the requested page
+	 * is materialized, and the expansion stops as soon as the page is full. In this case
+	 * {@code ValueSet.expansion.total} is only populated when the final page has been reached, since the
+	 * remainder of the expansion is never computed. ValueSets with {@code compose.exclude} rules are always
+	 * expanded fully before the page is selected. Since every concept before the page is still walked, the
+	 * expansion fails if {@code offset + count} is greater than {@link #getMaximumExpansionSize()}.
+	 * </p>
+	 * <p>
+	 * If set to {@code false}, these expansions return every concept (up to
+	 * {@link #getMaximumExpansionSize()}) regardless of the {@code offset} and {@code count} parameters.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code false}.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setInMemoryValueSetExpansionPagingEnabled(boolean theInMemoryValueSetExpansionPagingEnabled) {
+		myInMemoryValueSetExpansionPagingEnabled = theInMemoryValueSetExpansionPagingEnabled;
+	}
+
 	public enum StoreMetaSourceInformationEnum {
 		NONE(false, false),
 		SOURCE_URI(true, false),
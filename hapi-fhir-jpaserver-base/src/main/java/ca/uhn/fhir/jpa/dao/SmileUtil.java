@@ -0,0 +1,96 @@
+package ca.uhn.fhir.jpa.dao;
+
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IJsonLikeParser;
+import ca.uhn.fhir.parser.json.JacksonStructure;
+import ca.uhn.fhir.parser.json.JacksonWriter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Encodes and decodes resource bodies using the binary
+ * <a href="https://github.com/FasterXML/smile-format-specification">Smile</a> format
+ * (see {@link ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum#SMILE}).
+ * <p>
+ * Resources are written to and read from Smile directly via the JSON parser's
+ * JSON-like structure API, so no intermediate JSON string is created. Repeated element
+ * names and short string values (e.g. code system URIs) are written only once per resource
+ * and referred to by index afterwards.
+ * </p>
+ */
+public class SmileUtil {
+
+	private static final SmileFactory ourSmileFactory;
+	private static final JsonFactory ourJsonFactory = new JsonFactory();
+
+	static {
+		ourSmileFactory = new SmileFactory();
+		ourSmileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+	}
+
+	public static byte[] encode(IJsonLikeParser theParser, IBaseResource theResource) {
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			try (JsonGenerator generator = ourSmileFactory.createGenerator(os)) {
+				theParser.encodeResourceToJsonLikeWriter(theResource, new JacksonWriter(generator));
+			}
+			return os.toByteArray();
+		} catch (IOException e) {
+			throw new DataFormatException("Failed to encode contents", e);
+		}
+	}
+
+	public static <T extends IBaseResource> T parse(IJsonLikeParser theParser, Class<T> theResourceType, byte[] theResource) {
+		JacksonStructure structure = new JacksonStructure();
+		try {
+			structure.load(ourSmileFactory.createParser(theResource));
+		} catch (IOException e) {
+			throw new DataFormatException("Failed to decode contents", e);
+		}
+		return theParser.parseResource(theResourceType, structure);
+	}
+
+	/**
+	 * Converts Smile encoded content to the equivalent (non pretty-printed) JSON text
+	 */
+	public static String toJson(byte[] theResource) {
+		StringWriter retVal = new StringWriter();
+		try (JsonParser parser = ourSmileFactory.createParser(theResource);
+			  JsonGenerator generator = ourJsonFactory.createGenerator(retVal)) {
+			parser.nextToken();
+			generator.copyCurrentStructure(parser);
+		} catch (IOException e) {
+			throw new DataFormatException("Failed to decode contents", e);
+		}
+		return retVal.toString();
+	}
+
+}
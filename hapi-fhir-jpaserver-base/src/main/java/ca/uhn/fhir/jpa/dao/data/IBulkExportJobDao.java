@@ -40,6 +40,13 @@ public interface IBulkExportJobDao extends JpaRepository<BulkExportJobEntity, Lo
 	@Query("SELECT j FROM BulkExportJobEntity j WHERE j.myStatus = :status")
 	Slice<BulkExportJobEntity> findByStatus(Pageable thePage, @Param("status") BulkJobStatusEnum theSubmitted);
 
+	@Query("SELECT j FROM BulkExportJobEntity j WHERE j.myStatus = :status AND j.myStatusTime < :cutoff")
+	Slice<BulkExportJobEntity> findByStatusAndStatusTimeBefore(Pageable thePage, @Param("status") BulkJobStatusEnum theStatus, @Param("cutoff") Date theCutoff);
+
+	@Modifying
+	@Query("UPDATE BulkExportJobEntity j SET j.myStatusTime = :now WHERE j.myJobId = :jobid AND j.myStatus = :status")
+	int updateStatusTime(@Param("jobid") String theUuid, @Param("status") BulkJobStatusEnum theStatus, @Param("now") Date theNow);
+
 	@Query("SELECT j FROM BulkExportJobEntity j WHERE j.myExpiry < :cutoff")
 	Slice<BulkExportJobEntity> findByExpiry(Pageable thePage, @Param("cutoff") Date theCutoff);
 
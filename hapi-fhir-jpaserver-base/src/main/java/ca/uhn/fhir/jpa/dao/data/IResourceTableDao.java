@@ -46,6 +46,9 @@ public interface IResourceTableDao extends JpaRepository<ResourceTable, Long> {
 	@Query("SELECT t.myResourceType as type, COUNT(t.myResourceType) as count FROM ResourceTable t GROUP BY t.myResourceType")
 	List<Map<?, ?>> getResourceCounts();
 
+	@Query("SELECT t.myId FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myDeleted IS NULL AND t.myUpdated >= :low AND t.myId > :lastid ORDER BY t.myId ASC")
+	Slice<Long> findIdsOfNonDeletedResourcesOfTypeUpdatedSince(Pageable thePage, @Param("restype") String theResourceType, @Param("low") Date theLow, @Param("lastid") Long theLastId);
+
 	@Query("SELECT t.myId FROM ResourceTable t WHERE t.myUpdated >= :low AND t.myUpdated <= :high ORDER BY t.myUpdated DESC")
 	Slice<Long> findIdsOfResourcesWithinUpdatedRangeOrderedFromNewest(Pageable thePage, @Param("low") Date theLow, @Param("high") Date theHigh);
 
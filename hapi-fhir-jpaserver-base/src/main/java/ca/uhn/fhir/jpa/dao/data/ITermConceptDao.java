@@ -44,6 +44,9 @@ public interface ITermConceptDao extends JpaRepository<TermConcept, Long> {
 	@Query("SELECT t.myId FROM TermConcept t WHERE t.myCodeSystem.myId = :cs_pid")
 	Slice<Long> findIdsByCodeSystemVersion(Pageable thePage, @Param("cs_pid") Long thePid);
 
+	@Query("SELECT t.myId, t.myCode FROM TermConcept t WHERE t.myCodeSystem.myId = :cs_pid")
+	List<Object[]> findIdsAndCodesByCodeSystemVersion(@Param("cs_pid") Long thePid);
+
 	@Query("SELECT c FROM TermConcept c WHERE c.myCodeSystem = :code_system")
 	List<TermConcept> findByCodeSystemVersion(@Param("code_system") TermCodeSystemVersion theCodeSystem);
 
@@ -23,6 +23,7 @@ package ca.uhn.fhir.jpa.dao.expunge;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.dao.index.IdHelperService;
 import ca.uhn.fhir.jpa.entity.*;
 import ca.uhn.fhir.jpa.model.entity.*;
 import ca.uhn.fhir.jpa.util.JpaInterceptorBroadcaster;
@@ -56,6 +57,8 @@ public class ExpungeEverythingService {
 	private PlatformTransactionManager myPlatformTransactionManager;
 	@Autowired
 	protected IInterceptorBroadcaster myInterceptorBroadcaster;
+	@Autowired
+	private IdHelperService myIdHelperService;
 
 	private TransactionTemplate myTxTemplate;
 
@@ -85,6 +88,7 @@ public class ExpungeEverythingService {
 		});
 		counter.addAndGet(expungeEverythingByType(SearchParamPresent.class));
 		counter.addAndGet(expungeEverythingByType(ForcedId.class));
+		myIdHelperService.clearCache();
 		counter.addAndGet(expungeEverythingByType(ResourceIndexedSearchParamDate.class));
 		counter.addAndGet(expungeEverythingByType(ResourceIndexedSearchParamNumber.class));
 		counter.addAndGet(expungeEverythingByType(ResourceIndexedSearchParamQuantity.class));
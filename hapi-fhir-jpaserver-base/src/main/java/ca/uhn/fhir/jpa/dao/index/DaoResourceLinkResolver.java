@@ -29,6 +29,8 @@ import ca.uhn.fhir.context.RuntimeSearchParam;
 import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.dao.SearchBuilder;
+import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
 import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.searchparam.extractor.IResourceLinkResolver;
@@ -36,6 +38,7 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import com.google.common.collect.Lists;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseReference;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -47,7 +50,12 @@ import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class DaoResourceLinkResolver implements IResourceLinkResolver {
@@ -62,14 +70,37 @@ public class DaoResourceLinkResolver implements IResourceLinkResolver {
 	private IdHelperService myIdHelperService;
 	@Autowired
 	private DaoRegistry myDaoRegistry;
+	@Autowired
+	private IResourceTableDao myResourceTableDao;
 
 	@Override
-	public ResourceTable findTargetResource(RuntimeSearchParam theNextSpDef, String theNextPathsUnsplit, IIdType theNextId, String theTypeString, Class<? extends IBaseResource> theType, IBaseReference theReference, RequestDetails theRequest) {
+	public Map<String, ResourcePersistentId> resolveTargetIds(Collection<IIdType> theIds, RequestDetails theRequest) {
+		if (theIds.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, ResourcePersistentId> retVal = myIdHelperService.resolveResourcePersistentIds(theIds, theRequest);
+
+		// Load the targets into the persistence context so that findTargetResource doesn't need to query for each one
+		List<Long> pids = retVal.values().stream().map(ResourcePersistentId::getIdAsLong).distinct().collect(Collectors.toList());
+		for (List<Long> nextPartition : Lists.partition(pids, SearchBuilder.MAXIMUM_PAGE_SIZE)) {
+			myResourceTableDao.findAllById(nextPartition);
+		}
+
+		return retVal;
+	}
+
+	@Override
+	public ResourceTable findTargetResource(RuntimeSearchParam theNextSpDef, String theNextPathsUnsplit, IIdType theNextId, String theTypeString, Class<? extends IBaseResource> theType, IBaseReference theReference, ResourcePersistentId theResolvedTargetId, RequestDetails theRequest) {
 		ResourceTable target;
 		ResourcePersistentId valueOf;
 		String idPart = theNextId.getIdPart();
 		try {
-			valueOf = myIdHelperService.translateForcedIdToPid(theTypeString, idPart, theRequest);
+			if (theResolvedTargetId != null) {
+				valueOf = theResolvedTargetId;
+			} else {
+				valueOf = myIdHelperService.translateForcedIdToPid(theTypeString, idPart, theRequest);
+			}
 			ourLog.trace("Translated {}/{} to resource PID {}", theType, idPart, valueOf);
 		} catch (ResourceNotFoundException e) {
 
@@ -24,18 +24,31 @@ import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.model.entity.*;
 import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.util.AddRemoveCount;
+import com.google.common.collect.Lists;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 @Service
 public class DaoSearchParamSynchronizer {
+	/**
+	 * Index rows are deleted in batches of this size using a single DELETE ... WHERE ID IN (..)
+	 * statement per batch
+	 */
+	static final int MAX_IDS_PER_DELETE_STATEMENT = 500;
+
 	@Autowired
 	private DaoConfig myDaoConfig;
 
@@ -65,18 +78,59 @@ public class DaoSearchParamSynchronizer {
 		List<T> quantitiesToRemove = subtract(theExistingParms, theNewParms);
 		List<T> quantitiesToAdd = subtract(theNewParms, theExistingParms);
 		tryToReuseIndexEntities(quantitiesToRemove, quantitiesToAdd);
+		removeIndexEntities(quantitiesToRemove);
 		for (T next : quantitiesToRemove) {
-			myEntityManager.remove(next);
 			theEntity.getParamsQuantity().remove(next);
 		}
 		for (T next : quantitiesToAdd) {
-			myEntityManager.merge(next);
+			if (next.getId() == null) {
+				// New rows don't need the copy that merge() makes
+				myEntityManager.persist(next);
+			} else {
+				myEntityManager.merge(next);
+			}
 		}
 
 		theAddRemoveCount.addToAddCount(quantitiesToAdd.size());
 		theAddRemoveCount.addToRemoveCount(quantitiesToRemove.size());
 	}
 
+	/**
+	 * Index rows are write-only from the perspective of the entity that owns them, so rather than
+	 * removing each row individually through the persistence context (which issues one DELETE
+	 * statement per row) we detach them and delete them by ID in bulk.
+	 */
+	private <T extends BaseResourceIndex> void removeIndexEntities(List<T> theIndexesToRemove) {
+		if (theIndexesToRemove.isEmpty()) {
+			return;
+		}
+		if (theIndexesToRemove.size() == 1) {
+			myEntityManager.remove(theIndexesToRemove.get(0));
+			return;
+		}
+
+		Class<T> type = Hibernate.getClass(theIndexesToRemove.get(0));
+		List<Long> ids = new ArrayList<>(theIndexesToRemove.size());
+		for (T next : theIndexesToRemove) {
+			if (next.getId() == null || Hibernate.getClass(next) != type) {
+				// Should not happen, but fall back to the slow path if it does
+				myEntityManager.remove(next);
+				continue;
+			}
+			ids.add(next.getId());
+			myEntityManager.detach(next);
+		}
+
+		SingularAttribute<? super T, Long> idAttribute = myEntityManager.getMetamodel().entity(type).getId(Long.class);
+		CriteriaBuilder builder = myEntityManager.getCriteriaBuilder();
+		for (List<Long> nextPartition : Lists.partition(ids, MAX_IDS_PER_DELETE_STATEMENT)) {
+			CriteriaDelete<T> delete = builder.createCriteriaDelete(type);
+			Root<T> from = delete.from(type);
+			delete.where(from.get(idAttribute).in(nextPartition));
+			myEntityManager.createQuery(delete).executeUpdate();
+		}
+	}
+
 	/**
 	 * The logic here is that often times when we update a resource we are dropping
 	 * one index row and adding another. This method tries to reuse rows that would otherwise
@@ -117,7 +171,10 @@ public class DaoSearchParamSynchronizer {
 		}
 
 		ArrayList<T> retVal = new ArrayList<>(theSubtractFrom);
-		retVal.removeAll(theToSubtract);
+		if (!theToSubtract.isEmpty()) {
+			// ArrayList#removeAll calls contains() on the argument for every element, so use a set
+			retVal.removeAll(new HashSet<>(theToSubtract));
+		}
 		return retVal;
 	}
 }
@@ -23,6 +23,7 @@ package ca.uhn.fhir.jpa.dao.index;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.dao.SearchBuilder;
 import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
 import ca.uhn.fhir.jpa.dao.data.IForcedIdDao;
 import ca.uhn.fhir.jpa.model.entity.ForcedId;
@@ -34,20 +35,46 @@ import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MultimapBuilder;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+/**
+ * This class is responsible for translating between client assigned (forced) resource
+ * IDs and internal resource PIDs.
+ * <p>
+ * Because forced IDs never change once they have been assigned, resolved translations are
+ * held in a pair of bounded in-memory caches (see {@link DaoConfig#setForcedIdCacheSize(int)}).
+ * Entries are only added to the caches once the transaction that resolved them has committed,
+ * so that a rolled back resource creation can never leave a dangling PID behind, and
+ * are removed when the forced ID is deleted during an expunge. Expunges on other nodes can't
+ * remove entries from these caches, so entries also expire after a configurable time (see
+ * {@link DaoConfig#setForcedIdCacheExpireAfterWriteInMinutes(long)}).
+ * </p>
+ * <p>
+ * The caches hold plain PIDs, and a new {@link ResourcePersistentId} is returned to each caller,
+ * so that callers can't modify the cached values.
+ * </p>
+ */
 @Service
 public class IdHelperService {
+
 	@Autowired
 	protected IForcedIdDao myForcedIdDao;
 	@Autowired(required = true)
@@ -55,8 +82,60 @@ public class IdHelperService {
 	@Autowired
 	private IInterceptorBroadcaster myInterceptorBroadcaster;
 
+	/**
+	 * Key is "[resource type]/[forced id]"
+	 */
+	private Cache<String, Long> myForcedIdToPidCache;
+	/**
+	 * Value is "[resource type]/[forced id]", or empty if the resource has no forced ID
+	 */
+	private Cache<Long, Optional<String>> myPidToForcedIdCache;
+
+	@PostConstruct
+	public void start() {
+		int cacheSize = myDaoConfig.getForcedIdCacheSize();
+		long expireAfterWriteMinutes = myDaoConfig.getForcedIdCacheExpireAfterWriteInMinutes();
+		if (cacheSize > 0) {
+			myForcedIdToPidCache = Caffeine
+				.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(expireAfterWriteMinutes, TimeUnit.MINUTES)
+				.build();
+			myPidToForcedIdCache = Caffeine
+				.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(expireAfterWriteMinutes, TimeUnit.MINUTES)
+				.build();
+		}
+	}
+
 	public void delete(ForcedId forcedId) {
 		myForcedIdDao.deleteByPid(forcedId.getId());
+
+		String key = toCacheKey(forcedId.getResourceType(), forcedId.getForcedId());
+		Long pid = forcedId.getResourcePid();
+		invalidateCaches(key, pid);
+
+		// An entry could be re-added by a concurrent lookup before this transaction commits
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					invalidateCaches(key, pid);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Discards all cached translations. This should be called if forced IDs are
+	 * removed in bulk without going through {@link #delete(ForcedId)}.
+	 */
+	public void clearCache() {
+		if (myForcedIdToPidCache != null) {
+			myForcedIdToPidCache.invalidateAll();
+			myPidToForcedIdCache.invalidateAll();
+		}
 	}
 
 	/**
@@ -74,7 +153,7 @@ public class IdHelperService {
 	public ResourcePersistentId translateForcedIdToPid(String theResourceName, String theResourceId, RequestDetails theRequestDetails) throws ResourceNotFoundException {
 		// We only pass 1 input in so only 0..1 will come back
 		IdDt id = new IdDt(theResourceName, theResourceId);
-		List<ResourcePersistentId> matches = translateForcedIdToPids(myDaoConfig, myInterceptorBroadcaster, theRequestDetails, myForcedIdDao, Collections.singletonList(id));
+		List<ResourcePersistentId> matches = translateForcedIdToPids(Collections.singletonList(id), theRequestDetails);
 		assert matches.size() <= 1;
 		if (matches.isEmpty()) {
 			throw new ResourceNotFoundException(id);
@@ -83,10 +162,6 @@ public class IdHelperService {
 	}
 
 	public List<ResourcePersistentId> translateForcedIdToPids(Collection<IIdType> theId, RequestDetails theRequestDetails) {
-		return IdHelperService.translateForcedIdToPids(myDaoConfig, myInterceptorBroadcaster, theRequestDetails, myForcedIdDao, theId);
-	}
-
-	private static List<ResourcePersistentId> translateForcedIdToPids(DaoConfig theDaoConfig, IInterceptorBroadcaster theInterceptorBroadcaster, RequestDetails theRequest, IForcedIdDao theForcedIdDao, Collection<IIdType> theId) {
 		theId.forEach(id -> Validate.isTrue(id.hasIdPart()));
 
 		if (theId.isEmpty()) {
@@ -97,11 +172,19 @@ public class IdHelperService {
 
 		ListMultimap<String, String> typeToIds = MultimapBuilder.hashKeys().arrayListValues().build();
 		for (IIdType nextId : theId) {
-			if (theDaoConfig.getResourceClientIdStrategy() != DaoConfig.ClientIdStrategyEnum.ANY && isValidPid(nextId)) {
+			if (myDaoConfig.getResourceClientIdStrategy() != DaoConfig.ClientIdStrategyEnum.ANY && isValidPid(nextId)) {
 				retVal.add(new ResourcePersistentId(nextId.getIdPartAsLong()));
 			} else {
 				if (nextId.hasResourceType()) {
-					typeToIds.put(nextId.getResourceType(), nextId.getIdPart());
+					Long cached = null;
+					if (myForcedIdToPidCache != null) {
+						cached = myForcedIdToPidCache.getIfPresent(toCacheKey(nextId.getResourceType(), nextId.getIdPart()));
+					}
+					if (cached != null) {
+						retVal.add(new ResourcePersistentId(cached));
+					} else {
+						typeToIds.put(nextId.getResourceType(), nextId.getIdPart());
+					}
 				} else {
 					typeToIds.put("", nextId.getIdPart());
 				}
@@ -116,29 +199,89 @@ public class IdHelperService {
 				StorageProcessingMessage msg = new StorageProcessingMessage()
 					.setMessage("This search uses unqualified resource IDs (an ID without a resource type). This is less efficient than using a qualified type.");
 				HookParams params = new HookParams()
-					.add(RequestDetails.class, theRequest)
-					.addIfMatchesType(ServletRequestDetails.class, theRequest)
+					.add(RequestDetails.class, theRequestDetails)
+					.addIfMatchesType(ServletRequestDetails.class, theRequestDetails)
 					.add(StorageProcessingMessage.class, msg);
-				JpaInterceptorBroadcaster.doCallHooks(theInterceptorBroadcaster, theRequest, Pointcut.JPA_PERFTRACE_WARNING, params);
+				JpaInterceptorBroadcaster.doCallHooks(myInterceptorBroadcaster, theRequestDetails, Pointcut.JPA_PERFTRACE_WARNING, params);
 
-				theForcedIdDao
-					.findByForcedId(nextIds)
-					.stream()
-					.map(t->new ResourcePersistentId(t))
-					.forEach(t->retVal.add(t));
+				for (List<String> nextPartition : Lists.partition(new ArrayList<>(nextIds), SearchBuilder.MAXIMUM_PAGE_SIZE)) {
+					myForcedIdDao
+						.findByForcedId(nextPartition)
+						.stream()
+						.map(t->new ResourcePersistentId(t))
+						.forEach(t->retVal.add(t));
+				}
 
 			} else {
 
-				theForcedIdDao
-					.findByTypeAndForcedId(nextResourceType, nextIds)
-					.stream()
-					.map(t->new ResourcePersistentId(t))
-					.forEach(t->retVal.add(t));
+				retVal.addAll(resolveForcedIds(nextResourceType, nextIds).values());
+
+			}
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Like {@link #translateForcedIdToPids(Collection, RequestDetails)}, but returns the resolved
+	 * PIDs keyed by the ID they were resolved from, using the form "[resource type]/[id part]".
+	 * All of the IDs must have a resource type. IDs which can not be found are not included
+	 * in the returned map.
+	 */
+	@Nonnull
+	public Map<String, ResourcePersistentId> resolveResourcePersistentIds(Collection<IIdType> theIds, RequestDetails theRequestDetails) {
+		theIds.forEach(id -> Validate.isTrue(id.hasResourceType() && id.hasIdPart()));
 
+		Map<String, ResourcePersistentId> retVal = new HashMap<>();
+
+		ListMultimap<String, String> typeToIds = MultimapBuilder.hashKeys().arrayListValues().build();
+		for (IIdType nextId : theIds) {
+			String key = toCacheKey(nextId.getResourceType(), nextId.getIdPart());
+			if (retVal.containsKey(key) || typeToIds.containsEntry(nextId.getResourceType(), nextId.getIdPart())) {
+				continue;
+			}
+			if (myDaoConfig.getResourceClientIdStrategy() != DaoConfig.ClientIdStrategyEnum.ANY && isValidPid(nextId)) {
+				retVal.put(key, new ResourcePersistentId(nextId.getIdPartAsLong()));
+			} else {
+				Long cached = null;
+				if (myForcedIdToPidCache != null) {
+					cached = myForcedIdToPidCache.getIfPresent(key);
+				}
+				if (cached != null) {
+					retVal.put(key, new ResourcePersistentId(cached));
+				} else {
+					typeToIds.put(nextId.getResourceType(), nextId.getIdPart());
+				}
 			}
 		}
 
-			return retVal;
+		for (Map.Entry<String, Collection<String>> nextEntry : typeToIds.asMap().entrySet()) {
+			retVal.putAll(resolveForcedIds(nextEntry.getKey(), nextEntry.getValue()));
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Looks up the PIDs for a collection of forced IDs belonging to a single resource type, and
+	 * returns them keyed by "[resource type]/[id part]". The IDs are looked up in partitions so that
+	 * a single query never has more bind parameters than the database allows.
+	 */
+	private Map<String, ResourcePersistentId> resolveForcedIds(String theResourceType, Collection<String> theForcedIds) {
+		Map<String, ResourcePersistentId> retVal = new HashMap<>();
+		Map<String, Long> resolvedPids = new HashMap<>();
+		for (List<String> nextPartition : Lists.partition(new ArrayList<>(theForcedIds), SearchBuilder.MAXIMUM_PAGE_SIZE)) {
+			for (Object[] next : myForcedIdDao.findAndResolveByTypeAndForcedId(theResourceType, nextPartition)) {
+				String key = toCacheKey(theResourceType, (String) next[0]);
+				Long pid = (Long) next[1];
+				retVal.put(key, new ResourcePersistentId(pid));
+				resolvedPids.put(key, pid);
+			}
+		}
+		if (myForcedIdToPidCache != null) {
+			populateCacheAfterCommit(() -> myForcedIdToPidCache.putAll(resolvedPids));
+		}
+		return retVal;
 	}
 
 	public IIdType translatePidIdToForcedId(FhirContext theCtx, String theResourceType, ResourcePersistentId theId) {
@@ -148,14 +291,66 @@ public class IdHelperService {
 	}
 
 	public String translatePidIdToForcedId(String theResourceType, ResourcePersistentId theId) {
-		ForcedId forcedId = myForcedIdDao.findByResourcePid(theId.getIdAsLong());
-		if (forcedId != null) {
-			return forcedId.getResourceType() + '/' + forcedId.getForcedId();
+		Long pid = theId.getIdAsLong();
+		Optional<String> forcedId = null;
+		if (myPidToForcedIdCache != null) {
+			forcedId = myPidToForcedIdCache.getIfPresent(pid);
+		}
+
+		if (forcedId == null) {
+			ForcedId forcedIdEntity = myForcedIdDao.findByResourcePid(pid);
+			if (forcedIdEntity != null) {
+				forcedId = Optional.of(forcedIdEntity.getResourceType() + '/' + forcedIdEntity.getForcedId());
+			} else {
+				forcedId = Optional.empty();
+			}
+			if (myPidToForcedIdCache != null) {
+				Optional<String> value = forcedId;
+				populateCacheAfterCommit(() -> myPidToForcedIdCache.put(pid, value));
+			}
+		}
+
+		return forcedId.orElse(theResourceType + '/' + theId.toString());
+	}
+
+	@VisibleForTesting
+	void setDaoConfigForUnitTest(DaoConfig theDaoConfig) {
+		myDaoConfig = theDaoConfig;
+	}
+
+	@VisibleForTesting
+	void setForcedIdDaoForUnitTest(IForcedIdDao theForcedIdDao) {
+		myForcedIdDao = theForcedIdDao;
+	}
+
+	private void invalidateCaches(String theForcedIdKey, Long theResourcePid) {
+		if (myForcedIdToPidCache != null) {
+			myForcedIdToPidCache.invalidate(theForcedIdKey);
+			myPidToForcedIdCache.invalidate(theResourcePid);
+		}
+	}
+
+	/**
+	 * Values read inside a transaction may include rows written by that same
+	 * transaction, so they are only cached once it has successfully committed
+	 */
+	private static void populateCacheAfterCommit(Runnable thePopulator) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					thePopulator.run();
+				}
+			});
 		} else {
-			return theResourceType + '/' + theId.toString();
+			thePopulator.run();
 		}
 	}
 
+	private static String toCacheKey(String theResourceType, String theForcedId) {
+		return theResourceType + '/' + theForcedId;
+	}
+
 	public static boolean isValidPid(IIdType theId) {
 		if (theId == null || theId.getIdPart() == null) {
 			return false;
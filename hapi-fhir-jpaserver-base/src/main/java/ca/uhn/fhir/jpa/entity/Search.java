@@ -188,6 +188,14 @@ public class Search implements ICachedSearchDetails, Serializable {
 		return myId;
 	}
 
+	/**
+	 * Note that this is normally assigned by the database. It should only be set
+	 * explicitly by search cache implementations that do not persist the search.
+	 */
+	public void setId(Long theId) {
+		myId = theId;
+	}
+
 	public Collection<SearchInclude> getIncludes() {
 		if (myIncludes == null) {
 			myIncludes = new ArrayList<>();
@@ -310,6 +318,10 @@ public class Search implements ICachedSearchDetails, Serializable {
 		myLastUpdatedHigh = theUpperBound;
 	}
 
+	public Integer getSearchQueryStringHash() {
+		return mySearchQueryStringHash;
+	}
+
 	public void setSearchQueryStringHash(Integer theSearchQueryStringHash) {
 		mySearchQueryStringHash = theSearchQueryStringHash;
 	}
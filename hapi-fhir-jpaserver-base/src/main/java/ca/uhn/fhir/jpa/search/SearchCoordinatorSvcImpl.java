@@ -51,6 +51,7 @@ import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
+import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
 import ca.uhn.fhir.rest.server.method.PageMethodBinding;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.rest.server.util.ICachedSearchDetails;
@@ -81,6 +82,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
@@ -88,6 +90,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 
@@ -105,7 +108,8 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 	private DaoConfig myDaoConfig;
 	@Autowired
 	private EntityManager myEntityManager;
-	private ExecutorService myExecutor;
+	private final AtomicLong mySubmissionSequence = new AtomicLong();
+	private ThreadPoolExecutor myExecutor;
 	private Integer myLoadingThrottleForUnitTests = null;
 	private long myMaxMillisToWaitForRemoteResults = DateUtils.MILLIS_PER_MINUTE;
 	private boolean myNeverUseLocalSearchForUnitTests;
@@ -130,14 +134,6 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 	 */
 	private boolean myCustomIsolationSupported;
 
-	/**
-	 * Constructor
-	 */
-	public SearchCoordinatorSvcImpl() {
-		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("search_coord_");
-		myExecutor = Executors.newCachedThreadPool(threadFactory);
-	}
-
 	@VisibleForTesting
 	public void setSearchCacheServicesForUnitTest(ISearchCacheSvc theSearchCacheSvc, ISearchResultCacheSvc theSearchResultCacheSvc) {
 		mySearchCacheSvc = theSearchCacheSvc;
@@ -155,6 +151,43 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 		if (myCustomIsolationSupported == false) {
 			ourLog.warn("JPA dialect does not support transaction isolation! This can have an impact on search performance.");
 		}
+
+		/*
+		 * Searches are queued in priority order (see QueuedSearchTask). Because the queue
+		 * is unbounded the pool never grows beyond its core size, and admission control is
+		 * applied in submitSearch(..) instead.
+		 */
+		int threadCount = myDaoConfig.getSearchCoordinatorThreadCount();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("search_coord_");
+		myExecutor = new ThreadPoolExecutor(
+			threadCount,
+			threadCount,
+			60L,
+			TimeUnit.SECONDS,
+			new PriorityBlockingQueue<>(),
+			threadFactory);
+		myExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (myExecutor != null) {
+			myExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the number of asynchronous searches which are waiting for a search thread
+	 */
+	public int getQueuedSearchCount() {
+		return myExecutor.getQueue().size();
+	}
+
+	/**
+	 * Returns the (approximate) number of asynchronous searches which are currently executing
+	 */
+	public int getActiveSearchCount() {
+		return myExecutor.getActiveCount();
 	}
 
 	@Override
@@ -245,7 +278,7 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 					IFhirResourceDao<?> resourceDao = myDaoRegistry.getResourceDao(resourceType);
 					SearchContinuationTask task = new SearchContinuationTask(search, resourceDao, params, resourceType, theRequestDetails);
 					myIdToSearchTask.put(search.getUuid(), task);
-					myExecutor.submit(task);
+					submitTask(task);
 				}
 			}
 
@@ -366,9 +399,15 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 			.addIfMatchesType(ServletRequestDetails.class, theRequestDetails);
 		JpaInterceptorBroadcaster.doCallHooks(myInterceptorBroadcaster, theRequestDetails, Pointcut.STORAGE_PRESEARCH_REGISTERED, params);
 
+		int queueCapacity = myDaoConfig.getSearchCoordinatorQueueCapacity();
+		if (getQueuedSearchCount() >= queueCapacity && getActiveSearchCount() >= myExecutor.getMaximumPoolSize()) {
+			ourLog.warn("Rejecting search {} as {} searches are already waiting to execute", theSearchUuid, queueCapacity);
+			throw new UnclassifiedServerFailureException(Constants.STATUS_HTTP_503_SERVICE_UNAVAILABLE, "Too many searches are currently in progress, please try again later");
+		}
+
 		SearchTask task = new SearchTask(search, theCallingDao, theParams, theResourceType, theRequestDetails);
 		myIdToSearchTask.put(search.getUuid(), task);
-		myExecutor.submit(task);
+		submitTask(task);
 
 		PersistedJpaSearchFirstPageBundleProvider retVal = new PersistedJpaSearchFirstPageBundleProvider(search, theCallingDao, mySearchBuilderFactory, task, theSb, myManagedTxManager, theRequestDetails);
 		populateBundleProvider(retVal);
@@ -377,6 +416,13 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 		return retVal;
 	}
 
+	private void submitTask(SearchTask theTask) {
+		SearchRuntimeDetails runtimeDetails = theTask.getSearchRuntimeDetails();
+		runtimeDetails.setQueueDepthAtSubmission(getQueuedSearchCount());
+		runtimeDetails.setActiveSearchCountAtSubmission(getActiveSearchCount());
+		myExecutor.execute(new QueuedSearchTask(theTask, mySubmissionSequence.getAndIncrement()));
+	}
+
 	@org.jetbrains.annotations.Nullable
 	private IBundleProvider findCachedQuery(IDao theCallingDao, SearchParameterMap theParams, String theResourceType, RequestDetails theRequestDetails, String theQueryString) {
 		TransactionTemplate txTemplate = new TransactionTemplate(myManagedTxManager);
@@ -601,6 +647,7 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 		private List<ResourcePersistentId> myPreviouslyAddedResourcePids;
 		private Integer myMaxResultsToFetch;
 		private SearchRuntimeDetails mySearchRuntimeDetails;
+		private final StopWatch mySubmissionStopwatch = new StopWatch();
 
 		/**
 		 * Constructor
@@ -638,6 +685,17 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 			return mySearch;
 		}
 
+		SearchRuntimeDetails getSearchRuntimeDetails() {
+			return mySearchRuntimeDetails;
+		}
+
+		/**
+		 * Returns the number of milliseconds since this task was created (i.e. submitted)
+		 */
+		long getMillisSinceSubmission() {
+			return mySubmissionStopwatch.getMillis();
+		}
+
 		CountDownLatch getInitialCollectionLatch() {
 			return myInitialCollectionLatch;
 		}
@@ -805,6 +863,9 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 					if (myDaoConfig.getCountSearchResultsUpTo() == null ||
 						myDaoConfig.getCountSearchResultsUpTo() <= 0 ||
 						myDaoConfig.getCountSearchResultsUpTo() <= numSynced) {
+						if (myInitialCollectionLatch.getCount() > 0) {
+							mySearchRuntimeDetails.setTimeToFirstPageMillis(getMillisSinceSubmission());
+						}
 						myInitialCollectionLatch.countDown();
 					}
 
@@ -1098,6 +1159,55 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc {
 	}
 
 
+	/**
+	 * Wraps a {@link SearchTask} for execution by the search thread pool. Waiting tasks are
+	 * executed in priority order:
+	 * <ol>
+	 *    <li>Continuations of existing searches, since a client is already waiting on the next page</li>
+	 *    <li>Regular searches</li>
+	 *    <li><code>$everything</code> searches, which are typically the most expensive</li>
+	 * </ol>
+	 * Tasks of equal priority are executed in the order they were submitted.
+	 */
+	private static class QueuedSearchTask implements Runnable, Comparable<QueuedSearchTask> {
+
+		private final SearchTask myTask;
+		private final int myPriority;
+		private final long mySequence;
+
+		QueuedSearchTask(SearchTask theTask, long theSequence) {
+			myTask = theTask;
+			myPriority = determinePriority(theTask);
+			mySequence = theSequence;
+		}
+
+		@Override
+		public void run() {
+			myTask.getSearchRuntimeDetails().setQueueWaitMillis(myTask.getMillisSinceSubmission());
+			myTask.call();
+		}
+
+		@Override
+		public int compareTo(@Nonnull QueuedSearchTask theOther) {
+			int retVal = Integer.compare(myPriority, theOther.myPriority);
+			if (retVal == 0) {
+				retVal = Long.compare(mySequence, theOther.mySequence);
+			}
+			return retVal;
+		}
+
+		static int determinePriority(SearchTask theTask) {
+			if (theTask instanceof SearchContinuationTask) {
+				return 0;
+			}
+			if (theTask.getSearch().getSearchType() == SearchTypeEnum.EVERYTHING) {
+				return 2;
+			}
+			return 1;
+		}
+
+	}
+
 	public class SearchContinuationTask extends SearchTask {
 
 		public SearchContinuationTask(Search theSearch, IDao theCallingDao, SearchParameterMap theParams, String theResourceType, RequestDetails theRequest) {
@@ -0,0 +1,203 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ISearchCacheSvc} implementation which holds searches in memory instead of
+ * in the HFJ_SEARCH table. This avoids the database writes that accompany every
+ * new search, but searches are only visible to the server process that created them,
+ * so this implementation is only suitable for single-node deployments (or deployments
+ * where requests for a given search are always routed to the same node).
+ * <p>
+ * This class is not enabled by default. To use it, override
+ * {@link ca.uhn.fhir.jpa.config.BaseConfig#searchCacheSvc()} to return an instance
+ * of this class, typically alongside {@link InMemorySearchResultCacheSvcImpl}.
+ * </p>
+ * <p>
+ * Callers are always given copies of the stored searches, so changes made to a search
+ * are only visible to other threads once it is passed back to {@link #save(Search)}.
+ * </p>
+ */
+public class InMemorySearchCacheSvcImpl implements ISearchCacheSvc {
+
+	public static final int DEFAULT_MAXIMUM_SEARCHES = 10000;
+	private static final Logger ourLog = LoggerFactory.getLogger(InMemorySearchCacheSvcImpl.class);
+	private static Long ourNowForUnitTests;
+
+	private final AtomicLong myNextId = new AtomicLong(1);
+	private int myMaximumSearches = DEFAULT_MAXIMUM_SEARCHES;
+	private Cache<String, Search> mySearches;
+
+	@Autowired
+	private DaoConfig myDaoConfig;
+
+	@PostConstruct
+	public void start() {
+		mySearches = Caffeine
+			.newBuilder()
+			.maximumSize(myMaximumSearches)
+			.build();
+	}
+
+	/**
+	 * Sets the maximum number of searches which will be held. Once this number is
+	 * reached, the least recently used searches are discarded (and requests for them
+	 * will fail as though they had expired). Must be called before the service is started.
+	 * Default is {@link #DEFAULT_MAXIMUM_SEARCHES}.
+	 */
+	public void setMaximumSearches(int theMaximumSearches) {
+		Validate.isTrue(theMaximumSearches > 0, "theMaximumSearches must be > 0");
+		myMaximumSearches = theMaximumSearches;
+	}
+
+	@VisibleForTesting
+	void setDaoConfigForUnitTest(DaoConfig theDaoConfig) {
+		myDaoConfig = theDaoConfig;
+	}
+
+	@Override
+	public Search save(Search theSearch) {
+		Validate.notBlank(theSearch.getUuid());
+		if (theSearch.getId() == null) {
+			theSearch.setId(myNextId.getAndIncrement());
+		}
+		mySearches.put(theSearch.getUuid(), copy(theSearch));
+		return theSearch;
+	}
+
+	@Override
+	public Optional<Search> fetchByUuid(String theUuid) {
+		Validate.notBlank(theUuid);
+		return Optional.ofNullable(mySearches.getIfPresent(theUuid)).map(InMemorySearchCacheSvcImpl::copy);
+	}
+
+	@Override
+	public Optional<Search> tryToMarkSearchAsInProgress(Search theSearch) {
+		ourLog.trace("Going to try to change search status from {} to {}", theSearch.getStatus(), SearchStatusEnum.LOADING);
+		Search[] retVal = new Search[1];
+		mySearches.asMap().compute(theSearch.getUuid(), (theUuid, theExisting) -> {
+			Search search = theExisting != null ? theExisting : copy(theSearch);
+			if (search.getStatus() != SearchStatusEnum.PASSCMPLET) {
+				ourLog.warn("Failed to activate search: Can't change to LOADING because state is {}", search.getStatus());
+				return theExisting;
+			}
+			search.setStatus(SearchStatusEnum.LOADING);
+			retVal[0] = copy(search);
+			return search;
+		});
+		return Optional.ofNullable(retVal[0]);
+	}
+
+	@Override
+	public Collection<Search> findCandidatesForReuse(String theResourceType, String theQueryString, int theQueryStringHash, Date theCreatedAfter) {
+		List<Search> retVal = new ArrayList<>();
+		for (Search next : mySearches.asMap().values()) {
+			if (!Objects.equals(theResourceType, next.getResourceType())) {
+				continue;
+			}
+			if (!Objects.equals(theQueryStringHash, next.getSearchQueryStringHash())) {
+				continue;
+			}
+			if (next.getCreated() == null || !next.getCreated().after(theCreatedAfter)) {
+				continue;
+			}
+			if (Boolean.TRUE.equals(next.getDeleted()) || next.getStatus() == SearchStatusEnum.FAILED) {
+				continue;
+			}
+			retVal.add(copy(next));
+		}
+		return retVal;
+	}
+
+	@Override
+	public void pollForStaleSearchesAndDeleteThem() {
+		if (!myDaoConfig.isExpireSearchResults()) {
+			return;
+		}
+
+		long cutoffMillis = myDaoConfig.getExpireSearchResultsAfterMillis();
+		if (myDaoConfig.getReuseCachedSearchResultsForMillis() != null) {
+			cutoffMillis = cutoffMillis + myDaoConfig.getReuseCachedSearchResultsForMillis();
+		}
+		long now = now();
+		Date cutoff = new Date(now - cutoffMillis - DatabaseSearchCacheSvcImpl.SEARCH_CLEANUP_JOB_INTERVAL_MILLIS);
+
+		int count = 0;
+		for (Map.Entry<String, Search> next : mySearches.asMap().entrySet()) {
+			Search search = next.getValue();
+			if (search.getCreated() != null && search.getCreated().after(cutoff)) {
+				continue;
+			}
+			if (search.getExpiryOrNull() != null && search.getExpiryOrNull().getTime() >= now) {
+				continue;
+			}
+			if (mySearches.asMap().remove(next.getKey(), search)) {
+				count++;
+			}
+		}
+
+		if (count > 0) {
+			ourLog.debug("Deleted {} searches, {} remaining", count, mySearches.estimatedSize());
+		}
+	}
+
+	private static Search copy(Search theSearch) {
+		return SerializationUtils.clone(theSearch);
+	}
+
+	/**
+	 * This is for unit tests only, do not call otherwise
+	 */
+	@VisibleForTesting
+	static void setNowForUnitTests(Long theNowForUnitTests) {
+		ourNowForUnitTests = theNowForUnitTests;
+	}
+
+	private static long now() {
+		if (ourNowForUnitTests != null) {
+			return ourNowForUnitTests;
+		}
+		return System.currentTimeMillis();
+	}
+
+}
@@ -0,0 +1,293 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ISearchResultCacheSvc} implementation which holds the result PIDs for each
+ * search in memory instead of in the HFJ_SEARCH_RESULT table. PIDs are stored as a
+ * compact array of primitive longs (8 bytes per result), either on the heap or, if
+ * {@link #setOffHeap(boolean) off-heap storage} is enabled, in direct memory where
+ * they do not add to garbage collection pressure.
+ * <p>
+ * Entries are evicted once they have not been accessed for the period configured in
+ * {@link DaoConfig#getExpireSearchResultsAfterMillis()} (plus the
+ * {@link DaoConfig#getReuseCachedSearchResultsForMillis() reuse period}, if any), or once
+ * the total number of cached PIDs exceeds {@link #setMaximumResultPids(long)}. A request
+ * for a page of an evicted search fails as though the search had expired.
+ * </p>
+ * <p>
+ * This class is not enabled by default. To use it, override
+ * {@link ca.uhn.fhir.jpa.config.BaseConfig#searchResultCacheSvc()} to return an instance of
+ * this class. It may be combined with either {@link InMemorySearchCacheSvcImpl} or
+ * {@link DatabaseSearchCacheSvcImpl}: in the latter case the search itself is still
+ * persisted to the database but the (much more numerous) result rows are not, which
+ * is only appropriate when all requests for a given search are served by the same node.
+ * </p>
+ */
+public class InMemorySearchResultCacheSvcImpl implements ISearchResultCacheSvc {
+
+	public static final long DEFAULT_MAXIMUM_RESULT_PIDS = 50_000_000L;
+	private static final Logger ourLog = LoggerFactory.getLogger(InMemorySearchResultCacheSvcImpl.class);
+
+	private long myMaximumResultPids = DEFAULT_MAXIMUM_RESULT_PIDS;
+	private boolean myOffHeap;
+	private Cache<String, PidList> myResults;
+
+	@Autowired
+	private DaoConfig myDaoConfig;
+
+	@PostConstruct
+	public void start() {
+		long expiryMillis = myDaoConfig.getExpireSearchResultsAfterMillis();
+		if (myDaoConfig.getReuseCachedSearchResultsForMillis() != null) {
+			expiryMillis = expiryMillis + myDaoConfig.getReuseCachedSearchResultsForMillis();
+		}
+		expiryMillis = expiryMillis + DatabaseSearchCacheSvcImpl.SEARCH_CLEANUP_JOB_INTERVAL_MILLIS;
+
+		Caffeine<String, PidList> builder = Caffeine
+			.newBuilder()
+			.maximumWeight(myMaximumResultPids)
+			.weigher((String theUuid, PidList thePids) -> Math.max(1, thePids.capacity()));
+		if (myDaoConfig.isExpireSearchResults()) {
+			builder.expireAfterAccess(expiryMillis, TimeUnit.MILLISECONDS);
+		}
+		myResults = builder.build();
+	}
+
+	/**
+	 * Sets the maximum number of result PIDs (across all searches) which will be held. Once this
+	 * number is reached, the results for the least recently used searches are discarded. Each PID
+	 * requires 8 bytes of storage. Must be called before the service is started.
+	 * Default is {@link #DEFAULT_MAXIMUM_RESULT_PIDS}.
+	 */
+	public void setMaximumResultPids(long theMaximumResultPids) {
+		Validate.isTrue(theMaximumResultPids > 0, "theMaximumResultPids must be > 0");
+		myMaximumResultPids = theMaximumResultPids;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), result PIDs are stored in
+	 * direct (off-heap) memory. Note that the JVM limits the total amount of direct memory
+	 * (see the <code>-XX:MaxDirectMemorySize</code> option), so {@link #setMaximumResultPids(long)}
+	 * should be set accordingly.
+	 */
+	public void setOffHeap(boolean theOffHeap) {
+		myOffHeap = theOffHeap;
+	}
+
+	@VisibleForTesting
+	void setDaoConfigForUnitTest(DaoConfig theDaoConfig) {
+		myDaoConfig = theDaoConfig;
+	}
+
+	@Override
+	public void storeResults(Search theSearch, List<ResourcePersistentId> thePreviouslyStoredResourcePids, List<ResourcePersistentId> theNewResourcePids) {
+		ourLog.trace("Storing {} results with {} previous for search", theNewResourcePids.size(), thePreviouslyStoredResourcePids.size());
+
+		myResults.asMap().compute(theSearch.getUuid(), (theUuid, theExisting) -> {
+			PidList pids = theExisting;
+			if (pids == null || pids.size() != thePreviouslyStoredResourcePids.size()) {
+				// The entry has been evicted (or never existed), so start again from what the caller knows about
+				pids = newPidList(thePreviouslyStoredResourcePids.size() + theNewResourcePids.size());
+				pids.addAll(thePreviouslyStoredResourcePids);
+			}
+			pids.addAll(theNewResourcePids);
+			// Returning the entry (even if it is the same instance) causes it to be re-weighed
+			return pids;
+		});
+	}
+
+	@Override
+	public List<ResourcePersistentId> fetchResultPids(Search theSearch, int theFrom, int theTo) {
+		PidList pids = myResults.getIfPresent(theSearch.getUuid());
+		if (pids == null) {
+			if (theSearch.getNumFound() > 0 && theFrom < theTo) {
+				ourLog.debug("Results for search {} are no longer cached", theSearch.getUuid());
+				return null;
+			}
+			return Collections.emptyList();
+		}
+		List<ResourcePersistentId> retVal = pids.get(theFrom, theTo);
+		ourLog.debug("fetchResultPids for range {}-{} returned {} pids", theFrom, theTo, retVal.size());
+		return retVal;
+	}
+
+	@Override
+	public List<ResourcePersistentId> fetchAllResultPids(Search theSearch) {
+		PidList pids = myResults.getIfPresent(theSearch.getUuid());
+		if (pids == null) {
+			if (theSearch.getNumFound() > 0) {
+				ourLog.debug("Results for search {} are no longer cached", theSearch.getUuid());
+				return null;
+			}
+			return Collections.emptyList();
+		}
+		List<ResourcePersistentId> retVal = pids.get(0, Integer.MAX_VALUE);
+		ourLog.trace("fetchAllResultPids returned {} pids", retVal.size());
+		return retVal;
+	}
+
+	private PidList newPidList(int theInitialCapacity) {
+		if (myOffHeap) {
+			return new DirectPidList(theInitialCapacity);
+		}
+		return new HeapPidList(theInitialCapacity);
+	}
+
+	private static int grow(int theCurrentCapacity, int theRequiredCapacity) {
+		return Math.max(theRequiredCapacity, Math.max(16, theCurrentCapacity + (theCurrentCapacity >> 1)));
+	}
+
+	/**
+	 * An append-only list of PIDs. Appends happen inside a cache compute (so are serialized
+	 * per search) but may overlap with reads from other threads, hence the synchronization.
+	 */
+	private static abstract class PidList {
+
+		private int mySize;
+
+		synchronized int size() {
+			return mySize;
+		}
+
+		synchronized void addAll(List<ResourcePersistentId> thePids) {
+			ensureCapacity(mySize + thePids.size());
+			for (ResourcePersistentId next : thePids) {
+				set(mySize++, next.getIdAsLong());
+			}
+		}
+
+		synchronized List<ResourcePersistentId> get(int theFrom, int theTo) {
+			int to = Math.min(theTo, mySize);
+			if (theFrom >= to) {
+				return Collections.emptyList();
+			}
+			List<ResourcePersistentId> retVal = new ArrayList<>(to - theFrom);
+			for (int i = theFrom; i < to; i++) {
+				retVal.add(new ResourcePersistentId(get(i)));
+			}
+			return retVal;
+		}
+
+		abstract int capacity();
+
+		abstract void ensureCapacity(int theCapacity);
+
+		abstract long get(int theIndex);
+
+		abstract void set(int theIndex, long thePid);
+
+	}
+
+	private static class HeapPidList extends PidList {
+
+		private long[] myPids;
+
+		HeapPidList(int theInitialCapacity) {
+			myPids = new long[theInitialCapacity];
+		}
+
+		@Override
+		int capacity() {
+			return myPids.length;
+		}
+
+		@Override
+		void ensureCapacity(int theCapacity) {
+			if (theCapacity > myPids.length) {
+				myPids = Arrays.copyOf(myPids, grow(myPids.length, theCapacity));
+			}
+		}
+
+		@Override
+		long get(int theIndex) {
+			return myPids[theIndex];
+		}
+
+		@Override
+		void set(int theIndex, long thePid) {
+			myPids[theIndex] = thePid;
+		}
+
+	}
+
+	private static class DirectPidList extends PidList {
+
+		private LongBuffer myPids;
+
+		DirectPidList(int theInitialCapacity) {
+			myPids = allocate(theInitialCapacity);
+		}
+
+		@Override
+		int capacity() {
+			return myPids.capacity();
+		}
+
+		@Override
+		void ensureCapacity(int theCapacity) {
+			if (theCapacity > myPids.capacity()) {
+				LongBuffer newPids = allocate(grow(myPids.capacity(), theCapacity));
+				LongBuffer source = myPids.duplicate();
+				source.clear();
+				newPids.put(source);
+				newPids.clear();
+				myPids = newPids;
+			}
+		}
+
+		@Override
+		long get(int theIndex) {
+			return myPids.get(theIndex);
+		}
+
+		@Override
+		void set(int theIndex, long thePid) {
+			myPids.put(theIndex, thePid);
+		}
+
+		private static LongBuffer allocate(int theCapacity) {
+			return ByteBuffer.allocateDirect(theCapacity * Long.BYTES).asLongBuffer();
+		}
+
+	}
+
+}
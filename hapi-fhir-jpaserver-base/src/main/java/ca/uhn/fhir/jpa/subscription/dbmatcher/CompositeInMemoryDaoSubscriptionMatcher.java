@@ -24,12 +24,15 @@ import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.subscription.module.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.module.ResourceModifiedMessage;
+import ca.uhn.fhir.jpa.subscription.module.cache.ActiveSubscription;
 import ca.uhn.fhir.jpa.subscription.module.matcher.ISubscriptionMatcher;
 import ca.uhn.fhir.jpa.subscription.module.matcher.InMemorySubscriptionMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.function.Supplier;
+
 public class CompositeInMemoryDaoSubscriptionMatcher implements ISubscriptionMatcher {
 	private Logger ourLog = LoggerFactory.getLogger(CompositeInMemoryDaoSubscriptionMatcher.class);
 
@@ -45,9 +48,18 @@ public class CompositeInMemoryDaoSubscriptionMatcher implements ISubscriptionMat
 
 	@Override
 	public InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg) {
+		return match(theSubscription, theMsg, () -> myInMemorySubscriptionMatcher.match(theSubscription, theMsg));
+	}
+
+	@Override
+	public InMemoryMatchResult match(ActiveSubscription theActiveSubscription, ResourceModifiedMessage theMsg) {
+		return match(theActiveSubscription.getSubscription(), theMsg, () -> myInMemorySubscriptionMatcher.match(theActiveSubscription, theMsg));
+	}
+
+	private InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg, Supplier<InMemoryMatchResult> theInMemoryMatch) {
 		InMemoryMatchResult result;
 		if (myDaoConfig.isEnableInMemorySubscriptionMatching()) {
-			result = myInMemorySubscriptionMatcher.match(theSubscription, theMsg);
+			result = theInMemoryMatch.get();
 			if (result.supported()) {
 				// TODO KHS test
 				result.setInMemory(true);
@@ -58,6 +58,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.TermsQuery;
@@ -72,6 +73,7 @@ import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.FullTextQuery;
 import org.hibernate.search.query.dsl.BooleanJunction;
 import org.hibernate.search.query.dsl.QueryBuilder;
+import org.hibernate.search.util.impl.Executors;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.instance.model.api.IAnyResource;
 import org.hl7.fhir.instance.model.api.IBaseCoding;
@@ -92,11 +94,14 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.NoRollbackRuleAttribute;
 import org.springframework.transaction.interceptor.RuleBasedTransactionAttribute;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
@@ -108,8 +113,14 @@ import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.validation.constraints.NotNull;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.defaultString;
@@ -124,6 +135,17 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(BaseTermReadSvcImpl.class);
 	private static boolean ourLastResultsFromTranslationCache; // For testing.
 	private static boolean ourLastResultsFromTranslationWithReverseCache; // For testing.
+	private static final int HIERARCHY_INDEX_EXPIRY_MINUTES = 10;
+	/**
+	 * Pre-expanded ValueSets with more concepts than this are validated against the database
+	 * instead of being cached in memory
+	 */
+	private static final int PRE_EXPANDED_CODES_CACHE_MAX_CONCEPTS_PER_VALUESET = 100000;
+	/**
+	 * The maximum total number of concepts across all pre-expanded ValueSets cached in memory
+	 */
+	private static final int PRE_EXPANDED_CODES_CACHE_MAX_CONCEPTS = 500000;
+	private static final int PRE_EXPANDED_CODES_CACHE_EXPIRY_MINUTES = 10;
 	@Autowired
 	protected DaoRegistry myDaoRegistry;
 	@Autowired
@@ -159,6 +181,30 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 	private IFhirResourceDaoValueSet<?, ?, ?> myValueSetResourceDao;
 	private Cache<TranslationQuery, List<TermConceptMapGroupElementTarget>> myTranslationCache;
 	private Cache<TranslationQuery, List<TermConceptMapGroupElement>> myTranslationWithReverseCache;
+	private final Cache<Long, TermConceptHierarchyIndex> myHierarchyIndexCache = Caffeine
+		.newBuilder()
+		.maximumSize(20)
+		.expireAfterWrite(HIERARCHY_INDEX_EXPIRY_MINUTES, TimeUnit.MINUTES)
+		.build();
+	/**
+	 * Makes claiming the next ValueSet to pre-expand atomic across the pre-expansion threads. This lock
+	 * is local to this JVM, so it does not stop another server sharing the same database from claiming
+	 * the same ValueSet if pre-expansion is run on several servers at once.
+	 */
+	private final Object myPreExpansionClaimLock = new Object();
+	private final ThreadFactory myPreExpansionThreadFactory = new BasicThreadFactory.Builder()
+		.namingPattern("valueset-preexpansion-%d")
+		.daemon(true)
+		.build();
+	private ThreadPoolExecutor myPreExpansionExecutor;
+	private final Cache<Long, PreExpandedValueSetCodes> myPreExpandedValueSetCodesCache = Caffeine
+		.newBuilder()
+		.maximumWeight(PRE_EXPANDED_CODES_CACHE_MAX_CONCEPTS)
+		.weigher((Long theKey, PreExpandedValueSetCodes theValue) -> theValue.size() + 1)
+		.expireAfterWrite(PRE_EXPANDED_CODES_CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+		.build();
+	@Autowired
+	private ITermConceptParentChildLinkDao myConceptParentChildLinkDao;
 	private int myFetchSize = DEFAULT_FETCH_SIZE;
 	private ApplicationContext myApplicationContext;
 	private TransactionTemplate myTxTemplate;
@@ -214,14 +260,18 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 	private boolean addToSet(Set<TermConcept> theSetToPopulate, TermConcept theConcept) {
 		boolean retVal = theSetToPopulate.add(theConcept);
 		if (retVal) {
-			if (theSetToPopulate.size() >= myDaoConfig.getMaximumExpansionSize()) {
-				String msg = myContext.getLocalizer().getMessage(BaseTermReadSvcImpl.class, "expansionTooLarge", myDaoConfig.getMaximumExpansionSize());
-				throw new ExpansionTooCostlyException(msg);
-			}
+			checkExpansionSize(theSetToPopulate.size());
 		}
 		return retVal;
 	}
 
+	private void checkExpansionSize(int theCodeCount) {
+		if (theCodeCount >= myDaoConfig.getMaximumExpansionSize()) {
+			String msg = myContext.getLocalizer().getMessage(BaseTermReadSvcImpl.class, "expansionTooLarge", myDaoConfig.getMaximumExpansionSize());
+			throw new ExpansionTooCostlyException(msg);
+		}
+	}
+
 	/**
 	 * This method is present only for unit tests, do not call from client code
 	 */
@@ -278,6 +328,7 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 
 		if (optionalExistingTermValueSetById.isPresent()) {
 			TermValueSet existingTermValueSet = optionalExistingTermValueSetById.get();
+			invalidatePreExpandedValueSetCodes(theResourceTable.getId());
 
 			ourLog.info("Deleting existing TermValueSet[{}] and its children...", existingTermValueSet.getId());
 			myValueSetConceptDesignationDao.deleteByTermValueSetId(existingTermValueSet.getId());
@@ -331,16 +382,16 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		}
 
 		if (!optionalTermValueSet.isPresent()) {
-			ourLog.warn("ValueSet is not present in terminology tables. Will perform in-memory expansion without parameters. {}", getValueSetInfo(theValueSetToExpand));
-			return expandValueSetInMemory(theValueSetToExpand, null); // In-memory expansion.
+			ourLog.warn("ValueSet is not present in terminology tables. Will perform in-memory expansion. {}", getValueSetInfo(theValueSetToExpand));
+			return expandValueSetInMemory(theValueSetToExpand, theOffset, theCount); // In-memory expansion.
 		}
 
 		TermValueSet termValueSet = optionalTermValueSet.get();
 
 		if (termValueSet.getExpansionStatus() != TermValueSetPreExpansionStatusEnum.EXPANDED) {
-			ourLog.warn("{} is present in terminology tables but not ready for persistence-backed invocation of operation $expand. Will perform in-memory expansion without parameters. Current status: {} | {}",
+			ourLog.warn("{} is present in terminology tables but not ready for persistence-backed invocation of operation $expand. Will perform in-memory expansion. Current status: {} | {}",
 				getValueSetInfo(theValueSetToExpand), termValueSet.getExpansionStatus().name(), termValueSet.getExpansionStatus().getDescription());
-			return expandValueSetInMemory(theValueSetToExpand, null); // In-memory expansion.
+			return expandValueSetInMemory(theValueSetToExpand, theOffset, theCount); // In-memory expansion.
 		}
 
 		ValueSet.ValueSetExpansionComponent expansionComponent = new ValueSet.ValueSetExpansionComponent();
@@ -356,6 +407,43 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		return valueSet;
 	}
 
+	/**
+	 * Performs an in-memory expansion of the given ValueSet. If in-memory paging is enabled, only the
+	 * requested page of concepts is materialized, and the expansion stops as soon as the page is full
+	 * (in which case the total is unknown and is not populated). Concepts before the page still have
+	 * to be walked, so the end of the page is subject to the same maximum expansion size as a full
+	 * expansion.
+	 */
+	private ValueSet expandValueSetInMemory(ValueSet theValueSetToExpand, int theOffset, int theCount) {
+		if (!myDaoConfig.isInMemoryValueSetExpansionPagingEnabled() || theValueSetToExpand.getCompose().hasExclude()) {
+			return expandValueSetInMemory(theValueSetToExpand, null);
+		}
+
+		if ((long) theOffset + theCount > myDaoConfig.getMaximumExpansionSize()) {
+			String msg = myContext.getLocalizer().getMessage(BaseTermReadSvcImpl.class, "expansionTooLarge", myDaoConfig.getMaximumExpansionSize());
+			throw new ExpansionTooCostlyException(msg);
+		}
+
+		ValueSetExpansionComponentWithConceptAccumulator expansionComponent = new ValueSetExpansionComponentWithConceptAccumulator(myContext, theOffset, theCount);
+		expansionComponent.setIdentifier(UUID.randomUUID().toString());
+		expansionComponent.setTimestamp(new Date());
+		expansionComponent.setOffset(theOffset);
+		expansionComponent.addParameter().setName("offset").setValue(new IntegerType(theOffset));
+		expansionComponent.addParameter().setName("count").setValue(new IntegerType(theCount));
+
+		expandValueSet(theValueSetToExpand, expansionComponent, new AtomicInteger(0), null);
+
+		if (!expansionComponent.hasMoreConcepts()) {
+			expansionComponent.setTotal(expansionComponent.getConceptsCount());
+		}
+
+		ValueSet valueSet = new ValueSet();
+		valueSet.setStatus(Enumerations.PublicationStatus.ACTIVE);
+		valueSet.setCompose(theValueSetToExpand.getCompose());
+		valueSet.setExpansion(expansionComponent);
+		return valueSet;
+	}
+
 	private void populateExpansionComponent(ValueSet.ValueSetExpansionComponent theExpansionComponent, TermValueSet theTermValueSet, int theOffset, int theCount) {
 		int total = theTermValueSet.getTotalConcepts().intValue();
 		theExpansionComponent.setTotal(total);
@@ -450,11 +538,11 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		// Handle includes
 		ourLog.debug("Handling includes");
 		for (ValueSet.ConceptSetComponent include : theValueSetToExpand.getCompose().getInclude()) {
-			for (int i = 0; ; i++) {
-				int queryIndex = i;
+			AtomicInteger firstResult = new AtomicInteger(0);
+			while (true) {
 				Boolean shouldContinue = myTxTemplate.execute(t -> {
 					boolean add = true;
-					return expandValueSetHandleIncludeOrExclude(theValueSetCodeAccumulator, addedCodes, include, add, theCodeCounter, queryIndex, theWantConceptOrNull);
+					return expandValueSetHandleIncludeOrExclude(theValueSetCodeAccumulator, addedCodes, include, add, theCodeCounter, firstResult, theWantConceptOrNull);
 				});
 				if (!shouldContinue) {
 					break;
@@ -462,8 +550,9 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 			}
 		}
 
-		// If the accumulator filled up, abort
-		if (theValueSetCodeAccumulator.getCapacityRemaining() != null && theValueSetCodeAccumulator.getCapacityRemaining() <= 0) {
+		// If the accumulator filled up, abort (a paging accumulator is full once its page is complete, which isn't an error)
+		boolean paging = theValueSetCodeAccumulator instanceof ValueSetExpansionComponentWithConceptAccumulator && ((ValueSetExpansionComponentWithConceptAccumulator) theValueSetCodeAccumulator).isPaging();
+		if (!paging && theValueSetCodeAccumulator.getCapacityRemaining() != null && theValueSetCodeAccumulator.getCapacityRemaining() <= 0) {
 			String msg = myContext.getLocalizer().getMessage(BaseTermReadSvcImpl.class, "expansionTooLarge", myDaoConfig.getMaximumExpansionSize());
 			throw new ExpansionTooCostlyException(msg);
 		}
@@ -471,11 +560,11 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		// Handle excludes
 		ourLog.debug("Handling excludes");
 		for (ValueSet.ConceptSetComponent exclude : theValueSetToExpand.getCompose().getExclude()) {
-			for (int i = 0; ; i++) {
-				int queryIndex = i;
+			AtomicInteger firstResult = new AtomicInteger(0);
+			while (true) {
 				Boolean shouldContinue = myTxTemplate.execute(t -> {
 					boolean add = false;
-					return expandValueSetHandleIncludeOrExclude(theValueSetCodeAccumulator, addedCodes, exclude, add, theCodeCounter, queryIndex, null);
+					return expandValueSetHandleIncludeOrExclude(theValueSetCodeAccumulator, addedCodes, exclude, add, theCodeCounter, firstResult, null);
 				});
 				if (!shouldContinue) {
 					break;
@@ -540,7 +629,7 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 	/**
 	 * @return Returns true if there are potentially more results to process.
 	 */
-	private Boolean expandValueSetHandleIncludeOrExclude(IValueSetConceptAccumulator theValueSetCodeAccumulator, Set<String> theAddedCodes, ValueSet.ConceptSetComponent theIncludeOrExclude, boolean theAdd, AtomicInteger theCodeCounter, int theQueryIndex, VersionIndependentConcept theWantConceptOrNull) {
+	private Boolean expandValueSetHandleIncludeOrExclude(IValueSetConceptAccumulator theValueSetCodeAccumulator, Set<String> theAddedCodes, ValueSet.ConceptSetComponent theIncludeOrExclude, boolean theAdd, AtomicInteger theCodeCounter, AtomicInteger theFirstResult, VersionIndependentConcept theWantConceptOrNull) {
 
 		String system = theIncludeOrExclude.getSystem();
 		boolean hasSystem = isNotBlank(system);
@@ -639,7 +728,7 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 				}
 
 				jpaQuery.setMaxResults(maxResultsPerBatch);
-				jpaQuery.setFirstResult(theQueryIndex * maxResultsPerBatch);
+				jpaQuery.setFirstResult(theFirstResult.get());
 
 				ourLog.debug("Beginning batch expansion for {} with max results per batch: {}", (theAdd ? "inclusion" : "exclusion"), maxResultsPerBatch);
 
@@ -648,7 +737,7 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 
 				List resultList = jpaQuery.getResultList();
 				int resultsInBatch = resultList.size();
-				int firstResult = jpaQuery.getFirstResult();
+				int firstResult = theFirstResult.getAndAdd(resultsInBatch);
 				for (Object next : resultList) {
 					count.incrementAndGet();
 					countForBatch.incrementAndGet();
@@ -1100,6 +1189,10 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 	@Override
 	public boolean isValueSetPreExpandedForCodeValidation(ValueSet theValueSet) {
 		ResourcePersistentId valueSetResourcePid = myConceptStorageSvc.getValueSetResourcePid(theValueSet.getIdElement());
+		if (myPreExpandedValueSetCodesCache.getIfPresent(valueSetResourcePid.getIdAsLong()) != null) {
+			return true;
+		}
+
 		Optional<TermValueSet> optionalTermValueSet = myValueSetDao.findByResourcePid(valueSetResourcePid.getIdAsLong());
 
 		if (!optionalTermValueSet.isPresent()) {
@@ -1124,48 +1217,102 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		ValidateUtil.isNotNullOrThrowUnprocessableEntity(theValueSet.hasId(), "ValueSet.id is required");
 		ResourcePersistentId valueSetResourcePid = myConceptStorageSvc.getValueSetResourcePid(theValueSet.getIdElement());
 
-		List<TermValueSetConcept> concepts = new ArrayList<>();
+		// Use the in-memory copy of the ValueSet if it is (or can be) cached, otherwise query the database
+		PreExpandedValueSetCodes cachedCodes = getPreExpandedValueSetCodes(valueSetResourcePid);
+		BiFunction<String, String, List<String>> displayLookup;
+		if (cachedCodes != null) {
+			displayLookup = cachedCodes::findDisplays;
+		} else {
+			displayLookup = (system, code) -> findDisplaysInPreExpandedValueSet(valueSetResourcePid, system, code);
+		}
+
+		List<String> displays = new ArrayList<>();
 		if (isNotBlank(theCode)) {
 			if (Constants.codeSystemNotNeeded(theSystem)) {
-				concepts.addAll(myValueSetConceptDao.findByValueSetResourcePidAndCode(valueSetResourcePid.getIdAsLong(), theCode));
+				displays.addAll(displayLookup.apply(null, theCode));
 			} else if (isNotBlank(theSystem)) {
-				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, theSystem, theCode));
+				displays.addAll(displayLookup.apply(theSystem, theCode));
 			}
 		} else if (theCoding != null) {
 			if (theCoding.hasSystem() && theCoding.hasCode()) {
-				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, theCoding.getSystem(), theCoding.getCode()));
+				displays.addAll(displayLookup.apply(theCoding.getSystem(), theCoding.getCode()));
 			}
 		} else if (theCodeableConcept != null) {
 			for (Coding coding : theCodeableConcept.getCoding()) {
 				if (coding.hasSystem() && coding.hasCode()) {
-					concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, coding.getSystem(), coding.getCode()));
-					if (!concepts.isEmpty()) {
+					displays.addAll(displayLookup.apply(coding.getSystem(), coding.getCode()));
+					if (!displays.isEmpty()) {
 						break;
 					}
 				}
 			}
 		}
 
-		for (TermValueSetConcept concept : concepts) {
-			if (isNotBlank(theDisplay) && theDisplay.equals(concept.getDisplay())) {
-				return new ValidateCodeResult(true, "Validation succeeded", concept.getDisplay());
+		for (String display : displays) {
+			if (isNotBlank(theDisplay) && theDisplay.equals(display)) {
+				return new ValidateCodeResult(true, "Validation succeeded", display);
 			}
 		}
 
-		if (!concepts.isEmpty()) {
-			return new ValidateCodeResult(true, "Validation succeeded", concepts.get(0).getDisplay());
+		if (!displays.isEmpty()) {
+			return new ValidateCodeResult(true, "Validation succeeded", displays.get(0));
 		}
 
 		return null;
 	}
 
-	private List<TermValueSetConcept> findByValueSetResourcePidSystemAndCode(ResourcePersistentId theResourcePid, String theSystem, String theCode) {
-		List<TermValueSetConcept> retVal = new ArrayList<>();
-		Optional<TermValueSetConcept> optionalTermValueSetConcept = myValueSetConceptDao.findByValueSetResourcePidSystemAndCode(theResourcePid.getIdAsLong(), theSystem, theCode);
-		optionalTermValueSetConcept.ifPresent(retVal::add);
+	/**
+	 * @param theSystem The system of the concepts, or <code>null</code> to match concepts in any system
+	 */
+	private List<String> findDisplaysInPreExpandedValueSet(ResourcePersistentId theResourcePid, String theSystem, String theCode) {
+		List<TermValueSetConcept> concepts = new ArrayList<>();
+		if (theSystem == null) {
+			concepts.addAll(myValueSetConceptDao.findByValueSetResourcePidAndCode(theResourcePid.getIdAsLong(), theCode));
+		} else {
+			myValueSetConceptDao.findByValueSetResourcePidSystemAndCode(theResourcePid.getIdAsLong(), theSystem, theCode).ifPresent(concepts::add);
+		}
+		return concepts.stream().map(TermValueSetConcept::getDisplay).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the in-memory copy of the given pre-expanded ValueSet, loading it if necessary, or
+	 * <code>null</code> if the ValueSet is not pre-expanded or is too large to be cached
+	 */
+	@Nullable
+	private PreExpandedValueSetCodes getPreExpandedValueSetCodes(ResourcePersistentId theResourcePid) {
+		Long resourcePid = theResourcePid.getIdAsLong();
+		PreExpandedValueSetCodes retVal = myPreExpandedValueSetCodesCache.getIfPresent(resourcePid);
+		if (retVal == null) {
+			Optional<TermValueSet> optionalTermValueSet = myValueSetDao.findByResourcePid(resourcePid);
+			if (!optionalTermValueSet.isPresent()) {
+				return null;
+			}
+			TermValueSet termValueSet = optionalTermValueSet.get();
+			if (termValueSet.getExpansionStatus() != TermValueSetPreExpansionStatusEnum.EXPANDED || termValueSet.getTotalConcepts() > PRE_EXPANDED_CODES_CACHE_MAX_CONCEPTS_PER_VALUESET) {
+				return null;
+			}
+
+			retVal = new PreExpandedValueSetCodes(myValueSetConceptDao.findSystemCodeAndDisplayByTermValueSetId(termValueSet.getId()));
+			myPreExpandedValueSetCodesCache.put(resourcePid, retVal);
+			ourLog.debug("Cached {} codes from pre-expanded ValueSet[{}]", retVal.size(), termValueSet.getUrl());
+		}
 		return retVal;
 	}
 
+	private void invalidatePreExpandedValueSetCodes(Long theResourcePid) {
+		myPreExpandedValueSetCodesCache.invalidate(theResourcePid);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// The codes could be reloaded from the previous data before the current transaction
+			// commits, so invalidate again once the changes are visible
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int theStatus) {
+					myPreExpandedValueSetCodesCache.invalidate(theResourcePid);
+				}
+			});
+		}
+	}
+
 	private void fetchChildren(TermConcept theConcept, Set<TermConcept> theSetToPopulate) {
 		for (TermConceptParentChildLink nextChildLink : theConcept.getChildren()) {
 			TermConcept nextChild = nextChildLink.getChild();
@@ -1248,6 +1395,11 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		}
 		TermCodeSystemVersion csv = cs.getCurrentVersion();
 
+		TermConceptHierarchyIndex index = getHierarchyIndex(csv);
+		if (index != null) {
+			return toVersionIndependentConcepts(theSystem, index.findCodesAbove(theCode));
+		}
+
 		Set<TermConcept> codes = findCodesAbove(cs.getResource().getId(), csv.getPid(), theCode);
 		return toVersionIndependentConcepts(theSystem, codes);
 	}
@@ -1279,6 +1431,11 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		}
 		TermCodeSystemVersion csv = cs.getCurrentVersion();
 
+		TermConceptHierarchyIndex index = getHierarchyIndex(csv);
+		if (index != null) {
+			return toVersionIndependentConcepts(theSystem, index.findCodesBelow(theCode));
+		}
+
 		Set<TermConcept> codes = findCodesBelow(cs.getResource().getId(), csv.getPid(), theCode);
 		return toVersionIndependentConcepts(theSystem, codes);
 	}
@@ -1302,9 +1459,29 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		rules.getRollbackRules().add(new NoRollbackRuleAttribute(ExpansionTooCostlyException.class));
 		myTxTemplate = new TransactionTemplate(myTransactionManager, rules);
 		buildTranslationCaches();
+		initPreExpansionExecutor();
 		scheduleJob();
 	}
 
+	@PreDestroy
+	public void stop() {
+		if (myPreExpansionExecutor != null) {
+			myPreExpansionExecutor.shutdown();
+			myPreExpansionExecutor = null;
+		}
+	}
+
+	private void initPreExpansionExecutor() {
+		int threadCount = myDaoConfig.getPreExpandValueSetsThreadCount();
+		myPreExpansionExecutor = new ThreadPoolExecutor(threadCount, threadCount,
+			60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(100),
+			myPreExpansionThreadFactory,
+			new Executors.BlockPolicy()
+		);
+		myPreExpansionExecutor.allowCoreThreadTimeOut(true);
+	}
+
 	private void buildTranslationCaches() {
 		Long timeout = myDaoConfig.getTranslationCachesExpireAfterWriteInMinutes();
 
@@ -1463,24 +1640,56 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 			ourLog.info("Skipping scheduled pre-expansion of ValueSets while deferred entities are being loaded.");
 			return;
 		}
+
+		int threadCount = myDaoConfig.getPreExpandValueSetsThreadCount();
+		if (threadCount == 1) {
+			preExpandValueSetsUntilNoneRemain();
+			return;
+		}
+
+		// The thread count can be changed at runtime, so the pool is resized to match it on each run
+		if (threadCount > myPreExpansionExecutor.getMaximumPoolSize()) {
+			myPreExpansionExecutor.setMaximumPoolSize(threadCount);
+			myPreExpansionExecutor.setCorePoolSize(threadCount);
+		} else {
+			myPreExpansionExecutor.setCorePoolSize(threadCount);
+			myPreExpansionExecutor.setMaximumPoolSize(threadCount);
+		}
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			futures.add(myPreExpansionExecutor.submit(this::preExpandValueSetsUntilNoneRemain));
+		}
+		for (Future<?> next : futures) {
+			try {
+				next.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				ourLog.warn("Interrupted while waiting for ValueSet pre-expansion to complete");
+				return;
+			} catch (ExecutionException e) {
+				ourLog.error("Failure during ValueSet pre-expansion", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Repeatedly claims and pre-expands the next ValueSet waiting for pre-expansion. This
+	 * may be called by several threads at once, in which case each ValueSet is only
+	 * expanded by one of them.
+	 */
+	private void preExpandValueSetsUntilNoneRemain() {
 		TransactionTemplate txTemplate = new TransactionTemplate(myTxManager);
 
 		while (true) {
-			TermValueSet valueSetToExpand = txTemplate.execute(t -> {
-				Optional<TermValueSet> optionalTermValueSet = getNextTermValueSetNotExpanded();
-				if (!optionalTermValueSet.isPresent()) {
-					return null;
-				}
-
-				TermValueSet termValueSet = optionalTermValueSet.get();
-				termValueSet.setExpansionStatus(TermValueSetPreExpansionStatusEnum.EXPANSION_IN_PROGRESS);
-				return myValueSetDao.saveAndFlush(termValueSet);
-			});
+			TermValueSet valueSetToExpand = claimNextValueSetToExpand(txTemplate);
 			if (valueSetToExpand == null) {
 				return;
 			}
 
 			// We have a ValueSet to pre-expand.
+			StopWatch sw = new StopWatch();
+			ourLog.info("Starting pre-expansion of ValueSet[{}]", valueSetToExpand.getUrl());
 			try {
 				ValueSet valueSet = txTemplate.execute(t -> {
 					TermValueSet refreshedValueSetToExpand = myValueSetDao.findById(valueSetToExpand.getId()).get();
@@ -1494,10 +1703,17 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 					myValueSetDao.saveAndFlush(valueSetToExpand);
 					return null;
 				});
+				ourLog.info("Pre-expanded ValueSet[{}] with {} concepts and {} designations in {}", valueSetToExpand.getUrl(), valueSetToExpand.getTotalConcepts(), valueSetToExpand.getTotalConceptDesignations(), sw);
 
 			} catch (Exception e) {
-				ourLog.error("Failed to pre-expand ValueSet: " + e.getMessage(), e);
+				ourLog.error("Failed to pre-expand ValueSet[" + valueSetToExpand.getUrl() + "] after " + sw + ": " + e.getMessage(), e);
+
+				// Remove the concepts which were committed before the failure, so that a later attempt starts cleanly
 				txTemplate.execute(t -> {
+					myValueSetConceptDesignationDao.deleteByTermValueSetId(valueSetToExpand.getId());
+					myValueSetConceptDao.deleteByTermValueSetId(valueSetToExpand.getId());
+					valueSetToExpand.setTotalConcepts(0L);
+					valueSetToExpand.setTotalConceptDesignations(0L);
 					valueSetToExpand.setExpansionStatus(TermValueSetPreExpansionStatusEnum.FAILED_TO_EXPAND);
 					myValueSetDao.saveAndFlush(valueSetToExpand);
 					return null;
@@ -1506,6 +1722,26 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		}
 	}
 
+	/**
+	 * Marks the next ValueSet waiting for pre-expansion as in progress and returns it, or
+	 * returns <code>null</code> if there are none. Only threads in this JVM are prevented from
+	 * claiming the same ValueSet (see {@link #myPreExpansionClaimLock}).
+	 */
+	private TermValueSet claimNextValueSetToExpand(TransactionTemplate theTxTemplate) {
+		synchronized (myPreExpansionClaimLock) {
+			return theTxTemplate.execute(t -> {
+				Optional<TermValueSet> optionalTermValueSet = getNextTermValueSetNotExpanded();
+				if (!optionalTermValueSet.isPresent()) {
+					return null;
+				}
+
+				TermValueSet termValueSet = optionalTermValueSet.get();
+				termValueSet.setExpansionStatus(TermValueSetPreExpansionStatusEnum.EXPANSION_IN_PROGRESS);
+				return myValueSetDao.saveAndFlush(termValueSet);
+			});
+		}
+	}
+
 	private boolean isNotSafeToPreExpandValueSets() {
 		return !myDeferredStorageSvc.isStorageQueueEmpty();
 	}
@@ -1579,12 +1815,19 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		TermConcept codeB = findCode(conceptB.getSystem(), conceptB.getCode())
 			.orElseThrow(() -> new InvalidRequestException("Unknown code: " + conceptB));
 
-		FullTextEntityManager em = org.hibernate.search.jpa.Search.getFullTextEntityManager(myEntityManager);
-
 		ConceptSubsumptionOutcome subsumes;
-		subsumes = testForSubsumption(em, codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
-		if (subsumes == null) {
-			subsumes = testForSubsumption(em, codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
+		TermConceptHierarchyIndex index = getHierarchyIndex(codeA.getCodeSystemVersion());
+		if (index != null) {
+			subsumes = testForSubsumption(index, codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
+			if (subsumes == null) {
+				subsumes = testForSubsumption(index, codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
+			}
+		} else {
+			FullTextEntityManager em = org.hibernate.search.jpa.Search.getFullTextEntityManager(myEntityManager);
+			subsumes = testForSubsumption(em, codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
+			if (subsumes == null) {
+				subsumes = testForSubsumption(em, codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
+			}
 		}
 		if (subsumes == null) {
 			subsumes = ConceptSubsumptionOutcome.NOTSUBSUMED;
@@ -1655,6 +1898,54 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		return null;
 	}
 
+	private ConceptSubsumptionOutcome testForSubsumption(TermConceptHierarchyIndex theIndex, TermConcept theLeft, TermConcept theRight, ConceptSubsumptionOutcome theOutput) {
+		if (theIndex.isAncestor(theRight.getCode(), theLeft.getCode())) {
+			return theOutput;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the hierarchy index for the given code system version, building it if needed, or
+	 * <code>null</code> if the index is disabled or can't currently be used
+	 *
+	 * @see DaoConfig#setTermHierarchyIndexEnabled(boolean)
+	 */
+	private TermConceptHierarchyIndex getHierarchyIndex(TermCodeSystemVersion theCodeSystemVersion) {
+		if (!myDaoConfig.isTermHierarchyIndexEnabled() || theCodeSystemVersion == null || theCodeSystemVersion.getPid() == null) {
+			return null;
+		}
+		// Concepts and links may still be waiting to be stored, in which case the database is incomplete
+		if (myDeferredStorageSvc != null && !myDeferredStorageSvc.isStorageQueueEmpty()) {
+			return null;
+		}
+		return myHierarchyIndexCache.get(theCodeSystemVersion.getPid(), this::buildHierarchyIndex);
+	}
+
+	private TermConceptHierarchyIndex buildHierarchyIndex(Long theCodeSystemVersionPid) {
+		StopWatch sw = new StopWatch();
+		List<Object[]> concepts = myConceptDao.findIdsAndCodesByCodeSystemVersion(theCodeSystemVersionPid);
+		List<Object[]> links = myConceptParentChildLinkDao.findChildAndParentPidsByCodeSystemVersion(theCodeSystemVersionPid);
+		TermConceptHierarchyIndex retVal = new TermConceptHierarchyIndex(concepts, links);
+		ourLog.info("Built hierarchy index for code system version {} with {} concepts and {} relationships in {}", theCodeSystemVersionPid, retVal.size(), links.size(), sw);
+		return retVal;
+	}
+
+	@Override
+	public void invalidateHierarchyIndexes() {
+		myHierarchyIndexCache.invalidateAll();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// An index could be rebuilt from the previous data before the current transaction
+			// commits, so invalidate again once the changes are visible
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int theStatus) {
+					myHierarchyIndexCache.invalidateAll();
+				}
+			});
+		}
+	}
+
 	@Override
 	public boolean supportsSystem(String theSystem) {
 
@@ -1668,6 +1959,22 @@ public abstract class BaseTermReadSvcImpl implements ITermReadSvc, ApplicationCo
 		return cs != null;
 	}
 
+	private List<VersionIndependentConcept> toVersionIndependentConcepts(String theSystem, List<String> theCodes) {
+		if (theCodes == null) {
+			return Collections.emptyList();
+		}
+		// Apply the same limit as addToSet(..) does when walking the TermConcept entities, which
+		// only counts once codes other than the starting code are added
+		if (theCodes.size() > 1) {
+			checkExpansionSize(theCodes.size());
+		}
+		List<VersionIndependentConcept> retVal = new ArrayList<>(theCodes.size());
+		for (String next : theCodes) {
+			retVal.add(new VersionIndependentConcept(theSystem, next));
+		}
+		return retVal;
+	}
+
 	private ArrayList<VersionIndependentConcept> toVersionIndependentConcepts(String theSystem, Set<TermConcept> codes) {
 		ArrayList<VersionIndependentConcept> retVal = new ArrayList<>(codes.size());
 		for (TermConcept next : codes) {
@@ -0,0 +1,106 @@
+package ca.uhn.fhir.jpa.term;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory copy of the codes in a pre-expanded ValueSet (i.e. its
+ * {@link ca.uhn.fhir.jpa.entity.TermValueSetConcept} rows), used to validate codes
+ * against the ValueSet without querying the database.
+ * <p>
+ * Codes are hashed, and each code maps to a flat array of alternating system and display
+ * values (since a code almost always belongs to a single system). Identical system URLs
+ * are shared between concepts.
+ * </p>
+ * <p>
+ * Instances are immutable, and are safe for use by multiple threads.
+ * </p>
+ */
+class PreExpandedValueSetCodes {
+
+	private final Map<String, String[]> myCodeToSystemsAndDisplays;
+	private final int mySize;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theConcepts The concepts in the pre-expanded ValueSet, as triples of <code>[system, code, display]</code>
+	 */
+	PreExpandedValueSetCodes(Collection<Object[]> theConcepts) {
+		Map<String, String> systems = new HashMap<>();
+		Map<String, String[]> codeToSystemsAndDisplays = new HashMap<>(theConcepts.size() * 4 / 3 + 1);
+		for (Object[] next : theConcepts) {
+			String system = systems.computeIfAbsent((String) next[0], t -> t);
+			String code = (String) next[1];
+			String display = (String) next[2];
+
+			String[] existing = codeToSystemsAndDisplays.get(code);
+			if (existing == null) {
+				codeToSystemsAndDisplays.put(code, new String[]{system, display});
+			} else {
+				String[] updated = Arrays.copyOf(existing, existing.length + 2);
+				updated[existing.length] = system;
+				updated[existing.length + 1] = display;
+				codeToSystemsAndDisplays.put(code, updated);
+			}
+		}
+		myCodeToSystemsAndDisplays = codeToSystemsAndDisplays;
+		mySize = theConcepts.size();
+	}
+
+	/**
+	 * Returns the number of concepts in the ValueSet
+	 */
+	int size() {
+		return mySize;
+	}
+
+	/**
+	 * Returns the displays (which may be <code>null</code>) of the concepts in the ValueSet with
+	 * the given code, or an empty list if there are none.
+	 *
+	 * @param theSystem The system of the concepts, or <code>null</code> to match concepts in any system
+	 * @param theCode   The code of the concepts
+	 */
+	List<String> findDisplays(@Nullable String theSystem, String theCode) {
+		String[] systemsAndDisplays = myCodeToSystemsAndDisplays.get(theCode);
+		if (systemsAndDisplays == null) {
+			return Collections.emptyList();
+		}
+
+		List<String> retVal = new ArrayList<>(1);
+		for (int i = 0; i < systemsAndDisplays.length; i += 2) {
+			if (theSystem == null || theSystem.equals(systemsAndDisplays[i])) {
+				retVal.add(systemsAndDisplays[i + 1]);
+			}
+		}
+		return retVal;
+	}
+
+}
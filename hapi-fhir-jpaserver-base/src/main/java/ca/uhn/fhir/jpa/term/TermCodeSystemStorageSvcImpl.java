@@ -171,6 +171,7 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 			List<String> parentCodes = Collections.emptyList();
 			addConcept(csv, parentCodes, nextRootConcept, retVal, true, 0);
 		}
+		myTerminologySvc.invalidateHierarchyIndexes();
 
 		return retVal;
 	}
@@ -195,6 +196,7 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 				deleteConceptChildrenAndConcept(concept, removeCounter);
 			}
 		}
+		myTerminologySvc.invalidateHierarchyIndexes();
 
 		IIdType target = cs.getResource().getIdDt();
 		return new UploadStatistics(removeCounter.get(), target);
@@ -216,6 +218,7 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 		}
 		myCodeSystemVersionDao.deleteForCodeSystem(theCodeSystem);
 		myCodeSystemDao.delete(theCodeSystem);
+		myTerminologySvc.invalidateHierarchyIndexes();
 
 		myEntityManager.flush();
 	}
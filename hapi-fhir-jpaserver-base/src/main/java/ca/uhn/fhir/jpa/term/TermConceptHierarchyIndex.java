@@ -0,0 +1,206 @@
+package ca.uhn.fhir.jpa.term;
+
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact in-memory copy of the concept hierarchy (i.e. the parent/child links) of a single
+ * code system version, used to answer ancestor, descendant and subsumption questions without
+ * loading any {@link ca.uhn.fhir.jpa.entity.TermConcept} entities.
+ * <p>
+ * Concepts are numbered by their position in a sorted array of codes (so that a code can be
+ * found with a binary search), and the parent and child links are each stored as a pair of
+ * <code>int</code> arrays in compressed sparse row form. This takes a few bytes per concept
+ * and per link beyond the code strings themselves. Traversals visit each related concept once.
+ * </p>
+ * <p>
+ * Instances are immutable, and are safe for use by multiple threads.
+ * </p>
+ */
+class TermConceptHierarchyIndex {
+
+	private final String[] myCodes;
+	private final int[] myParentOffsets;
+	private final int[] myParents;
+	private final int[] myChildOffsets;
+	private final int[] myChildren;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theConcepts The concepts in the code system version, as pairs of <code>[pid, code]</code>
+	 * @param theLinks    The parent/child links in the code system version, as pairs of <code>[child pid, parent pid]</code>
+	 */
+	TermConceptHierarchyIndex(Collection<Object[]> theConcepts, Collection<Object[]> theLinks) {
+		List<Object[]> concepts = new ArrayList<>(theConcepts);
+		concepts.sort(Comparator.comparing(t -> (String) t[1]));
+
+		int conceptCount = concepts.size();
+		myCodes = new String[conceptCount];
+		Map<Long, Integer> pidToIndex = new HashMap<>(conceptCount * 2);
+		for (int i = 0; i < conceptCount; i++) {
+			Object[] next = concepts.get(i);
+			pidToIndex.put((Long) next[0], i);
+			myCodes[i] = (String) next[1];
+		}
+
+		int[] linkChildren = new int[theLinks.size()];
+		int[] linkParents = new int[theLinks.size()];
+		int linkCount = 0;
+		for (Object[] next : theLinks) {
+			Integer child = pidToIndex.get((Long) next[0]);
+			Integer parent = pidToIndex.get((Long) next[1]);
+			if (child != null && parent != null) {
+				linkChildren[linkCount] = child;
+				linkParents[linkCount] = parent;
+				linkCount++;
+			}
+		}
+
+		myParentOffsets = new int[conceptCount + 1];
+		myParents = new int[linkCount];
+		populate(linkChildren, linkParents, linkCount, myParentOffsets, myParents);
+
+		myChildOffsets = new int[conceptCount + 1];
+		myChildren = new int[linkCount];
+		populate(linkParents, linkChildren, linkCount, myChildOffsets, myChildren);
+	}
+
+	/**
+	 * Returns the number of concepts in the index
+	 */
+	int size() {
+		return myCodes.length;
+	}
+
+	/**
+	 * Returns the given code and the codes of all of its ancestors, or <code>null</code> if
+	 * the code is not in the index
+	 */
+	List<String> findCodesAbove(String theCode) {
+		return traverse(theCode, myParentOffsets, myParents);
+	}
+
+	/**
+	 * Returns the given code and the codes of all of its descendants, or <code>null</code> if
+	 * the code is not in the index
+	 */
+	List<String> findCodesBelow(String theCode) {
+		return traverse(theCode, myChildOffsets, myChildren);
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>theAncestorCode</code> is a (direct or indirect)
+	 * parent of <code>theDescendantCode</code>. A code is not its own ancestor.
+	 */
+	boolean isAncestor(String theAncestorCode, String theDescendantCode) {
+		int ancestor = indexOf(theAncestorCode);
+		int descendant = indexOf(theDescendantCode);
+		if (ancestor < 0 || descendant < 0) {
+			return false;
+		}
+
+		BitSet visited = new BitSet(myCodes.length);
+		int[] queue = new int[16];
+		int queueSize = 0;
+		queue[queueSize++] = descendant;
+		while (queueSize > 0) {
+			int next = queue[--queueSize];
+			for (int i = myParentOffsets[next]; i < myParentOffsets[next + 1]; i++) {
+				int parent = myParents[i];
+				if (parent == ancestor) {
+					return true;
+				}
+				if (!visited.get(parent)) {
+					visited.set(parent);
+					if (queueSize == queue.length) {
+						queue = Arrays.copyOf(queue, queueSize * 2);
+					}
+					queue[queueSize++] = parent;
+				}
+			}
+		}
+		return false;
+	}
+
+	private int indexOf(String theCode) {
+		if (theCode == null) {
+			return -1;
+		}
+		return Arrays.binarySearch(myCodes, theCode);
+	}
+
+	private List<String> traverse(String theCode, int[] theOffsets, int[] theTargets) {
+		int start = indexOf(theCode);
+		if (start < 0) {
+			return null;
+		}
+
+		BitSet visited = new BitSet(myCodes.length);
+		visited.set(start);
+		List<String> retVal = new ArrayList<>();
+		retVal.add(myCodes[start]);
+
+		// The result list doubles as the queue: position n of the result holds concept queue[n]
+		int[] queue = new int[16];
+		queue[0] = start;
+		for (int position = 0; position < retVal.size(); position++) {
+			int next = queue[position];
+			for (int i = theOffsets[next]; i < theOffsets[next + 1]; i++) {
+				int target = theTargets[i];
+				if (!visited.get(target)) {
+					visited.set(target);
+					if (retVal.size() == queue.length) {
+						queue = Arrays.copyOf(queue, queue.length * 2);
+					}
+					queue[retVal.size()] = target;
+					retVal.add(myCodes[target]);
+				}
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Builds a compressed sparse row adjacency list from the given edges
+	 */
+	private static void populate(int[] theFrom, int[] theTo, int theCount, int[] theOffsets, int[] theTargets) {
+		for (int i = 0; i < theCount; i++) {
+			theOffsets[theFrom[i] + 1]++;
+		}
+		for (int i = 1; i < theOffsets.length; i++) {
+			theOffsets[i] += theOffsets[i - 1];
+		}
+		int[] positions = Arrays.copyOf(theOffsets, theOffsets.length - 1);
+		for (int i = 0; i < theCount; i++) {
+			theTargets[positions[theFrom[i]]++] = theTo[i];
+		}
+	}
+
+}
@@ -30,6 +30,7 @@ import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
 import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
 import ca.uhn.fhir.jpa.term.api.ITermCodeSystemStorageSvc;
 import ca.uhn.fhir.jpa.term.api.ITermDeferredStorageSvc;
+import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.term.api.ITermVersionAdapterSvc;
 import ca.uhn.fhir.util.StopWatch;
 import com.google.common.annotations.VisibleForTesting;
@@ -73,6 +74,8 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc {
 	private ITermVersionAdapterSvc myTerminologyVersionAdapterSvc;
 	@Autowired
 	private ITermCodeSystemStorageSvc myCodeSystemStorageSvc;
+	@Autowired
+	private ITermReadSvc myTerminologySvc;
 
 	@Override
 	public void addConceptToStorageQueue(TermConcept theConcept) {
@@ -150,6 +153,10 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc {
 				relCount, myConceptLinksToSaveLater.size(), stopwatch.getMillis(), stopwatch.getMillisPerOperation(relCount));
 		}
 
+		if (codeCount > 0 || relCount > 0) {
+			myTerminologySvc.invalidateHierarchyIndexes();
+		}
+
 		if ((myDeferredConcepts.size() + myConceptLinksToSaveLater.size()) == 0) {
 			ourLog.info("All deferred concepts and relationships have now been synchronized to the database");
 		}
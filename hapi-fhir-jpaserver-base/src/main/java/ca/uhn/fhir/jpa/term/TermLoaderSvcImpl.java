@@ -28,6 +28,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.ConceptMap;
@@ -40,6 +41,13 @@ import javax.validation.constraints.NotNull;
 import java.io.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.term.loinc.LoincUploadPropertiesEnum.*;
@@ -77,6 +85,15 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 	private static final String CUSTOM_CODESYSTEM_XML = "codesystem.xml";
 
 	private static final int LOG_INCREMENT = 1000;
+	/**
+	 * Number of parsed records handed from the parsing thread to the record handler at a time
+	 */
+	private static final int PARSE_BATCH_SIZE = 1000;
+	/**
+	 * Maximum number of parsed batches waiting for the record handler, which bounds the memory
+	 * used by records that have been parsed but not yet processed
+	 */
+	private static final int PARSE_QUEUE_BATCHES = 20;
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(TermLoaderSvcImpl.class);
 	// FYI: Hardcoded to R4 because that's what the term svc uses internally
 	private final FhirContext myCtx = FhirContext.forR4();
@@ -596,32 +613,59 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 				ourLog.info("Processing file {}", nextFilename);
 				foundMatch = true;
 
-				Reader reader;
-				CSVParser parsed;
+				/*
+				 * The file is decompressed and parsed on a separate thread, which hands batches of
+				 * records to the handler on this thread. The handlers build the concept graph and
+				 * depend on the order of the records, so they are never called concurrently.
+				 */
+				BlockingQueue<List<CSVRecord>> queue = new ArrayBlockingQueue<>(PARSE_QUEUE_BATCHES);
+				ExecutorService executor = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder()
+					.namingPattern("terminology-loader-parser-%d")
+					.daemon(true)
+					.build());
 				try {
-					reader = new InputStreamReader(nextZipBytes.getInputStream(), Charsets.UTF_8);
-
-					parsed = newCsvRecords(theDelimiter, theQuoteMode, reader);
-					Iterator<CSVRecord> iter = parsed.iterator();
-					ourLog.debug("Header map: {}", parsed.getHeaderMap());
+					Future<?> parseFuture = executor.submit(() -> {
+						parseRecords(nextZipBytes, theDelimiter, theQuoteMode, queue);
+						return null;
+					});
 
 					int count = 0;
 					int nextLoggedCount = 0;
-					while (iter.hasNext()) {
-						CSVRecord nextRecord = iter.next();
-						if (nextRecord.isConsistent() == false) {
+					while (true) {
+						List<CSVRecord> nextBatch = queue.poll(1, TimeUnit.SECONDS);
+						if (nextBatch == null) {
+							if (parseFuture.isDone()) {
+								// The parser failed without queueing the end marker
+								parseFuture.get();
+							}
 							continue;
 						}
-						theHandler.accept(nextRecord);
-						count++;
-						if (count >= nextLoggedCount) {
-							ourLog.info(" * Processed {} records in {}", count, nextFilename);
-							nextLoggedCount += LOG_INCREMENT;
+						if (nextBatch.isEmpty()) {
+							break;
+						}
+
+						for (CSVRecord nextRecord : nextBatch) {
+							theHandler.accept(nextRecord);
+							count++;
+							if (count >= nextLoggedCount) {
+								ourLog.info(" * Processed {} records in {}", count, nextFilename);
+								nextLoggedCount += LOG_INCREMENT;
+							}
 						}
 					}
 
-				} catch (IOException e) {
+					parseFuture.get();
+
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
 					throw new InternalErrorException(e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					throw new InternalErrorException(e.getCause());
+				} finally {
+					executor.shutdownNow();
 				}
 			}
 
@@ -633,6 +677,33 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 	}
 
+	/**
+	 * Parses the given file and adds the records to the queue in batches, followed by
+	 * an empty batch to mark the end of the file
+	 */
+	private static void parseRecords(FileDescriptor theFile, char theDelimiter, QuoteMode theQuoteMode, BlockingQueue<List<CSVRecord>> theQueue) throws IOException, InterruptedException {
+		Reader reader = new InputStreamReader(theFile.getInputStream(), Charsets.UTF_8);
+		try (CSVParser parsed = newCsvRecords(theDelimiter, theQuoteMode, reader)) {
+			ourLog.debug("Header map: {}", parsed.getHeaderMap());
+
+			List<CSVRecord> batch = new ArrayList<>(PARSE_BATCH_SIZE);
+			for (CSVRecord nextRecord : parsed) {
+				if (nextRecord.isConsistent() == false) {
+					continue;
+				}
+				batch.add(nextRecord);
+				if (batch.size() >= PARSE_BATCH_SIZE) {
+					theQueue.put(batch);
+					batch = new ArrayList<>(PARSE_BATCH_SIZE);
+				}
+			}
+			if (!batch.isEmpty()) {
+				theQueue.put(batch);
+			}
+		}
+		theQueue.put(Collections.emptyList());
+	}
+
 	@Nonnull
 	private static CSVParser newCsvRecords(char theDelimiter, QuoteMode theQuoteMode, Reader theReader) throws IOException {
 		CSVParser parsed;
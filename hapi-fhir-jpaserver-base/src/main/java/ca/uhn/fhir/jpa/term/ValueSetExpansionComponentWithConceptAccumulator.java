@@ -26,6 +26,7 @@ import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.term.ex.ExpansionTooCostlyException;
 import ca.uhn.fhir.model.api.annotation.Block;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.r4.model.StringType;
 import org.hl7.fhir.r4.model.ValueSet;
 
@@ -36,6 +37,9 @@ import java.util.Collection;
 public class ValueSetExpansionComponentWithConceptAccumulator extends ValueSet.ValueSetExpansionComponent implements IValueSetConceptAccumulator {
 	private final int myMaxCapacity;
 	private final FhirContext myContext;
+	private final int myOffset;
+	private final int myCount;
+	private final boolean myPaging;
 	private int myConceptsCount;
 
 	/**
@@ -47,6 +51,28 @@ public class ValueSetExpansionComponentWithConceptAccumulator extends ValueSet.V
 	ValueSetExpansionComponentWithConceptAccumulator(FhirContext theContext, int theMaxCapacity) {
 		myContext = theContext;
 		myMaxCapacity = theMaxCapacity;
+		myOffset = 0;
+		myCount = theMaxCapacity;
+		myPaging = false;
+		myConceptsCount = 0;
+	}
+
+	/**
+	 * Constructor for an accumulator which only keeps a single page of the expansion. Concepts
+	 * before the page are counted but not kept, and the accumulator reports itself as full once
+	 * a single concept beyond the end of the page has been seen (so that the caller can stop
+	 * the expansion and use {@link #hasMoreConcepts()} to determine whether there are further
+	 * pages). Concepts can not be excluded from a paging accumulator.
+	 *
+	 * @param theOffset The index of the first concept to keep
+	 * @param theCount  The maximum number of concepts to keep
+	 */
+	ValueSetExpansionComponentWithConceptAccumulator(FhirContext theContext, int theOffset, int theCount) {
+		myContext = theContext;
+		myMaxCapacity = theOffset + theCount + 1;
+		myOffset = theOffset;
+		myCount = theCount;
+		myPaging = true;
 		myConceptsCount = 0;
 	}
 
@@ -56,6 +82,27 @@ public class ValueSetExpansionComponentWithConceptAccumulator extends ValueSet.V
 		return myMaxCapacity - myConceptsCount;
 	}
 
+	/**
+	 * Returns <code>true</code> if this is a paging accumulator
+	 */
+	boolean isPaging() {
+		return myPaging;
+	}
+
+	/**
+	 * Returns <code>true</code> if concepts beyond the end of the requested page were found
+	 */
+	boolean hasMoreConcepts() {
+		return myConceptsCount > myOffset + myCount;
+	}
+
+	/**
+	 * Returns the number of concepts which have been included, whether or not they were kept
+	 */
+	int getConceptsCount() {
+		return myConceptsCount;
+	}
+
 	@Override
 	public void addMessage(String theMessage) {
 		addExtension()
@@ -65,7 +112,9 @@ public class ValueSetExpansionComponentWithConceptAccumulator extends ValueSet.V
 
 	@Override
 	public void includeConcept(String theSystem, String theCode, String theDisplay) {
-		incrementConceptsCount();
+		if (!incrementConceptsCount()) {
+			return;
+		}
 		ValueSet.ValueSetExpansionContainsComponent contains = this.addContains();
 		contains.setSystem(theSystem);
 		contains.setCode(theCode);
@@ -74,7 +123,9 @@ public class ValueSetExpansionComponentWithConceptAccumulator extends ValueSet.V
 
 	@Override
 	public void includeConceptWithDesignations(String theSystem, String theCode, String theDisplay, Collection<TermConceptDesignation> theDesignations) {
-		incrementConceptsCount();
+		if (!incrementConceptsCount()) {
+			return;
+		}
 		ValueSet.ValueSetExpansionContainsComponent contains = this.addContains();
 		contains.setSystem(theSystem);
 		contains.setCode(theCode);
@@ -95,6 +146,7 @@ public class ValueSetExpansionComponentWithConceptAccumulator extends ValueSet.V
 
 	@Override
 	public void excludeConcept(String theSystem, String theCode) {
+		Validate.isTrue(!myPaging, "Concepts can not be excluded from a paging accumulator");
 		this
 			.getContains()
 			.removeIf(t ->
@@ -102,10 +154,17 @@ public class ValueSetExpansionComponentWithConceptAccumulator extends ValueSet.V
 					theCode.equals(t.getCode()));
 	}
 
-	private void incrementConceptsCount() {
+	/**
+	 * @return Returns <code>true</code> if the concept should be added to the expansion
+	 */
+	private boolean incrementConceptsCount() {
+		if (myPaging) {
+			return ++myConceptsCount > myOffset && myConceptsCount <= myOffset + myCount;
+		}
 		if (++myConceptsCount > myMaxCapacity) {
 			String msg = myContext.getLocalizer().getMessage(BaseTermReadSvcImpl.class, "expansionTooLarge", myMaxCapacity);
 			throw new ExpansionTooCostlyException(msg);
 		}
+		return true;
 	}
 }
@@ -87,6 +87,14 @@ public interface ITermReadSvc {
 
 	List<VersionIndependentConcept> findCodesBelowUsingBuiltInSystems(String theSystem, String theCode);
 
+	/**
+	 * Discards any in-memory concept hierarchy indexes. Must be called whenever concepts or
+	 * concept relationships are changed.
+	 *
+	 * @see ca.uhn.fhir.jpa.dao.DaoConfig#setTermHierarchyIndexEnabled(boolean)
+	 */
+	void invalidateHierarchyIndexes();
+
 	CodeSystem getCodeSystemFromContext(String theSystem);
 
 	void deleteConceptMapAndChildren(ResourceTable theResourceTable);
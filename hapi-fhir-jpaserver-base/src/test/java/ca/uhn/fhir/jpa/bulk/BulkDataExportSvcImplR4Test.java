@@ -1,5 +1,7 @@
 package ca.uhn.fhir.jpa.bulk;
 
+import ca.uhn.fhir.jpa.binstore.IBinaryStorageSvc;
+import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.dao.data.IBulkExportCollectionDao;
 import ca.uhn.fhir.jpa.dao.data.IBulkExportCollectionFileDao;
 import ca.uhn.fhir.jpa.dao.data.IBulkExportJobDao;
@@ -7,28 +9,45 @@ import ca.uhn.fhir.jpa.dao.r4.BaseJpaR4Test;
 import ca.uhn.fhir.jpa.entity.BulkExportCollectionEntity;
 import ca.uhn.fhir.jpa.entity.BulkExportCollectionFileEntity;
 import ca.uhn.fhir.jpa.entity.BulkExportJobEntity;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.jpa.util.TestUtil;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.test.utilities.UnregisterScheduledProcessor;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Sets;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.hamcrest.Matchers;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.Binary;
+import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.InstantType;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
+import org.junit.After;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.*;
 
 public class BulkDataExportSvcImplR4Test extends BaseJpaR4Test {
@@ -42,6 +61,15 @@ public class BulkDataExportSvcImplR4Test extends BaseJpaR4Test {
 	private IBulkExportCollectionFileDao myBulkExportCollectionFileDao;
 	@Autowired
 	private IBulkDataExportSvc myBulkDataExportSvc;
+	@Autowired
+	private IBinaryStorageSvc myBinaryStorageSvc;
+
+	@After
+	public void after() {
+		myDaoConfig.setBulkExportBatchSize(new DaoConfig().getBulkExportBatchSize());
+		myDaoConfig.setBulkExportUseBinaryStorage(new DaoConfig().isBulkExportUseBinaryStorage());
+		myDaoConfig.setBulkExportGzipEnabled(new DaoConfig().isBulkExportGzipEnabled());
+	}
 
 
 	@Test
@@ -170,6 +198,184 @@ public class BulkDataExportSvcImplR4Test extends BaseJpaR4Test {
 		}
 	}
 
+	@Test
+	public void testCreateBulkLoad_BinaryStorageAndGzip() throws IOException {
+		myDaoConfig.setBulkExportBatchSize(3);
+		myDaoConfig.setBulkExportUseBinaryStorage(true);
+		myDaoConfig.setBulkExportGzipEnabled(true);
+
+		// Create some resources to load
+		createResources();
+
+		// Create a bulk job
+		IBulkDataExportSvc.JobInfo jobDetails = myBulkDataExportSvc.submitJob(null, Sets.newHashSet("Patient", "Observation"), null, null);
+		assertNotNull(jobDetails.getJobId());
+
+		// Run a scheduled pass to build the export
+		myBulkDataExportSvc.buildExportFiles();
+
+		// Fetch the job again
+		IBulkDataExportSvc.JobInfo status = myBulkDataExportSvc.getJobStatusOrThrowResourceNotFound(jobDetails.getJobId());
+		assertEquals(BulkJobStatusEnum.COMPLETE, status.getStatus());
+		assertEquals(2, status.getFiles().size());
+
+		// Iterate over the files
+		for (IBulkDataExportSvc.FileEntry next : status.getFiles()) {
+			Binary nextBinary = myBinaryDao.read(next.getResourceId());
+			assertEquals(Constants.CT_GZIP, nextBinary.getContentType());
+			assertNull(nextBinary.getData());
+			String blobId = nextBinary.getDataElement().getExtensionString(JpaConstants.EXT_EXTERNALIZED_BINARY_ID);
+			assertNotNull(blobId);
+
+			byte[] compressed = myBinaryStorageSvc.fetchBlob(next.getResourceId(), blobId);
+			String nextContents;
+			try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+				nextContents = IOUtils.toString(gzipInputStream, Constants.CHARSET_UTF8);
+			}
+			ourLog.info("Next contents for type {}:\n{}", next.getResourceType(), nextContents);
+
+			if ("Patient".equals(next.getResourceType())) {
+				assertThat(nextContents, containsString("\"value\":\"PAT0\"}]}\n"));
+				assertEquals(10, nextContents.split("\n").length);
+			} else if ("Observation".equals(next.getResourceType())) {
+				assertThat(nextContents, containsString("\"subject\":{\"reference\":\"Patient/PAT0\"}}\n"));
+				assertEquals(10, nextContents.split("\n").length);
+			} else {
+				fail(next.getResourceType());
+			}
+		}
+	}
+
+	@Test
+	public void testCreateBulkLoad_MultipleWorkUnitsPerType() {
+		BulkDataExportSvcImpl svc = AopTestUtils.getTargetObject(myBulkDataExportSvc);
+		svc.setMaxResourcesPerWorkUnitForUnitTest(3);
+		try {
+
+			// Create some resources to load
+			createResources();
+
+			// Create a bulk job
+			IBulkDataExportSvc.JobInfo jobDetails = myBulkDataExportSvc.submitJob(null, Sets.newHashSet("Patient", "Observation"), null, null);
+			assertNotNull(jobDetails.getJobId());
+
+			// Run a scheduled pass to build the export
+			myBulkDataExportSvc.buildExportFiles();
+
+			// Fetch the job again
+			IBulkDataExportSvc.JobInfo status = myBulkDataExportSvc.getJobStatusOrThrowResourceNotFound(jobDetails.getJobId());
+			assertEquals(BulkJobStatusEnum.COMPLETE, status.getStatus());
+			assertEquals(8, status.getFiles().size());
+
+			// Each type should be split across 4 files, but no resources should be lost or duplicated
+			Map<String, Set<String>> typeToLines = new HashMap<>();
+			for (IBulkDataExportSvc.FileEntry next : status.getFiles()) {
+				Binary nextBinary = myBinaryDao.read(next.getResourceId());
+				String nextContents = new String(nextBinary.getContent(), Constants.CHARSET_UTF8);
+				for (String nextLine : nextContents.split("\n")) {
+					assertTrue(typeToLines.computeIfAbsent(next.getResourceType(), t -> new HashSet<>()).add(nextLine));
+				}
+			}
+			assertEquals(10, typeToLines.get("Patient").size());
+			assertEquals(10, typeToLines.get("Observation").size());
+
+		} finally {
+			svc.setMaxResourcesPerWorkUnitForUnitTest(50000);
+		}
+	}
+
+	@Test
+	public void testCreateBulkLoad_FailedWorkUnitFailsJob() {
+		BulkDataExportSvcImpl svc = AopTestUtils.getTargetObject(myBulkDataExportSvc);
+		svc.setMaxResourcesPerWorkUnitForUnitTest(1);
+		try {
+			createResources();
+
+			// Corrupt one stored resource so that the work unit exporting it fails
+			Long pid = myPatientDao.readEntity(new IdType("Patient/PAT0"), null).getId();
+			runInTransaction(() -> {
+				ResourceHistoryTable table = myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(pid, 1L);
+				table.setResource("{\"resourceType\":".getBytes(Charsets.UTF_8));
+				table.setEncoding(ResourceEncodingEnum.JSON);
+				myResourceHistoryTableDao.save(table);
+			});
+
+			IBulkDataExportSvc.JobInfo jobDetails = myBulkDataExportSvc.submitJob(null, Sets.newHashSet("Patient", "Observation"), null, null);
+			myBulkDataExportSvc.buildExportFiles();
+
+			IBulkDataExportSvc.JobInfo status = myBulkDataExportSvc.getJobStatusOrThrowResourceNotFound(jobDetails.getJobId());
+			assertEquals(BulkJobStatusEnum.ERROR, status.getStatus());
+			runInTransaction(() -> assertEquals(0, myBulkExportCollectionFileDao.count()));
+		} finally {
+			svc.setMaxResourcesPerWorkUnitForUnitTest(50000);
+		}
+	}
+
+	@Test
+	public void testCreateBulkLoad_ExcludesDeletedResources() {
+		createResources();
+		myObservationDao.delete(new IdType("Observation/OBS0"));
+		myPatientDao.delete(new IdType("Patient/PAT0"));
+
+		IBulkDataExportSvc.JobInfo jobDetails = myBulkDataExportSvc.submitJob(null, Sets.newHashSet("Patient"), null, null);
+		myBulkDataExportSvc.buildExportFiles();
+
+		IBulkDataExportSvc.JobInfo status = myBulkDataExportSvc.getJobStatusOrThrowResourceNotFound(jobDetails.getJobId());
+		assertEquals(BulkJobStatusEnum.COMPLETE, status.getStatus());
+		assertEquals(1, status.getFiles().size());
+		Binary nextBinary = myBinaryDao.read(status.getFiles().get(0).getResourceId());
+		String nextContents = new String(nextBinary.getContent(), Constants.CHARSET_UTF8);
+		assertEquals(9, nextContents.split("\n").length);
+		assertThat(nextContents, not(containsString("\"id\":\"PAT0\"")));
+	}
+
+	@Test
+	public void testStaleBuildingJobIsFailedAndItsFilesDeleted() {
+		BulkDataExportSvcImpl svc = AopTestUtils.getTargetObject(myBulkDataExportSvc);
+		try {
+			createResources();
+			IBulkDataExportSvc.JobInfo jobDetails = myBulkDataExportSvc.submitJob(null, Sets.newHashSet("Patient"), null, null);
+
+			// Simulate a node that died after starting the job and writing one file
+			String binaryId = runInTransaction(() -> {
+				BulkExportJobEntity job = myBulkExportJobDao.findByJobId(jobDetails.getJobId()).orElseThrow(IllegalStateException::new);
+				job.setStatus(BulkJobStatusEnum.BUILDING);
+				myBulkExportJobDao.save(job);
+
+				Binary b = new Binary();
+				b.setContent("{\"resourceType\":\"Patient\"}\n".getBytes(Charsets.UTF_8));
+				String id = myBinaryDao.create(b).getId().toUnqualifiedVersionless().getValue();
+
+				BulkExportCollectionFileEntity file = new BulkExportCollectionFileEntity();
+				file.setCollection(job.getCollections().iterator().next());
+				file.setResource(new IdType(id).getIdPart());
+				myBulkExportCollectionFileDao.save(file);
+				return id;
+			});
+
+			// Not stale yet
+			myBulkDataExportSvc.buildExportFiles();
+			assertEquals(BulkJobStatusEnum.BUILDING, myBulkDataExportSvc.getJobStatusOrThrowResourceNotFound(jobDetails.getJobId()).getStatus());
+
+			svc.setStaleJobMillisForUnitTest(0);
+			TestUtil.sleepAtLeast(10);
+			myBulkDataExportSvc.buildExportFiles();
+
+			IBulkDataExportSvc.JobInfo status = myBulkDataExportSvc.getJobStatusOrThrowResourceNotFound(jobDetails.getJobId());
+			assertEquals(BulkJobStatusEnum.ERROR, status.getStatus());
+			assertEquals("Job was abandoned while building", status.getStatusMessage());
+			runInTransaction(() -> assertEquals(0, myBulkExportCollectionFileDao.count()));
+			try {
+				myBinaryDao.read(new IdType(binaryId));
+				fail();
+			} catch (ResourceNotFoundException e) {
+				// good
+			}
+		} finally {
+			svc.setStaleJobMillisForUnitTest(15 * DateUtils.MILLIS_PER_MINUTE);
+		}
+	}
+
 	@Test
 	public void testSubmitWithoutSpecificResources() {
 
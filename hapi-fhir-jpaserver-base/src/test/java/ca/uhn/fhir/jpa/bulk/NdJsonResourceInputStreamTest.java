@@ -0,0 +1,120 @@
+package ca.uhn.fhir.jpa.bulk;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.api.Constants;
+import org.apache.commons.io.IOUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NdJsonResourceInputStreamTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4();
+
+	@Test
+	public void testEncodeAllResources() throws IOException {
+		NdJsonResourceInputStream stream = new NdJsonResourceInputStream(newResources(6), newParser(), Long.MAX_VALUE, false);
+
+		String contents = IOUtils.toString(stream, Constants.CHARSET_UTF8);
+
+		assertEquals(6, stream.getResourceCount());
+		assertEquals(
+			"{\"resourceType\":\"Patient\",\"id\":\"P0\"}\n" +
+				"{\"resourceType\":\"Patient\",\"id\":\"P1\"}\n" +
+				"{\"resourceType\":\"Patient\",\"id\":\"P2\"}\n" +
+				"{\"resourceType\":\"Patient\",\"id\":\"P3\"}\n" +
+				"{\"resourceType\":\"Patient\",\"id\":\"P4\"}\n" +
+				"{\"resourceType\":\"Patient\",\"id\":\"P5\"}\n", contents);
+	}
+
+	@Test
+	public void testStopAtMaximumSizeAndContinueInNextStream() throws IOException {
+		Iterator<IBaseResource> resources = newResources(8);
+
+		// Each resource is well over 10 bytes, so every stream should hold a single resource
+		NdJsonResourceInputStream stream = new NdJsonResourceInputStream(resources, newParser(), 10, false);
+		String contents = IOUtils.toString(stream, Constants.CHARSET_UTF8);
+		assertEquals(1, stream.getResourceCount());
+		assertEquals(1, contents.split("\n").length);
+
+		List<String> remaining = new ArrayList<>();
+		while (true) {
+			stream = new NdJsonResourceInputStream(resources, newParser(), 10, false);
+			if (!stream.hasResources()) {
+				break;
+			}
+			remaining.add(IOUtils.toString(stream, Constants.CHARSET_UTF8));
+		}
+		assertEquals(7, remaining.size());
+		assertTrue(remaining.get(6).contains("\"id\":\"P7\""));
+	}
+
+	@Test
+	public void testMaximumSizeIsCheckedForEachResource() throws IOException {
+		// Each resource is 37 bytes, so a 100 byte limit is passed by the third resource
+		Iterator<IBaseResource> resources = newResources(10);
+
+		List<Integer> counts = new ArrayList<>();
+		while (true) {
+			NdJsonResourceInputStream stream = new NdJsonResourceInputStream(resources, newParser(), 100, false);
+			if (!stream.hasResources()) {
+				break;
+			}
+			String contents = IOUtils.toString(stream, Constants.CHARSET_UTF8);
+			assertEquals(stream.getResourceCount(), contents.split("\n").length);
+			counts.add(stream.getResourceCount());
+		}
+		assertEquals(Arrays.asList(3, 3, 3, 1), counts);
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		NdJsonResourceInputStream stream = new NdJsonResourceInputStream(newResources(500), newParser(), Long.MAX_VALUE, true);
+
+		byte[] compressed = IOUtils.toByteArray(stream);
+		String contents;
+		try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			contents = IOUtils.toString(gzipInputStream, Constants.CHARSET_UTF8);
+		}
+
+		assertEquals(500, stream.getResourceCount());
+		assertEquals(500, contents.split("\n").length);
+		assertTrue(compressed.length < contents.length());
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		NdJsonResourceInputStream stream = new NdJsonResourceInputStream(Collections.emptyIterator(), newParser(), Long.MAX_VALUE, false);
+		assertFalse(stream.hasResources());
+		assertEquals(-1, stream.read());
+	}
+
+	private IParser newParser() {
+		return ourCtx.newJsonParser().setPrettyPrint(false);
+	}
+
+	private static Iterator<IBaseResource> newResources(int theCount) {
+		List<IBaseResource> resources = new ArrayList<>();
+		for (int i = 0; i < theCount; i++) {
+			Patient patient = new Patient();
+			patient.setId("P" + i);
+			resources.add(patient);
+		}
+		return resources.iterator();
+	}
+
+}
@@ -0,0 +1,181 @@
+package ca.uhn.fhir.jpa.dao.index;
+
+import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.dao.SearchBuilder;
+import ca.uhn.fhir.jpa.dao.data.IForcedIdDao;
+import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
+import ca.uhn.fhir.jpa.model.entity.ForcedId;
+import ca.uhn.fhir.model.primitive.IdDt;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IdHelperServiceTest {
+
+	@Mock
+	private IForcedIdDao myForcedIdDao;
+	private DaoConfig myDaoConfig;
+	private IdHelperService mySvc;
+
+	@Before
+	public void before() {
+		myDaoConfig = new DaoConfig();
+		mySvc = new IdHelperService();
+		mySvc.setDaoConfigForUnitTest(myDaoConfig);
+		mySvc.setForcedIdDaoForUnitTest(myForcedIdDao);
+	}
+
+	@Test
+	public void testTranslateForcedIdToPidIsCached() {
+		mySvc.start();
+		Collection<Object[]> rows = Collections.singletonList(new Object[]{"ABC", 123L});
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), any())).thenReturn(rows);
+
+		assertEquals(new ResourcePersistentId(123L), mySvc.translateForcedIdToPid("Patient", "ABC", null));
+		assertEquals(new ResourcePersistentId(123L), mySvc.translateForcedIdToPid("Patient", "ABC", null));
+
+		verify(myForcedIdDao, times(1)).findAndResolveByTypeAndForcedId(eq("Patient"), any());
+	}
+
+	@Test
+	public void testCachedPidCanNotBeModifiedByCaller() {
+		mySvc.start();
+		Collection<Object[]> rows = Collections.singletonList(new Object[]{"ABC", 123L});
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), any())).thenReturn(rows);
+
+		mySvc.translateForcedIdToPid("Patient", "ABC", null).setId(999L);
+		mySvc.resolveResourcePersistentIds(Collections.singletonList(new IdDt("Patient/ABC")), null).get("Patient/ABC").setId(999L);
+
+		assertEquals(new ResourcePersistentId(123L), mySvc.translateForcedIdToPid("Patient", "ABC", null));
+		verify(myForcedIdDao, times(1)).findAndResolveByTypeAndForcedId(eq("Patient"), any());
+	}
+
+	@Test
+	public void testTranslateForcedIdToPidsMixesCachedAndUncached() {
+		mySvc.start();
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), eq(Collections.singletonList("A")))).thenReturn(Collections.singletonList(new Object[]{"A", 1L}));
+		mySvc.translateForcedIdToPid("Patient", "A", null);
+
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), eq(Collections.singletonList("B")))).thenReturn(Collections.singletonList(new Object[]{"B", 2L}));
+		List<ResourcePersistentId> outcome = mySvc.translateForcedIdToPids(Arrays.asList(new IdDt("Patient/A"), new IdDt("Patient/B")), null);
+
+		assertEquals(2, outcome.size());
+		assertTrue(outcome.contains(new ResourcePersistentId(1L)));
+		assertTrue(outcome.contains(new ResourcePersistentId(2L)));
+		verify(myForcedIdDao, times(1)).findAndResolveByTypeAndForcedId(eq("Patient"), eq(Collections.singletonList("B")));
+	}
+
+	@Test
+	public void testMissingIdIsNotCached() {
+		mySvc.start();
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), any())).thenReturn(Collections.emptyList());
+
+		assertEquals(0, mySvc.translateForcedIdToPids(Collections.singletonList(new IdDt("Patient/ABC")), null).size());
+		assertEquals(0, mySvc.translateForcedIdToPids(Collections.singletonList(new IdDt("Patient/ABC")), null).size());
+
+		verify(myForcedIdDao, times(2)).findAndResolveByTypeAndForcedId(eq("Patient"), any());
+	}
+
+	@Test
+	public void testResolveResourcePersistentIds() {
+		mySvc.start();
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), eq(Collections.singletonList("A")))).thenReturn(Collections.singletonList(new Object[]{"A", 1L}));
+		mySvc.translateForcedIdToPid("Patient", "A", null);
+
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), eq(Arrays.asList("B", "C")))).thenReturn(Collections.singletonList(new Object[]{"B", 2L}));
+		Map<String, ResourcePersistentId> outcome = mySvc.resolveResourcePersistentIds(Arrays.asList(new IdDt("Patient/A"), new IdDt("Patient/B"), new IdDt("Patient/B"), new IdDt("Patient/C"), new IdDt("Organization/123")), null);
+
+		assertEquals(3, outcome.size());
+		assertEquals(new ResourcePersistentId(1L), outcome.get("Patient/A"));
+		assertEquals(new ResourcePersistentId(2L), outcome.get("Patient/B"));
+		assertEquals(new ResourcePersistentId(123L), outcome.get("Organization/123"));
+		verify(myForcedIdDao, times(1)).findAndResolveByTypeAndForcedId(eq("Patient"), eq(Arrays.asList("B", "C")));
+	}
+
+	@Test
+	public void testTranslatePidToForcedIdIsCached() {
+		mySvc.start();
+		ForcedId forcedId = new ForcedId();
+		forcedId.setResourceType("Patient");
+		forcedId.setForcedId("ABC");
+		when(myForcedIdDao.findByResourcePid(123L)).thenReturn(forcedId);
+		when(myForcedIdDao.findByResourcePid(456L)).thenReturn(null);
+
+		assertEquals("Patient/ABC", mySvc.translatePidIdToForcedId("Patient", new ResourcePersistentId(123L)));
+		assertEquals("Patient/ABC", mySvc.translatePidIdToForcedId("Patient", new ResourcePersistentId(123L)));
+		assertEquals("Patient/456", mySvc.translatePidIdToForcedId("Patient", new ResourcePersistentId(456L)));
+		assertEquals("Patient/456", mySvc.translatePidIdToForcedId("Patient", new ResourcePersistentId(456L)));
+
+		verify(myForcedIdDao, times(1)).findByResourcePid(123L);
+		verify(myForcedIdDao, times(1)).findByResourcePid(456L);
+	}
+
+	@Test
+	public void testDeleteInvalidatesCache() {
+		mySvc.start();
+		Collection<Object[]> rows = Collections.singletonList(new Object[]{"ABC", 123L});
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), any())).thenReturn(rows);
+		mySvc.translateForcedIdToPid("Patient", "ABC", null);
+
+		ForcedId forcedId = mock(ForcedId.class);
+		when(forcedId.getResourceType()).thenReturn("Patient");
+		when(forcedId.getForcedId()).thenReturn("ABC");
+		when(forcedId.getResourcePid()).thenReturn(123L);
+		mySvc.delete(forcedId);
+
+		mySvc.translateForcedIdToPid("Patient", "ABC", null);
+		verify(myForcedIdDao, times(2)).findAndResolveByTypeAndForcedId(eq("Patient"), any());
+	}
+
+	@Test
+	public void testCacheDisabled() {
+		myDaoConfig.setForcedIdCacheSize(0);
+		mySvc.start();
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), any())).thenReturn(Collections.singletonList(new Object[]{"ABC", 123L}));
+
+		mySvc.translateForcedIdToPid("Patient", "ABC", null);
+		mySvc.translateForcedIdToPid("Patient", "ABC", null);
+
+		verify(myForcedIdDao, times(2)).findAndResolveByTypeAndForcedId(eq("Patient"), any());
+	}
+
+	@Test
+	public void testResolveResourcePersistentIdsIsPartitioned() {
+		mySvc.start();
+		when(myForcedIdDao.findAndResolveByTypeAndForcedId(eq("Patient"), any())).thenAnswer(t -> {
+			Collection<String> forcedIds = t.getArgument(1);
+			return forcedIds.stream().map(id -> new Object[]{id, Long.parseLong(id.substring(1))}).collect(Collectors.toList());
+		});
+
+		List<IIdType> ids = new ArrayList<>();
+		for (int i = 0; i < SearchBuilder.MAXIMUM_PAGE_SIZE + 10; i++) {
+			ids.add(new IdDt("Patient/A" + i));
+		}
+		Map<String, ResourcePersistentId> outcome = mySvc.resolveResourcePersistentIds(ids, null);
+
+		assertEquals(SearchBuilder.MAXIMUM_PAGE_SIZE + 10, outcome.size());
+		assertEquals(new ResourcePersistentId(805L), outcome.get("Patient/A805"));
+		verify(myForcedIdDao, times(1)).findAndResolveByTypeAndForcedId(eq("Patient"), argThat(t -> t.size() == SearchBuilder.MAXIMUM_PAGE_SIZE));
+		verify(myForcedIdDao, times(1)).findAndResolveByTypeAndForcedId(eq("Patient"), argThat(t -> t.size() == 10));
+	}
+
+}
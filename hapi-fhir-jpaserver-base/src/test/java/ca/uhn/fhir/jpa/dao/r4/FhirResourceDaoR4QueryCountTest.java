@@ -1,6 +1,8 @@
 package ca.uhn.fhir.jpa.dao.r4;
 
 import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.dao.SearchBuilder;
+import ca.uhn.fhir.jpa.dao.index.IdHelperService;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
@@ -9,6 +11,7 @@ import ca.uhn.fhir.model.primitive.InstantDt;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -17,9 +20,11 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.*;
 import org.junit.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.TestPropertySource;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -27,6 +32,8 @@ import static org.mockito.Mockito.reset;
 
 public class FhirResourceDaoR4QueryCountTest extends BaseJpaR4Test {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(FhirResourceDaoR4QueryCountTest.class);
+	@Autowired
+	private IdHelperService myIdHelperService;
 
 	@After
 	public void afterResetDao() {
@@ -89,6 +96,56 @@ public class FhirResourceDaoR4QueryCountTest extends BaseJpaR4Test {
 		assertEquals(0, myCaptureQueriesListener.getDeleteQueriesForCurrentThread().size());
 	}
 
+	@Test
+	public void testUpdateRemovingManyIndexRows() {
+		IIdType id = runInTransaction(() -> {
+			Patient p = new Patient();
+			for (int i = 0; i < 601; i++) {
+				p.addIdentifier().setSystem("urn:system").setValue("ID" + i);
+			}
+			return myPatientDao.create(p).getId().toUnqualified();
+		});
+		runInTransaction(() -> {
+			assertEquals(601, myResourceIndexedSearchParamTokenDao.findAll().stream().filter(t -> t.getResourcePid().equals(id.getIdPartAsLong())).filter(t -> "urn:system".equals(t.getSystem())).count());
+		});
+
+		myCaptureQueriesListener.clear();
+		runInTransaction(() -> {
+			Patient p = new Patient();
+			p.setId(id.getIdPart());
+			p.addIdentifier().setSystem("urn:system").setValue("ID0");
+			myPatientDao.update(p).getResource();
+		});
+
+		// The 600 removed rows are deleted in batches of 500 rather than one row at a time
+		myCaptureQueriesListener.logDeleteQueriesForCurrentThread();
+		assertEquals(2, myCaptureQueriesListener.getDeleteQueriesForCurrentThread().size());
+		myCaptureQueriesListener.logInsertQueriesForCurrentThread();
+		assertEquals(1, myCaptureQueriesListener.getInsertQueriesForCurrentThread().size());
+
+		runInTransaction(() -> {
+			List<String> remaining = myResourceIndexedSearchParamTokenDao
+				.findAll()
+				.stream()
+				.filter(t -> t.getResourcePid().equals(id.getIdPartAsLong()))
+				.filter(t -> "urn:system".equals(t.getSystem()))
+				.map(t -> t.getValue())
+				.collect(Collectors.toList());
+			assertThat(remaining, contains("ID0"));
+		});
+
+		Patient patient = myPatientDao.read(id.toVersionless());
+		assertEquals(1, patient.getIdentifier().size());
+		SearchParameterMap map = new SearchParameterMap();
+		map.setLoadSynchronous(true);
+		map.add(Patient.SP_IDENTIFIER, new TokenParam("urn:system", "ID0"));
+		assertEquals(1, myPatientDao.search(map).size().intValue());
+		map = new SearchParameterMap();
+		map.setLoadSynchronous(true);
+		map.add(Patient.SP_IDENTIFIER, new TokenParam("urn:system", "ID600"));
+		assertEquals(0, myPatientDao.search(map).size().intValue());
+	}
+
 	@Test
 	public void testRead() {
 		IIdType id = runInTransaction(() -> {
@@ -133,6 +190,41 @@ public class FhirResourceDaoR4QueryCountTest extends BaseJpaR4Test {
 		assertEquals(0, myCaptureQueriesListener.getDeleteQueriesForCurrentThread().size());
 	}
 
+	@Test
+	public void testCreateWithManyReferences() {
+		List<String> practitionerIds = new ArrayList<>();
+		List<String> organizationIds = new ArrayList<>();
+		runInTransaction(() -> {
+			// More client assigned IDs than fit in a single IN clause
+			for (int i = 0; i < SearchBuilder.MAXIMUM_PAGE_SIZE + 10; i++) {
+				Practitioner practitioner = new Practitioner();
+				practitioner.setId("PR" + i);
+				practitionerIds.add(myPractitionerDao.update(practitioner).getId().toUnqualifiedVersionless().getValue());
+			}
+			for (int i = 0; i < 10; i++) {
+				organizationIds.add(myOrganizationDao.create(new Organization()).getId().toUnqualifiedVersionless().getValue());
+			}
+		});
+		myIdHelperService.clearCache();
+
+		myCaptureQueriesListener.clear();
+		IIdType id = runInTransaction(() -> {
+			Observation obs = new Observation();
+			practitionerIds.forEach(t -> obs.addPerformer(new Reference(t)));
+			organizationIds.forEach(t -> obs.addPerformer(new Reference(t)));
+			return myObservationDao.create(obs).getId().toUnqualifiedVersionless();
+		});
+		myCaptureQueriesListener.logSelectQueriesForCurrentThread();
+
+		// The references are resolved together rather than one at a time, in partitions of MAXIMUM_PAGE_SIZE
+		assertEquals(2, myCaptureQueriesListener.getSelectQueriesForCurrentThread().stream().filter(t -> t.getSql(false, false).contains("HFJ_FORCED_ID")).count());
+		assertEquals(2, myCaptureQueriesListener.getSelectQueriesForCurrentThread().stream().filter(t -> t.getSql(false, false).contains("HFJ_RESOURCE ")).count());
+
+		runInTransaction(() -> {
+			assertEquals(SearchBuilder.MAXIMUM_PAGE_SIZE + 20, myResourceLinkDao.findAll().stream().filter(t -> t.getSourceResourcePid().equals(id.getIdPartAsLong())).count());
+		});
+	}
+
 	@AfterClass
 	public static void afterClassClearContext() {
 		TestUtil.clearAllStaticFieldsForUnitTest();
@@ -3,6 +3,7 @@ package ca.uhn.fhir.jpa.dao.r4;
 import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.dao.data.ISearchDao;
 import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
+import ca.uhn.fhir.jpa.dao.index.IdHelperService;
 import ca.uhn.fhir.jpa.entity.Search;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
@@ -53,6 +54,8 @@ public class FhirResourceDaoR4SearchOptimizedTest extends BaseJpaR4Test {
 	private ISearchDao mySearchEntityDao;
 	@Autowired
 	private ISearchResultDao mySearchResultDao;
+	@Autowired
+	private IdHelperService myIdHelperService;
 
 	@Before
 	public void before() {
@@ -1093,6 +1096,8 @@ public class FhirResourceDaoR4SearchOptimizedTest extends BaseJpaR4Test {
 			myPatientDao.create(pt).getId().getIdPartAsLong();
 		}
 
+		// Creating the patients will have cached the organization IDs
+		myIdHelperService.clearCache();
 
 		myCaptureQueriesListener.clear();
 		SearchParameterMap map = new SearchParameterMap();
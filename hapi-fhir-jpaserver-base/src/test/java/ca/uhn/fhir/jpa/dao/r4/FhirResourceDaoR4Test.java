@@ -53,6 +53,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.defaultString;
 import static org.hamcrest.Matchers.*;
@@ -70,6 +71,7 @@ public class FhirResourceDaoR4Test extends BaseJpaR4Test {
 		myDaoConfig.setTreatReferencesAsLogical(new DaoConfig().getTreatReferencesAsLogical());
 		myDaoConfig.setEnforceReferentialIntegrityOnDelete(new DaoConfig().isEnforceReferentialIntegrityOnDelete());
 		myDaoConfig.setEnforceReferenceTargetTypes(new DaoConfig().isEnforceReferenceTargetTypes());
+		myDaoConfig.setResourceEncoding(new DaoConfig().getResourceEncoding());
 	}
 
 	@Before
@@ -2739,6 +2741,75 @@ public class FhirResourceDaoR4Test extends BaseJpaR4Test {
 		assertThat(string, containsString("value=\"foo\""));
 	}
 
+	@Test
+	public void testResourceEncodingSmile() {
+		Patient p = new Patient();
+		p.setActive(true);
+		p.addIdentifier().setSystem("http://foo").setValue("123");
+		p.addName().setFamily("FAMILY").addGiven("GIVEN");
+		IIdType id = myPatientDao.create(p).getId().toUnqualifiedVersionless();
+
+		myDaoConfig.setResourceEncoding(ResourceEncodingEnum.SMILE);
+		p.setId(id);
+		p.getNameFirstRep().setFamily("FAMILY2");
+		p.getText().setDivAsString("<div>HELLO</div>");
+		myPatientDao.update(p);
+
+		runInTransaction(() -> {
+			assertEquals(ResourceEncodingEnum.JSONC, myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(id.getIdPartAsLong(), 1L).getEncoding());
+			assertEquals(ResourceEncodingEnum.SMILE, myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(id.getIdPartAsLong(), 2L).getEncoding());
+		});
+
+		// Both versions should be readable regardless of the current setting
+		myDaoConfig.setResourceEncoding(ResourceEncodingEnum.JSONC);
+		assertEquals("FAMILY", myPatientDao.read(id.withVersion("1")).getNameFirstRep().getFamily());
+		Patient read = myPatientDao.read(id);
+		assertEquals("2", read.getIdElement().getVersionIdPart());
+		assertEquals("FAMILY2", read.getNameFirstRep().getFamily());
+		assertEquals("http://foo", read.getIdentifierFirstRep().getSystem());
+		assertTrue(read.getActive());
+		assertThat(read.getText().getDivAsString(), containsString("HELLO"));
+
+		// Search results are loaded via a different path
+		SearchParameterMap map = new SearchParameterMap();
+		map.setLoadSynchronous(true);
+		map.add(Patient.SP_FAMILY, new StringParam("FAMILY2"));
+		List<IBaseResource> found = myPatientDao.search(map).getResources(0, 1);
+		assertEquals(1, found.size());
+		assertEquals("FAMILY2", ((Patient) found.get(0)).getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testResourceEncodingSmilePreservesDecimals() {
+		myDaoConfig.setResourceEncoding(ResourceEncodingEnum.SMILE);
+
+		List<String> values = Arrays.asList("1.50", "100", "0.0000001", "1.5e2", "1.5E+2", "-0.010");
+		Observation obs = new Observation();
+		for (String next : values) {
+			DecimalType value = new DecimalType();
+			value.setValueAsString(next);
+			obs.addComponent().setValue(new Quantity().setValueElement(value));
+		}
+		IIdType id = myObservationDao.create(obs).getId().toUnqualifiedVersionless();
+
+		Observation read = myObservationDao.read(id);
+		List<String> readValues = read
+			.getComponent()
+			.stream()
+			.map(t -> t.getValueQuantity().getValueElement().getValueAsString())
+			.collect(Collectors.toList());
+		assertEquals(values, readValues);
+
+		// The stored body converted back to JSON is still readable
+		runInTransaction(() -> {
+			ResourceHistoryTable history = myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(id.getIdPartAsLong(), 1L);
+			String json = BaseHapiFhirDao.decodeResource(history.getResource(), history.getEncoding());
+			assertThat(json, containsString("\"value\":1.50"));
+			Observation parsed = myFhirCtx.newJsonParser().parseResource(Observation.class, json);
+			assertEquals("0.0000001", parsed.getComponent().get(2).getValueQuantity().getValueElement().getValueAsString());
+		});
+	}
+
 	@Test
 	public void testResourceInstanceMetaOperation() {
 
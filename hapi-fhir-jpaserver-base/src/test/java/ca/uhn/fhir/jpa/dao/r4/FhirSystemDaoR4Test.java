@@ -1,7 +1,11 @@
 package ca.uhn.fhir.jpa.dao.r4;
 
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
 import ca.uhn.fhir.jpa.dao.BaseHapiFhirDao;
 import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.dao.TransactionProcessor;
 import ca.uhn.fhir.jpa.model.entity.*;
 import ca.uhn.fhir.jpa.provider.SystemProviderDstu2Test;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
@@ -9,26 +13,33 @@ import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.RestfulServer;
 import ca.uhn.fhir.rest.server.exceptions.*;
+import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor.ActionRequestDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.util.TestUtil;
 import org.apache.commons.io.IOUtils;
 import org.hamcrest.Matchers;
 import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.*;
 import org.hl7.fhir.r4.model.Bundle.*;
 import org.hl7.fhir.r4.model.Observation.ObservationStatus;
 import org.hl7.fhir.r4.model.OperationOutcome.IssueSeverity;
 import org.junit.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -39,10 +50,13 @@ import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
 
 public class FhirSystemDaoR4Test extends BaseJpaR4SystemTest {
 
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(FhirSystemDaoR4Test.class);
+	@Autowired
+	private TransactionProcessor myTransactionProcessor;
 
 	@After
 	public void after() {
@@ -279,6 +293,122 @@ public class FhirSystemDaoR4Test extends BaseJpaR4SystemTest {
 		assertEquals("Resource Patient/BABABABA is not known", oo.getIssue().get(0).getDiagnostics());
 	}
 
+	@Test
+	public void testBatchProcessedInParallel() {
+		myDaoConfig.setBundleBatchPoolSize(4);
+		myTransactionProcessor.stop();
+		myTransactionProcessor.start();
+		try {
+			Bundle request = new Bundle();
+			request.setType(BundleType.BATCH);
+			for (int i = 0; i < 20; i++) {
+				Patient p = new Patient();
+				p.setId("PT" + i);
+				p.addIdentifier().setSystem("urn:system").setValue("PT" + i);
+				request
+					.addEntry()
+					.setResource(p)
+					.getRequest()
+					.setMethod(HTTPVerb.PUT)
+					.setUrl("Patient/PT" + i);
+			}
+			request
+				.addEntry()
+				.getRequest()
+				.setMethod(HTTPVerb.GET)
+				.setUrl("Patient/BABABABA");
+
+			Bundle response = mySystemDao.transaction(mySrd, request);
+			assertEquals(21, response.getEntry().size());
+
+			// Responses must be in the same order as the request entries
+			for (int i = 0; i < 20; i++) {
+				assertEquals("201 Created", response.getEntry().get(i).getResponse().getStatus());
+				assertThat(response.getEntry().get(i).getResponse().getLocation(), startsWith("Patient/PT" + i + "/_history/1"));
+			}
+			assertEquals("404 Not Found", response.getEntry().get(20).getResponse().getStatus());
+			assertEquals("PT7", myPatientDao.read(new IdType("Patient/PT7")).getIdentifierFirstRep().getValue());
+		} finally {
+			myDaoConfig.setBundleBatchPoolSize(new DaoConfig().getBundleBatchPoolSize());
+			myTransactionProcessor.stop();
+			myTransactionProcessor.start();
+		}
+	}
+
+	@Test
+	public void testBatchProcessedInParallelWithInterceptor() {
+		myDaoConfig.setBundleBatchPoolSize(4);
+		myTransactionProcessor.stop();
+		myTransactionProcessor.start();
+
+		Map<String, List<String>> createdInEntry = Collections.synchronizedMap(new HashMap<>());
+		Set<String> preHandled = Collections.synchronizedSet(new HashSet<>());
+		Set<Object> outerValues = Collections.synchronizedSet(new HashSet<>());
+		Object interceptor = new Object() {
+			@Hook(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
+			public void incomingRequestPreHandled(ActionRequestDetails theDetails) {
+				if (theDetails.getId() != null) {
+					preHandled.add(theDetails.getId().getIdPart());
+				}
+			}
+
+			@Hook(Pointcut.STORAGE_PRESTORAGE_RESOURCE_CREATED)
+			@SuppressWarnings("unchecked")
+			public void resourceCreated(RequestDetails theRequestDetails, IBaseResource theResource) {
+				// Same pattern as interceptors which collect state in the user data during a request
+				List<String> created = (List<String>) theRequestDetails.getUserData().computeIfAbsent("created", t -> new ArrayList<>());
+				created.add(theResource.getIdElement().getIdPart());
+				createdInEntry.put(theResource.getIdElement().getIdPart(), new ArrayList<>(created));
+				outerValues.add(theRequestDetails.getUserData().get("outer"));
+			}
+		};
+		myInterceptorRegistry.registerInterceptor(interceptor);
+
+		RestfulServer server = new RestfulServer(myFhirCtx);
+		server.setInterceptorService(myInterceptorRegistry);
+		ServletRequestDetails requestDetails = new ServletRequestDetails(new InterceptorService());
+		requestDetails.setServer(server);
+		requestDetails.setServletRequest(mock(HttpServletRequest.class));
+		requestDetails.getUserData().put("outer", "OUTER");
+
+		try {
+			Bundle request = new Bundle();
+			request.setType(BundleType.BATCH);
+			for (int i = 0; i < 20; i++) {
+				Patient p = new Patient();
+				p.setId("PT" + i);
+				request
+					.addEntry()
+					.setResource(p)
+					.getRequest()
+					.setMethod(HTTPVerb.PUT)
+					.setUrl("Patient/PT" + i);
+			}
+
+			Bundle response = mySystemDao.transaction(requestDetails, request);
+			assertEquals(20, response.getEntry().size());
+			for (int i = 0; i < 20; i++) {
+				assertEquals("201 Created", response.getEntry().get(i).getResponse().getStatus());
+			}
+
+			// Each entry is processed with its own copy of the user data
+			assertEquals(20, createdInEntry.size());
+			for (int i = 0; i < 20; i++) {
+				assertThat(createdInEntry.get("PT" + i), contains("PT" + i));
+			}
+			assertThat(outerValues, contains("OUTER"));
+			assertFalse(requestDetails.getUserData().containsKey("created"));
+
+			// Each entry is still processed as a sub-request
+			assertEquals(20, preHandled.size());
+		} finally {
+			myInterceptorRegistry.unregisterInterceptor(interceptor);
+			myDaoConfig.setBundleBatchPoolSize(new DaoConfig().getBundleBatchPoolSize());
+			myTransactionProcessor.stop();
+			myTransactionProcessor.start();
+		}
+	}
+
 	@Test
 	public void testBatchCreateWithBadSearch() {
 		Bundle request = new Bundle();
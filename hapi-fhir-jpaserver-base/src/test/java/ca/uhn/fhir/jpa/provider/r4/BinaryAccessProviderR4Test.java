@@ -5,12 +5,15 @@ import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
 import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.jpa.binstore.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.binstore.MemoryBinaryStorageSvcImpl;
+import ca.uhn.fhir.jpa.bulk.BulkJobStatusEnum;
+import ca.uhn.fhir.jpa.bulk.IBulkDataExportSvc;
 import ca.uhn.fhir.jpa.dao.DaoConfig;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
 import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -29,6 +32,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.matchesPattern;
@@ -45,6 +49,8 @@ public class BinaryAccessProviderR4Test extends BaseResourceProviderR4Test {
 	private MemoryBinaryStorageSvcImpl myStorageSvc;
 	@Autowired
 	private IBinaryStorageSvc myBinaryStorageSvc;
+	@Autowired
+	private IBulkDataExportSvc myBulkDataExportSvc;
 
 	@Override
 	@Before
@@ -61,6 +67,8 @@ public class BinaryAccessProviderR4Test extends BaseResourceProviderR4Test {
 		super.after();
 		myStorageSvc.setMinimumBinarySize(0);
 		myDaoConfig.setExpungeEnabled(new DaoConfig().isExpungeEnabled());
+		myDaoConfig.setBulkExportGzipEnabled(new DaoConfig().isBulkExportGzipEnabled());
+		myDaoConfig.setBulkExportUseBinaryStorage(new DaoConfig().isBulkExportUseBinaryStorage());
 	}
 
 	@Test
@@ -343,6 +351,49 @@ public class BinaryAccessProviderR4Test extends BaseResourceProviderR4Test {
 
 	}
 
+	@Test
+	public void testReadGzipBulkExportFile() throws IOException {
+		myDaoConfig.setBulkExportGzipEnabled(true);
+		for (int i = 0; i < 5; i++) {
+			Patient patient = new Patient();
+			patient.addIdentifier().setSystem("http://mrns").setValue("PAT" + i);
+			myPatientDao.create(patient);
+		}
+
+		for (boolean useBinaryStorage : new boolean[]{false, true}) {
+			myDaoConfig.setBulkExportUseBinaryStorage(useBinaryStorage);
+
+			IBulkDataExportSvc.JobInfo jobDetails = myBulkDataExportSvc.submitJob(null, Sets.newHashSet("Patient"), null, null);
+			myBulkDataExportSvc.buildExportFiles();
+			IBulkDataExportSvc.JobInfo status = myBulkDataExportSvc.getJobStatusOrThrowResourceNotFound(jobDetails.getJobId());
+			assertEquals(BulkJobStatusEnum.COMPLETE, status.getStatus());
+			assertEquals(1, status.getFiles().size());
+
+			String path = ourServerBase +
+				"/Binary/" + status.getFiles().get(0).getResourceId().getIdPart() + "/" +
+				JpaConstants.OPERATION_BINARY_ACCESS_READ +
+				"?path=Binary";
+			HttpGet get = new HttpGet(path);
+			try (CloseableHttpResponse resp = ourHttpClient.execute(get)) {
+
+				assertEquals(200, resp.getStatusLine().getStatusCode());
+				assertEquals(Constants.CT_GZIP, resp.getEntity().getContentType().getValue());
+
+				String contents;
+				try (GZIPInputStream gzipInputStream = new GZIPInputStream(resp.getEntity().getContent())) {
+					contents = IOUtils.toString(gzipInputStream, Constants.CHARSET_UTF8);
+				}
+				ourLog.info("Export file contents:\n{}", contents);
+				assertEquals(5, contents.split("\n").length);
+				for (String next : contents.split("\n")) {
+					assertEquals("Patient", myFhirCtx.newJsonParser().parseResource(next).fhirType());
+				}
+			}
+
+			myBulkDataExportSvc.cancelAndPurgeAllJobs();
+		}
+	}
+
 	/**
 	 * Stores a binary large enough that it should live in binary storage
 	 */
@@ -454,7 +454,7 @@ public class ConsentInterceptorResourceProviderR4Test extends BaseResourceProvid
 		myConsentInterceptor = new ConsentInterceptor(consentService, IConsentContextServices.NULL_IMPL);
 		ourRestServer.getInterceptorService().registerInterceptor(myConsentInterceptor);
 
-		IConsentService svc = mock(IConsentService.class);
+		IConsentService svc = mockConsentService();
 		when(svc.startOperation(any(), any())).thenReturn(ConsentOutcome.PROCEED);
 		when(svc.canSeeResource(any(), any(), any())).thenReturn(ConsentOutcome.REJECT);
 
@@ -486,7 +486,7 @@ public class ConsentInterceptorResourceProviderR4Test extends BaseResourceProvid
 		myConsentInterceptor = new ConsentInterceptor(consentService, IConsentContextServices.NULL_IMPL);
 		ourRestServer.getInterceptorService().registerInterceptor(myConsentInterceptor);
 
-		IConsentService svc = mock(IConsentService.class);
+		IConsentService svc = mockConsentService();
 		when(svc.startOperation(any(), any())).thenReturn(ConsentOutcome.PROCEED);
 		when(svc.canSeeResource(any(RequestDetails.class), any(IBaseResource.class), any())).thenAnswer(t -> {
 			IBaseResource resource = t.getArgument(1, IBaseResource.class);
@@ -525,7 +525,7 @@ public class ConsentInterceptorResourceProviderR4Test extends BaseResourceProvid
 		myConsentInterceptor = new ConsentInterceptor(consentService, IConsentContextServices.NULL_IMPL);
 		ourRestServer.getInterceptorService().registerInterceptor(myConsentInterceptor);
 
-		IConsentService svc = mock(IConsentService.class);
+		IConsentService svc = mockConsentService();
 		when(svc.startOperation(any(), any())).thenReturn(ConsentOutcome.PROCEED);
 		when(svc.canSeeResource(any(), any(), any())).thenReturn(ConsentOutcome.PROCEED);
 		when(svc.willSeeResource(any(RequestDetails.class), any(IBaseResource.class), any())).thenAnswer(t -> {
@@ -556,6 +556,22 @@ public class ConsentInterceptorResourceProviderR4Test extends BaseResourceProvid
 
 	}
 
+	/**
+	 * Mocks don't run default methods, so this has the bulk methods call the single resource ones
+	 */
+	private static IConsentService mockConsentService() {
+		IConsentService retVal = mock(IConsentService.class);
+		when(retVal.canSeeResources(any(), any(), any())).thenAnswer(t -> {
+			List<IBaseResource> resources = t.getArgument(1);
+			return resources.stream().map(r -> retVal.canSeeResource(t.getArgument(0), r, t.getArgument(2))).collect(Collectors.toList());
+		});
+		when(retVal.willSeeResources(any(), any(), any())).thenAnswer(t -> {
+			List<IBaseResource> resources = t.getArgument(1);
+			return resources.stream().map(r -> retVal.willSeeResource(t.getArgument(0), r, t.getArgument(2))).collect(Collectors.toList());
+		});
+		return retVal;
+	}
+
 	private void createPatientAndOrg() {
 		myPatientIds = new ArrayList<>();
 
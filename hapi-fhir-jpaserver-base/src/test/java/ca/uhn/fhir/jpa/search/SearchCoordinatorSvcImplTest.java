@@ -17,6 +17,7 @@ import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
 import ca.uhn.fhir.util.TestUtil;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -75,10 +76,12 @@ public class SearchCoordinatorSvcImplTest {
 	private IInterceptorBroadcaster myInterceptorBroadcaster;
 	@Mock
 	private SearchBuilderFactory mySearchBuilderFactory;
+	private DaoConfig myDaoConfig;
 
 	@After
 	public void after() {
 		System.clearProperty(SearchCoordinatorSvcImpl.UNIT_TEST_CAPTURE_STACK);
+		mySvc.stop();
 
 		verify(mySearchBuilderFactory, atMost(myExpectedNumberOfSearchBuildersCreated)).newSearchBuilder(any(), any(), any());
 	}
@@ -98,8 +101,9 @@ public class SearchCoordinatorSvcImplTest {
 		mySvc.setInterceptorBroadcasterForUnitTest(myInterceptorBroadcaster);
 		mySvc.setSearchBuilderFactoryForUnitTest(mySearchBuilderFactory);
 
-		DaoConfig daoConfig = new DaoConfig();
-		mySvc.setDaoConfigForUnitTest(daoConfig);
+		myDaoConfig = new DaoConfig();
+		mySvc.setDaoConfigForUnitTest(myDaoConfig);
+		mySvc.start();
 
 		when(mySearchBuilderFactory.newSearchBuilder(any(), any(), any())).thenReturn(mySearchBuilder);
 
@@ -317,6 +321,36 @@ public class SearchCoordinatorSvcImplTest {
 		completionLatch.await(10, TimeUnit.SECONDS);
 	}
 
+	@Test
+	public void testSearchRejectedWhenQueueIsFull() {
+		myDaoConfig.setSearchCoordinatorThreadCount(1);
+		myDaoConfig.setSearchCoordinatorQueueCapacity(0);
+		myExpectedNumberOfSearchBuildersCreated = 3;
+		mySvc.stop();
+		mySvc.start();
+
+		SearchParameterMap params = new SearchParameterMap();
+		params.add("name", new StringParam("ANAME"));
+		SlowIterator iter = new SlowIterator(createPidSequence(800).iterator(), 500);
+		when(mySearchBuilder.createQuery(same(params), any(), any())).thenReturn(iter);
+
+		IBundleProvider result = mySvc.registerSearch(myCallingDao, params, "Patient", new CacheControlDirective(), null);
+		assertNotNull(result.getUuid());
+		await().until(() -> mySvc.getActiveSearchCount() == 1);
+
+		SearchParameterMap params2 = new SearchParameterMap();
+		params2.add("name", new StringParam("ANOTHERNAME"));
+		try {
+			mySvc.registerSearch(myCallingDao, params2, "Patient", new CacheControlDirective(), null);
+			fail();
+		} catch (UnclassifiedServerFailureException e) {
+			assertEquals(503, e.getStatusCode());
+		}
+		assertEquals(0, mySvc.getQueuedSearchCount());
+
+		mySvc.cancelAllActiveSearches();
+	}
+
 	/**
 	 * Subsequent requests for the same search (i.e. a request for the next
 	 * page) within the same JVM will not use the original bundle provider
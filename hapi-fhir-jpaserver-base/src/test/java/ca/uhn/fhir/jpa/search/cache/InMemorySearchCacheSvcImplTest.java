@@ -0,0 +1,125 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchInclude;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class InMemorySearchCacheSvcImplTest {
+
+	private InMemorySearchCacheSvcImpl mySvc;
+	private DaoConfig myDaoConfig;
+
+	@Before
+	public void before() {
+		myDaoConfig = new DaoConfig();
+		mySvc = new InMemorySearchCacheSvcImpl();
+		mySvc.setDaoConfigForUnitTest(myDaoConfig);
+		mySvc.start();
+	}
+
+	@After
+	public void after() {
+		InMemorySearchCacheSvcImpl.setNowForUnitTests(null);
+	}
+
+	@Test
+	public void testSaveAndFetch() {
+		Search search = newSearch("Patient", "?name=smith");
+		search.addInclude(new SearchInclude(search, "Patient:organization", false, false));
+
+		Search saved = mySvc.save(search);
+		assertSame(search, saved);
+		assertNotNull(search.getId());
+
+		Search fetched = mySvc.fetchByUuid(search.getUuid()).orElseThrow(IllegalStateException::new);
+		assertNotSame(search, fetched);
+		assertEquals(search.getId(), fetched.getId());
+		assertEquals(1, fetched.getIncludes().size());
+
+		// Changes are not visible until the search is saved again
+		search.setNumFound(10);
+		assertEquals(0, mySvc.fetchByUuid(search.getUuid()).get().getNumFound());
+		mySvc.save(search);
+		assertEquals(10, mySvc.fetchByUuid(search.getUuid()).get().getNumFound());
+
+		assertFalse(mySvc.fetchByUuid(UUID.randomUUID().toString()).isPresent());
+	}
+
+	@Test
+	public void testTryToMarkSearchAsInProgress() {
+		Search search = newSearch("Patient", "?name=smith");
+		search.setStatus(SearchStatusEnum.PASSCMPLET);
+		mySvc.save(search);
+
+		Optional<Search> outcome = mySvc.tryToMarkSearchAsInProgress(search);
+		assertTrue(outcome.isPresent());
+		assertEquals(SearchStatusEnum.LOADING, outcome.get().getStatus());
+		assertEquals(SearchStatusEnum.LOADING, mySvc.fetchByUuid(search.getUuid()).get().getStatus());
+
+		// Only one caller can win
+		assertFalse(mySvc.tryToMarkSearchAsInProgress(search).isPresent());
+	}
+
+	@Test
+	public void testFindCandidatesForReuse() {
+		Search match = newSearch("Patient", "?name=smith");
+		mySvc.save(match);
+		Search otherType = newSearch("Observation", "?name=smith");
+		mySvc.save(otherType);
+		Search otherQuery = newSearch("Patient", "?name=jones");
+		mySvc.save(otherQuery);
+		Search failed = newSearch("Patient", "?name=smith");
+		failed.setStatus(SearchStatusEnum.FAILED);
+		mySvc.save(failed);
+
+		Date cutoff = new Date(System.currentTimeMillis() - DateUtils.MILLIS_PER_MINUTE);
+		Collection<Search> candidates = mySvc.findCandidatesForReuse("Patient", "?name=smith", "?name=smith".hashCode(), cutoff);
+		assertEquals(1, candidates.size());
+		assertEquals(match.getUuid(), candidates.iterator().next().getUuid());
+
+		Date future = new Date(System.currentTimeMillis() + DateUtils.MILLIS_PER_MINUTE);
+		assertEquals(0, mySvc.findCandidatesForReuse("Patient", "?name=smith", "?name=smith".hashCode(), future).size());
+	}
+
+	@Test
+	public void testPollForStaleSearches() {
+		Search search = newSearch("Patient", "?name=smith");
+		mySvc.save(search);
+		Search withExpiry = newSearch("Patient", "?name=jones");
+		withExpiry.setExpiryOrNull(new Date(System.currentTimeMillis() + DateUtils.MILLIS_PER_DAY * 7));
+		mySvc.save(withExpiry);
+
+		mySvc.pollForStaleSearchesAndDeleteThem();
+		assertTrue(mySvc.fetchByUuid(search.getUuid()).isPresent());
+
+		InMemorySearchCacheSvcImpl.setNowForUnitTests(System.currentTimeMillis() + DateUtils.MILLIS_PER_DAY);
+		mySvc.pollForStaleSearchesAndDeleteThem();
+		assertFalse(mySvc.fetchByUuid(search.getUuid()).isPresent());
+		assertTrue(mySvc.fetchByUuid(withExpiry.getUuid()).isPresent());
+	}
+
+	private static Search newSearch(String theResourceType, String theQueryString) {
+		Search retVal = new Search();
+		retVal.setUuid(UUID.randomUUID().toString());
+		retVal.setCreated(new Date());
+		retVal.setResourceType(theResourceType);
+		retVal.setSearchQueryString(theQueryString);
+		retVal.setSearchQueryStringHash(theQueryString.hashCode());
+		retVal.setStatus(SearchStatusEnum.LOADING);
+		retVal.setDeleted(false);
+		return retVal;
+	}
+
+}
@@ -0,0 +1,89 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.jpa.dao.DaoConfig;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class InMemorySearchResultCacheSvcImplTest {
+
+	@Test
+	public void testStoreAndFetchOnHeap() {
+		testStoreAndFetch(newSvc(false));
+	}
+
+	@Test
+	public void testStoreAndFetchOffHeap() {
+		testStoreAndFetch(newSvc(true));
+	}
+
+	private void testStoreAndFetch(InMemorySearchResultCacheSvcImpl theSvc) {
+		Search search = newSearch();
+
+		List<ResourcePersistentId> stored = new ArrayList<>();
+		for (int pass = 0; pass < 5; pass++) {
+			List<ResourcePersistentId> newPids = pids(pass * 100, 100);
+			theSvc.storeResults(search, stored, newPids);
+			stored.addAll(newPids);
+		}
+		search.setNumFound(stored.size());
+
+		assertEquals(pids(0, 10), theSvc.fetchResultPids(search, 0, 10));
+		assertEquals(pids(490, 10), theSvc.fetchResultPids(search, 490, 510));
+		assertEquals(Collections.emptyList(), theSvc.fetchResultPids(search, 500, 510));
+		assertEquals(stored, theSvc.fetchAllResultPids(search));
+	}
+
+	@Test
+	public void testStoreAfterEviction() {
+		InMemorySearchResultCacheSvcImpl svc = newSvc(false);
+		Search search = newSearch();
+
+		// The cache doesn't know about the previously stored results, so they are restored from the caller's copy
+		svc.storeResults(search, pids(0, 10), pids(10, 10));
+		assertEquals(pids(0, 20), svc.fetchAllResultPids(search));
+	}
+
+	@Test
+	public void testFetchUnknownSearch() {
+		InMemorySearchResultCacheSvcImpl svc = newSvc(false);
+		Search search = newSearch();
+		assertEquals(Collections.emptyList(), svc.fetchResultPids(search, 0, 10));
+		assertEquals(Collections.emptyList(), svc.fetchAllResultPids(search));
+
+		// Results were found but are no longer cached
+		search.setNumFound(10);
+		assertNull(svc.fetchResultPids(search, 0, 10));
+		assertNull(svc.fetchAllResultPids(search));
+	}
+
+	private static InMemorySearchResultCacheSvcImpl newSvc(boolean theOffHeap) {
+		InMemorySearchResultCacheSvcImpl retVal = new InMemorySearchResultCacheSvcImpl();
+		retVal.setDaoConfigForUnitTest(new DaoConfig());
+		retVal.setOffHeap(theOffHeap);
+		retVal.start();
+		return retVal;
+	}
+
+	private static Search newSearch() {
+		Search retVal = new Search();
+		retVal.setUuid(UUID.randomUUID().toString());
+		return retVal;
+	}
+
+	private static List<ResourcePersistentId> pids(int theStart, int theCount) {
+		List<ResourcePersistentId> retVal = new ArrayList<>();
+		for (int i = theStart; i < theStart + theCount; i++) {
+			retVal.add(new ResourcePersistentId((long) i));
+		}
+		return retVal;
+	}
+
+}
@@ -38,6 +38,8 @@ public abstract class BaseTermR4Test extends BaseJpaR4Test {
 		myDaoConfig.setAllowExternalReferences(new DaoConfig().isAllowExternalReferences());
 		myDaoConfig.setPreExpandValueSets(new DaoConfig().isPreExpandValueSets());
 		myDaoConfig.setMaximumExpansionSize(DaoConfig.DEFAULT_MAX_EXPANSION_SIZE);
+		myDaoConfig.setInMemoryValueSetExpansionPagingEnabled(new DaoConfig().isInMemoryValueSetExpansionPagingEnabled());
+		myDaoConfig.setPreExpandValueSetsThreadCount(DaoConfig.DEFAULT_PRE_EXPAND_VALUE_SETS_THREAD_COUNT);
 	}
 
 	IIdType createCodeSystem() {
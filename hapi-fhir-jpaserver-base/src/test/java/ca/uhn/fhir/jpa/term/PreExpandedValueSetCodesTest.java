@@ -0,0 +1,33 @@
+package ca.uhn.fhir.jpa.term;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class PreExpandedValueSetCodesTest {
+
+	@Test
+	public void testFindDisplays() {
+		List<Object[]> concepts = new ArrayList<>();
+		concepts.add(new Object[]{"http://foo", "A", "Display A"});
+		concepts.add(new Object[]{"http://foo", "B", null});
+		concepts.add(new Object[]{"http://bar", "A", "Other display A"});
+		PreExpandedValueSetCodes codes = new PreExpandedValueSetCodes(concepts);
+
+		assertEquals(3, codes.size());
+		assertThat(codes.findDisplays("http://foo", "A"), contains("Display A"));
+		assertThat(codes.findDisplays("http://bar", "A"), contains("Other display A"));
+		assertThat(codes.findDisplays(null, "A"), containsInAnyOrder("Display A", "Other display A"));
+		assertThat(codes.findDisplays("http://foo", "B"), contains((String) null));
+		assertThat(codes.findDisplays("http://bar", "B"), empty());
+		assertThat(codes.findDisplays(null, "C"), empty());
+	}
+
+}
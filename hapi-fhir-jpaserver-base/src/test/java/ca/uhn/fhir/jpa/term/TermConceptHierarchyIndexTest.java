@@ -0,0 +1,101 @@
+package ca.uhn.fhir.jpa.term;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TermConceptHierarchyIndexTest {
+
+	/**
+	 * <pre>
+	 *   A       E
+	 *  / \
+	 * B   C
+	 *  \ /
+	 *   D
+	 * </pre>
+	 */
+	private TermConceptHierarchyIndex createIndex() {
+		List<Object[]> concepts = new ArrayList<>();
+		concepts.add(new Object[]{4L, "D"});
+		concepts.add(new Object[]{1L, "A"});
+		concepts.add(new Object[]{3L, "C"});
+		concepts.add(new Object[]{2L, "B"});
+		concepts.add(new Object[]{5L, "E"});
+
+		List<Object[]> links = new ArrayList<>();
+		links.add(new Object[]{2L, 1L});
+		links.add(new Object[]{3L, 1L});
+		links.add(new Object[]{4L, 2L});
+		links.add(new Object[]{4L, 3L});
+		// Link to a concept in another version, which should be ignored
+		links.add(new Object[]{5L, 99L});
+
+		return new TermConceptHierarchyIndex(concepts, links);
+	}
+
+	@Test
+	public void testFindCodesAbove() {
+		TermConceptHierarchyIndex index = createIndex();
+		assertEquals(5, index.size());
+
+		assertThat(index.findCodesAbove("D"), containsInAnyOrder("D", "B", "C", "A"));
+		assertThat(index.findCodesAbove("B"), containsInAnyOrder("B", "A"));
+		assertThat(index.findCodesAbove("A"), containsInAnyOrder("A"));
+		assertThat(index.findCodesAbove("E"), containsInAnyOrder("E"));
+		assertNull(index.findCodesAbove("FOO"));
+		assertNull(index.findCodesAbove(null));
+	}
+
+	@Test
+	public void testFindCodesBelow() {
+		TermConceptHierarchyIndex index = createIndex();
+
+		assertThat(index.findCodesBelow("A"), containsInAnyOrder("A", "B", "C", "D"));
+		assertThat(index.findCodesBelow("C"), containsInAnyOrder("C", "D"));
+		assertThat(index.findCodesBelow("D"), containsInAnyOrder("D"));
+		assertNull(index.findCodesBelow("FOO"));
+	}
+
+	@Test
+	public void testIsAncestor() {
+		TermConceptHierarchyIndex index = createIndex();
+
+		assertTrue(index.isAncestor("A", "D"));
+		assertTrue(index.isAncestor("B", "D"));
+		assertTrue(index.isAncestor("A", "C"));
+		assertFalse(index.isAncestor("D", "A"));
+		assertFalse(index.isAncestor("B", "C"));
+		assertFalse(index.isAncestor("A", "A"));
+		assertFalse(index.isAncestor("A", "E"));
+		assertFalse(index.isAncestor("A", "FOO"));
+	}
+
+	@Test
+	public void testDeepHierarchy() {
+		List<Object[]> concepts = new ArrayList<>();
+		List<Object[]> links = new ArrayList<>();
+		for (long i = 0; i < 1000; i++) {
+			concepts.add(new Object[]{i, "code" + i});
+			if (i > 0) {
+				links.add(new Object[]{i, i - 1});
+			}
+		}
+		TermConceptHierarchyIndex index = new TermConceptHierarchyIndex(concepts, links);
+
+		assertEquals(1000, index.findCodesBelow("code0").size());
+		assertEquals(1000, index.findCodesAbove("code999").size());
+		assertEquals(500, index.findCodesBelow("code500").size());
+		assertTrue(index.isAncestor("code0", "code999"));
+		assertFalse(index.isAncestor("code999", "code0"));
+	}
+
+}
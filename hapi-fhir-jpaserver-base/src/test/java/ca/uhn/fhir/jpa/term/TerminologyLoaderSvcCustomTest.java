@@ -5,7 +5,9 @@ import ca.uhn.fhir.jpa.term.api.ITermCodeSystemStorageSvc;
 import ca.uhn.fhir.jpa.term.api.ITermDeferredStorageSvc;
 import ca.uhn.fhir.jpa.term.custom.CustomTerminologySet;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.util.TestUtil;
+import org.apache.commons.csv.QuoteMode;
 import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.IdType;
 import org.junit.AfterClass;
@@ -18,10 +20,13 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -179,6 +184,45 @@ public class TerminologyLoaderSvcCustomTest extends BaseLoaderTest {
 
 	}
 
+	@Test
+	public void testIterateOverZipFileProcessesRecordsInOrder() {
+		StringBuilder text = new StringBuilder("CODE,DISPLAY\n");
+		for (int i = 0; i < 5000; i++) {
+			text.append("CODE").append(i).append(",Display ").append(i).append("\n");
+		}
+		myFiles.addFileText(text.toString(), TermLoaderSvcImpl.CUSTOM_CONCEPTS_FILE);
+
+		List<String> codes = new ArrayList<>();
+		try (LoadedFileDescriptors descriptors = new LoadedFileDescriptors(myFiles.getFiles())) {
+			TermLoaderSvcImpl.iterateOverZipFile(descriptors, TermLoaderSvcImpl.CUSTOM_CONCEPTS_FILE, t -> codes.add(t.get("CODE")), ',', QuoteMode.NON_NUMERIC, false);
+		}
+
+		assertEquals(5000, codes.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals("CODE" + i, codes.get(i));
+		}
+	}
+
+	@Test
+	public void testIterateOverZipFileHandlerFailure() {
+		StringBuilder text = new StringBuilder("CODE,DISPLAY\n");
+		for (int i = 0; i < 50000; i++) {
+			text.append("CODE").append(i).append(",Display ").append(i).append("\n");
+		}
+		myFiles.addFileText(text.toString(), TermLoaderSvcImpl.CUSTOM_CONCEPTS_FILE);
+
+		try (LoadedFileDescriptors descriptors = new LoadedFileDescriptors(myFiles.getFiles())) {
+			TermLoaderSvcImpl.iterateOverZipFile(descriptors, TermLoaderSvcImpl.CUSTOM_CONCEPTS_FILE, t -> {
+				if (t.get("CODE").equals("CODE10")) {
+					throw new InvalidRequestException("Bad code");
+				}
+			}, ',', QuoteMode.NON_NUMERIC, false);
+			fail();
+		} catch (InvalidRequestException e) {
+			assertEquals("Bad code", e.getMessage());
+		}
+	}
+
 	@AfterClass
 	public static void afterClassClearContext() {
 		TestUtil.clearAllStaticFieldsForUnitTest();
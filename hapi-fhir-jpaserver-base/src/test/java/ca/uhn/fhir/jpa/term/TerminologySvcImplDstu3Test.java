@@ -9,6 +9,7 @@ import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink.RelationshipTypeEnum;
 import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.jpa.term.ex.ExpansionTooCostlyException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import ca.uhn.fhir.util.TestUtil;
@@ -17,6 +18,8 @@ import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.dstu3.hapi.ctx.IValidationSupport;
 import org.hl7.fhir.dstu3.model.CodeSystem;
 import org.hl7.fhir.dstu3.model.CodeSystem.CodeSystemContentMode;
+import org.hl7.fhir.dstu3.model.CodeType;
+import org.hl7.fhir.dstu3.model.UriType;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.junit.*;
@@ -31,6 +34,7 @@ import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.term.api.ITermLoaderSvc.LOINC_URI;
@@ -48,6 +52,8 @@ public class TerminologySvcImplDstu3Test extends BaseJpaDstu3Test {
 	public void after() {
 		myDaoConfig.setDeferIndexingForCodesystemsOfSize(new DaoConfig().getDeferIndexingForCodesystemsOfSize());
 		TermReindexingSvcImpl.setForceSaveDeferredAlwaysForUnitTest(false);
+		myDaoConfig.setTermHierarchyIndexEnabled(new DaoConfig().isTermHierarchyIndexEnabled());
+		myDaoConfig.setMaximumExpansionSize(new DaoConfig().getMaximumExpansionSize());
 	}
 
 	private IIdType createCodeSystem() {
@@ -1706,6 +1712,82 @@ public class TerminologySvcImplDstu3Test extends BaseJpaDstu3Test {
 
 	}
 
+	@Test
+	public void testFindCodesAboveAndBelowWithHierarchyIndex() {
+		createCodeSystem();
+		myDaoConfig.setTermHierarchyIndexEnabled(true);
+
+		assertThat(toCodes(myTermSvc.findCodesBelow(CS_URL, "ParentA")), containsInAnyOrder("ParentA", "childAA", "childAAA", "childAAB", "childAB"));
+		assertThat(toCodes(myTermSvc.findCodesBelow(CS_URL, "childAA")), containsInAnyOrder("childAA", "childAAA", "childAAB"));
+		assertThat(toCodes(myTermSvc.findCodesBelow(CS_URL, "ParentB")), containsInAnyOrder("ParentB"));
+		assertThat(toCodes(myTermSvc.findCodesAbove(CS_URL, "childAAB")), containsInAnyOrder("ParentA", "childAA", "childAAB"));
+		assertThat(toCodes(myTermSvc.findCodesAbove(CS_URL, "ParentWithNoChildrenA")), containsInAnyOrder("ParentWithNoChildrenA"));
+		assertThat(myTermSvc.findCodesBelow(CS_URL, "FOO_BAD_CODE"), empty());
+		assertThat(myTermSvc.findCodesAbove(CS_URL, "FOO_BAD_CODE"), empty());
+	}
+
+	@Test
+	public void testFindCodesAboveAndBelowSameWithAndWithoutHierarchyIndex() {
+		createCodeSystem();
+
+		// Smaller than some of the results, which must fail the same way on either path
+		myDaoConfig.setMaximumExpansionSize(4);
+
+		String[] codes = {"ParentA", "childAA", "childAAB", "ParentB", "ParentWithNoChildrenA", "FOO_BAD_CODE"};
+		List<String> expected = new ArrayList<>();
+		for (String next : codes) {
+			expected.add(findCodesAsString(true, next));
+			expected.add(findCodesAsString(false, next));
+		}
+		assertThat(expected, hasItems("[childAA, childAAA, childAAB]", "[ParentA, childAA, childAAB]", "ExpansionTooCostlyException"));
+
+		myDaoConfig.setTermHierarchyIndexEnabled(true);
+		List<String> actual = new ArrayList<>();
+		for (String next : codes) {
+			actual.add(findCodesAsString(true, next));
+			actual.add(findCodesAsString(false, next));
+		}
+		assertEquals(expected, actual);
+	}
+
+	private String findCodesAsString(boolean theBelow, String theCode) {
+		try {
+			return newTxTemplate().execute(t -> {
+				List<VersionIndependentConcept> concepts = theBelow ? myTermSvc.findCodesBelow(CS_URL, theCode) : myTermSvc.findCodesAbove(CS_URL, theCode);
+				return new TreeSet<>(toCodes(concepts)).toString();
+			});
+		} catch (ExpansionTooCostlyException e) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	@Test
+	public void testSubsumesWithHierarchyIndex() {
+		createCodeSystem();
+
+		String[][] pairs = {
+			{"ParentA", "childAAB"},
+			{"childAAB", "ParentA"},
+			{"childAAB", "ParentB"},
+			{"childAA", "childAB"},
+			{"ParentA", "ParentA"},
+			{"ParentA", "ParentWithNoChildrenA"}
+		};
+
+		List<String> expected = new ArrayList<>();
+		for (String[] next : pairs) {
+			expected.add(myTermSvc.subsumes(new CodeType(next[0]), new CodeType(next[1]), new UriType(CS_URL), null, null).getOutcome().toCode());
+		}
+		assertThat(expected, hasItems("subsumes", "subsumed-by", "not-subsumed"));
+
+		myDaoConfig.setTermHierarchyIndexEnabled(true);
+		List<String> actual = new ArrayList<>();
+		for (String[] next : pairs) {
+			actual.add(myTermSvc.subsumes(new CodeType(next[0]), new CodeType(next[1]), new UriType(CS_URL), null, null).getOutcome().toCode());
+		}
+		assertEquals(expected, actual);
+	}
+
 	@Test
 	public void testFindCodesBelowBuiltInCodeSystem() {
 		List<VersionIndependentConcept> concepts;
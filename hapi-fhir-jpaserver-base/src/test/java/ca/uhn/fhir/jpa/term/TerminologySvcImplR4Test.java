@@ -1834,6 +1834,38 @@ public class TerminologySvcImplR4Test extends BaseTermR4Test {
 		assertEquals("Systolic blood pressure at First encounter", result.getDisplay());
 	}
 
+	@Test
+	public void testValidateCodeIsInPreExpandedValueSetUsesCachedCodes() throws Exception {
+		myDaoConfig.setPreExpandValueSets(true);
+
+		loadAndPersistCodeSystemAndValueSetWithDesignations(HttpVerb.POST);
+		ValueSet valueSet = myValueSetDao.read(myExtensionalVsId);
+		myTermSvc.preExpandDeferredValueSetsToTerminologyTables();
+
+		ValidateCodeResult result = myTermSvc.validateCodeIsInPreExpandedValueSet(valueSet, "http://acme.org", "11378-7", null, null, null);
+		assertTrue(result.isResult());
+
+		// Subsequent lookups don't need to query the concepts
+		myCaptureQueriesListener.clear();
+		assertTrue(myTermSvc.isValueSetPreExpandedForCodeValidation(valueSet));
+		result = myTermSvc.validateCodeIsInPreExpandedValueSet(valueSet, "http://acme.org", "8450-9", null, null, null);
+		assertTrue(result.isResult());
+		assertEquals("Systolic blood pressure--expiration", result.getDisplay());
+		assertNull(myTermSvc.validateCodeIsInPreExpandedValueSet(valueSet, "http://acme.org", "BOGUS", null, null, null));
+		assertNull(myTermSvc.validateCodeIsInPreExpandedValueSet(valueSet, "http://BOGUS", "8450-9", null, null, null));
+		myCaptureQueriesListener.logSelectQueriesForCurrentThread();
+		assertEquals(0, myCaptureQueriesListener.getSelectQueriesForCurrentThread().stream().filter(t -> t.getSql(false, false).contains("TRM_VALUESET_CONCEPT")).count());
+
+		// Removing a code from the ValueSet invalidates the cached codes
+		valueSet.getCompose().getIncludeFirstRep().addConcept().setCode("8450-9");
+		myValueSetDao.update(valueSet);
+		myTermSvc.preExpandDeferredValueSetsToTerminologyTables();
+
+		assertNull(myTermSvc.validateCodeIsInPreExpandedValueSet(valueSet, "http://acme.org", "11378-7", null, null, null));
+		result = myTermSvc.validateCodeIsInPreExpandedValueSet(valueSet, "http://acme.org", "8450-9", null, null, null);
+		assertTrue(result.isResult());
+	}
+
 	@Test
 	public void testValidateCodeIsInPreExpandedValueSetWithClientAssignedId() throws Exception {
 		myDaoConfig.setPreExpandValueSets(true);
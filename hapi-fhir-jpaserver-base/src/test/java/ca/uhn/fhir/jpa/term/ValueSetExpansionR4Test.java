@@ -11,6 +11,7 @@ import ca.uhn.fhir.jpa.entity.TermValueSetPreExpansionStatusEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.term.custom.CustomTerminologySet;
+import ca.uhn.fhir.jpa.term.ex.ExpansionTooCostlyException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import com.google.common.collect.Lists;
 import org.hl7.fhir.instance.model.api.IIdType;
@@ -28,9 +29,11 @@ import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static ca.uhn.fhir.jpa.term.TerminologySvcImplDstu3Test.toCodesContains;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertEquals;
@@ -86,6 +89,45 @@ public class ValueSetExpansionR4Test extends BaseTermR4Test {
 		assertEquals(24, expandedValueSet.getExpansion().getContains().size());
 	}
 
+	@Test
+	public void testPreExpandValueSetsConcurrently() {
+		myDaoConfig.setPreExpandValueSets(true);
+		myDaoConfig.setPreExpandValueSetsThreadCount(3);
+		createCodeSystem();
+
+		List<String> urls = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			ValueSet vs = new ValueSet();
+			vs.setUrl("http://example.com/vs" + i);
+			vs.getCompose().addInclude().setSystem(CS_URL);
+			myValueSetDao.create(vs);
+			urls.add(vs.getUrl());
+		}
+
+		// This one fails part way through, after the first include has been stored
+		ValueSet failingVs = new ValueSet();
+		failingVs.setUrl("http://example.com/vs-failing");
+		failingVs.getCompose().addInclude().setSystem(CS_URL);
+		failingVs.getCompose().addInclude().setSystem(CS_URL).addFilter().setProperty("parent").setOp(ValueSet.FilterOperator.EQUAL).setValue("ParentA");
+		myValueSetDao.create(failingVs);
+
+		myTermSvc.preExpandDeferredValueSetsToTerminologyTables();
+
+		runInTransaction(() -> {
+			for (String next : urls) {
+				TermValueSet termValueSet = myTermValueSetDao.findByUrl(next).orElseThrow(IllegalStateException::new);
+				assertEquals(TermValueSetPreExpansionStatusEnum.EXPANDED, termValueSet.getExpansionStatus());
+				assertEquals(9L, termValueSet.getTotalConcepts().longValue());
+				assertEquals(9, myTermValueSetConceptDao.countByTermValueSetId(termValueSet.getId()).intValue());
+			}
+
+			TermValueSet termValueSet = myTermValueSetDao.findByUrl(failingVs.getUrl()).orElseThrow(IllegalStateException::new);
+			assertEquals(TermValueSetPreExpansionStatusEnum.FAILED_TO_EXPAND, termValueSet.getExpansionStatus());
+			assertEquals(0L, termValueSet.getTotalConcepts().longValue());
+			assertEquals(0, myTermValueSetConceptDao.countByTermValueSetId(termValueSet.getId()).intValue());
+		});
+	}
+
 	@SuppressWarnings("SpellCheckingInspection")
 	@Test
 	public void testExpandTermValueSetAndChildren() throws Exception {
@@ -868,6 +910,66 @@ public class ValueSetExpansionR4Test extends BaseTermR4Test {
 
 	}
 
+	@Test
+	public void testExpandValueSetInMemoryWithPaging() {
+		createCodeSystem();
+
+		CustomTerminologySet additions = new CustomTerminologySet();
+		for (int i = 0; i < 100; i++) {
+			additions.addRootConcept("CODE" + i, "Display " + i);
+		}
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsAdd(CS_URL, additions);
+
+		// Not stored, so this will always be expanded in memory
+		ValueSet vs = new ValueSet();
+		vs.setUrl("http://example.com/my_value_set_not_stored");
+		vs.getCompose().addInclude().setSystem(CS_URL);
+
+		// Paging disabled, so the whole expansion is returned
+		ValueSet outcome = myTermSvc.expandValueSet(vs, 10, 20);
+		assertEquals(109, outcome.getExpansion().getTotal());
+		List<String> allCodes = toCodesContains(outcome.getExpansion().getContains());
+		assertEquals(109, allCodes.size());
+
+		myDaoConfig.setInMemoryValueSetExpansionPagingEnabled(true);
+
+		// A page from the middle of the expansion, which stops before the end so the total is unknown
+		outcome = myTermSvc.expandValueSet(vs, 10, 20);
+		assertEquals(10, outcome.getExpansion().getOffset());
+		assertFalse(outcome.getExpansion().hasTotal());
+		assertEquals(allCodes.subList(10, 30), toCodesContains(outcome.getExpansion().getContains()));
+		assertEquals(2, outcome.getExpansion().getParameter().size());
+
+		// The last page
+		outcome = myTermSvc.expandValueSet(vs, 100, 20);
+		assertEquals(109, outcome.getExpansion().getTotal());
+		assertEquals(allCodes.subList(100, 109), toCodesContains(outcome.getExpansion().getContains()));
+
+		// The end of the page counts towards the maximum expansion size, since everything before it is walked
+		myDaoConfig.setMaximumExpansionSize(80);
+		outcome = myTermSvc.expandValueSet(vs, 60, 20);
+		assertEquals(allCodes.subList(60, 80), toCodesContains(outcome.getExpansion().getContains()));
+		try {
+			myTermSvc.expandValueSet(vs, 61, 20);
+			fail();
+		} catch (ExpansionTooCostlyException e) {
+			assertThat(e.getMessage(), containsString("maximum 80"));
+		}
+		try {
+			myTermSvc.expandValueSet(vs, Integer.MAX_VALUE, 20);
+			fail();
+		} catch (ExpansionTooCostlyException e) {
+			// good
+		}
+
+		// Excludes require the full expansion
+		vs.getCompose().addExclude().setSystem(CS_URL).addConcept().setCode("CODE0");
+		myDaoConfig.setMaximumExpansionSize(150);
+		outcome = myTermSvc.expandValueSet(vs, 10, 20);
+		assertEquals(108, outcome.getExpansion().getTotal());
+		assertEquals(108, outcome.getExpansion().getContains().size());
+	}
+
 	@Test
 	public void testExpandValueSetWithValueSetCodeAccumulator() {
 		createCodeSystem();
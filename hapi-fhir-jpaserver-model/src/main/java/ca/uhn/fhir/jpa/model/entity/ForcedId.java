@@ -93,4 +93,11 @@ public class ForcedId {
 	public Long getId() {
 		return myId;
 	}
+
+	public Long getResourcePid() {
+		if (myResourcePid == null && myResource != null) {
+			return myResource.getId();
+		}
+		return myResourcePid;
+	}
 }
@@ -60,6 +60,7 @@ public class ModelConfig {
 	private String myEmailFromAddress = "noreply@unknown.com";
 	private boolean mySubscriptionMatchingEnabled = true;
 	private String myWebsocketContextPath = DEFAULT_WEBSOCKET_CONTEXT_PATH;
+	private boolean mySearchParamPathTreeEnabled = false;
 
 	/**
 	 * Constructor
@@ -351,6 +352,42 @@ public class ModelConfig {
 		mySubscriptionMatchingEnabled = theSubscriptionMatchingEnabled;
 	}
 
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), when extracting search parameter
+	 * index values from a resource, the simple paths (those which only navigate to child elements by
+	 * name, e.g. <code>Observation.component.code</code>) of all search parameters of a given type are
+	 * evaluated together in a single traversal of the resource, instead of evaluating each path
+	 * separately using FHIRPath. Elements shared by several paths are then only visited once, which
+	 * reduces the cost of indexing resources with many search parameters. Paths using other FHIRPath
+	 * features are still evaluated using FHIRPath.
+	 * <p>
+	 * This setting has no effect for DSTU2, which does not use FHIRPath for index extraction.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public boolean isSearchParamPathTreeEnabled() {
+		return mySearchParamPathTreeEnabled;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), when extracting search parameter
+	 * index values from a resource, the simple paths (those which only navigate to child elements by
+	 * name, e.g. <code>Observation.component.code</code>) of all search parameters of a given type are
+	 * evaluated together in a single traversal of the resource, instead of evaluating each path
+	 * separately using FHIRPath. Elements shared by several paths are then only visited once, which
+	 * reduces the cost of indexing resources with many search parameters. Paths using other FHIRPath
+	 * features are still evaluated using FHIRPath.
+	 * <p>
+	 * This setting has no effect for DSTU2, which does not use FHIRPath for index extraction.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setSearchParamPathTreeEnabled(boolean theSearchParamPathTreeEnabled) {
+		mySearchParamPathTreeEnabled = theSearchParamPathTreeEnabled;
+	}
+
 	@VisibleForTesting
 	public void clearSupportedSubscriptionTypesForUnitTest() {
 		mySupportedSubscriptionTypes.clear();
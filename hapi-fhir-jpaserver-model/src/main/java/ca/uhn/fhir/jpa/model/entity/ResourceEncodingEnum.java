@@ -44,6 +44,12 @@ public enum ResourceEncodingEnum {
 	 */
 	JSONC,
 
+	/**
+	 * Smile (a binary encoding of the JSON data model, with shared
+	 * element names and short string values)
+	 */
+	SMILE,
+
 	/**
 	 * Resource was deleted - No contents expected
 	 */
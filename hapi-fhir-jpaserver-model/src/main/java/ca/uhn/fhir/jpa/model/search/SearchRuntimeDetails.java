@@ -37,6 +37,11 @@ public class SearchRuntimeDetails {
 	private boolean myLoadSynchronous;
 	private String myQueryString;
 	private SearchStatusEnum mySearchStatus;
+	private int myQueueDepthAtSubmission;
+	private int myActiveSearchCountAtSubmission;
+	private Long myQueueWaitMillis;
+	private Long myTimeToFirstPageMillis;
+
 	public SearchRuntimeDetails(RequestDetails theRequestDetails, String theSearchUuid) {
 		myRequestDetails = theRequestDetails;
 		mySearchUuid = theSearchUuid;
@@ -90,4 +95,55 @@ public class SearchRuntimeDetails {
 	public void setSearchStatus(SearchStatusEnum theSearchStatus) {
 		mySearchStatus = theSearchStatus;
 	}
+
+	/**
+	 * Returns the number of searches which were waiting for a search thread when this
+	 * search was submitted (not including this search)
+	 */
+	public int getQueueDepthAtSubmission() {
+		return myQueueDepthAtSubmission;
+	}
+
+	public void setQueueDepthAtSubmission(int theQueueDepthAtSubmission) {
+		myQueueDepthAtSubmission = theQueueDepthAtSubmission;
+	}
+
+	/**
+	 * Returns the number of searches which were actively executing when this search was submitted
+	 */
+	public int getActiveSearchCountAtSubmission() {
+		return myActiveSearchCountAtSubmission;
+	}
+
+	public void setActiveSearchCountAtSubmission(int theActiveSearchCountAtSubmission) {
+		myActiveSearchCountAtSubmission = theActiveSearchCountAtSubmission;
+	}
+
+	/**
+	 * Returns the number of milliseconds this search spent waiting for a search thread, or
+	 * <code>null</code> if the search has not yet started (or was executed synchronously)
+	 */
+	@Nullable
+	public Long getQueueWaitMillis() {
+		return myQueueWaitMillis;
+	}
+
+	public void setQueueWaitMillis(Long theQueueWaitMillis) {
+		myQueueWaitMillis = theQueueWaitMillis;
+	}
+
+	/**
+	 * Returns the number of milliseconds between this search being submitted and the
+	 * first page of results being available to the client (including any time spent
+	 * waiting for a search thread), or <code>null</code> if the first page is not yet
+	 * available (or the search was executed synchronously)
+	 */
+	@Nullable
+	public Long getTimeToFirstPageMillis() {
+		return myTimeToFirstPageMillis;
+	}
+
+	public void setTimeToFirstPageMillis(Long theTimeToFirstPageMillis) {
+		myTimeToFirstPageMillis = theTimeToFirstPageMillis;
+	}
 }
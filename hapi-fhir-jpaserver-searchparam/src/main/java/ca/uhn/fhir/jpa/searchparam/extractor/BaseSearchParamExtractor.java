@@ -28,6 +28,8 @@ import ca.uhn.fhir.jpa.searchparam.registry.ISearchParamRegistry;
 import ca.uhn.fhir.model.primitive.BoundCodeDt;
 import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.lang3.ObjectUtils;
 import org.hibernate.search.spatial.impl.Point;
 import org.hl7.fhir.exceptions.FHIRException;
@@ -41,6 +43,8 @@ import javax.measure.unit.NonSI;
 import javax.measure.unit.Unit;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -51,6 +55,10 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 
 	private static final Pattern SPLIT_R4 = Pattern.compile("\\|");
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(BaseSearchParamExtractor.class);
+	/**
+	 * Maximum number of parsed FHIRPath expressions held by {@link #getParsedExpression(String, Function)}
+	 */
+	static final int MAX_PARSED_EXPRESSION_CACHE_SIZE = 10000;
 	@Autowired
 	protected ApplicationContext myApplicationContext;
 	@Autowired
@@ -60,6 +68,8 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 	@Autowired
 	private ModelConfig myModelConfig;
 	private Set<String> myIgnoredForSearchDatatypes;
+	private final Map<String, SearchParamPathTree> myPathTrees = new ConcurrentHashMap<>();
+	private final Cache<String, Object> myParsedExpressionCache = Caffeine.newBuilder().maximumSize(MAX_PARSED_EXPRESSION_CACHE_SIZE).build();
 	private BaseRuntimeChildDefinition myQuantityValueValueChild;
 	private BaseRuntimeChildDefinition myQuantitySystemValueChild;
 	private BaseRuntimeChildDefinition myQuantityCodeValueChild;
@@ -449,7 +459,7 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 	/**
 	 * Override parent because we're using FHIRPath here
 	 */
-	private List<IBase> extractValues(String thePaths, IBaseResource theResource) {
+	private List<IBase> extractValues(String thePaths, IBaseResource theResource, Map<String, List<IBase>> thePathTreeValues) {
 		List<IBase> values = new ArrayList<>();
 		if (isNotBlank(thePaths)) {
 			String[] nextPathsSplit = split(thePaths);
@@ -464,12 +474,15 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 				}
 
 				nextPath = trim(nextPath);
-				IValueExtractor allValuesFunc = getPathValueExtractor(theResource, nextPath);
-				try {
-					allValues = allValuesFunc.get();
-				} catch (Exception e) {
-					String msg = getContext().getLocalizer().getMessage(BaseSearchParamExtractor.class, "failedToExtractPaths", nextPath, e.toString());
-					throw new InternalErrorException(msg, e);
+				allValues = thePathTreeValues != null ? thePathTreeValues.get(nextPath) : null;
+				if (allValues == null) {
+					IValueExtractor allValuesFunc = getPathValueExtractor(theResource, nextPath);
+					try {
+						allValues = allValuesFunc.get();
+					} catch (Exception e) {
+						String msg = getContext().getLocalizer().getMessage(BaseSearchParamExtractor.class, "failedToExtractPaths", nextPath, e.toString());
+						throw new InternalErrorException(msg, e);
+					}
 				}
 
 				values.addAll(allValues);
@@ -490,6 +503,19 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 
 	protected abstract IValueExtractor getPathValueExtractor(IBaseResource theResource, String theSinglePath);
 
+	/**
+	 * Search parameter paths are parsed once and the parsed expression is reused for
+	 * every resource. The cache is keyed by the expression text, so a search parameter
+	 * whose expression changes simply gets a new entry.
+	 *
+	 * @param thePath   The FHIRPath expression
+	 * @param theParser Parses the expression if it is not already cached
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T getParsedExpression(String thePath, Function<String, T> theParser) {
+		return (T) myParsedExpressionCache.get(thePath, theParser);
+	}
+
 	protected FhirContext getContext() {
 		return myContext;
 	}
@@ -787,6 +813,12 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 		SearchParamSet<T> retVal = new SearchParamSet<>();
 
 		Collection<RuntimeSearchParam> searchParams = getSearchParams(theResource);
+
+		Map<String, List<IBase>> pathTreeValues = null;
+		if (isSearchParamPathTreeEnabled()) {
+			pathTreeValues = getPathTree(theResource, theSearchParamType).walk(theResource);
+		}
+
 		for (RuntimeSearchParam nextSpDef : searchParams) {
 			if (nextSpDef.getParamType() != theSearchParamType) {
 				continue;
@@ -800,7 +832,7 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 			String[] splitPaths = split(nextPathUnsplit);
 			for (String nextPath : splitPaths) {
 				nextPath = trim(nextPath);
-				for (IBase nextObject : extractValues(nextPath, theResource)) {
+				for (IBase nextObject : extractValues(nextPath, theResource, pathTreeValues)) {
 					if (nextObject != null) {
 						String typeName = toRootTypeName(nextObject);
 						if (!myIgnoredForSearchDatatypes.contains(typeName)) {
@@ -813,6 +845,39 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 		return retVal;
 	}
 
+	private boolean isSearchParamPathTreeEnabled() {
+		return myModelConfig != null
+			&& myModelConfig.isSearchParamPathTreeEnabled()
+			&& myContext.getVersion().getVersion().isEqualOrNewerThan(FhirVersionEnum.DSTU3);
+	}
+
+	/**
+	 * Returns the path tree for the given resource type and search parameter type, building
+	 * it if the active search parameters have changed since it was last built
+	 */
+	private SearchParamPathTree getPathTree(IBaseResource theResource, RestSearchParameterTypeEnum theSearchParamType) {
+		RuntimeResourceDefinition def = getContext().getResourceDefinition(theResource);
+		Map<String, RuntimeSearchParam> searchParams = mySearchParamRegistry.getActiveSearchParams(def.getName());
+
+		String key = def.getName() + "/" + theSearchParamType.name();
+		SearchParamPathTree retVal = myPathTrees.get(key);
+		if (retVal == null || retVal.getSource() != searchParams) {
+			List<String> paths = new ArrayList<>();
+			if (searchParams != null) {
+				for (RuntimeSearchParam nextSpDef : searchParams.values()) {
+					if (nextSpDef.getParamType() == theSearchParamType && isNotBlank(nextSpDef.getPath())) {
+						for (String nextPath : split(nextSpDef.getPath())) {
+							paths.add(trim(nextPath));
+						}
+					}
+				}
+			}
+			retVal = new SearchParamPathTree(def, paths, searchParams);
+			myPathTrees.put(key, retVal);
+		}
+		return retVal;
+	}
+
 	private String toRootTypeName(IBase nextObject) {
 		BaseRuntimeElementDefinition<?> elementDefinition = getContext().getElementDefinition(nextObject.getClass());
 		BaseRuntimeElementDefinition<?> rootParentDefinition = elementDefinition.getRootParentDefinition();
@@ -21,14 +21,36 @@ package ca.uhn.fhir.jpa.searchparam.extractor;
  */
 
 import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import org.hl7.fhir.instance.model.api.IBaseReference;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
 public interface IResourceLinkResolver {
-	ResourceTable findTargetResource(RuntimeSearchParam theNextSpDef, String theNextPathsUnsplit, IIdType theNextId, String theTypeString, Class<? extends IBaseResource> theType, IBaseReference theReference, RequestDetails theRequest);
+
+	/**
+	 * @param theResolvedTargetId The ID of the target resource if it was found by {@link #resolveTargetIds(Collection, RequestDetails)}, or <code>null</code>
+	 */
+	ResourceTable findTargetResource(RuntimeSearchParam theNextSpDef, String theNextPathsUnsplit, IIdType theNextId, String theTypeString, Class<? extends IBaseResource> theType, IBaseReference theReference, @Nullable ResourcePersistentId theResolvedTargetId, RequestDetails theRequest);
+
+	/**
+	 * Resolves the targets of all of the local references in a resource at once, before
+	 * any of them are passed to {@link #findTargetResource}. The default implementation
+	 * does not resolve anything.
+	 *
+	 * @param theIds The reference IDs. Each will have a resource type and an ID part.
+	 * @return The IDs of the target resources which were found, keyed by "[resource type]/[id part]"
+	 */
+	default Map<String, ResourcePersistentId> resolveTargetIds(Collection<IIdType> theIds, RequestDetails theRequest) {
+		return Collections.emptyMap();
+	}
 
 	void validateTypeOrThrowException(Class<? extends IBaseResource> theType);
 }
@@ -24,6 +24,7 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
 import ca.uhn.fhir.context.RuntimeSearchParam;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.jpa.model.cross.ResourcePersistentId;
 import ca.uhn.fhir.jpa.model.entity.ModelConfig;
 import ca.uhn.fhir.jpa.model.entity.ResourceLink;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
@@ -38,7 +39,10 @@ import org.hl7.fhir.instance.model.api.IIdType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -63,28 +67,38 @@ public class ResourceLinkExtractor {
 
 		ISearchParamExtractor.SearchParamSet<PathAndRef> refs = mySearchParamExtractor.extractResourceLinks(theResource);
 		SearchParamExtractorService.handleWarnings(theRequest, myInterceptorBroadcaster, refs);
+
+		// Resolve all of the local references together instead of one at a time
+		Map<String, ResourcePersistentId> resolvedTargetIds = theResourceLinkResolver.resolveTargetIds(findLocalReferenceIds(refs), theRequest);
+
 		for (PathAndRef nextPathAndRef : refs) {
 			RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(resourceName, nextPathAndRef.getSearchParamName());
-			extractResourceLinks(theParams, theEntity, theUpdateTime, theResourceLinkResolver, searchParam, nextPathAndRef, theFailOnInvalidReference, theRequest);
+			extractResourceLinks(theParams, theEntity, theUpdateTime, theResourceLinkResolver, searchParam, nextPathAndRef, resolvedTargetIds, theFailOnInvalidReference, theRequest);
 		}
 
 		theEntity.setHasLinks(theParams.myLinks.size() > 0);
 	}
 
-	private void extractResourceLinks(ResourceIndexedSearchParams theParams, ResourceTable theEntity, Date theUpdateTime, IResourceLinkResolver theResourceLinkResolver, RuntimeSearchParam theRuntimeSearchParam, PathAndRef thePathAndRef, boolean theFailOnInvalidReference, RequestDetails theRequest) {
+	/**
+	 * Returns the IDs of the references which may point to a resource on this server, i.e.
+	 * the ones which {@link #createResourceLink} might need to look up
+	 */
+	private List<IIdType> findLocalReferenceIds(ISearchParamExtractor.SearchParamSet<PathAndRef> theRefs) {
+		List<IIdType> retVal = new ArrayList<>();
+		for (PathAndRef nextPathAndRef : theRefs) {
+			IIdType nextId = getReferenceId(nextPathAndRef.getRef());
+			if (nextId.hasResourceType() && nextId.hasIdPart() && !nextId.hasBaseUrl() && !LogicalReferenceHelper.isLogicalReference(myModelConfig, nextId)) {
+				retVal.add(nextId);
+			}
+		}
+		return retVal;
+	}
+
+	private void extractResourceLinks(ResourceIndexedSearchParams theParams, ResourceTable theEntity, Date theUpdateTime, IResourceLinkResolver theResourceLinkResolver, RuntimeSearchParam theRuntimeSearchParam, PathAndRef thePathAndRef, Map<String, ResourcePersistentId> theResolvedTargetIds, boolean theFailOnInvalidReference, RequestDetails theRequest) {
 		IBaseReference nextReference = thePathAndRef.getRef();
-		IIdType nextId = nextReference.getReferenceElement();
+		IIdType nextId = getReferenceId(nextReference);
 		String path = thePathAndRef.getPath();
 
-		/*
-		 * This can only really happen if the DAO is being called
-		 * programmatically with a Bundle (not through the FHIR REST API)
-		 * but Smile does this
-		 */
-		if (nextId.isEmpty() && nextReference.getResource() != null) {
-			nextId = nextReference.getResource().getIdElement();
-		}
-
 		theParams.myPopulatedResourceLinkParameters.add(thePathAndRef.getSearchParamName());
 
 		if (LogicalReferenceHelper.isLogicalReference(myModelConfig, nextId)) {
@@ -151,15 +165,16 @@ public class ResourceLinkExtractor {
 		}
 
 		theResourceLinkResolver.validateTypeOrThrowException(type);
-		ResourceLink resourceLink = createResourceLink(theEntity, theUpdateTime, theResourceLinkResolver, theRuntimeSearchParam, path, thePathAndRef, nextId, typeString, type, nextReference, theRequest);
+		ResourcePersistentId resolvedTargetId = theResolvedTargetIds.get(typeString + "/" + id);
+		ResourceLink resourceLink = createResourceLink(theEntity, theUpdateTime, theResourceLinkResolver, theRuntimeSearchParam, path, thePathAndRef, nextId, typeString, type, nextReference, resolvedTargetId, theRequest);
 		if (resourceLink == null) {
 			return;
 		}
 		theParams.myLinks.add(resourceLink);
 	}
 
-	private ResourceLink createResourceLink(ResourceTable theEntity, Date theUpdateTime, IResourceLinkResolver theResourceLinkResolver, RuntimeSearchParam nextSpDef, String theNextPathsUnsplit, PathAndRef nextPathAndRef, IIdType theNextId, String theTypeString, Class<? extends IBaseResource> theType, IBaseReference theReference, RequestDetails theRequest) {
-		ResourceTable targetResource = theResourceLinkResolver.findTargetResource(nextSpDef, theNextPathsUnsplit, theNextId, theTypeString, theType, theReference, theRequest);
+	private ResourceLink createResourceLink(ResourceTable theEntity, Date theUpdateTime, IResourceLinkResolver theResourceLinkResolver, RuntimeSearchParam nextSpDef, String theNextPathsUnsplit, PathAndRef nextPathAndRef, IIdType theNextId, String theTypeString, Class<? extends IBaseResource> theType, IBaseReference theReference, ResourcePersistentId theResolvedTargetId, RequestDetails theRequest) {
+		ResourceTable targetResource = theResourceLinkResolver.findTargetResource(nextSpDef, theNextPathsUnsplit, theNextId, theTypeString, theType, theReference, theResolvedTargetId, theRequest);
 
 		if (targetResource == null) {
 			return null;
@@ -168,4 +183,18 @@ public class ResourceLinkExtractor {
 		return new ResourceLink(nextPathAndRef.getPath(), theEntity, targetResource, theUpdateTime);
 	}
 
+	private static IIdType getReferenceId(IBaseReference theReference) {
+		IIdType retVal = theReference.getReferenceElement();
+
+		/*
+		 * This can only really happen if the DAO is being called
+		 * programmatically with a Bundle (not through the FHIR REST API)
+		 * but Smile does this
+		 */
+		if (retVal.isEmpty() && theReference.getResource() != null) {
+			retVal = theReference.getResource().getIdElement();
+		}
+		return retVal;
+	}
+
 }
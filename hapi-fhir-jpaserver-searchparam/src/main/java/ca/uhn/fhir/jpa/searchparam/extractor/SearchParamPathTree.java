@@ -0,0 +1,190 @@
+package ca.uhn.fhir.jpa.searchparam.extractor;
+
+/*-
+ * #%L
+ * HAPI FHIR Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.context.BaseRuntimeChildDatatypeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import ca.uhn.fhir.context.RuntimeChildChoiceDefinition;
+import ca.uhn.fhir.context.RuntimeChildResourceBlockDefinition;
+import ca.uhn.fhir.context.RuntimeChildResourceDefinition;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A prefix tree of the simple search parameter paths for a single resource type. A
+ * simple path is one which only navigates from the resource to its child elements by name
+ * (e.g. <code>Observation.component.code</code>), which covers the large majority of
+ * built-in search parameters.
+ * <p>
+ * {@link #walk(IBaseResource)} evaluates every path in the tree against a resource in a
+ * single traversal, so elements which are shared by several paths (e.g.
+ * <code>Observation.component</code> for all of the component search parameters) are
+ * only visited once, and identical paths used by several search parameters are only
+ * evaluated once. The values for each path are returned in the same order that FHIRPath
+ * evaluation of the path would return them.
+ * </p>
+ * <p>
+ * Paths using any other FHIRPath feature (functions, type tests, indexers, etc.) are not
+ * added to the tree and must be evaluated separately. Choice elements are only supported
+ * as the last step of a path, since navigating into them depends on the datatype.
+ * </p>
+ * <p>
+ * Instances are immutable once created, and are safe for use by multiple threads.
+ * </p>
+ */
+class SearchParamPathTree {
+
+	private static final Pattern SIMPLE_PATH_PART = Pattern.compile("[a-zA-Z][a-zA-Z0-9]*");
+
+	private final Object mySource;
+	private final Node myRoot = new Node(null);
+	private final List<String> myPaths = new ArrayList<>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param theResourceDefinition The resource type that the paths apply to
+	 * @param thePaths              The candidate paths. Any which are not simple paths for the given resource type are ignored.
+	 * @param theSource             The object that the paths were derived from, used by the caller to detect when the tree needs to be rebuilt
+	 */
+	SearchParamPathTree(RuntimeResourceDefinition theResourceDefinition, Collection<String> thePaths, Object theSource) {
+		mySource = theSource;
+		for (String nextPath : thePaths) {
+			if (!myPaths.contains(nextPath) && addPath(theResourceDefinition, nextPath)) {
+				myPaths.add(nextPath);
+			}
+		}
+	}
+
+	Object getSource() {
+		return mySource;
+	}
+
+	/**
+	 * Returns the simple paths which were added to the tree
+	 */
+	List<String> getPaths() {
+		return myPaths;
+	}
+
+	/**
+	 * Evaluates all paths in the tree against the given resource. The returned map contains
+	 * an entry (possibly an empty list) for every path in {@link #getPaths()}.
+	 */
+	Map<String, List<IBase>> walk(IBaseResource theResource) {
+		Map<String, List<IBase>> retVal = new HashMap<>();
+		for (String nextPath : myPaths) {
+			retVal.put(nextPath, new ArrayList<>());
+		}
+		walk(myRoot, theResource, retVal);
+		return retVal;
+	}
+
+	private void walk(Node theNode, IBase theElement, Map<String, List<IBase>> theValues) {
+		for (Node nextChild : theNode.myChildren.values()) {
+			List<? extends IBase> values = nextChild.myChildDefinition.getAccessor().getValues(theElement);
+			for (IBase nextValue : values) {
+				if (nextValue == null) {
+					continue;
+				}
+				for (String nextPath : nextChild.myPaths) {
+					theValues.get(nextPath).add(nextValue);
+				}
+				walk(nextChild, nextValue, theValues);
+			}
+		}
+	}
+
+	private boolean addPath(RuntimeResourceDefinition theResourceDefinition, String thePath) {
+		String[] parts = thePath.split("\\.");
+		if (parts.length < 2 || !parts[0].equals(theResourceDefinition.getName())) {
+			return false;
+		}
+
+		// Resolve the whole path before modifying the tree
+		BaseRuntimeChildDefinition[] childDefinitions = new BaseRuntimeChildDefinition[parts.length];
+		BaseRuntimeElementCompositeDefinition<?> currentDefinition = theResourceDefinition;
+		for (int i = 1; i < parts.length; i++) {
+			String nextPart = parts[i];
+			if (currentDefinition == null || !SIMPLE_PATH_PART.matcher(nextPart).matches()) {
+				return false;
+			}
+
+			BaseRuntimeChildDefinition childDefinition = currentDefinition.getChildByName(nextPart);
+			BaseRuntimeElementCompositeDefinition<?> nextDefinition = null;
+			if (childDefinition == null) {
+				// A choice element, which can't be navigated into (so must be the last part)
+				childDefinition = currentDefinition.getChildByName(nextPart + "[x]");
+				if (childDefinition == null || childDefinition.getClass() != RuntimeChildChoiceDefinition.class) {
+					return false;
+				}
+			} else if (!childDefinition.getElementName().equals(nextPart)) {
+				// e.g. "valueQuantity", which only selects one datatype of a choice element
+				return false;
+			} else if (childDefinition instanceof BaseRuntimeChildDatatypeDefinition || childDefinition instanceof RuntimeChildResourceBlockDefinition || childDefinition instanceof RuntimeChildResourceDefinition) {
+				BaseRuntimeElementDefinition<?> childElementDefinition = childDefinition.getChildByName(nextPart);
+				if (childElementDefinition instanceof BaseRuntimeElementCompositeDefinition && !(childElementDefinition instanceof RuntimeResourceDefinition)) {
+					nextDefinition = (BaseRuntimeElementCompositeDefinition<?>) childElementDefinition;
+				}
+			} else {
+				return false;
+			}
+
+			childDefinitions[i] = childDefinition;
+			currentDefinition = nextDefinition;
+		}
+
+		Node node = myRoot;
+		for (int i = 1; i < parts.length; i++) {
+			node = node.getOrCreateChild(parts[i], childDefinitions[i]);
+		}
+		node.myPaths.add(thePath);
+		return true;
+	}
+
+	private static class Node {
+
+		private final BaseRuntimeChildDefinition myChildDefinition;
+		private final Map<String, Node> myChildren = new LinkedHashMap<>();
+		private final List<String> myPaths = new ArrayList<>();
+
+		Node(BaseRuntimeChildDefinition theChildDefinition) {
+			myChildDefinition = theChildDefinition;
+		}
+
+		Node getOrCreateChild(String theName, BaseRuntimeChildDefinition theChildDefinition) {
+			return myChildren.computeIfAbsent(theName, t -> new Node(theChildDefinition));
+		}
+
+	}
+
+}
@@ -81,22 +81,51 @@ public class InMemoryResourceMatcher {
 		}
 		SearchParameterMap searchParameterMap;
 		try {
-			searchParameterMap = myMatchUrlService.translateMatchUrl(theCriteria, resourceDefinition);
+			searchParameterMap = translateCriteria(theCriteria, resourceDefinition);
 		} catch (UnsupportedOperationException e) {
 			return InMemoryMatchResult.unsupportedFromReason(InMemoryMatchResult.PARSE_FAIL);
 		}
-		searchParameterMap.clean();
-		if (searchParameterMap.getLastUpdated() != null) {
+		return match(searchParameterMap, resourceDefinition, theResource, theSearchParams);
+	}
+
+	/**
+	 * Translates the given criteria into the form used by
+	 * {@link #match(SearchParameterMap, RuntimeResourceDefinition, IBaseResource, ResourceIndexedSearchParams)}.
+	 * The returned map is not modified by matching, so it may be retained and used for any number of
+	 * matches (including concurrently) as long as the active search parameters don't change.
+	 *
+	 * @throws UnsupportedOperationException If the criteria can't be parsed
+	 */
+	public SearchParameterMap translateCriteria(String theCriteria, RuntimeResourceDefinition theResourceDefinition) {
+		SearchParameterMap retVal = myMatchUrlService.translateMatchUrl(theCriteria, theResourceDefinition);
+		retVal.clean();
+		for (Map.Entry<String, List<List<IQueryParameterType>>> entry : retVal.entrySet()) {
+			RuntimeSearchParam paramDef = mySearchParamRegistry.getActiveSearchParam(theResourceDefinition.getName(), entry.getKey());
+			if (paramDef != null && paramDef.getParamType() == RestSearchParameterTypeEnum.REFERENCE) {
+				for (List<IQueryParameterType> nextAnd : entry.getValue()) {
+					stripBaseUrlsFromReferenceParams(nextAnd);
+				}
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Same as {@link #match(String, IBaseResource, ResourceIndexedSearchParams)}, but using criteria which
+	 * were previously translated by {@link #translateCriteria(String, RuntimeResourceDefinition)}
+	 */
+	public InMemoryMatchResult match(SearchParameterMap theSearchParameterMap, RuntimeResourceDefinition theResourceDefinition, IBaseResource theResource, ResourceIndexedSearchParams theSearchParams) {
+		if (theSearchParameterMap.getLastUpdated() != null) {
 			return InMemoryMatchResult.unsupportedFromParameterAndReason(Constants.PARAM_LASTUPDATED, InMemoryMatchResult.STANDARD_PARAMETER);
 		}
-		if (searchParameterMap.containsKey(Location.SP_NEAR)) {
+		if (theSearchParameterMap.containsKey(Location.SP_NEAR)) {
 			return InMemoryMatchResult.unsupportedFromReason(InMemoryMatchResult.LOCATION_NEAR);
 		}
 
-		for (Map.Entry<String, List<List<IQueryParameterType>>> entry : searchParameterMap.entrySet()) {
+		for (Map.Entry<String, List<List<IQueryParameterType>>> entry : theSearchParameterMap.entrySet()) {
 			String theParamName = entry.getKey();
 			List<List<IQueryParameterType>> theAndOrParams = entry.getValue();
-			InMemoryMatchResult result = matchIdsWithAndOr(theParamName, theAndOrParams, resourceDefinition, theResource, theSearchParams);
+			InMemoryMatchResult result = matchIdsWithAndOr(theParamName, theAndOrParams, theResourceDefinition, theResource, theSearchParams);
 			if (!result.matched()) {
 				return result;
 			}
@@ -220,9 +249,6 @@ public class InMemoryResourceMatcher {
 	}
 
 	private boolean matchParams(String theResourceName, String theParamName, RuntimeSearchParam paramDef, List<? extends IQueryParameterType> theNextAnd, ResourceIndexedSearchParams theSearchParams) {
-		if (paramDef.getParamType() == RestSearchParameterTypeEnum.REFERENCE) {
-			stripBaseUrlsFromReferenceParams(theNextAnd);
-		}
 		return theNextAnd.stream().anyMatch(token -> theSearchParams.matchParam(theResourceName, theParamName, paramDef, token));
 	}
 
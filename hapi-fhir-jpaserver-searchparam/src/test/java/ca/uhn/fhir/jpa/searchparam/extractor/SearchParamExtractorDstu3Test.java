@@ -13,18 +13,23 @@ import ca.uhn.fhir.util.TestUtil;
 import com.google.common.collect.Sets;
 import org.hamcrest.Matchers;
 import org.hl7.fhir.dstu3.hapi.ctx.DefaultProfileValidationSupport;
+import org.hl7.fhir.dstu3.hapi.ctx.HapiWorkerContext;
 import org.hl7.fhir.dstu3.hapi.ctx.IValidationSupport;
 import org.hl7.fhir.dstu3.model.*;
+import org.hl7.fhir.dstu3.utils.FHIRPathEngine;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 public class SearchParamExtractorDstu3Test {
@@ -49,6 +54,36 @@ public class SearchParamExtractorDstu3Test {
 		assertEquals("CODE", token.getValue());
 	}
 
+	@Test
+	public void testRepeatedPathIsParsedOnce() {
+		ISearchParamRegistry searchParamRegistry = new MySearchParamRegistry();
+		SearchParamExtractorDstu3 extractor = new SearchParamExtractorDstu3(new ModelConfig(), ourCtx, ourValidationSupport, searchParamRegistry);
+		extractor.start();
+
+		FHIRPathEngine engine = new FHIRPathEngine(new HapiWorkerContext(ourCtx, ourValidationSupport));
+		AtomicInteger parseCount = new AtomicInteger();
+		Function<String, ExpressionNode> parser = t -> {
+			parseCount.incrementAndGet();
+			return engine.parse(t);
+		};
+		ExpressionNode first = extractor.getParsedExpression("Observation.category", parser);
+		ExpressionNode second = extractor.getParsedExpression("Observation.category", parser);
+		assertEquals(1, parseCount.get());
+		assertSame(first, second);
+
+		for (int i = 0; i < 3; i++) {
+			Observation obs = new Observation();
+			obs.addCategory().addCoding().setSystem("SYSTEM").setCode("CODE" + i);
+			Set<BaseResourceIndexedSearchParam> tokens = extractor.extractSearchParamTokens(obs);
+			assertEquals(1, tokens.size());
+			ResourceIndexedSearchParamToken token = (ResourceIndexedSearchParamToken) tokens.iterator().next();
+			assertEquals("category", token.getParamName());
+			assertEquals("SYSTEM", token.getSystem());
+			assertEquals("CODE" + i, token.getValue());
+		}
+		assertEquals(1, parseCount.get());
+	}
+
 	@Test
 	public void testNormalizedStringIsShortened() {
 		// String with character that will change it's length on normalization
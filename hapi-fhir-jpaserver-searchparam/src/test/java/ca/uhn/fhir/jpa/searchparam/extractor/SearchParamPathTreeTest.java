@@ -0,0 +1,134 @@
+package ca.uhn.fhir.jpa.searchparam.extractor;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.util.TestUtil;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.r4.hapi.ctx.DefaultProfileValidationSupport;
+import org.hl7.fhir.r4.hapi.ctx.HapiWorkerContext;
+import org.hl7.fhir.r4.model.*;
+import org.hl7.fhir.r4.utils.FHIRPathEngine;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+public class SearchParamPathTreeTest {
+
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(SearchParamPathTreeTest.class);
+	private static FhirContext ourCtx = FhirContext.forR4();
+
+	@Test
+	public void testPathSelection() {
+		RuntimeResourceDefinition def = ourCtx.getResourceDefinition("Observation");
+		List<String> paths = Arrays.asList(
+			"Observation.code",
+			"Observation.component.code",
+			"Observation.value",
+			"Observation.value.as(Quantity)",
+			"Observation.valueQuantity",
+			"Observation.value.code",
+			"Observation.subject.where(resolve() is Patient)",
+			"Observation.code",
+			"Patient.name",
+			"Observation.foo"
+		);
+
+		SearchParamPathTree tree = new SearchParamPathTree(def, paths, null);
+		assertEquals(Arrays.asList("Observation.code", "Observation.component.code", "Observation.value"), tree.getPaths());
+	}
+
+	@Test
+	public void testObservationMatchesFhirPath() {
+		Observation obs = new Observation();
+		obs.addIdentifier().setSystem("http://ident").setValue("1");
+		obs.addIdentifier().setSystem("http://ident").setValue("2");
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("8480-6");
+		obs.getCode().addCoding().setSystem("http://snomed.info/sct").setCode("271649006");
+		obs.addCategory().addCoding().setSystem("http://cat").setCode("vital-signs");
+		obs.setSubject(new Reference("Patient/123"));
+		obs.setEncounter(new Reference("Encounter/456"));
+		obs.setEffective(new DateTimeType("2020-01-01T10:00:00Z"));
+		obs.setValue(new Quantity().setValue(120).setSystem("http://unitsofmeasure.org").setCode("mm[Hg]"));
+		obs.addPerformer(new Reference("Practitioner/1"));
+		obs.addPerformer(new Reference("Organization/2"));
+		obs.addComponent()
+			.setCode(new CodeableConcept().addCoding(new Coding("http://loinc.org", "8480-6", null)))
+			.setValue(new Quantity().setValue(120));
+		obs.addComponent()
+			.setCode(new CodeableConcept().addCoding(new Coding("http://loinc.org", "8462-4", null)))
+			.setValue(new CodeableConcept().addCoding(new Coding("http://foo", "bar", null)));
+		obs.addComponent()
+			.setDataAbsentReason(new CodeableConcept().setText("absent"));
+
+		assertMatchesFhirPath(obs);
+	}
+
+	@Test
+	public void testPatientMatchesFhirPath() {
+		Patient patient = new Patient();
+		patient.setActive(true);
+		patient.addIdentifier().setSystem("http://ident").setValue("1");
+		patient.addName().setFamily("Simpson").addGiven("Homer").addGiven("Jay");
+		patient.addName().setFamily("Simpson").addGiven("Max").setUse(HumanName.NameUse.OLD);
+		patient.addName();
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("555-1234");
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.EMAIL).setValue("homer@example.com");
+		patient.addAddress().addLine("742 Evergreen Terrace").setCity("Springfield");
+		patient.setGender(Enumerations.AdministrativeGender.MALE);
+		patient.setBirthDateElement(new DateType("1956-05-12"));
+		patient.setDeceased(new BooleanType(false));
+		patient.addGeneralPractitioner(new Reference("Practitioner/1"));
+		patient.setManagingOrganization(new Reference("Organization/1"));
+		patient.addCommunication().getLanguage().addCoding().setSystem("urn:ietf:bcp:47").setCode("en");
+		patient.addLink().setOther(new Reference("Patient/2"));
+		patient.getMeta().addTag("http://tag", "1", null);
+
+		assertMatchesFhirPath(patient);
+	}
+
+	private void assertMatchesFhirPath(Resource theResource) {
+		RuntimeResourceDefinition def = ourCtx.getResourceDefinition(theResource);
+		List<String> allPaths = new ArrayList<>();
+		for (RuntimeSearchParam next : def.getSearchParams()) {
+			if (next.getPath() != null) {
+				for (String nextPath : next.getPath().split("\\|")) {
+					allPaths.add(nextPath.trim());
+				}
+			}
+		}
+
+		SearchParamPathTree tree = new SearchParamPathTree(def, allPaths, null);
+		ourLog.info("Tree contains {} of {} paths for {}", tree.getPaths().size(), allPaths.size(), def.getName());
+		assertThat(tree.getPaths(), not(hasItem("")));
+
+		FHIRPathEngine engine = new FHIRPathEngine(new HapiWorkerContext(ourCtx, new DefaultProfileValidationSupport()));
+		Map<String, List<IBase>> treeValues = tree.walk(theResource);
+		assertEquals(tree.getPaths().size(), treeValues.size());
+		for (String nextPath : tree.getPaths()) {
+			List<Base> expected = engine.evaluate(theResource, nextPath);
+			List<IBase> actual = treeValues.get(nextPath);
+			assertEquals(nextPath, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertSame(nextPath, expected.get(i), actual.get(i));
+			}
+		}
+	}
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+}
@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.subscription.module;
  */
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.subscription.module.subscriber.BaseResourceMessage;
 import ca.uhn.fhir.jpa.subscription.module.subscriber.IResourceMessage;
 import ca.uhn.fhir.util.ResourceReferenceInfo;
@@ -57,6 +58,13 @@ public class ResourceModifiedMessage extends BaseResourceMessage implements IRes
 	private String myPayloadId;
 	@JsonIgnore
 	private transient IBaseResource myPayloadDecoded;
+	/**
+	 * The search parameter indexes extracted from the new payload, cached here so that
+	 * extraction only happens once no matter how many subscriptions the message is
+	 * tested against
+	 */
+	@JsonIgnore
+	private transient ResourceIndexedSearchParams myNewPayloadSearchParams;
 
 	/**
 	 * Constructor
@@ -106,6 +114,14 @@ public class ResourceModifiedMessage extends BaseResourceMessage implements IRes
 		return myPayloadDecoded;
 	}
 
+	public ResourceIndexedSearchParams getNewPayloadSearchParams() {
+		return myNewPayloadSearchParams;
+	}
+
+	public void setNewPayloadSearchParams(ResourceIndexedSearchParams theNewPayloadSearchParams) {
+		myNewPayloadSearchParams = theNewPayloadSearchParams;
+	}
+
 	public OperationTypeEnum getOperationType() {
 		return myOperationType;
 	}
@@ -20,11 +20,15 @@ package ca.uhn.fhir.jpa.subscription.module.cache;
  * #L%
  */
 
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.subscription.module.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.module.CanonicalSubscriptionChannelType;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
 public class ActiveSubscription {
 	private static final Logger ourLog = LoggerFactory.getLogger(ActiveSubscription.class);
 
@@ -32,6 +36,7 @@ public class ActiveSubscription {
 	private final String myChannelName;
 	private final String myId;
 	private boolean flagForDeletion;
+	private volatile Pair<Object, SearchParameterMap> myTranslatedCriteria;
 
 	public ActiveSubscription(CanonicalSubscription theSubscription, String theChannelName) {
 		mySubscription = theSubscription;
@@ -51,8 +56,52 @@ public class ActiveSubscription {
 		return mySubscription.getCriteriaString();
 	}
 
+	/**
+	 * Returns the resource type portion of the criteria (e.g. <code>Observation</code> for
+	 * <code>Observation?code=123</code>), or <code>null</code> if the criteria are blank
+	 */
+	public String getCriteriaResourceType() {
+		String criteria = getCriteriaString();
+		if (isBlank(criteria)) {
+			return null;
+		}
+		int index = criteria.indexOf('?');
+		if (index != -1) {
+			criteria = criteria.substring(0, index);
+		}
+		return criteria;
+	}
+
 	public void setSubscription(CanonicalSubscription theCanonicalizedSubscription) {
 		mySubscription = theCanonicalizedSubscription;
+		myTranslatedCriteria = null;
+	}
+
+	/**
+	 * Returns the criteria as previously stored by {@link #setTranslatedCriteria(Object, SearchParameterMap)},
+	 * or <code>null</code> if they have not been stored or were translated from a different set
+	 * of search parameters
+	 *
+	 * @param theSource The search parameters currently in use. Compared by identity.
+	 */
+	public SearchParameterMap getTranslatedCriteria(Object theSource) {
+		Pair<Object, SearchParameterMap> translatedCriteria = myTranslatedCriteria;
+		if (translatedCriteria != null && translatedCriteria.getLeft() == theSource) {
+			return translatedCriteria.getRight();
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the criteria translated into a {@link SearchParameterMap}, so that they don't need to be
+	 * translated again for every resource tested against this subscription. The translated criteria
+	 * are discarded if the subscription is changed.
+	 *
+	 * @param theSource   The search parameters used to translate the criteria
+	 * @param theCriteria The translated criteria, which must not be modified afterward
+	 */
+	public void setTranslatedCriteria(Object theSource, SearchParameterMap theCriteria) {
+		myTranslatedCriteria = Pair.of(theSource, theCriteria);
 	}
 
 	public boolean isFlagForDeletion() {
@@ -27,10 +27,21 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Holds the active subscriptions, along with an index of the subscriptions by the
+ * resource type in their criteria so that a modified resource only needs to be
+ * tested against the subscriptions which could possibly match it.
+ * <p>
+ * Reads are lock-free. Writes are synchronized so that the index is kept consistent
+ * with the subscriptions.
+ * </p>
+ */
 class ActiveSubscriptionCache {
 	private static final Logger ourLog = LoggerFactory.getLogger(ActiveSubscriptionCache.class);
 
 	private final Map<String, ActiveSubscription> myCache = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, ActiveSubscription>> myCacheByResourceType = new ConcurrentHashMap<>();
+	private final Map<String, String> myIndexedResourceTypes = new HashMap<>();
 
 	public ActiveSubscription get(String theIdPart) {
 		return myCache.get(theIdPart);
@@ -40,12 +51,37 @@ class ActiveSubscriptionCache {
 		return Collections.unmodifiableCollection(myCache.values());
 	}
 
+	/**
+	 * Returns the subscriptions whose criteria apply to the given resource type
+	 */
+	public Collection<ActiveSubscription> getByResourceType(String theResourceType) {
+		Map<String, ActiveSubscription> subscriptions = myCacheByResourceType.get(theResourceType);
+		if (subscriptions == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableCollection(subscriptions.values());
+	}
+
 	public int size() {
 		return myCache.size();
 	}
 
-	public void put(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
+	/**
+	 * Adds the given subscription, replacing any existing subscription with the same ID. This
+	 * method must also be called after the criteria of an existing subscription are changed,
+	 * in order to update the index.
+	 */
+	public synchronized void put(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
 		myCache.put(theSubscriptionId, theActiveSubscription);
+		unindex(theSubscriptionId);
+
+		String resourceType = theActiveSubscription.getCriteriaResourceType();
+		if (resourceType != null) {
+			myCacheByResourceType
+				.computeIfAbsent(resourceType, t -> new ConcurrentHashMap<>())
+				.put(theSubscriptionId, theActiveSubscription);
+			myIndexedResourceTypes.put(theSubscriptionId, resourceType);
+		}
 	}
 
 	public synchronized ActiveSubscription remove(String theSubscriptionId) {
@@ -57,9 +93,21 @@ class ActiveSubscriptionCache {
 		}
 
 		myCache.remove(theSubscriptionId);
+		unindex(theSubscriptionId);
 		return activeSubscription;
 	}
 
+	private void unindex(String theSubscriptionId) {
+		String resourceType = myIndexedResourceTypes.remove(theSubscriptionId);
+		if (resourceType != null) {
+			Map<String, ActiveSubscription> subscriptions = myCacheByResourceType.get(resourceType);
+			subscriptions.remove(theSubscriptionId);
+			if (subscriptions.isEmpty()) {
+				myCacheByResourceType.remove(resourceType);
+			}
+		}
+	}
+
 	List<String> markAllSubscriptionsNotInCollectionForDeletionAndReturnIdsToDelete(Collection<String> theAllIds) {
 		List<String> retval = new ArrayList<>();
 		for (String next : new ArrayList<>(myCache.keySet())) {
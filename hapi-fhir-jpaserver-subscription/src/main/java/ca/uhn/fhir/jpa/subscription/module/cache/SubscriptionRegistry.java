@@ -76,6 +76,13 @@ public class SubscriptionRegistry {
 		return myActiveSubscriptionCache.getAll();
 	}
 
+	/**
+	 * Returns the active subscriptions whose criteria apply to the given resource type
+	 */
+	public Collection<ActiveSubscription> getByCriteriaResourceType(String theResourceType) {
+		return myActiveSubscriptionCache.getByResourceType(theResourceType);
+	}
+
 	private Optional<CanonicalSubscription> hasSubscription(IIdType theId) {
 		Validate.notNull(theId);
 		Validate.notBlank(theId.getIdPart());
@@ -166,6 +173,8 @@ public class SubscriptionRegistry {
 		Validate.notNull(activeSubscription);
 		CanonicalSubscription canonicalized = mySubscriptionCanonicalizer.canonicalize(theSubscription);
 		activeSubscription.setSubscription(canonicalized);
+		// The criteria may have changed, so re-index the subscription
+		myActiveSubscriptionCache.put(theId.getIdPart(), activeSubscription);
 
 		// Interceptor call: SUBSCRIPTION_AFTER_ACTIVE_SUBSCRIPTION_REGISTERED
 		HookParams params = new HookParams()
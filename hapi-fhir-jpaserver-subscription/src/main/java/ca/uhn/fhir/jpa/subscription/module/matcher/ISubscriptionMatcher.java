@@ -23,7 +23,18 @@ package ca.uhn.fhir.jpa.subscription.module.matcher;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.subscription.module.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.module.ResourceModifiedMessage;
+import ca.uhn.fhir.jpa.subscription.module.cache.ActiveSubscription;
 
 public interface ISubscriptionMatcher {
 	InMemoryMatchResult match(CanonicalSubscription subscription, ResourceModifiedMessage msg);
+
+	/**
+	 * Tests a registered subscription. Implementations may use (and store) state held by the
+	 * active subscription, such as its translated criteria, in order to avoid repeating work
+	 * for every message. By default this is the same as
+	 * {@link #match(CanonicalSubscription, ResourceModifiedMessage)}.
+	 */
+	default InMemoryMatchResult match(ActiveSubscription theActiveSubscription, ResourceModifiedMessage theMsg) {
+		return match(theActiveSubscription.getSubscription(), theMsg);
+	}
 }
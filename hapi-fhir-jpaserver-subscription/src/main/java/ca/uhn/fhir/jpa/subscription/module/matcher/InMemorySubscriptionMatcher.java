@@ -21,11 +21,19 @@ package ca.uhn.fhir.jpa.subscription.module.matcher;
  */
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.jpa.searchparam.matcher.IndexedSearchParamExtractor;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
+import ca.uhn.fhir.jpa.searchparam.registry.ISearchParamRegistry;
 import ca.uhn.fhir.jpa.subscription.module.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.module.ResourceModifiedMessage;
+import ca.uhn.fhir.jpa.subscription.module.cache.ActiveSubscription;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +46,13 @@ public class InMemorySubscriptionMatcher implements ISubscriptionMatcher {
 	@Autowired
 	private SearchParamMatcher mySearchParamMatcher;
 
+	@Autowired
+	private InMemoryResourceMatcher myInMemoryResourceMatcher;
+	@Autowired
+	private IndexedSearchParamExtractor myIndexedSearchParamExtractor;
+	@Autowired
+	private ISearchParamRegistry mySearchParamRegistry;
+
 	@Override
 	public InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg) {
 		try {
@@ -48,4 +63,41 @@ public class InMemorySubscriptionMatcher implements ISubscriptionMatcher {
 		}
 	}
 
+	/**
+	 * Matches using the criteria stored on the active subscription (translating and storing them first
+	 * if needed), and the search parameter indexes stored on the message (extracting and storing them
+	 * first if needed). This means that the criteria are only translated once for each subscription and
+	 * the indexes are only extracted once for each message.
+	 */
+	@Override
+	public InMemoryMatchResult match(ActiveSubscription theActiveSubscription, ResourceModifiedMessage theMsg) {
+		CanonicalSubscription subscription = theActiveSubscription.getSubscription();
+		try {
+			IBaseResource resource = theMsg.getNewPayload(myContext);
+			RuntimeResourceDefinition resourceDefinition = myContext.getResourceDefinition(resource);
+
+			Object searchParams = mySearchParamRegistry.getActiveSearchParams(resourceDefinition.getName());
+			SearchParameterMap criteria = theActiveSubscription.getTranslatedCriteria(searchParams);
+			if (criteria == null) {
+				try {
+					criteria = myInMemoryResourceMatcher.translateCriteria(subscription.getCriteriaString(), resourceDefinition);
+				} catch (UnsupportedOperationException e) {
+					return InMemoryMatchResult.unsupportedFromReason(InMemoryMatchResult.PARSE_FAIL);
+				}
+				theActiveSubscription.setTranslatedCriteria(searchParams, criteria);
+			}
+
+			ResourceIndexedSearchParams resourceIndexedSearchParams = theMsg.getNewPayloadSearchParams();
+			if (resourceIndexedSearchParams == null) {
+				resourceIndexedSearchParams = myIndexedSearchParamExtractor.extractIndexedSearchParams(resource, null);
+				theMsg.setNewPayloadSearchParams(resourceIndexedSearchParams);
+			}
+
+			return myInMemoryResourceMatcher.match(criteria, resourceDefinition, resource, resourceIndexedSearchParams);
+		} catch (Exception e) {
+			ourLog.error("Failure in in-memory matcher", e);
+			throw new InternalErrorException("Failure performing memory-match for resource ID[" + theMsg.getId(myContext) + "] for subscription ID[" + subscription.getIdElementString() + "]: " + e.getMessage(), e);
+		}
+	}
+
 }
@@ -26,6 +26,7 @@ import org.springframework.messaging.MessagingException;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -111,28 +112,18 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 		IIdType resourceId = theMsg.getId(myFhirContext);
 		Boolean isText = false;
 
-		Collection<ActiveSubscription> subscriptions = mySubscriptionRegistry.getAll();
+		Collection<ActiveSubscription> subscriptions = getCandidateSubscriptions(theMsg, resourceId);
 
 		ourLog.trace("Testing {} subscriptions for applicability", subscriptions.size());
 		boolean resourceMatched = false;
 
 		for (ActiveSubscription nextActiveSubscription : subscriptions) {
 
-			String nextSubscriptionId = getId(nextActiveSubscription);
-
-			if (isNotBlank(theMsg.getSubscriptionId())) {
-				if (!theMsg.getSubscriptionId().equals(nextSubscriptionId)) {
-					// TODO KHS we should use a hash to look it up instead of this full table scan
-					ourLog.debug("Ignoring subscription {} because it is not {}", nextSubscriptionId, theMsg.getSubscriptionId());
-					continue;
-				}
-			}
-
 			if (!validCriteria(nextActiveSubscription, resourceId)) {
 				continue;
 			}
 
-			InMemoryMatchResult matchResult = mySubscriptionMatcher.match(nextActiveSubscription.getSubscription(), theMsg);
+			InMemoryMatchResult matchResult = mySubscriptionMatcher.match(nextActiveSubscription, theMsg);
 			if (!matchResult.matched()) {
 				continue;
 			}
@@ -178,6 +169,28 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 		}
 	}
 
+	/**
+	 * Returns the subscriptions which could possibly match the given message, i.e. the one
+	 * named in the message (if any), or otherwise those whose criteria are for the type of
+	 * the modified resource
+	 */
+	private Collection<ActiveSubscription> getCandidateSubscriptions(ResourceModifiedMessage theMsg, IIdType theResourceId) {
+		if (isNotBlank(theMsg.getSubscriptionId())) {
+			ActiveSubscription activeSubscription = mySubscriptionRegistry.get(theMsg.getSubscriptionId());
+			if (activeSubscription == null) {
+				ourLog.debug("Subscription {} is not active", theMsg.getSubscriptionId());
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(activeSubscription);
+		}
+
+		String resourceType = theResourceId.getResourceType();
+		if (resourceType == null) {
+			return mySubscriptionRegistry.getAll();
+		}
+		return mySubscriptionRegistry.getByCriteriaResourceType(resourceType);
+	}
+
 	private boolean sendToDeliveryChannel(ActiveSubscription nextActiveSubscription, ResourceDeliveryMessage theDeliveryMsg) {
 		boolean retval = false;
 		ResourceDeliveryJsonMessage wrappedMsg = new ResourceDeliveryJsonMessage(theDeliveryMsg);
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.*;
 
 public class ActiveSubscriptionCacheTest {
@@ -32,8 +33,13 @@ public class ActiveSubscriptionCacheTest {
 	}
 
 	private ActiveSubscription buildActiveSubscription(String theId) {
+		return buildActiveSubscription(theId, null);
+	}
+
+	private ActiveSubscription buildActiveSubscription(String theId, String theCriteria) {
 		CanonicalSubscription canonicalSubscription = new CanonicalSubscription();
 		canonicalSubscription.setIdElement(new IdDt(theId));
+		canonicalSubscription.setCriteriaString(theCriteria);
 		return new ActiveSubscription(canonicalSubscription, null);
 	}
 
@@ -99,4 +105,32 @@ public class ActiveSubscriptionCacheTest {
 		assertFalse(activeSub2.isFlagForDeletion());
 	}
 
+	@Test
+	public void indexedByResourceType() {
+		ActiveSubscriptionCache activeSubscriptionCache = new ActiveSubscriptionCache();
+		ActiveSubscription activeSub1 = buildActiveSubscription(ID1, "Observation?code=123");
+		ActiveSubscription activeSub2 = buildActiveSubscription(ID2, "Patient");
+		ActiveSubscription activeSub3 = buildActiveSubscription("id3", null);
+		activeSubscriptionCache.put(ID1, activeSub1);
+		activeSubscriptionCache.put(ID2, activeSub2);
+		activeSubscriptionCache.put("id3", activeSub3);
+
+		assertThat(activeSubscriptionCache.getByResourceType("Observation"), containsInAnyOrder(activeSub1));
+		assertThat(activeSubscriptionCache.getByResourceType("Patient"), containsInAnyOrder(activeSub2));
+		assertThat(activeSubscriptionCache.getByResourceType("Encounter"), empty());
+		assertEquals(3, activeSubscriptionCache.getAll().size());
+
+		// Criteria changed
+		CanonicalSubscription updated = new CanonicalSubscription();
+		updated.setIdElement(new IdDt(ID1));
+		updated.setCriteriaString("Patient?name=smith");
+		activeSub1.setSubscription(updated);
+		activeSubscriptionCache.put(ID1, activeSub1);
+		assertThat(activeSubscriptionCache.getByResourceType("Observation"), empty());
+		assertThat(activeSubscriptionCache.getByResourceType("Patient"), containsInAnyOrder(activeSub1, activeSub2));
+
+		activeSubscriptionCache.remove(ID2);
+		assertThat(activeSubscriptionCache.getByResourceType("Patient"), containsInAnyOrder(activeSub1));
+	}
+
 }
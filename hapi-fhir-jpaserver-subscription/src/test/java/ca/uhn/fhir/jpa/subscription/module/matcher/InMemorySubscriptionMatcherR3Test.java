@@ -2,9 +2,15 @@ package ca.uhn.fhir.jpa.subscription.module.matcher;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.jpa.model.entity.ModelConfig;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
+import ca.uhn.fhir.jpa.searchparam.registry.ISearchParamRegistry;
 import ca.uhn.fhir.jpa.subscription.module.BaseSubscriptionDstu3Test;
+import ca.uhn.fhir.jpa.subscription.module.CanonicalSubscription;
+import ca.uhn.fhir.jpa.subscription.module.ResourceModifiedMessage;
+import ca.uhn.fhir.jpa.subscription.module.cache.ActiveSubscription;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.util.UrlUtil;
@@ -31,6 +37,10 @@ public class InMemorySubscriptionMatcherR3Test extends BaseSubscriptionDstu3Test
 	ModelConfig myModelConfig;
 	@Autowired
 	FhirContext myFhirContext;
+	@Autowired
+	ISubscriptionMatcher mySubscriptionMatcher;
+	@Autowired
+	ISearchParamRegistry mySearchParamRegistry;
 
 	private void assertUnsupported(IBaseResource resource, String criteria) {
 		assertFalse(mySearchParamMatcher.match(criteria, resource, null).supported());
@@ -63,6 +73,45 @@ public class InMemorySubscriptionMatcherR3Test extends BaseSubscriptionDstu3Test
 		myModelConfig.setTreatBaseUrlsAsLocal(new ModelConfig().getTreatBaseUrlsAsLocal());
 	}
 
+	@Test
+	public void testActiveSubscriptionReusesTranslatedCriteriaAndIndexes() {
+		Observation obs = new Observation();
+		obs.setId("Observation/1");
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://foo").setCode("bar");
+		ResourceModifiedMessage msg = new ResourceModifiedMessage(myFhirContext, obs, ResourceModifiedMessage.OperationTypeEnum.CREATE);
+
+		ActiveSubscription matching = buildActiveSubscription("1", "Observation?code=http://foo|bar");
+		ActiveSubscription notMatching = buildActiveSubscription("2", "Observation?status=amended");
+		Object searchParams = mySearchParamRegistry.getActiveSearchParams("Observation");
+
+		assertTrue(mySubscriptionMatcher.match(matching, msg).matched());
+		ResourceIndexedSearchParams indexes = msg.getNewPayloadSearchParams();
+		assertNotNull(indexes);
+		SearchParameterMap criteria = matching.getTranslatedCriteria(searchParams);
+		assertNotNull(criteria);
+
+		// Indexes are only extracted once per message
+		assertFalse(mySubscriptionMatcher.match(notMatching, msg).matched());
+		assertSame(indexes, msg.getNewPayloadSearchParams());
+
+		// Criteria are only translated once per subscription
+		assertTrue(mySubscriptionMatcher.match(matching, msg).matched());
+		assertSame(criteria, matching.getTranslatedCriteria(searchParams));
+
+		// Unless the subscription changes
+		matching.setSubscription(buildActiveSubscription("1", "Observation?status=amended").getSubscription());
+		assertNull(matching.getTranslatedCriteria(searchParams));
+		assertFalse(mySubscriptionMatcher.match(matching, msg).matched());
+	}
+
+	private ActiveSubscription buildActiveSubscription(String theId, String theCriteria) {
+		CanonicalSubscription subscription = new CanonicalSubscription();
+		subscription.setIdElement(new IdType("Subscription", theId));
+		subscription.setCriteriaString(theCriteria);
+		return new ActiveSubscription(subscription, null);
+	}
+
 	/**
 	 * Technically this is an invalid reference in most cases, but this shouldn't choke
 	 * the matcher in the case that it gets used.
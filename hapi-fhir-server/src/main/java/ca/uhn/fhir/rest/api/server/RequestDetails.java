@@ -18,6 +18,7 @@ import org.hl7.fhir.instance.model.api.IIdType;
 import javax.annotation.Nonnull;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -60,6 +61,7 @@ public abstract class RequestDetails {
 	private String myOperation;
 	private Map<String, String[]> myParameters;
 	private byte[] myRequestContents;
+	private boolean myRequestContentsStreamed;
 	private DeferredOperationCallback myDeferredInterceptorBroadcaster;
 	private String myRequestPath;
 	private RequestTypeEnum myRequestType;
@@ -131,6 +133,17 @@ public abstract class RequestDetails {
 
 	protected abstract byte[] getByteStreamRequestContents();
 
+	/**
+	 * Returns a stream over the contents of the request body. Subclasses which are able to
+	 * read the body without loading all of it into memory first should override this method.
+	 * The default implementation loads the body using {@link #loadRequestContents()}.
+	 *
+	 * @since 4.3.0
+	 */
+	protected InputStream getStreamRequestContents() {
+		return new ByteArrayInputStream(loadRequestContents());
+	}
+
 	/**
 	 * Return the charset as defined by the header contenttype. Return null if it is not set.
 	 */
@@ -458,13 +471,48 @@ public abstract class RequestDetails {
 		mySubRequest = theSubRequest;
 	}
 
+	/**
+	 * Loads the contents of the request body into memory (if this has not already happened)
+	 * and returns them.
+	 * <p>
+	 * Note that if the server is configured to parse request bodies directly from the request
+	 * stream (see {@link ca.uhn.fhir.rest.server.RestfulServer#setStreamIncomingContents(boolean)}),
+	 * this method can not be used once the body has been parsed unless it was also called before
+	 * the body was parsed. In that case, interceptors which need the raw request body should call
+	 * this method in the {@link Pointcut#SERVER_INCOMING_REQUEST_POST_PROCESSED} pointcut or earlier.
+	 * </p>
+	 *
+	 * @throws IllegalStateException If the request body has already been streamed without being loaded into memory
+	 */
 	public final byte[] loadRequestContents() {
 		if (myRequestContents == null) {
+			Validate.validState(!myRequestContentsStreamed, "The request body has already been read and can not be loaded again. Call loadRequestContents() before the request is processed if the raw request body is needed.");
 			myRequestContents = getByteStreamRequestContents();
 		}
 		return myRequestContents;
 	}
 
+	/**
+	 * Returns a stream over the contents of the request body. If the contents have already
+	 * been loaded into memory (by {@link #loadRequestContents()}) or replaced
+	 * (by {@link #setRequestContents(byte[])}), they are read from memory. Otherwise they are
+	 * read using {@link #getStreamRequestContents()}, which may read directly from the underlying
+	 * request without buffering, in which case the body can only be read once.
+	 *
+	 * @since 4.3.0
+	 */
+	public final InputStream loadRequestContentsAsStream() {
+		if (myRequestContents != null) {
+			return new ByteArrayInputStream(myRequestContents);
+		}
+		Validate.validState(!myRequestContentsStreamed, "The request body has already been read and can not be read again");
+		InputStream retVal = getStreamRequestContents();
+		if (myRequestContents == null) {
+			myRequestContentsStreamed = true;
+		}
+		return retVal;
+	}
+
 	public void removeParameter(String theName) {
 		Validate.notNull(theName, "theName must not be null");
 		getParameters();
@@ -24,35 +24,194 @@ import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import org.apache.commons.lang3.Validate;
 
-import java.util.LinkedHashMap;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * A paging provider which holds result lists in memory, evicting the oldest
+ * result lists first once the configured limits are reached.
+ * <p>
+ * The number of result lists held is always limited (see {@link #FifoMemoryPagingProvider(int)}).
+ * Optionally, the total number of resources held across all result lists may also
+ * be limited (see {@link #setMaximumResourceCount(long)}), as may the amount of time that
+ * each result list is held for (see {@link #setTimeToLive(long, TimeUnit)}).
+ * </p>
+ * <p>
+ * This class does not lock when storing or retrieving result lists, so it is suitable for
+ * servers handling a high rate of paging requests. Because of this, the limits may
+ * briefly be exceeded (or undershot) by a small amount while several result lists are being
+ * stored concurrently.
+ * </p>
+ */
 public class FifoMemoryPagingProvider extends BasePagingProvider implements IPagingProvider {
 
-	private LinkedHashMap<String, IBundleProvider> myBundleProviders;
-	private int mySize;
+	private final ConcurrentHashMap<String, Entry> myBundleProviders;
+	private final Queue<Entry> myInsertionOrder = new ConcurrentLinkedQueue<>();
+	private final AtomicLong myResourceCount = new AtomicLong();
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final AtomicLong myMissCount = new AtomicLong();
+	private final AtomicLong myEvictionCount = new AtomicLong();
+	private final int mySize;
+	private long myMaximumResourceCount = Long.MAX_VALUE;
+	private long myTimeToLiveMillis = Long.MAX_VALUE;
 
 	public FifoMemoryPagingProvider(int theSize) {
 		Validate.isTrue(theSize > 0, "theSize must be greater than 0");
 
 		mySize = theSize;
-		myBundleProviders = new LinkedHashMap<>(mySize);
+		myBundleProviders = new ConcurrentHashMap<>(mySize);
 	}
 
 	@Override
-	public synchronized IBundleProvider retrieveResultList(RequestDetails theRequest, String theId) {
-		return myBundleProviders.get(theId);
+	public IBundleProvider retrieveResultList(RequestDetails theRequest, String theId) {
+		Entry entry = myBundleProviders.get(theId);
+		if (entry == null) {
+			myMissCount.incrementAndGet();
+			return null;
+		}
+		if (entry.isExpired(System.currentTimeMillis())) {
+			remove(entry);
+			myMissCount.incrementAndGet();
+			return null;
+		}
+		myHitCount.incrementAndGet();
+		return entry.myBundleProvider;
 	}
 
 	@Override
-	public synchronized String storeResultList(RequestDetails theRequestDetails, IBundleProvider theList) {
-		while (myBundleProviders.size() > mySize) {
-			myBundleProviders.remove(myBundleProviders.keySet().iterator().next());
+	public String storeResultList(RequestDetails theRequestDetails, IBundleProvider theList) {
+		long now = System.currentTimeMillis();
+		long resourceCount = 1;
+		if (myMaximumResourceCount != Long.MAX_VALUE) {
+			// Only ask for the size if it is needed, since it may not be cheap for every provider
+			Integer size = theList.size();
+			if (size != null && size > 1) {
+				resourceCount = size;
+			}
 		}
+		long expiry = myTimeToLiveMillis == Long.MAX_VALUE ? Long.MAX_VALUE : now + myTimeToLiveMillis;
 
 		String key = UUID.randomUUID().toString();
-		myBundleProviders.put(key, theList);
+		Entry entry = new Entry(key, theList, resourceCount, expiry);
+		myBundleProviders.put(key, entry);
+		myResourceCount.addAndGet(resourceCount);
+		myInsertionOrder.add(entry);
+
+		evict(entry, now);
+
 		return key;
 	}
 
+	/**
+	 * Removes the oldest result lists until the limits are respected. Result lists are
+	 * evicted in the order they were stored in, which is also the order that they expire in.
+	 * The result list which was just stored is never evicted, even if it exceeds the maximum
+	 * resource count on its own, since its ID is about to be returned to the client.
+	 */
+	private void evict(Entry theNewest, long theNow) {
+		while (true) {
+			Entry oldest = myInsertionOrder.peek();
+			if (oldest == null || oldest == theNewest) {
+				break;
+			}
+			boolean overLimit = myBundleProviders.size() > mySize || myResourceCount.get() > myMaximumResourceCount;
+			if (!overLimit && !oldest.isExpired(theNow) && myBundleProviders.get(oldest.myKey) == oldest) {
+				break;
+			}
+			if (myInsertionOrder.remove(oldest)) {
+				remove(oldest);
+			}
+		}
+	}
+
+	private void remove(Entry theEntry) {
+		if (myBundleProviders.remove(theEntry.myKey, theEntry)) {
+			myResourceCount.addAndGet(-theEntry.myResourceCount);
+			myEvictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the number of times that {@link #retrieveResultList(RequestDetails, String)} has found a result list
+	 */
+	public long getHitCount() {
+		return myHitCount.get();
+	}
+
+	/**
+	 * Returns the number of times that {@link #retrieveResultList(RequestDetails, String)} has not found a
+	 * result list, either because the ID was never valid or because the result list was evicted
+	 */
+	public long getMissCount() {
+		return myMissCount.get();
+	}
+
+	/**
+	 * Returns the number of result lists which have been removed because a limit was reached or they expired
+	 */
+	public long getEvictionCount() {
+		return myEvictionCount.get();
+	}
+
+	/**
+	 * Returns the number of result lists currently held
+	 */
+	public int getResultListCount() {
+		return myBundleProviders.size();
+	}
+
+	/**
+	 * Returns the maximum total number of resources (as reported by {@link IBundleProvider#size()})
+	 * which will be held across all result lists
+	 */
+	public long getMaximumResourceCount() {
+		return myMaximumResourceCount;
+	}
+
+	/**
+	 * Sets the maximum total number of resources (as reported by {@link IBundleProvider#size()})
+	 * which will be held across all result lists. Result lists of unknown size are counted as one
+	 * resource. By default there is no limit, and only the number of result lists is limited.
+	 */
+	public FifoMemoryPagingProvider setMaximumResourceCount(long theMaximumResourceCount) {
+		Validate.isTrue(theMaximumResourceCount > 0, "theMaximumResourceCount must be greater than 0");
+		myMaximumResourceCount = theMaximumResourceCount;
+		return this;
+	}
+
+	/**
+	 * Sets the amount of time that each result list is held for after it is stored. By default,
+	 * result lists are held until they are evicted to make room for newer ones.
+	 */
+	public FifoMemoryPagingProvider setTimeToLive(long theTimeToLive, TimeUnit theTimeUnit) {
+		Validate.isTrue(theTimeToLive > 0, "theTimeToLive must be greater than 0");
+		Validate.notNull(theTimeUnit, "theTimeUnit must not be null");
+		myTimeToLiveMillis = theTimeUnit.toMillis(theTimeToLive);
+		return this;
+	}
+
+	private static class Entry {
+
+		private final String myKey;
+		private final IBundleProvider myBundleProvider;
+		private final long myResourceCount;
+		private final long myExpiry;
+
+		Entry(String theKey, IBundleProvider theBundleProvider, long theResourceCount, long theExpiry) {
+			myKey = theKey;
+			myBundleProvider = theBundleProvider;
+			myResourceCount = theResourceCount;
+			myExpiry = theExpiry;
+		}
+
+		boolean isExpired(long theNow) {
+			return theNow >= myExpiry;
+		}
+
+	}
+
 }
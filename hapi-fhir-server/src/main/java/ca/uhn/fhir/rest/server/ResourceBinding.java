@@ -21,11 +21,20 @@ package ca.uhn.fhir.rest.server;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.method.BaseMethodBinding;
 
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
 /**
  * Created by dsotnikov on 2/25/2014.
  */
@@ -35,6 +44,7 @@ public class ResourceBinding {
 
 	private String resourceName;
 	private List<BaseMethodBinding<?>> myMethodBindings = new ArrayList<>();
+	private volatile MethodBindingIndex myIndex;
 
 	public ResourceBinding() {
 	}
@@ -51,7 +61,7 @@ public class ResourceBinding {
 		}
 
 		ourLog.debug("Looking for a handler for {}", theRequest);
-		for (BaseMethodBinding<?> rm : myMethodBindings) {
+		for (BaseMethodBinding<?> rm : getIndex().getCandidates(theRequest)) {
 			if (rm.incomingServerRequestMatchesMethod(theRequest)) {
 				ourLog.debug("Handler {} matches", rm);
 				return rm;
@@ -75,10 +85,25 @@ public class ResourceBinding {
 
 	public void setMethods(List<BaseMethodBinding<?>> methods) {
 		this.myMethodBindings = methods;
+		myIndex = null;
 	}
 
 	public void addMethod(BaseMethodBinding<?> method) {
 		this.myMethodBindings.add(method);
+		myIndex = null;
+	}
+
+	/**
+	 * Returns the index of candidate bindings, building it if the bindings have changed since
+	 * it was last built
+	 */
+	private MethodBindingIndex getIndex() {
+		MethodBindingIndex retVal = myIndex;
+		if (retVal == null || !retVal.isIndexOf(myMethodBindings)) {
+			retVal = new MethodBindingIndex(myMethodBindings);
+			myIndex = retVal;
+		}
+		return retVal;
 	}
 
 	@Override
@@ -93,4 +118,80 @@ public class ResourceBinding {
 		return 0;
 	}
 
+	/**
+	 * Groups the method bindings by the request type and operation name they can possibly
+	 * match (see {@link BaseMethodBinding#getPossibleRequestTypes()} and
+	 * {@link BaseMethodBinding#getPossibleOperations()}) so that an incoming request is only
+	 * checked against the bindings that could accept it, instead of against every binding
+	 * for the resource type. Each candidate list keeps the order of the bindings it was
+	 * built from, so the first binding that matches a request is the same one that a scan
+	 * of all of the bindings would have found.
+	 */
+	private static class MethodBindingIndex {
+
+		private final List<BaseMethodBinding<?>> myMethodBindings;
+		private final int myMethodBindingCount;
+		private final Map<RequestTypeEnum, Map<String, List<BaseMethodBinding<?>>>> myCandidatesByOperation = new EnumMap<>(RequestTypeEnum.class);
+		private final Map<RequestTypeEnum, List<BaseMethodBinding<?>>> myCandidatesForOtherOperations = new EnumMap<>(RequestTypeEnum.class);
+
+		MethodBindingIndex(List<BaseMethodBinding<?>> theMethodBindings) {
+			myMethodBindings = theMethodBindings;
+			myMethodBindingCount = theMethodBindings.size();
+
+			Set<String> operations = new HashSet<>();
+			operations.add("");
+			for (BaseMethodBinding<?> next : theMethodBindings) {
+				Set<String> possibleOperations = next.getPossibleOperations();
+				if (possibleOperations != null) {
+					operations.addAll(possibleOperations);
+				}
+			}
+
+			for (RequestTypeEnum nextRequestType : RequestTypeEnum.values()) {
+				Map<String, List<BaseMethodBinding<?>>> candidatesByOperation = new HashMap<>();
+				for (String nextOperation : operations) {
+					candidatesByOperation.put(nextOperation, findCandidates(theMethodBindings, nextRequestType, nextOperation));
+				}
+				myCandidatesByOperation.put(nextRequestType, candidatesByOperation);
+				myCandidatesForOtherOperations.put(nextRequestType, findCandidates(theMethodBindings, nextRequestType, null));
+			}
+		}
+
+		boolean isIndexOf(List<BaseMethodBinding<?>> theMethodBindings) {
+			return myMethodBindings == theMethodBindings && myMethodBindingCount == theMethodBindings.size();
+		}
+
+		List<BaseMethodBinding<?>> getCandidates(RequestDetails theRequest) {
+			RequestTypeEnum requestType = theRequest.getRequestType();
+			if (requestType == null) {
+				return myMethodBindings;
+			}
+			List<BaseMethodBinding<?>> retVal = myCandidatesByOperation.get(requestType).get(defaultString(theRequest.getOperation()));
+			if (retVal == null) {
+				retVal = myCandidatesForOtherOperations.get(requestType);
+			}
+			return retVal;
+		}
+
+		/**
+		 * @param theOperation The operation name, or <code>null</code> for an operation that none of the bindings names explicitly
+		 */
+		private static List<BaseMethodBinding<?>> findCandidates(List<BaseMethodBinding<?>> theMethodBindings, RequestTypeEnum theRequestType, String theOperation) {
+			List<BaseMethodBinding<?>> retVal = new ArrayList<>();
+			for (BaseMethodBinding<?> next : theMethodBindings) {
+				Set<RequestTypeEnum> possibleRequestTypes = next.getPossibleRequestTypes();
+				if (possibleRequestTypes != null && !possibleRequestTypes.contains(theRequestType)) {
+					continue;
+				}
+				Set<String> possibleOperations = next.getPossibleOperations();
+				if (possibleOperations != null && (theOperation == null || !possibleOperations.contains(theOperation))) {
+					continue;
+				}
+				retVal.add(next);
+			}
+			return Collections.unmodifiableList(retVal);
+		}
+
+	}
+
 }
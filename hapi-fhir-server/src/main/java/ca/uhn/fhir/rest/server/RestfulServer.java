@@ -130,6 +130,7 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	private String myServerVersion = createPoweredByHeaderProductVersion();
 	private boolean myStarted;
 	private boolean myUncompressIncomingContents = true;
+	private boolean myStreamIncomingContents;
 	private ITenantIdentificationStrategy myTenantIdentificationStrategy;
 	private PreferReturnEnum myDefaultPreferReturn = DEFAULT_PREFER_RETURN;
 	private ElementsSupportEnum myElementsSupport = ElementsSupportEnum.EXTENDED;
@@ -1415,6 +1416,42 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		myUncompressIncomingContents = theUncompressIncomingContents;
 	}
 
+	/**
+	 * Should the server parse incoming request bodies directly from the request stream (default is <code>false</code>)?
+	 * If enabled, request bodies are not held in memory as raw bytes while they are parsed, which reduces the memory
+	 * used by large requests such as transaction Bundles.
+	 * <p>
+	 * Note that when this setting is enabled, the raw body of a request can only be read by calling
+	 * {@link RequestDetails#loadRequestContents()} before the body is parsed (e.g. from the
+	 * {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_INCOMING_REQUEST_POST_PROCESSED} pointcut). Calling it afterwards
+	 * throws an {@link IllegalStateException}, so this setting should only be enabled if no interceptors or
+	 * providers need the raw body later in the request.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public boolean isStreamIncomingContents() {
+		return myStreamIncomingContents;
+	}
+
+	/**
+	 * Should the server parse incoming request bodies directly from the request stream (default is <code>false</code>)?
+	 * If enabled, request bodies are not held in memory as raw bytes while they are parsed, which reduces the memory
+	 * used by large requests such as transaction Bundles.
+	 * <p>
+	 * Note that when this setting is enabled, the raw body of a request can only be read by calling
+	 * {@link RequestDetails#loadRequestContents()} before the body is parsed (e.g. from the
+	 * {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_INCOMING_REQUEST_POST_PROCESSED} pointcut). Calling it afterwards
+	 * throws an {@link IllegalStateException}, so this setting should only be enabled if no interceptors or
+	 * providers need the raw body later in the request.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public void setStreamIncomingContents(boolean theStreamIncomingContents) {
+		myStreamIncomingContents = theStreamIncomingContents;
+	}
+
 
 	public void populateRequestDetailsFromRequestPath(RequestDetails theRequestDetails, String theRequestPath) {
 		UrlPathTokenizer tok = new UrlPathTokenizer(theRequestPath);
@@ -148,6 +148,19 @@ public class LoggingInterceptor {
 		return myErrorMessageFormat;
 	}
 
+	/**
+	 * Request bodies are normally parsed directly from the request stream, so if the
+	 * message will include the request body it needs to be loaded before it is parsed
+	 */
+	@Hook(Pointcut.SERVER_INCOMING_REQUEST_POST_PROCESSED)
+	public boolean incomingRequestPostProcessed(RequestDetails theRequestDetails, HttpServletRequest theServletRequest) {
+		boolean logsRequestBody = myMessageFormat.contains("${requestBodyFhir}") || (myLogExceptions && myErrorMessageFormat.contains("${requestBodyFhir}"));
+		if (logsRequestBody && isFhirContentType(theServletRequest)) {
+			theRequestDetails.loadRequestContents();
+		}
+		return true;
+	}
+
 	@Hook(Pointcut.SERVER_HANDLE_EXCEPTION)
 	public boolean handleException(RequestDetails theRequestDetails, BaseServerResponseException theException, HttpServletRequest theServletRequest, HttpServletResponse theServletResponse) throws ServletException, IOException {
 		if (myLogExceptions) {
@@ -217,6 +230,20 @@ public class LoggingInterceptor {
 		myMessageFormat = theMessageFormat;
 	}
 
+	private static boolean isFhirContentType(HttpServletRequest theRequest) {
+		String contentType = theRequest.getContentType();
+		if (isNotBlank(contentType)) {
+			int colonIndex = contentType.indexOf(';');
+			if (colonIndex != -1) {
+				contentType = contentType.substring(0, colonIndex);
+			}
+			contentType = contentType.trim();
+
+			return EncodingEnum.forContentType(contentType) != null;
+		}
+		return false;
+	}
+
 	private static final class MyLookup implements StringLookup {
 		private final Throwable myException;
 		private final HttpServletRequest myRequest;
@@ -306,19 +333,9 @@ public class LoggingInterceptor {
 			} else if (theKey.equals("requestVerb")) {
 				return myRequest.getMethod();
 			} else if (theKey.equals("requestBodyFhir")) {
-				String contentType = myRequest.getContentType();
-				if (isNotBlank(contentType)) {
-					int colonIndex = contentType.indexOf(';');
-					if (colonIndex != -1) {
-						contentType = contentType.substring(0, colonIndex);
-					}
-					contentType = contentType.trim();
-
-					EncodingEnum encoding = EncodingEnum.forContentType(contentType);
-					if (encoding != null) {
-						byte[] requestContents = myRequestDetails.loadRequestContents();
-						return new String(requestContents, Constants.CHARSET_UTF8);
-					}
+				if (isFhirContentType(myRequest)) {
+					byte[] requestContents = myRequestDetails.loadRequestContents();
+					return new String(requestContents, Constants.CHARSET_UTF8);
 				}
 				return "";
 			} else if ("processingTimeMillis".equals(theKey)) {
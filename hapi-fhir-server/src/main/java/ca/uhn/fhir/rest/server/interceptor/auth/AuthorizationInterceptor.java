@@ -29,8 +29,11 @@ import ca.uhn.fhir.rest.api.server.IPreResourceShowDetails;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.ForbiddenOperationException;
 import ca.uhn.fhir.rest.server.interceptor.consent.ConsentInterceptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
@@ -42,6 +45,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.commons.lang3.StringUtils.defaultString;
@@ -62,6 +66,11 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 @Interceptor
 public class AuthorizationInterceptor implements IRuleApplier {
 
+	/**
+	 * The default value for {@link #setRuleListCacheMillis(long)}
+	 */
+	public static final long DEFAULT_RULE_LIST_CACHE_MILLIS = DateUtils.MILLIS_PER_MINUTE;
+	private static final int MAX_RULE_LIST_CACHE_SIZE = 10000;
 	private static final AtomicInteger ourInstanceCount = new AtomicInteger(0);
 	private static final Logger ourLog = LoggerFactory.getLogger(AuthorizationInterceptor.class);
 	private final int myInstanceIndex = ourInstanceCount.incrementAndGet();
@@ -69,6 +78,8 @@ public class AuthorizationInterceptor implements IRuleApplier {
 	private final String myRequestRuleListKey = AuthorizationInterceptor.class.getName() + "_" + myInstanceIndex + "_RULELIST";
 	private PolicyEnum myDefaultPolicy = PolicyEnum.DENY;
 	private Set<AuthorizationFlagsEnum> myFlags = Collections.emptySet();
+	private long myRuleListCacheMillis = DEFAULT_RULE_LIST_CACHE_MILLIS;
+	private Cache<String, AuthorizationRuleList> myRuleListCache = newRuleListCache(DEFAULT_RULE_LIST_CACHE_MILLIS);
 
 	/**
 	 * Constructor
@@ -101,16 +112,20 @@ public class AuthorizationInterceptor implements IRuleApplier {
 	@Override
 	public Verdict applyRulesAndReturnDecision(RestOperationTypeEnum theOperation, RequestDetails theRequestDetails, IBaseResource theInputResource, IIdType theInputResourceId,
 															 IBaseResource theOutputResource, Pointcut thePointcut) {
-		@SuppressWarnings("unchecked")
-		List<IAuthRule> rules = (List<IAuthRule>) theRequestDetails.getUserData().get(myRequestRuleListKey);
-		if (rules == null) {
-			rules = buildRuleList(theRequestDetails);
-			theRequestDetails.getUserData().put(myRequestRuleListKey, rules);
-		}
+		AuthorizationRuleList ruleList = getRuleList(theRequestDetails);
 		Set<AuthorizationFlagsEnum> flags = getFlags();
-		ourLog.trace("Applying {} rules to render an auth decision for operation {}, theInputResource type={}, theOutputResource type={} ", rules.size(), theOperation,
-			((theInputResource != null) && (theInputResource.getIdElement() != null)) ? theInputResource.getIdElement().getResourceType() : "",
-			((theOutputResource != null) && (theOutputResource.getIdElement() != null)) ? theOutputResource.getIdElement().getResourceType() : "");
+
+		List<IAuthRule> rules;
+		if (theOutputResource != null) {
+			rules = ruleList.getRulesForOutputResource(theOperation, getOutputResourceType(theRequestDetails, theOutputResource));
+		} else {
+			rules = ruleList.getRules(theOperation, false);
+		}
+		if (ourLog.isTraceEnabled()) {
+			ourLog.trace("Applying {} of {} rules to render an auth decision for operation {}, theInputResource type={}, theOutputResource type={} ", rules.size(), ruleList.getRules().size(), theOperation,
+				((theInputResource != null) && (theInputResource.getIdElement() != null)) ? theInputResource.getIdElement().getResourceType() : "",
+				((theOutputResource != null) && (theOutputResource.getIdElement() != null)) ? theOutputResource.getIdElement().getResourceType() : "");
+		}
 
 		Verdict verdict = null;
 		for (IAuthRule nextRule : rules) {
@@ -146,6 +161,102 @@ public class AuthorizationInterceptor implements IRuleApplier {
 		return new ArrayList<>();
 	}
 
+	/**
+	 * Subclasses may override this method to allow the rule list built by {@link #buildRuleList(RequestDetails)}
+	 * to be reused by later requests, for up to {@link #getRuleListCacheMillis()} milliseconds.
+	 * <p>
+	 * The key should identify whatever the rule list depends on, typically the current user (e.g. a user ID
+	 * or a hash of the bearer token). Requests that produce the same key will be given the same rule list,
+	 * so the rules must not hold on to anything that is specific to the request that built them.
+	 * The default implementation returns <code>null</code>, which means that rule lists are never cached.
+	 * </p>
+	 *
+	 * @param theRequestDetails The individual request currently being applied
+	 * @return The cache key, or <code>null</code> if the rule list for this request should not be cached
+	 * @since 4.3.0
+	 */
+	protected String getRuleListCacheKey(RequestDetails theRequestDetails) {
+		return null;
+	}
+
+	/**
+	 * The length of time that a rule list is cached for when {@link #getRuleListCacheKey(RequestDetails)} returns
+	 * a cache key. Default value for this setting is {@link #DEFAULT_RULE_LIST_CACHE_MILLIS} (one minute).
+	 *
+	 * @since 4.3.0
+	 */
+	public long getRuleListCacheMillis() {
+		return myRuleListCacheMillis;
+	}
+
+	/**
+	 * The length of time that a rule list is cached for when {@link #getRuleListCacheKey(RequestDetails)} returns
+	 * a cache key. Default value for this setting is {@link #DEFAULT_RULE_LIST_CACHE_MILLIS} (one minute).
+	 *
+	 * @param theRuleListCacheMillis The time in milliseconds, or 0 to disable caching
+	 * @since 4.3.0
+	 */
+	public AuthorizationInterceptor setRuleListCacheMillis(long theRuleListCacheMillis) {
+		Validate.isTrue(theRuleListCacheMillis >= 0, "theRuleListCacheMillis must not be negative");
+		myRuleListCacheMillis = theRuleListCacheMillis;
+		myRuleListCache = newRuleListCache(theRuleListCacheMillis);
+		return this;
+	}
+
+	/**
+	 * Discards any cached rule lists, so that the rules for each user are rebuilt by
+	 * {@link #buildRuleList(RequestDetails)} on their next request. This should be called if
+	 * user permissions change while rule list caching is enabled.
+	 *
+	 * @since 4.3.0
+	 */
+	public void clearRuleListCache() {
+		myRuleListCache.invalidateAll();
+	}
+
+	private AuthorizationRuleList getRuleList(RequestDetails theRequestDetails) {
+		AuthorizationRuleList retVal = (AuthorizationRuleList) theRequestDetails.getUserData().get(myRequestRuleListKey);
+		if (retVal == null) {
+			retVal = getCachedOrBuildRuleList(theRequestDetails);
+			theRequestDetails.getUserData().put(myRequestRuleListKey, retVal);
+		}
+		return retVal;
+	}
+
+	private AuthorizationRuleList getCachedOrBuildRuleList(RequestDetails theRequestDetails) {
+		String cacheKey = null;
+		if (myRuleListCacheMillis > 0) {
+			cacheKey = getRuleListCacheKey(theRequestDetails);
+		}
+		if (cacheKey == null) {
+			return new AuthorizationRuleList(buildRuleList(theRequestDetails));
+		}
+
+		return myRuleListCache.get(cacheKey, t -> new AuthorizationRuleList(buildRuleList(theRequestDetails)));
+	}
+
+	/**
+	 * Returns the type of an outgoing resource for looking up the rules that apply to it, or
+	 * <code>null</code> if the type in the resource's ID doesn't match its resource definition
+	 * (in which case rules can't be narrowed down by type)
+	 */
+	private String getOutputResourceType(RequestDetails theRequestDetails, IBaseResource theOutputResource) {
+		String retVal = theRequestDetails.getFhirContext().getResourceDefinition(theOutputResource).getName();
+		IIdType id = theOutputResource.getIdElement();
+		if (id == null || !retVal.equals(id.getResourceType())) {
+			return null;
+		}
+		return retVal;
+	}
+
+	private static Cache<String, AuthorizationRuleList> newRuleListCache(long theRuleListCacheMillis) {
+		return Caffeine
+			.newBuilder()
+			.maximumSize(MAX_RULE_LIST_CACHE_SIZE)
+			.expireAfterWrite(theRuleListCacheMillis, TimeUnit.MILLISECONDS)
+			.build();
+	}
+
 	private OperationExamineDirection determineOperationDirection(RestOperationTypeEnum theOperation, IBaseResource theRequestResource) {
 		switch (theOperation) {
 			case ADD_TAGS:
@@ -323,10 +434,11 @@ public class AuthorizationInterceptor implements IRuleApplier {
 
 	@Hook(Pointcut.STORAGE_PRESHOW_RESOURCES)
 	public void hookPreShow(RequestDetails theRequestDetails, IPreResourceShowDetails theDetails, Pointcut thePointcut) {
+		List<IBaseResource> resources = new ArrayList<>(theDetails.size());
 		for (int i = 0; i < theDetails.size(); i++) {
-			IBaseResource next = theDetails.getResource(i);
-			checkOutgoingResourceAndFailIfDeny(theRequestDetails, next, thePointcut);
+			resources.add(theDetails.getResource(i));
 		}
+		checkOutgoingResourcesAndFailIfDeny(theRequestDetails, resources, thePointcut);
 	}
 
 	@Hook(Pointcut.SERVER_OUTGOING_RESPONSE)
@@ -345,7 +457,18 @@ public class AuthorizationInterceptor implements IRuleApplier {
 	}
 
 	private void checkOutgoingResourceAndFailIfDeny(RequestDetails theRequestDetails, IBaseResource theResponseObject, Pointcut thePointcut) {
-		switch (determineOperationDirection(theRequestDetails.getRestOperationType(), null)) {
+		checkOutgoingResourcesAndFailIfDeny(theRequestDetails, Collections.singletonList(theResponseObject), thePointcut);
+	}
+
+	/**
+	 * Checks a batch of outgoing resources (e.g. a page of search results). The seen-resource
+	 * map is looked up once for the whole batch rather than once per resource. Each resource
+	 * is checked using {@link #applyRulesAndReturnDecision(RestOperationTypeEnum, RequestDetails, IBaseResource, IIdType, IBaseResource, Pointcut)}
+	 * so that subclasses overriding it see outgoing resources too.
+	 */
+	private void checkOutgoingResourcesAndFailIfDeny(RequestDetails theRequestDetails, List<IBaseResource> theResponseObjects, Pointcut thePointcut) {
+		RestOperationTypeEnum operation = theRequestDetails.getRestOperationType();
+		switch (determineOperationDirection(operation, null)) {
 			case IN:
 			case NONE:
 				return;
@@ -354,42 +477,48 @@ public class AuthorizationInterceptor implements IRuleApplier {
 				break;
 		}
 
-		// Don't check the value twice
 		IdentityHashMap<IBaseResource, Boolean> alreadySeenMap = ConsentInterceptor.getAlreadySeenResourcesMap(theRequestDetails, myRequestSeenResourcesKey);
-		if (alreadySeenMap.putIfAbsent(theResponseObject, Boolean.TRUE) != null) {
-			return;
-		}
-
 		FhirContext fhirContext = theRequestDetails.getServer().getFhirContext();
-		List<IBaseResource> resources = Collections.emptyList();
 
-		//noinspection EnumSwitchStatementWhichMissesCases
-		switch (theRequestDetails.getRestOperationType()) {
-			case SEARCH_SYSTEM:
-			case SEARCH_TYPE:
-			case HISTORY_INSTANCE:
-			case HISTORY_SYSTEM:
-			case HISTORY_TYPE:
-			case TRANSACTION:
-			case GET_PAGE:
-			case EXTENDED_OPERATION_SERVER:
-			case EXTENDED_OPERATION_TYPE:
-			case EXTENDED_OPERATION_INSTANCE: {
-				if (theResponseObject != null) {
-					resources = toListOfResourcesAndExcludeContainer(theResponseObject, fhirContext);
-				}
-				break;
+		for (IBaseResource nextResponseObject : theResponseObjects) {
+
+			// Don't check the value twice
+			if (alreadySeenMap.putIfAbsent(nextResponseObject, Boolean.TRUE) != null) {
+				continue;
+			}
+			if (nextResponseObject == null) {
+				continue;
 			}
-			default: {
-				if (theResponseObject != null) {
-					resources = Collections.singletonList(theResponseObject);
+
+			List<IBaseResource> resources;
+
+			//noinspection EnumSwitchStatementWhichMissesCases
+			switch (operation) {
+				case SEARCH_SYSTEM:
+				case SEARCH_TYPE:
+				case HISTORY_INSTANCE:
+				case HISTORY_SYSTEM:
+				case HISTORY_TYPE:
+				case TRANSACTION:
+				case GET_PAGE:
+				case EXTENDED_OPERATION_SERVER:
+				case EXTENDED_OPERATION_TYPE:
+				case EXTENDED_OPERATION_INSTANCE: {
+					resources = toListOfResourcesAndExcludeContainer(nextResponseObject, fhirContext);
+					break;
+				}
+				default: {
+					resources = Collections.singletonList(nextResponseObject);
+					break;
 				}
-				break;
 			}
-		}
 
-		for (IBaseResource nextResponse : resources) {
-			applyRulesAndFailIfDeny(theRequestDetails.getRestOperationType(), theRequestDetails, null, null, nextResponse, thePointcut);
+			for (IBaseResource nextResponse : resources) {
+				Verdict decision = applyRulesAndReturnDecision(operation, theRequestDetails, null, null, nextResponse, thePointcut);
+				if (decision.getDecision() != PolicyEnum.ALLOW) {
+					handleDeny(theRequestDetails, decision);
+				}
+			}
 		}
 	}
 
@@ -0,0 +1,127 @@
+package ca.uhn.fhir.rest.server.interceptor.auth;
+
+/*-
+ * #%L
+ * HAPI FHIR - Server Framework
+ * %%
+ * Copyright (C) 2014 - 2020 University Health Network
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The rule list built by {@link AuthorizationInterceptor#buildRuleList(ca.uhn.fhir.rest.api.server.RequestDetails)}
+ * for a request, along with the subset of those rules that can return a verdict for each
+ * type of operation (see {@link BaseRule#isApplicableTo(RestOperationTypeEnum, boolean)}).
+ * Outgoing resources are further indexed by resource type (see
+ * {@link BaseRule#isApplicableToOutputResourceType(String)}), since a page of results
+ * is checked one resource at a time and usually holds only a few types.
+ * Each subset keeps the order of the original list, so the first rule to return a verdict
+ * is the same one that would have been found by applying every rule.
+ * <p>
+ * Instances are thread safe, and may be shared between requests.
+ * </p>
+ */
+class AuthorizationRuleList {
+
+	private final List<IAuthRule> myRules;
+	private final Map<RestOperationTypeEnum, List<IAuthRule>> myRulesForRequest = new EnumMap<>(RestOperationTypeEnum.class);
+	private final Map<RestOperationTypeEnum, List<IAuthRule>> myRulesForOutputResource = new EnumMap<>(RestOperationTypeEnum.class);
+	private final Map<RestOperationTypeEnum, Map<String, List<IAuthRule>>> myRulesForOutputResourceByType = new EnumMap<>(RestOperationTypeEnum.class);
+
+	/**
+	 * Constructor
+	 */
+	AuthorizationRuleList(List<IAuthRule> theRules) {
+		myRules = Collections.unmodifiableList(new ArrayList<>(theRules));
+		for (RestOperationTypeEnum next : RestOperationTypeEnum.values()) {
+			myRulesForRequest.put(next, findApplicableRules(next, false));
+			myRulesForOutputResource.put(next, findApplicableRules(next, true));
+			myRulesForOutputResourceByType.put(next, new ConcurrentHashMap<>());
+		}
+	}
+
+	/**
+	 * Returns all of the rules, in their original order
+	 */
+	List<IAuthRule> getRules() {
+		return myRules;
+	}
+
+	/**
+	 * Returns the rules that could return a verdict for the given operation, in their original order
+	 *
+	 * @param theOperation          The operation, or <code>null</code> if it is not known
+	 * @param theHaveOutputResource Is an outgoing resource being authorized?
+	 */
+	List<IAuthRule> getRules(RestOperationTypeEnum theOperation, boolean theHaveOutputResource) {
+		if (theOperation == null) {
+			return myRules;
+		}
+		if (theHaveOutputResource) {
+			return myRulesForOutputResource.get(theOperation);
+		}
+		return myRulesForRequest.get(theOperation);
+	}
+
+	/**
+	 * Returns the rules that could return a verdict for an outgoing resource, in their original order
+	 *
+	 * @param theOperation    The operation, or <code>null</code> if it is not known
+	 * @param theResourceType The type of the outgoing resource, or <code>null</code> if the resource's
+	 *                        ID does not carry the same type as its resource definition
+	 */
+	List<IAuthRule> getRulesForOutputResource(RestOperationTypeEnum theOperation, String theResourceType) {
+		if (theOperation == null) {
+			return myRules;
+		}
+		List<IAuthRule> rules = myRulesForOutputResource.get(theOperation);
+		if (theResourceType == null) {
+			return rules;
+		}
+		return myRulesForOutputResourceByType.get(theOperation).computeIfAbsent(theResourceType, t -> findApplicableRules(rules, t));
+	}
+
+	private List<IAuthRule> findApplicableRules(List<IAuthRule> theRules, String theOutputResourceType) {
+		List<IAuthRule> retVal = new ArrayList<>();
+		for (IAuthRule next : theRules) {
+			if (next instanceof BaseRule && !((BaseRule) next).isApplicableToOutputResourceType(theOutputResourceType)) {
+				continue;
+			}
+			retVal.add(next);
+		}
+		return Collections.unmodifiableList(retVal);
+	}
+
+	private List<IAuthRule> findApplicableRules(RestOperationTypeEnum theOperation, boolean theHaveOutputResource) {
+		List<IAuthRule> retVal = new ArrayList<>();
+		for (IAuthRule next : myRules) {
+			if (next instanceof BaseRule && !((BaseRule) next).isApplicableTo(theOperation, theHaveOutputResource)) {
+				continue;
+			}
+			retVal.add(next);
+		}
+		return Collections.unmodifiableList(retVal);
+	}
+
+}
@@ -66,6 +66,31 @@ abstract class BaseRule implements IAuthRule {
 		return retVal;
 	}
 
+	/**
+	 * Returns <code>false</code> if this rule can never return a verdict for the given
+	 * operation, in which case {@link AuthorizationInterceptor} skips it without calling
+	 * {@link #applyRule(RestOperationTypeEnum, RequestDetails, IBaseResource, IIdType, IBaseResource, IRuleApplier, java.util.Set, ca.uhn.fhir.interceptor.api.Pointcut) applyRule(..)}.
+	 * By default this returns <code>true</code>.
+	 *
+	 * @param theOperation          The operation being authorized
+	 * @param theHaveOutputResource Is an outgoing resource being authorized (as opposed to the incoming request)?
+	 */
+	boolean isApplicableTo(RestOperationTypeEnum theOperation, boolean theHaveOutputResource) {
+		return true;
+	}
+
+	/**
+	 * Returns <code>false</code> if this rule can never return a verdict for an outgoing
+	 * resource of the given type whose ID carries that same type, in which case
+	 * {@link AuthorizationInterceptor} skips it for such resources. By default this
+	 * returns <code>true</code>.
+	 *
+	 * @param theResourceType The resource type of the outgoing resource
+	 */
+	boolean isApplicableToOutputResourceType(String theResourceType) {
+		return true;
+	}
+
 	PolicyEnum getMode() {
 		return myMode;
 	}
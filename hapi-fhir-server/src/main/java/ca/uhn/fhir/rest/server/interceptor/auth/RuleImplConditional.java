@@ -39,6 +39,11 @@ public class RuleImplConditional extends BaseRule implements IAuthRule {
 		super(theRuleName);
 	}
 
+	@Override
+	boolean isApplicableTo(RestOperationTypeEnum theOperation, boolean theHaveOutputResource) {
+		return theOperation == myOperationType;
+	}
+
 	@Override
 	public Verdict applyRule(RestOperationTypeEnum theOperation, RequestDetails theRequestDetails, IBaseResource theInputResource, IIdType theInputResourceId, IBaseResource theOutputResource,
 									 IRuleApplier theRuleApplier, Set<AuthorizationFlagsEnum> theFlags, Pointcut thePointcut) {
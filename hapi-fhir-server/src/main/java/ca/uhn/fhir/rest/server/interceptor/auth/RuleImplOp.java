@@ -79,6 +79,71 @@ class RuleImplOp extends BaseRule /* implements IAuthRule */ {
 		myAppliesToInstances = theAppliesToInstances;
 	}
 
+	@Override
+	boolean isApplicableTo(RestOperationTypeEnum theOperation, boolean theHaveOutputResource) {
+		if (myOp == null) {
+			return true;
+		}
+		switch (myOp) {
+			case READ:
+				if (theHaveOutputResource) {
+					return true;
+				}
+				switch (theOperation) {
+					case READ:
+					case VREAD:
+					case SEARCH_SYSTEM:
+					case SEARCH_TYPE:
+					case HISTORY_SYSTEM:
+					case HISTORY_TYPE:
+					case HISTORY_INSTANCE:
+					case GET_PAGE:
+						return true;
+					default:
+						return false;
+				}
+			case WRITE:
+				switch (theOperation) {
+					case CREATE:
+					case UPDATE:
+					case PATCH:
+					case ADD_TAGS:
+					case DELETE_TAGS:
+					case META_ADD:
+					case META_DELETE:
+						return true;
+					default:
+						return false;
+				}
+			case CREATE:
+				return theOperation == RestOperationTypeEnum.CREATE;
+			case DELETE:
+				return theOperation == RestOperationTypeEnum.DELETE;
+			case GRAPHQL:
+				return theOperation == RestOperationTypeEnum.GRAPHQL_REQUEST;
+			case TRANSACTION:
+				return theOperation == RestOperationTypeEnum.TRANSACTION;
+			case METADATA:
+				return theOperation == RestOperationTypeEnum.METADATA;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * An outgoing resource is checked against a READ rule for specific types using both its
+	 * resource definition (for {@link ClassifierTypeEnum#ANY_ID}) and the type in its ID (for
+	 * {@link ClassifierTypeEnum#IN_COMPARTMENT}), so when the two agree any other type gets
+	 * no verdict.
+	 */
+	@Override
+	boolean isApplicableToOutputResourceType(String theResourceType) {
+		if (myOp == RuleOpEnum.READ && myAppliesTo == AppliesTypeEnum.TYPES && myAppliesToTypes != null) {
+			return myAppliesToTypes.contains(theResourceType);
+		}
+		return true;
+	}
+
 	@Override
 	public Verdict applyRule(RestOperationTypeEnum theOperation, RequestDetails theRequestDetails, IBaseResource theInputResource, IIdType theInputResourceId, IBaseResource theOutputResource,
 									 IRuleApplier theRuleApplier, Set<AuthorizationFlagsEnum> theFlags, Pointcut thePointcut) {
@@ -480,12 +545,20 @@ class RuleImplOp extends BaseRule /* implements IAuthRule */ {
 					}
 				}
 
+				/*
+				 * The request only ever has a resource or a resource type to check (never both), so
+				 * when there is a resource we can check it against all of the compartment owners
+				 * in one pass instead of walking it once per owner
+				 */
+				if (appliesToResource != null) {
+					if (t.isSourceInCompartmentForTarget(myClassifierCompartmentName, appliesToResource, myClassifierCompartmentOwners)) {
+						foundMatch = true;
+					}
+				}
+
 				for (IIdType next : myClassifierCompartmentOwners) {
-					if (appliesToResource != null) {
-						if (t.isSourceInCompartmentForTarget(myClassifierCompartmentName, appliesToResource, next)) {
-							foundMatch = true;
-							break;
-						}
+					if (foundMatch) {
+						break;
 					}
 
 					/*
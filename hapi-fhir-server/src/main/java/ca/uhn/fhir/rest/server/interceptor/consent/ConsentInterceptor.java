@@ -33,19 +33,29 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.ResponseDetails;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.ForbiddenOperationException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.util.ICachedSearchDetails;
 import ca.uhn.fhir.util.BundleUtil;
 import ca.uhn.fhir.util.IModelVisitor2;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Interceptor
 public class ConsentInterceptor {
+	/**
+	 * The default value for {@link #setOutgoingResponseParallelThreshold(int)}
+	 */
+	public static final int DEFAULT_OUTGOING_RESPONSE_PARALLEL_THRESHOLD = 50;
 	private static final AtomicInteger ourInstanceCount = new AtomicInteger(0);
 	private final int myInstanceIndex = ourInstanceCount.incrementAndGet();
 	private final String myRequestAuthorizedKey = ConsentInterceptor.class.getName() + "_" + myInstanceIndex + "_AUTHORIZED";
@@ -54,6 +64,8 @@ public class ConsentInterceptor {
 
 	private IConsentService myConsentService;
 	private IConsentContextServices myContextConsentServices;
+	private ExecutorService myOutgoingResponseExecutor;
+	private int myOutgoingResponseParallelThreshold = DEFAULT_OUTGOING_RESPONSE_PARALLEL_THRESHOLD;
 
 	/**
 	 * Constructor
@@ -92,6 +104,53 @@ public class ConsentInterceptor {
 		myConsentService = theConsentService;
 	}
 
+	/**
+	 * @see #setOutgoingResponseExecutor(ExecutorService)
+	 * @since 4.3.0
+	 */
+	public ExecutorService getOutgoingResponseExecutor() {
+		return myOutgoingResponseExecutor;
+	}
+
+	/**
+	 * If set, the resources in large outgoing Bundles (e.g. pages of search results) are checked
+	 * by {@link IConsentService#willSeeResource(RequestDetails, IBaseResource, IConsentContextServices)}
+	 * on this executor, with one task per Bundle entry, instead of on the request thread. This
+	 * includes any resources nested inside each entry (e.g. contained resources).
+	 * <p>
+	 * The consent service must be thread safe in order to use this setting. In particular it must
+	 * not rely on thread-local state (such as a security context bound to the request thread)
+	 * or store state in {@link RequestDetails#getUserData()} while checking resources.
+	 * By default this is <code>null</code>, meaning that all checks happen on the request thread.
+	 * </p>
+	 *
+	 * @see #setOutgoingResponseParallelThreshold(int)
+	 * @since 4.3.0
+	 */
+	public void setOutgoingResponseExecutor(ExecutorService theOutgoingResponseExecutor) {
+		myOutgoingResponseExecutor = theOutgoingResponseExecutor;
+	}
+
+	/**
+	 * @see #setOutgoingResponseParallelThreshold(int)
+	 * @since 4.3.0
+	 */
+	public int getOutgoingResponseParallelThreshold() {
+		return myOutgoingResponseParallelThreshold;
+	}
+
+	/**
+	 * The minimum number of entries an outgoing Bundle must have before its entries are checked on the
+	 * {@link #setOutgoingResponseExecutor(ExecutorService) outgoing response executor}. Default value for
+	 * this setting is {@link #DEFAULT_OUTGOING_RESPONSE_PARALLEL_THRESHOLD}.
+	 *
+	 * @since 4.3.0
+	 */
+	public void setOutgoingResponseParallelThreshold(int theOutgoingResponseParallelThreshold) {
+		Validate.isTrue(theOutgoingResponseParallelThreshold > 0, "theOutgoingResponseParallelThreshold must be greater than 0");
+		myOutgoingResponseParallelThreshold = theOutgoingResponseParallelThreshold;
+	}
+
 	@Hook(value = Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
 	public void interceptPreHandled(RequestDetails theRequestDetails) {
 		ConsentOutcome outcome = myConsentService.startOperation(theRequestDetails, myContextConsentServices);
@@ -130,9 +189,19 @@ public class ConsentInterceptor {
 			return;
 		}
 
+		List<IBaseResource> resources = new ArrayList<>(thePreResourceAccessDetails.size());
 		for (int i = 0; i < thePreResourceAccessDetails.size(); i++) {
-			IBaseResource nextResource = thePreResourceAccessDetails.getResource(i);
-			ConsentOutcome nextOutcome = myConsentService.canSeeResource(theRequestDetails, nextResource, myContextConsentServices);
+			resources.add(thePreResourceAccessDetails.getResource(i));
+		}
+		if (resources.isEmpty()) {
+			return;
+		}
+
+		List<ConsentOutcome> outcomes = myConsentService.canSeeResources(theRequestDetails, resources, myContextConsentServices);
+		validateOutcomes(outcomes, resources);
+
+		for (int i = 0; i < resources.size(); i++) {
+			ConsentOutcome nextOutcome = outcomes.get(i);
 			switch (nextOutcome.getStatus()) {
 				case PROCEED:
 					break;
@@ -152,13 +221,27 @@ public class ConsentInterceptor {
 		}
 		IdentityHashMap<IBaseResource, Boolean> alreadySeenResources = getAlreadySeenResourcesMap(theRequestDetails);
 
+		List<Integer> indexes = new ArrayList<>(thePreResourceShowDetails.size());
+		List<IBaseResource> resources = new ArrayList<>(thePreResourceShowDetails.size());
 		for (int i = 0; i < thePreResourceShowDetails.size(); i++) {
 			IBaseResource nextResource = thePreResourceShowDetails.getResource(i);
 			if (alreadySeenResources.putIfAbsent(nextResource, Boolean.TRUE) != null) {
 				continue;
 			}
+			indexes.add(i);
+			resources.add(nextResource);
+		}
+		if (resources.isEmpty()) {
+			return;
+		}
 
-			ConsentOutcome nextOutcome = myConsentService.willSeeResource(theRequestDetails, nextResource, myContextConsentServices);
+		List<ConsentOutcome> outcomes = myConsentService.willSeeResources(theRequestDetails, resources, myContextConsentServices);
+		validateOutcomes(outcomes, resources);
+
+		for (int j = 0; j < resources.size(); j++) {
+			int i = indexes.get(j);
+			IBaseResource nextResource = resources.get(j);
+			ConsentOutcome nextOutcome = outcomes.get(j);
 			switch (nextOutcome.getStatus()) {
 				case PROCEED:
 					if (nextOutcome.getResource() != null) {
@@ -229,60 +312,53 @@ public class ConsentInterceptor {
 		// See child resources
 		IBaseResource outerResource = theResource.getResponseResource();
 		FhirContext ctx = theRequestDetails.getServer().getFhirContext();
-		IModelVisitor2 visitor = new IModelVisitor2() {
-			@Override
-			public boolean acceptElement(IBase theElement, List<IBase> theContainingElementPath, List<BaseRuntimeChildDefinition> theChildDefinitionPath, List<BaseRuntimeElementDefinition<?>> theElementDefinitionPath) {
+		if (myOutgoingResponseExecutor != null && outerResource instanceof IBaseBundle && countBundleEntries(ctx, (IBaseBundle) outerResource) >= myOutgoingResponseParallelThreshold) {
+			checkBundleEntriesInParallel(theRequestDetails, ctx, (IBaseBundle) outerResource, Collections.synchronizedMap(alreadySeenResources));
+		} else {
+			ctx.newTerser().visit(outerResource, new ConsentVisitor(theRequestDetails, outerResource, alreadySeenResources, null));
+		}
 
-				// Clear the total
-				if (theElement instanceof IBaseBundle) {
-					BundleUtil.setTotal(theRequestDetails.getFhirContext(), (IBaseBundle) theElement, null);
-				}
+	}
 
-				if (theElement == outerResource) {
-					return true;
-				}
-				if (theElement instanceof IBaseResource) {
-					if (alreadySeenResources.putIfAbsent((IBaseResource) theElement, Boolean.TRUE) != null) {
-						return true;
-					}
-					ConsentOutcome childOutcome = myConsentService.willSeeResource(theRequestDetails, (IBaseResource) theElement, myContextConsentServices);
-
-					IBaseResource replacementResource = null;
-					boolean shouldReplaceResource = false;
-					boolean shouldCheckChildren = false;
-
-					switch (childOutcome.getStatus()) {
-						case REJECT:
-							replacementResource = childOutcome.getOperationOutcome();
-							shouldReplaceResource = true;
-							break;
-						case PROCEED:
-						case AUTHORIZED:
-							replacementResource = childOutcome.getResource();
-							shouldReplaceResource = replacementResource != null;
-							shouldCheckChildren = childOutcome.getStatus() == ConsentOperationStatusEnum.PROCEED;
-							break;
+	/**
+	 * Walks the top level of the Bundle on the request thread, and hands each entry resource
+	 * (along with everything nested inside it) off to the executor to be checked. If any entry
+	 * fails, the checks for the remaining entries are cancelled before the failure is rethrown.
+	 */
+	private void checkBundleEntriesInParallel(RequestDetails theRequestDetails, FhirContext theCtx, IBaseBundle theBundle, Map<IBaseResource, Boolean> theAlreadySeenResources) {
+		List<Future<?>> futures = new ArrayList<>();
+		boolean completed = false;
+		try {
+			theCtx.newTerser().visit(theBundle, new ConsentVisitor(theRequestDetails, theBundle, theAlreadySeenResources, (resource, container, childDefinition) -> {
+				futures.add(myOutgoingResponseExecutor.submit(() -> {
+					ConsentVisitor visitor = new ConsentVisitor(theRequestDetails, resource, theAlreadySeenResources, null);
+					if (visitor.checkResource(resource, container, childDefinition)) {
+						theCtx.newTerser().visit(resource, visitor);
 					}
-
-					if (shouldReplaceResource) {
-						IBase container = theContainingElementPath.get(theContainingElementPath.size() - 2);
-						BaseRuntimeChildDefinition containerChildElement = theChildDefinitionPath.get(theChildDefinitionPath.size() - 1);
-						containerChildElement.getMutator().setValue(container, replacementResource);
+				}));
+			}));
+
+			for (Future<?> next : futures) {
+				try {
+					next.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InternalErrorException(e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
 					}
-
-					return shouldCheckChildren;
+					throw new InternalErrorException(e.getCause());
 				}
-
-				return true;
 			}
-
-			@Override
-			public boolean acceptUndeclaredExtension(IBaseExtension<?, ?> theNextExt, List<IBase> theContainingElementPath, List<BaseRuntimeChildDefinition> theChildDefinitionPath, List<BaseRuntimeElementDefinition<?>> theElementDefinitionPath) {
-				return true;
+			completed = true;
+		} finally {
+			if (!completed) {
+				for (Future<?> next : futures) {
+					next.cancel(true);
+				}
 			}
-		};
-		ctx.newTerser().visit(outerResource, visitor);
-
+		}
 	}
 
 	@Hook(value = Pointcut.SERVER_HANDLE_EXCEPTION)
@@ -299,6 +375,16 @@ public class ConsentInterceptor {
 		myConsentService.completeOperationSuccess(theRequest, myContextConsentServices);
 	}
 
+	private static int countBundleEntries(FhirContext theCtx, IBaseBundle theBundle) {
+		BaseRuntimeChildDefinition entryChild = theCtx.getResourceDefinition(theBundle).getChildByName("entry");
+		return entryChild.getAccessor().getValues(theBundle).size();
+	}
+
+	private static void validateOutcomes(List<ConsentOutcome> theOutcomes, List<IBaseResource> theResources) {
+		Validate.notNull(theOutcomes, "Consent service returned null outcomes");
+		Validate.isTrue(theOutcomes.size() == theResources.size(), "Consent service returned %d outcomes for %d resources", theOutcomes.size(), theResources.size());
+	}
+
 	private boolean isRequestAuthorized(RequestDetails theRequestDetails) {
 		boolean retVal = false;
 		if (theRequestDetails != null) {
@@ -318,6 +404,103 @@ public class ConsentInterceptor {
 		return alreadySeenResources;
 	}
 
+	/**
+	 * Receives each Bundle entry resource found by a {@link ConsentVisitor} that is handing entries
+	 * off to be checked elsewhere
+	 */
+	@FunctionalInterface
+	private interface IEntryResourceHandler {
+		void handle(IBaseResource theResource, IBase theContainer, BaseRuntimeChildDefinition theChildDefinition);
+	}
+
+	/**
+	 * Checks every resource nested within a root resource (e.g. contained resources and
+	 * Bundle entries) against the consent service, replacing any that the consent
+	 * service replaces or rejects
+	 */
+	private class ConsentVisitor implements IModelVisitor2 {
+
+		private final RequestDetails myRequestDetails;
+		private final IBaseResource myRootResource;
+		private final Map<IBaseResource, Boolean> myAlreadySeenResources;
+		private final IEntryResourceHandler myEntryResourceHandler;
+
+		/**
+		 * @param theEntryResourceHandler If not null, the resources in the root Bundle's entries are passed to this handler instead of being checked
+		 */
+		ConsentVisitor(RequestDetails theRequestDetails, IBaseResource theRootResource, Map<IBaseResource, Boolean> theAlreadySeenResources, IEntryResourceHandler theEntryResourceHandler) {
+			myRequestDetails = theRequestDetails;
+			myRootResource = theRootResource;
+			myAlreadySeenResources = theAlreadySeenResources;
+			myEntryResourceHandler = theEntryResourceHandler;
+		}
+
+		@Override
+		public boolean acceptElement(IBase theElement, List<IBase> theContainingElementPath, List<BaseRuntimeChildDefinition> theChildDefinitionPath, List<BaseRuntimeElementDefinition<?>> theElementDefinitionPath) {
+
+			// Clear the total
+			if (theElement instanceof IBaseBundle) {
+				BundleUtil.setTotal(myRequestDetails.getFhirContext(), (IBaseBundle) theElement, null);
+			}
+
+			if (theElement == myRootResource) {
+				return true;
+			}
+			if (theElement instanceof IBaseResource) {
+				IBase container = theContainingElementPath.get(theContainingElementPath.size() - 2);
+				BaseRuntimeChildDefinition containerChildElement = theChildDefinitionPath.get(theChildDefinitionPath.size() - 1);
+
+				// Bundle.entry.resource in the root Bundle
+				if (myEntryResourceHandler != null && theContainingElementPath.size() == 3) {
+					myEntryResourceHandler.handle((IBaseResource) theElement, container, containerChildElement);
+					return false;
+				}
+
+				return checkResource((IBaseResource) theElement, container, containerChildElement);
+			}
+
+			return true;
+		}
+
+		/**
+		 * @return Should the children of the resource be checked?
+		 */
+		boolean checkResource(IBaseResource theResource, IBase theContainer, BaseRuntimeChildDefinition theContainerChildElement) {
+			if (myAlreadySeenResources.putIfAbsent(theResource, Boolean.TRUE) != null) {
+				return true;
+			}
+			ConsentOutcome childOutcome = myConsentService.willSeeResource(myRequestDetails, theResource, myContextConsentServices);
+
+			IBaseResource replacementResource = null;
+			boolean shouldReplaceResource = false;
+			boolean shouldCheckChildren = false;
+
+			switch (childOutcome.getStatus()) {
+				case REJECT:
+					replacementResource = childOutcome.getOperationOutcome();
+					shouldReplaceResource = true;
+					break;
+				case PROCEED:
+				case AUTHORIZED:
+					replacementResource = childOutcome.getResource();
+					shouldReplaceResource = replacementResource != null;
+					shouldCheckChildren = childOutcome.getStatus() == ConsentOperationStatusEnum.PROCEED;
+					break;
+			}
+
+			if (shouldReplaceResource) {
+				theContainerChildElement.getMutator().setValue(theContainer, replacementResource);
+			}
+
+			return shouldCheckChildren;
+		}
+
+		@Override
+		public boolean acceptUndeclaredExtension(IBaseExtension<?, ?> theNextExt, List<IBase> theContainingElementPath, List<BaseRuntimeChildDefinition> theChildDefinitionPath, List<BaseRuntimeElementDefinition<?>> theElementDefinitionPath) {
+			return true;
+		}
+	}
+
 	private static ForbiddenOperationException toForbiddenOperationException(ConsentOutcome theOutcome) {
 		IBaseOperationOutcome operationOutcome = null;
 		if (theOutcome.getOperationOutcome() != null) {
@@ -24,6 +24,9 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface IConsentService {
 
 	/**
@@ -75,6 +78,32 @@ public interface IConsentService {
 	 */
 	ConsentOutcome canSeeResource(RequestDetails theRequestDetails, IBaseResource theResource, IConsentContextServices theContextServices);
 
+	/**
+	 * This method is called with a batch of resources (e.g. a page of search results) that a
+	 * user may potentially see. It has the same meaning as calling
+	 * {@link #canSeeResource(RequestDetails, IBaseResource, IConsentContextServices)} for each
+	 * resource in turn, which is what the default implementation does. Services that
+	 * need to look up consent directives for each resource may override it in order to
+	 * look them up for the whole batch at once.
+	 *
+	 * @param theRequestDetails  Contains details about the operation that is
+	 *                           beginning, including details about the request type,
+	 *                           URL, etc.
+	 * @param theResources       The resources that will be exposed
+	 * @param theContextServices An object passed in by the consent framework that
+	 *                           provides utility functions relevant to acting on
+	 *                           consent directives.
+	 * @return A list containing one outcome object for each resource, in the same order as <code>theResources</code>
+	 * @since 4.3.0
+	 */
+	default List<ConsentOutcome> canSeeResources(RequestDetails theRequestDetails, List<IBaseResource> theResources, IConsentContextServices theContextServices) {
+		List<ConsentOutcome> retVal = new ArrayList<>(theResources.size());
+		for (IBaseResource next : theResources) {
+			retVal.add(canSeeResource(theRequestDetails, next, theContextServices));
+		}
+		return retVal;
+	}
+
 	/**
 	 * This method is called if a user is about to see a resource, either completely
 	 * or partially. In other words, if the user is going to see any part of this resource
@@ -110,6 +139,32 @@ public interface IConsentService {
 	 */
 	ConsentOutcome willSeeResource(RequestDetails theRequestDetails, IBaseResource theResource, IConsentContextServices theContextServices);
 
+	/**
+	 * This method is called with a batch of resources (e.g. a page of search results) that a
+	 * user is about to see. It has the same meaning as calling
+	 * {@link #willSeeResource(RequestDetails, IBaseResource, IConsentContextServices)} for each
+	 * resource in turn, which is what the default implementation does. Services that
+	 * need to look up consent directives for each resource may override it in order to
+	 * look them up for the whole batch at once.
+	 *
+	 * @param theRequestDetails  Contains details about the operation that is
+	 *                           beginning, including details about the request type,
+	 *                           URL, etc.
+	 * @param theResources       The resources that will be exposed
+	 * @param theContextServices An object passed in by the consent framework that
+	 *                           provides utility functions relevant to acting on
+	 *                           consent directives.
+	 * @return A list containing one outcome object for each resource, in the same order as <code>theResources</code>
+	 * @since 4.3.0
+	 */
+	default List<ConsentOutcome> willSeeResources(RequestDetails theRequestDetails, List<IBaseResource> theResources, IConsentContextServices theContextServices) {
+		List<ConsentOutcome> retVal = new ArrayList<>(theResources.size());
+		for (IBaseResource next : theResources) {
+			retVal.add(willSeeResource(theRequestDetails, next, theContextServices));
+		}
+		return retVal;
+	}
+
 	/**
 	 * This method is called when an operation is complete. It can be used to perform
 	 * any necessary cleanup, flush audit events, etc.
@@ -31,6 +31,7 @@ import ca.uhn.fhir.rest.annotation.*;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.IRestfulServer;
@@ -213,6 +214,26 @@ public abstract class BaseMethodBinding<T> {
 
 	public abstract boolean incomingServerRequestMatchesMethod(RequestDetails theRequest);
 
+	/**
+	 * Returns the request types that {@link #incomingServerRequestMatchesMethod(RequestDetails)} can
+	 * possibly accept, or <code>null</code> if this binding accepts (or might accept) any request type.
+	 * This is used to narrow down the bindings that are checked for an incoming request, so it must
+	 * never leave out a request type that this binding can match.
+	 */
+	public Set<RequestTypeEnum> getPossibleRequestTypes() {
+		return null;
+	}
+
+	/**
+	 * Returns the values of {@link RequestDetails#getOperation()} that {@link #incomingServerRequestMatchesMethod(RequestDetails)}
+	 * can possibly accept, with an empty string standing for a request that has no operation, or <code>null</code>
+	 * if this binding accepts (or might accept) any operation. This is used to narrow down the bindings that
+	 * are checked for an incoming request, so it must never leave out an operation that this binding can match.
+	 */
+	public Set<String> getPossibleOperations() {
+		return null;
+	}
+
 	public abstract Object invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest) throws BaseServerResponseException, IOException;
 
 	protected final Object invokeServerMethod(IRestfulServer<?> theServer, RequestDetails theRequest, Object[] theMethodParams) {
@@ -110,6 +110,12 @@ public class ResourceParameter implements IParameter {
 				if (myMethodIsOperation) {
 					// Operations typically have a Parameters resource as the body
 					resourceTypeToParse = null;
+
+					// The body has already been parsed by the operation method binding
+					Object requestContents = theRequest.getUserData().get(OperationParameter.REQUEST_CONTENTS_USERDATA_KEY);
+					if (requestContents != null) {
+						return requestContents;
+					}
 				}
 				return parseResourceFromRequest(theRequest, theMethodBinding, resourceTypeToParse);
 		}
@@ -143,7 +149,15 @@ public class ResourceParameter implements IParameter {
 		FhirContext ctx = theRequest.getServer().getFhirContext();
 
 		final Charset charset = determineRequestCharset(theRequest);
-		Reader requestReader = createRequestReader(theRequest, charset);
+
+		/*
+		 * The body is parsed directly from the request stream unless the method also
+		 * wants the raw body, in which case it needs to be held in memory
+		 */
+		if (theMethodBinding != null && isRawBodyRequired(theMethodBinding)) {
+			theRequest.loadRequestContents();
+		}
+		Reader requestReader = new InputStreamReader(theRequest.loadRequestContentsAsStream(), charset);
 
 		RestOperationTypeEnum restOperationType = theMethodBinding != null ? theMethodBinding.getRestOperationType() : null;
 
@@ -161,7 +175,7 @@ public class ResourceParameter implements IParameter {
 				try {
 					body = IOUtils.toString(requestReader);
 				} catch (IOException e) {
-					// This shouldn't happen since we're reading from a byte array..
+					// The request body could not be read from the client
 					throw new InternalErrorException(e);
 				}
 				if (isBlank(body)) {
@@ -193,6 +207,18 @@ public class ResourceParameter implements IParameter {
 		return retVal;
 	}
 
+	private static boolean isRawBodyRequired(BaseMethodBinding<?> theMethodBinding) {
+		for (IParameter next : theMethodBinding.getParameters()) {
+			if (next instanceof ResourceParameter) {
+				Mode mode = ((ResourceParameter) next).getMode();
+				if (mode == Mode.BODY || mode == Mode.BODY_BYTE_ARRAY) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	static IBaseResource parseResourceFromRequest(RequestDetails theRequest, @Nonnull BaseMethodBinding<?> theMethodBinding, Class<? extends IBaseResource> theResourceType) {
 		if (theRequest.getResource() != null) {
 			return theRequest.getResource();
@@ -50,6 +50,8 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(SearchMethodBinding.class);
 
 	private static final Set<String> SPECIAL_SEARCH_PARAMS;
+	private static final Set<RequestTypeEnum> POSSIBLE_REQUEST_TYPES = Collections.unmodifiableSet(EnumSet.of(RequestTypeEnum.GET, RequestTypeEnum.POST));
+	private static final Set<String> POSSIBLE_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("", Constants.PARAM_SEARCH)));
 
 	static {
 		HashSet<String> specialSearchParams = new HashSet<>();
@@ -128,6 +130,16 @@ public class SearchMethodBinding extends BaseResourceReturningMethodBinding {
 		return ReturnTypeEnum.BUNDLE;
 	}
 
+	@Override
+	public Set<RequestTypeEnum> getPossibleRequestTypes() {
+		return POSSIBLE_REQUEST_TYPES;
+	}
+
+	@Override
+	public Set<String> getPossibleOperations() {
+		return POSSIBLE_OPERATIONS;
+	}
+
 	@Override
 	public boolean incomingServerRequestMatchesMethod(RequestDetails theRequest) {
 
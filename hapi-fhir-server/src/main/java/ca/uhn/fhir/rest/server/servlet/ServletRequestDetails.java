@@ -31,9 +31,10 @@ import org.apache.commons.lang3.Validate;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.*;
@@ -44,6 +45,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 public class ServletRequestDetails extends RequestDetails {
 
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ServletRequestDetails.class);
+	private static final int MAX_PREALLOCATED_CONTENT_LENGTH = 64 * 1024;
 
 	private RestfulServer myServer;
 	private HttpServletRequest myServletRequest;
@@ -57,26 +59,58 @@ public class ServletRequestDetails extends RequestDetails {
 	@Override
 	protected byte[] getByteStreamRequestContents() {
 		try {
-			InputStream inputStream = getInputStream();
-			byte[] requestContents = IOUtils.toByteArray(inputStream);
-
-			if (myServer.isUncompressIncomingContents()) {
-				String contentEncoding = myServletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING);
-				if ("gzip".equals(contentEncoding)) {
-					ourLog.debug("Uncompressing (GZip) incoming content");
-					if (requestContents.length > 0) {
-						GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(requestContents));
-						requestContents = IOUtils.toByteArray(gis);
-					}
-				}
+			if (isGzipContentEncoding()) {
+				return IOUtils.toByteArray(openRequestContents());
 			}
-			return requestContents;
+
+			// The content length is known up front for most requests, so small bodies can be read without growing (and copying) a buffer
+			return readFully(getInputStream(), myServletRequest.getContentLength());
+		} catch (IOException e) {
+			ourLog.error("Could not load request resource", e);
+			throw new InvalidRequestException(String.format("Could not load request resource: %s", e.getMessage()));
+		}
+	}
+
+	/**
+	 * If {@link RestfulServer#isStreamIncomingContents() enabled}, streams the request body directly
+	 * from the servlet request, uncompressing it as it is read if needed, so that large bodies don't
+	 * need to be held in memory before being parsed. Otherwise the body is loaded into memory first.
+	 */
+	@Override
+	protected InputStream getStreamRequestContents() {
+		if (myServer == null || !myServer.isStreamIncomingContents()) {
+			return super.getStreamRequestContents();
+		}
+		try {
+			return openRequestContents();
 		} catch (IOException e) {
 			ourLog.error("Could not load request resource", e);
 			throw new InvalidRequestException(String.format("Could not load request resource: %s", e.getMessage()));
 		}
 	}
 
+	private boolean isGzipContentEncoding() {
+		return myServer.isUncompressIncomingContents() && "gzip".equals(myServletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING));
+	}
+
+	private InputStream openRequestContents() throws IOException {
+		InputStream retVal = getInputStream();
+		if (isGzipContentEncoding()) {
+			ourLog.debug("Uncompressing (GZip) incoming content");
+
+			// An empty body is not a valid GZip stream, so only uncompress if there is something to uncompress
+			PushbackInputStream pushbackInputStream = new PushbackInputStream(retVal);
+			int firstByte = pushbackInputStream.read();
+			if (firstByte != -1) {
+				pushbackInputStream.unread(firstByte);
+				retVal = new GZIPInputStream(pushbackInputStream);
+			} else {
+				retVal = pushbackInputStream;
+			}
+		}
+		return retVal;
+	}
+
 	@Override
 	public Charset getCharset() {
 		Charset charset = null;
@@ -157,6 +191,31 @@ public class ServletRequestDetails extends RequestDetails {
 		this.myServletResponse = myServletResponse;
 	}
 
+	private static byte[] readFully(InputStream theInputStream, int theExpectedLength) throws IOException {
+		if (theExpectedLength <= 0) {
+			return IOUtils.toByteArray(theInputStream);
+		}
+
+		// The Content-Length header comes from the client, so only trust it for a limited up-front allocation
+		int initialLength = Math.min(theExpectedLength, MAX_PREALLOCATED_CONTENT_LENGTH);
+		byte[] retVal = new byte[initialLength];
+		int length = IOUtils.read(theInputStream, retVal);
+		if (length < initialLength) {
+			return Arrays.copyOf(retVal, length);
+		}
+
+		// The body is larger than the initial buffer
+		int nextByte = theInputStream.read();
+		if (nextByte == -1) {
+			return retVal;
+		}
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(initialLength * 2);
+		outputStream.write(retVal);
+		outputStream.write(nextByte);
+		IOUtils.copy(theInputStream, outputStream);
+		return outputStream.toByteArray();
+	}
+
 	public Map<String,List<String>> getHeaders() {
 		Map<String, List<String>> retVal = new HashMap<>();
 		Enumeration<String> names = myServletRequest.getHeaderNames();
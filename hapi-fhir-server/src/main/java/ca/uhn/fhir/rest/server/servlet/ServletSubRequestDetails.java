@@ -50,6 +50,33 @@ public class ServletSubRequestDetails extends ServletRequestDetails {
 		}
 	}
 
+	/**
+	 * Copy constructor - Creates a sub-request wrapping the given parent request details,
+	 * with the same headers as {@literal theSubRequestDetails}
+	 *
+	 * @param theRequestDetails    The parent request details
+	 * @param theSubRequestDetails The sub-request to copy the headers from
+	 * @since 4.3.0
+	 */
+	public ServletSubRequestDetails(ServletRequestDetails theRequestDetails, ServletSubRequestDetails theSubRequestDetails) {
+		super(theRequestDetails.getInterceptorBroadcaster());
+
+		myWrap = theRequestDetails;
+
+		for (Map.Entry<String, List<String>> next : theSubRequestDetails.myHeaders.entrySet()) {
+			myHeaders.put(next.getKey(), new ArrayList<>(next.getValue()));
+		}
+	}
+
+	/**
+	 * Returns the parent request details which this sub-request wraps
+	 *
+	 * @since 4.3.0
+	 */
+	public ServletRequestDetails getParentRequestDetails() {
+		return myWrap;
+	}
+
 	@Override
 	public HttpServletRequest getServletRequest() {
 		return myWrap.getServletRequest();
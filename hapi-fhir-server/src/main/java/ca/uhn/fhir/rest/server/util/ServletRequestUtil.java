@@ -65,6 +65,59 @@ public class ServletRequestUtil {
 		return requestDetails;
 	}
 
+	/**
+	 * Creates a copy of the given request details which can be used to process part of the
+	 * request on a different thread. The copy refers to the same servlet request and response,
+	 * but has its own {@link ServletRequestDetails#getUserData() user data} map (initially
+	 * containing the same entries as the original), since that map is not thread safe.
+	 * <p>
+	 * A {@link ServletSubRequestDetails} is copied as a {@link ServletSubRequestDetails} with
+	 * the same headers, wrapping a copy of its parent request details (so that it does not share
+	 * the parent's user data map either). Any other request details are copied as a plain
+	 * {@link ServletRequestDetails}.
+	 * </p>
+	 *
+	 * @since 4.3.0
+	 */
+	public static ServletRequestDetails copyServletRequestDetails(ServletRequestDetails theRequestDetails) {
+		ServletRequestDetails retVal;
+		if (theRequestDetails instanceof ServletSubRequestDetails) {
+			ServletSubRequestDetails subRequestDetails = (ServletSubRequestDetails) theRequestDetails;
+			ServletRequestDetails parentCopy = copyServletRequestDetails(subRequestDetails.getParentRequestDetails());
+			retVal = new ServletSubRequestDetails(parentCopy, subRequestDetails);
+		} else {
+			retVal = new ServletRequestDetails(theRequestDetails.getInterceptorBroadcaster());
+		}
+		retVal.setServer(theRequestDetails.getServer());
+		retVal.setServletRequest(theRequestDetails.getServletRequest());
+		retVal.setServletResponse(theRequestDetails.getServletResponse());
+		retVal.setTenantId(theRequestDetails.getTenantId());
+		retVal.setCompartmentName(theRequestDetails.getCompartmentName());
+		retVal.setCompleteUrl(theRequestDetails.getCompleteUrl());
+		retVal.setFhirServerBase(theRequestDetails.getFhirServerBase());
+		retVal.setId(theRequestDetails.getId());
+		retVal.setOperation(theRequestDetails.getOperation());
+		if (theRequestDetails.getParameters() != null) {
+			retVal.setParameters(new HashMap<>(theRequestDetails.getParameters()));
+		}
+		if (theRequestDetails.getRequestPath() != null) {
+			retVal.setRequestPath(theRequestDetails.getRequestPath());
+		}
+		retVal.setRequestType(theRequestDetails.getRequestType());
+		retVal.setResourceName(theRequestDetails.getResourceName());
+		retVal.setRespondGzip(theRequestDetails.isRespondGzip());
+		retVal.setRestOperationType(theRequestDetails.getRestOperationType());
+		retVal.setSecondaryOperation(theRequestDetails.getSecondaryOperation());
+		retVal.setSubRequest(theRequestDetails.isSubRequest());
+		retVal.setResource(theRequestDetails.getResource());
+		retVal.setRequestId(theRequestDetails.getRequestId());
+		retVal.setFixedConditionalUrl(theRequestDetails.getFixedConditionalUrl());
+		if (theRequestDetails.getUserData() != null) {
+			retVal.getUserData().putAll(theRequestDetails.getUserData());
+		}
+		return retVal;
+	}
+
 	public static String extractUrl(ServletRequestDetails theRequestDetails) {
 		StringBuilder b = new StringBuilder();
 		for (Map.Entry<String, String[]> next : theRequestDetails.getParameters().entrySet()) {
@@ -0,0 +1,116 @@
+package ca.uhn.fhir.rest.server;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class FifoMemoryPagingProviderTest {
+
+	@Test
+	public void testEvictOldestWhenFull() {
+		FifoMemoryPagingProvider provider = new FifoMemoryPagingProvider(2);
+		IBundleProvider list0 = newList(1);
+		IBundleProvider list1 = newList(1);
+		IBundleProvider list2 = newList(1);
+
+		String id0 = provider.storeResultList(null, list0);
+		String id1 = provider.storeResultList(null, list1);
+		String id2 = provider.storeResultList(null, list2);
+
+		assertNull(provider.retrieveResultList(null, id0));
+		assertSame(list1, provider.retrieveResultList(null, id1));
+		assertSame(list2, provider.retrieveResultList(null, id2));
+		assertNull(provider.retrieveResultList(null, "FOO"));
+
+		assertEquals(2, provider.getResultListCount());
+		assertEquals(2, provider.getHitCount());
+		assertEquals(2, provider.getMissCount());
+		assertEquals(1, provider.getEvictionCount());
+	}
+
+	@Test
+	public void testEvictWhenMaximumResourceCountReached() {
+		FifoMemoryPagingProvider provider = new FifoMemoryPagingProvider(100);
+		provider.setMaximumResourceCount(10);
+
+		String id0 = provider.storeResultList(null, newList(4));
+		String id1 = provider.storeResultList(null, newList(4));
+		assertEquals(2, provider.getResultListCount());
+
+		String id2 = provider.storeResultList(null, newList(4));
+		assertNull(provider.retrieveResultList(null, id0));
+		assertTrue(provider.retrieveResultList(null, id1) != null);
+		assertTrue(provider.retrieveResultList(null, id2) != null);
+
+		// A result list which is too big on its own is still held until the next one is stored
+		String id3 = provider.storeResultList(null, newList(20));
+		assertEquals(1, provider.getResultListCount());
+		assertTrue(provider.retrieveResultList(null, id3) != null);
+
+		provider.storeResultList(null, newList(1));
+		assertNull(provider.retrieveResultList(null, id3));
+		assertEquals(4, provider.getEvictionCount());
+	}
+
+	@Test
+	public void testTimeToLive() throws InterruptedException {
+		FifoMemoryPagingProvider provider = new FifoMemoryPagingProvider(10);
+		provider.setTimeToLive(50, TimeUnit.MILLISECONDS);
+
+		String id0 = provider.storeResultList(null, newList(1));
+		assertTrue(provider.retrieveResultList(null, id0) != null);
+
+		Thread.sleep(100);
+		assertNull(provider.retrieveResultList(null, id0));
+		assertEquals(0, provider.getResultListCount());
+		assertEquals(1, provider.getEvictionCount());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		FifoMemoryPagingProvider provider = new FifoMemoryPagingProvider(50);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 8; thread++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						IBundleProvider list = newList(1);
+						String id = provider.storeResultList(null, list);
+						IBundleProvider retrieved = provider.retrieveResultList(null, id);
+						assertTrue(retrieved == null || retrieved == list);
+					}
+				}));
+			}
+			for (Future<?> next : futures) {
+				next.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertTrue(provider.getResultListCount() <= 50);
+		assertEquals(8000, provider.getHitCount() + provider.getMissCount());
+		assertEquals(8000 - provider.getResultListCount(), provider.getEvictionCount());
+	}
+
+	private static IBundleProvider newList(int theSize) {
+		List<IBaseResource> resources = new ArrayList<>(Collections.nCopies(theSize, mock(IBaseResource.class)));
+		return new SimpleBundleProvider(resources);
+	}
+
+}
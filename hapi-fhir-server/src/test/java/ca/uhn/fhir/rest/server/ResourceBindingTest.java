@@ -0,0 +1,92 @@
+package ca.uhn.fhir.rest.server;
+
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.method.BaseMethodBinding;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceBindingTest {
+
+	@Test
+	public void testGetMethodOnlyChecksCandidateBindings() {
+		BaseMethodBinding<?> create = createBinding(EnumSet.of(RequestTypeEnum.POST), Collections.singleton(""), true);
+		BaseMethodBinding<?> search = createBinding(EnumSet.of(RequestTypeEnum.GET, RequestTypeEnum.POST), new HashSet<>(Arrays.asList("", "_search")), true);
+		BaseMethodBinding<?> operation = createBinding(EnumSet.of(RequestTypeEnum.GET, RequestTypeEnum.POST), Collections.singleton("$foo"), true);
+
+		ResourceBinding binding = new ResourceBinding("Patient", Arrays.asList(create, search, operation));
+
+		assertSame(search, binding.getMethod(createRequest(RequestTypeEnum.GET, null)));
+		assertSame(create, binding.getMethod(createRequest(RequestTypeEnum.POST, null)));
+		assertSame(search, binding.getMethod(createRequest(RequestTypeEnum.POST, "_search")));
+		assertSame(operation, binding.getMethod(createRequest(RequestTypeEnum.GET, "$foo")));
+		assertNull(binding.getMethod(createRequest(RequestTypeEnum.GET, "$bar")));
+		assertNull(binding.getMethod(createRequest(RequestTypeEnum.DELETE, null)));
+
+		// Each of these was only asked about the one request it could have accepted
+		verify(create, times(1)).incomingServerRequestMatchesMethod(any());
+		verify(operation, times(1)).incomingServerRequestMatchesMethod(any());
+	}
+
+	@Test
+	public void testGetMethodKeepsBindingOrder() {
+		BaseMethodBinding<?> wildcard = createBinding(null, null, false);
+		BaseMethodBinding<?> operation = createBinding(EnumSet.of(RequestTypeEnum.GET, RequestTypeEnum.POST), Collections.singleton("$foo"), true);
+		BaseMethodBinding<?> anyOperation = createBinding(EnumSet.of(RequestTypeEnum.GET), null, true);
+
+		ResourceBinding binding = new ResourceBinding("Patient", Arrays.asList(wildcard, operation, anyOperation));
+
+		assertSame(operation, binding.getMethod(createRequest(RequestTypeEnum.GET, "$foo")));
+		assertSame(anyOperation, binding.getMethod(createRequest(RequestTypeEnum.GET, "$bar")));
+		assertSame(anyOperation, binding.getMethod(createRequest(RequestTypeEnum.GET, null)));
+		assertNull(binding.getMethod(createRequest(RequestTypeEnum.PUT, null)));
+
+		when(wildcard.incomingServerRequestMatchesMethod(any())).thenReturn(true);
+		assertSame(wildcard, binding.getMethod(createRequest(RequestTypeEnum.GET, "$foo")));
+		assertSame(wildcard, binding.getMethod(createRequest(RequestTypeEnum.PUT, null)));
+	}
+
+	@Test
+	public void testGetMethodAfterAddMethod() {
+		BaseMethodBinding<?> search = createBinding(EnumSet.of(RequestTypeEnum.GET, RequestTypeEnum.POST), new HashSet<>(Arrays.asList("", "_search")), true);
+
+		ResourceBinding binding = new ResourceBinding();
+		binding.setResourceName("Patient");
+		binding.addMethod(search);
+		assertNull(binding.getMethod(createRequest(RequestTypeEnum.GET, "$foo")));
+
+		BaseMethodBinding<?> operation = createBinding(EnumSet.of(RequestTypeEnum.GET, RequestTypeEnum.POST), Collections.singleton("$foo"), true);
+		binding.addMethod(operation);
+		assertSame(operation, binding.getMethod(createRequest(RequestTypeEnum.GET, "$foo")));
+		assertSame(search, binding.getMethod(createRequest(RequestTypeEnum.GET, null)));
+	}
+
+	private static BaseMethodBinding<?> createBinding(Set<RequestTypeEnum> theRequestTypes, Set<String> theOperations, boolean theMatches) {
+		BaseMethodBinding<?> retVal = mock(BaseMethodBinding.class);
+		when(retVal.getPossibleRequestTypes()).thenReturn(theRequestTypes);
+		when(retVal.getPossibleOperations()).thenReturn(theOperations);
+		when(retVal.incomingServerRequestMatchesMethod(any())).thenReturn(theMatches);
+		return retVal;
+	}
+
+	private static RequestDetails createRequest(RequestTypeEnum theRequestType, String theOperation) {
+		RequestDetails retVal = mock(RequestDetails.class);
+		when(retVal.getRequestType()).thenReturn(theRequestType);
+		when(retVal.getOperation()).thenReturn(theOperation);
+		return retVal;
+	}
+
+}
@@ -0,0 +1,190 @@
+package ca.uhn.fhir.rest.server.servlet;
+
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.server.RestfulServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests of {@link ServletRequestDetails}.
+ */
+public class ServletRequestDetailsTest {
+	private static final String BODY = "{\"resourceType\":\"Patient\",\"active\":true}";
+
+	@Mock
+	private RestfulServer server;
+
+	@Mock
+	private HttpServletRequest servletRequest;
+
+	private ServletRequestDetails requestDetails;
+
+	@Rule
+	public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+	@Before
+	public void init() {
+		Mockito.when(server.isUncompressIncomingContents()).thenReturn(true);
+
+		requestDetails = new ServletRequestDetails(mock(IInterceptorBroadcaster.class));
+		requestDetails.setServer(server);
+		requestDetails.setServletRequest(servletRequest);
+	}
+
+	@Test
+	public void loadRequestContentsWithContentLength() throws IOException {
+		byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+		setBody(body);
+		Mockito.when(servletRequest.getContentLength()).thenReturn(body.length);
+
+		assertArrayEquals(body, requestDetails.loadRequestContents());
+		assertEquals(BODY, IOUtils.toString(requestDetails.loadRequestContentsAsStream(), StandardCharsets.UTF_8));
+		assertEquals(BODY, IOUtils.toString(requestDetails.loadRequestContentsAsStream(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void loadRequestContentsWithIncorrectContentLength() throws IOException {
+		byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+		setBody(body);
+		Mockito.when(servletRequest.getContentLength()).thenReturn(10);
+		assertArrayEquals(body, requestDetails.loadRequestContents());
+
+		init();
+		setBody(body);
+		Mockito.when(servletRequest.getContentLength()).thenReturn(body.length + 10);
+		assertArrayEquals(body, requestDetails.loadRequestContents());
+	}
+
+	@Test
+	public void loadRequestContentsWithContentLengthMuchLargerThanBody() throws IOException {
+		byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+		setBody(body);
+		Mockito.when(servletRequest.getContentLength()).thenReturn(Integer.MAX_VALUE);
+
+		assertArrayEquals(body, requestDetails.loadRequestContents());
+	}
+
+	@Test
+	public void loadRequestContentsLargerThanPreallocatedBuffer() throws IOException {
+		byte[] body = new byte[1000 * 1000];
+		Arrays.fill(body, (byte) 'A');
+		setBody(body);
+		Mockito.when(servletRequest.getContentLength()).thenReturn(body.length);
+
+		assertArrayEquals(body, requestDetails.loadRequestContents());
+	}
+
+	@Test
+	public void loadRequestContentsGzip() throws IOException {
+		setBody(gzip(BODY));
+		Mockito.when(servletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING)).thenReturn("gzip");
+
+		assertEquals(BODY, new String(requestDetails.loadRequestContents(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void streamRequestContentsDisabledByDefault() throws IOException {
+		setBody(BODY.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(BODY, IOUtils.toString(requestDetails.loadRequestContentsAsStream(), StandardCharsets.UTF_8));
+
+		// The body was buffered, so it can still be loaded after it has been parsed
+		assertEquals(BODY, new String(requestDetails.loadRequestContents(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void streamRequestContentsGzip() throws IOException {
+		Mockito.when(server.isStreamIncomingContents()).thenReturn(true);
+		setBody(gzip(BODY));
+		Mockito.when(servletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING)).thenReturn("gzip");
+
+		assertEquals(BODY, IOUtils.toString(requestDetails.loadRequestContentsAsStream(), StandardCharsets.UTF_8));
+
+		// The body was not held in memory, so it can't be loaded again
+		try {
+			requestDetails.loadRequestContents();
+			fail();
+		} catch (IllegalStateException e) {
+			// good
+		}
+	}
+
+	@Test
+	public void streamRequestContentsGzipEmptyBody() throws IOException {
+		Mockito.when(server.isStreamIncomingContents()).thenReturn(true);
+		setBody(new byte[0]);
+		Mockito.when(servletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING)).thenReturn("gzip");
+
+		assertEquals("", IOUtils.toString(requestDetails.loadRequestContentsAsStream(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void streamRequestContentsAfterSetRequestContents() throws IOException {
+		setBody(BODY.getBytes(StandardCharsets.UTF_8));
+		requestDetails.setRequestContents("replaced".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("replaced", IOUtils.toString(requestDetails.loadRequestContentsAsStream(), StandardCharsets.UTF_8));
+	}
+
+	private void setBody(byte[] theBody) throws IOException {
+		Mockito.when(servletRequest.getInputStream()).thenReturn(new ByteArrayServletInputStream(theBody));
+	}
+
+	private static byte[] gzip(String theBody) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+			gos.write(theBody.getBytes(StandardCharsets.UTF_8));
+		}
+		return bos.toByteArray();
+	}
+
+	private static class ByteArrayServletInputStream extends ServletInputStream {
+		private final ByteArrayInputStream myInputStream;
+
+		ByteArrayServletInputStream(byte[] theBytes) {
+			myInputStream = new ByteArrayInputStream(theBytes);
+		}
+
+		@Override
+		public boolean isFinished() {
+			return myInputStream.available() == 0;
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setReadListener(ReadListener theReadListener) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int read() {
+			return myInputStream.read();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package ca.uhn.fhir.rest.server.util;
+
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletSubRequestDetails;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServletRequestUtilTest {
+
+	@Test
+	public void testCopyServletRequestDetails() {
+		ServletRequestDetails requestDetails = newRequestDetails();
+		requestDetails.setResourceName("Patient");
+		requestDetails.getUserData().put("foo", "bar");
+
+		ServletRequestDetails copy = ServletRequestUtil.copyServletRequestDetails(requestDetails);
+
+		assertSame(ServletRequestDetails.class, copy.getClass());
+		assertFalse(copy.isSubRequest());
+		assertEquals("Patient", copy.getResourceName());
+		assertSame(requestDetails.getServletRequest(), copy.getServletRequest());
+		assertEquals("bar", copy.getUserData().get("foo"));
+
+		copy.getUserData().put("foo", "baz");
+		assertEquals("bar", requestDetails.getUserData().get("foo"));
+	}
+
+	@Test
+	public void testCopyServletSubRequestDetails() {
+		ServletRequestDetails parent = newRequestDetails();
+		parent.getUserData().put("foo", "bar");
+		ServletSubRequestDetails subRequestDetails = new ServletSubRequestDetails(parent);
+		subRequestDetails.setResourceName("Patient");
+		subRequestDetails.addHeader("If-None-Exist", "Patient?identifier=123");
+
+		ServletRequestDetails copy = ServletRequestUtil.copyServletRequestDetails(subRequestDetails);
+
+		assertSame(ServletSubRequestDetails.class, copy.getClass());
+		assertTrue(copy.isSubRequest());
+		assertEquals("Patient", copy.getResourceName());
+		assertEquals("Patient?identifier=123", copy.getHeader("If-None-Exist"));
+		assertSame(parent.getServletRequest(), copy.getServletRequest());
+
+		ServletRequestDetails parentCopy = ((ServletSubRequestDetails) copy).getParentRequestDetails();
+		assertNotSame(parent, parentCopy);
+		assertEquals("bar", copy.getUserData().get("foo"));
+
+		copy.getUserData().put("foo", "baz");
+		assertEquals("bar", parent.getUserData().get("foo"));
+
+		((ServletSubRequestDetails) copy).addHeader("If-None-Exist", "Patient?identifier=456");
+		assertEquals(1, subRequestDetails.getHeaders("If-None-Exist").size());
+	}
+
+	@Test
+	public void testCopySubclassAsPlainRequestDetails() {
+		ServletRequestDetails requestDetails = new ServletRequestDetails(mock(IInterceptorBroadcaster.class)) {
+		};
+		requestDetails.setResourceName("Patient");
+		requestDetails.getUserData().put("foo", "bar");
+
+		ServletRequestDetails copy = ServletRequestUtil.copyServletRequestDetails(requestDetails);
+
+		assertSame(ServletRequestDetails.class, copy.getClass());
+		assertEquals("Patient", copy.getResourceName());
+		assertEquals("bar", copy.getUserData().get("foo"));
+	}
+
+	private ServletRequestDetails newRequestDetails() {
+		HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+		when(servletRequest.getHeaderNames()).thenReturn(Collections.emptyEnumeration());
+
+		ServletRequestDetails retVal = new ServletRequestDetails(mock(IInterceptorBroadcaster.class));
+		retVal.setServletRequest(servletRequest);
+		return retVal;
+	}
+
+}
@@ -0,0 +1,264 @@
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.TestUtil;
+import org.apache.commons.io.IOUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks that parsing with {@link ca.uhn.fhir.parser.json.JacksonStructure} (enabled
+ * by {@link ca.uhn.fhir.context.ParserOptions#setUseStreamingJsonParser(boolean)})
+ * gives the same resources as the default Gson based parsing
+ */
+public class JsonParserStreamingR4Test {
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(JsonParserStreamingR4Test.class);
+	private static FhirContext ourCtx = FhirContext.forR4();
+	private static FhirContext ourStreamingCtx = FhirContext.forR4();
+
+	static {
+		ourStreamingCtx.getParserOptions().setUseStreamingJsonParser(true);
+	}
+
+	@Test
+	public void testExtensions() {
+		String input = "{" +
+			"\"resourceType\":\"Patient\"," +
+			"\"id\":\"123\"," +
+			"\"meta\":{\"versionId\":\"2\",\"lastUpdated\":\"2020-01-01T10:00:00.000-05:00\",\"tag\":[{\"system\":\"http://tags\",\"code\":\"TAG\"}]}," +
+			"\"extension\":[" +
+			"{\"url\":\"http://ext/string\",\"valueString\":\"A \\\"quoted\\\" string \\u00e9\"}," +
+			"{\"url\":\"http://ext/nested\",\"extension\":[{\"url\":\"child\",\"valueInteger\":-5},{\"url\":\"child2\",\"valueCoding\":{\"system\":\"http://sys\",\"code\":\"C\"}}]}" +
+			"]," +
+			"\"modifierExtension\":[{\"url\":\"http://ext/modifier\",\"valueBoolean\":false}]," +
+			"\"active\":true," +
+			"\"name\":[{\"family\":\"Smith\",\"given\":[\"John\",\"Q\"]}]" +
+			"}";
+
+		Patient patient = assertParsesIdentically(Patient.class, input);
+		assertEquals("A \"quoted\" string \u00e9", patient.getExtensionByUrl("http://ext/string").getValueAsPrimitive().getValueAsString());
+		assertEquals(2, patient.getExtensionByUrl("http://ext/nested").getExtension().size());
+	}
+
+	@Test
+	public void testPrimitivesWithElementSiblings() {
+		String input = "{" +
+			"\"resourceType\":\"Patient\"," +
+			"\"birthDate\":\"1970-01-01\"," +
+			"\"_birthDate\":{\"id\":\"bd\",\"extension\":[{\"url\":\"http://hl7.org/fhir/StructureDefinition/patient-birthTime\",\"valueDateTime\":\"1970-01-01T10:00:00-05:00\"}]}," +
+			"\"_gender\":{\"extension\":[{\"url\":\"http://ext/no-value\",\"valueString\":\"only an extension\"}]}," +
+			"\"name\":[{" +
+			"\"given\":[\"A\",null,\"C\"]," +
+			"\"_given\":[null,{\"extension\":[{\"url\":\"http://ext/given\",\"valueString\":\"B\"}]},{\"id\":\"c\"}]" +
+			"}]" +
+			"}";
+
+		Patient patient = assertParsesIdentically(Patient.class, input);
+		assertEquals("bd", patient.getBirthDateElement().getId());
+		assertEquals(3, patient.getNameFirstRep().getGiven().size());
+		assertEquals(null, patient.getNameFirstRep().getGiven().get(1).getValue());
+		assertEquals(1, patient.getGenderElement().getExtension().size());
+	}
+
+	@Test
+	public void testDecimals() {
+		String input = "{" +
+			"\"resourceType\":\"Observation\"," +
+			"\"status\":\"final\"," +
+			"\"code\":{\"text\":\"Decimals\"}," +
+			"\"valueQuantity\":{\"value\":1.50,\"unit\":\"mg\"}," +
+			"\"referenceRange\":[" +
+			"{\"low\":{\"value\":0.000100},\"high\":{\"value\":100.0}}," +
+			"{\"low\":{\"value\":-1E+2},\"high\":{\"value\":123456789012345678901234567890.123456789}}" +
+			"]," +
+			"\"component\":[{\"code\":{\"text\":\"Integer\"},\"valueInteger\":2147483647}]" +
+			"}";
+
+		Observation obs = assertParsesIdentically(Observation.class, input);
+		assertEquals("1.50", obs.getValueQuantity().getValueElement().getValueAsString());
+		assertEquals(new BigDecimal("0.000100"), obs.getReferenceRangeFirstRep().getLow().getValue());
+		assertEquals("100.0", obs.getReferenceRangeFirstRep().getHigh().getValueElement().getValueAsString());
+		assertEquals("123456789012345678901234567890.123456789", obs.getReferenceRange().get(1).getHigh().getValueElement().getValueAsString());
+	}
+
+	@Test
+	public void testContainedResources() {
+		String input = "{" +
+			"\"resourceType\":\"Observation\"," +
+			"\"contained\":[" +
+			"{\"resourceType\":\"Patient\",\"id\":\"pat\",\"name\":[{\"family\":\"Contained\"}],\"managingOrganization\":{\"reference\":\"#org\"}}," +
+			"{\"resourceType\":\"Organization\",\"id\":\"org\",\"name\":\"Contained Org\"}" +
+			"]," +
+			"\"status\":\"final\"," +
+			"\"code\":{\"text\":\"Contained\"}," +
+			"\"subject\":{\"reference\":\"#pat\"}," +
+			"\"performer\":[{\"reference\":\"#org\"}]" +
+			"}";
+
+		Observation obs = assertParsesIdentically(Observation.class, input);
+		assertEquals(2, obs.getContained().size());
+		assertEquals("Contained", ((Patient) obs.getSubject().getResource()).getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testBundleWithNarrative() {
+		String input = "{" +
+			"\"resourceType\":\"Bundle\"," +
+			"\"type\":\"searchset\"," +
+			"\"total\":2," +
+			"\"link\":[{\"relation\":\"self\",\"url\":\"http://example.com/Patient?_count=2\"}]," +
+			"\"entry\":[" +
+			"{\"fullUrl\":\"http://example.com/Patient/1\",\"resource\":{\"resourceType\":\"Patient\",\"id\":\"1\"," +
+			"\"text\":{\"status\":\"generated\",\"div\":\"<div xmlns=\\\"http://www.w3.org/1999/xhtml\\\"><p>Hello <b>World</b></p></div>\"}}," +
+			"\"search\":{\"mode\":\"match\",\"score\":0.50}}," +
+			"{\"fullUrl\":\"http://example.com/Patient/2\",\"resource\":{\"resourceType\":\"Patient\",\"id\":\"2\",\"active\":false}}" +
+			"]" +
+			"}";
+
+		Bundle bundle = assertParsesIdentically(Bundle.class, input);
+		assertEquals(2, bundle.getEntry().size());
+		assertEquals("0.50", bundle.getEntryFirstRep().getSearch().getScoreElement().getValueAsString());
+	}
+
+	@Test
+	public void testExampleFiles() throws IOException {
+		for (String next : new String[]{"/bundle-circ-ref.json", "/entities-from-cerner.json"}) {
+			String input = IOUtils.toString(JsonParserStreamingR4Test.class.getResourceAsStream(next), StandardCharsets.UTF_8);
+			IBaseResource parsed = assertParsesIdentically(null, input);
+			assertEquals(ourCtx.newJsonParser().parseResource(input).getClass(), parsed.getClass());
+		}
+	}
+
+	@Test
+	public void testInvalidContentFailsTheSameWay() {
+		String input = "{\"resourceType\":\"Patient\",\"active\":\"maybe\"}";
+
+		String gsonMessage = null;
+		String streamingMessage = null;
+		try {
+			ourCtx.newJsonParser().parseResource(Patient.class, input);
+		} catch (DataFormatException e) {
+			gsonMessage = e.getMessage();
+		}
+		try {
+			ourStreamingCtx.newJsonParser().parseResource(Patient.class, input);
+		} catch (DataFormatException e) {
+			streamingMessage = e.getMessage();
+		}
+		assertThat(gsonMessage, containsString("maybe"));
+		assertEquals(gsonMessage, streamingMessage);
+	}
+
+	@Test
+	public void testLenientSyntax() {
+		String input = "{\n" +
+			"// A line comment\n" +
+			"# A YAML style comment\n" +
+			"resourceType: 'Observation', /* A block comment */\n" +
+			"'status': 'final',\n" +
+			"code: {text: NaN},\n" +
+			"valueString: 'It\\'s \"quoted\"',\n" +
+			"\"component\": [{code: {text: Infinity}}, {code: {text: -Infinity}}]\n" +
+			"}";
+
+		Observation obs = assertParsesIdentically(Observation.class, input);
+		assertEquals("final", obs.getStatus().toCode());
+		assertEquals("NaN", obs.getCode().getText());
+		assertEquals("It's \"quoted\"", obs.getValueStringType().getValue());
+		assertEquals("-Infinity", obs.getComponent().get(1).getCode().getText());
+	}
+
+	@Test
+	public void testNonNumericNumberInDecimal() {
+		String input = "{\"resourceType\":\"Observation\",\"status\":\"final\",\"valueQuantity\":{\"value\":NaN,\"unit\":\"mg\"}}";
+
+		assertEquals(parseOutcome(ourCtx, input), parseOutcome(ourStreamingCtx, input));
+	}
+
+	@Test
+	public void testTrailingContentFailsTheSameWay() {
+		String input = "{\"resourceType\":\"Patient\"} {}";
+
+		String gsonOutcome = parseOutcome(ourCtx, input);
+		assertThat(gsonOutcome, containsString("not fully consumed"));
+		assertEquals(gsonOutcome, parseOutcome(ourStreamingCtx, input));
+	}
+
+	@Test
+	public void testMalformedContentFailsInBothModes() {
+		String[] inputs = {
+			"{\"resourceType\":\"Patient\",\"active\":true",
+			"{\"resourceType\":\"Patient\" \"active\":true}",
+			"{\"resourceType\":\"Patient\",\"name\":[{\"family\":\"Smith\"}}",
+			"{\"resourceType\":\"Patient\",\"active\":}"
+		};
+
+		for (String next : inputs) {
+			String gsonOutcome = parseOutcome(ourCtx, next);
+			String streamingOutcome = parseOutcome(ourStreamingCtx, next);
+			ourLog.info("Gson: {} - Streaming: {}", gsonOutcome, streamingOutcome);
+			assertThat(gsonOutcome, startsWith("ERROR: Failed to parse JSON encoded FHIR content: "));
+			assertThat(streamingOutcome, startsWith("ERROR: Failed to parse JSON encoded FHIR content: "));
+		}
+	}
+
+	/**
+	 * Returns the parsed resource encoded as JSON, or the message of the
+	 * {@link DataFormatException} thrown while parsing
+	 */
+	private static String parseOutcome(FhirContext theCtx, String theInput) {
+		try {
+			Observation parsed = theCtx.newJsonParser().parseResource(Observation.class, theInput);
+			return ourCtx.newJsonParser().encodeResourceToString(parsed);
+		} catch (DataFormatException e) {
+			return "ERROR: " + e.getMessage();
+		}
+	}
+
+	/**
+	 * @param theType The type to parse, or <code>null</code> to use the type in the content
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends IBaseResource> T assertParsesIdentically(Class<T> theType, String theInput) {
+		T gsonParsed;
+		T streamingParsed;
+		if (theType != null) {
+			gsonParsed = ourCtx.newJsonParser().parseResource(theType, theInput);
+			streamingParsed = ourStreamingCtx.newJsonParser().parseResource(theType, theInput);
+		} else {
+			gsonParsed = (T) ourCtx.newJsonParser().parseResource(theInput);
+			streamingParsed = (T) ourStreamingCtx.newJsonParser().parseResource(theInput);
+		}
+
+		// Encode both with the same parser so that only the parsing differs
+		String gsonEncoded = ourCtx.newJsonParser().setPrettyPrint(true).encodeResourceToString(gsonParsed);
+		String streamingEncoded = ourCtx.newJsonParser().setPrettyPrint(true).encodeResourceToString(streamingParsed);
+		ourLog.debug("Encoded: {}", streamingEncoded);
+		assertEquals(gsonEncoded, streamingEncoded);
+
+		String gsonEncodedXml = ourCtx.newXmlParser().encodeResourceToString(gsonParsed);
+		String streamingEncodedXml = ourCtx.newXmlParser().encodeResourceToString(streamingParsed);
+		assertEquals(gsonEncodedXml, streamingEncodedXml);
+
+		return streamingParsed;
+	}
+
+	@AfterClass
+	public static void afterClassClearContext() {
+		TestUtil.clearAllStaticFieldsForUnitTest();
+	}
+
+}
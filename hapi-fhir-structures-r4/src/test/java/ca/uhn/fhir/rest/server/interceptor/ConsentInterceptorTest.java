@@ -29,6 +29,7 @@ import org.eclipse.jetty.servlet.ServletHolder;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Organization;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.*;
 import org.junit.runner.RunWith;
@@ -38,10 +39,19 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -66,6 +76,8 @@ public class ConsentInterceptorTest {
 	private ConsentInterceptor myInterceptor;
 	@Captor
 	private ArgumentCaptor<BaseServerResponseException> myExceptionCaptor;
+	@Captor
+	private ArgumentCaptor<List<IBaseResource>> myResourcesCaptor;
 
 	@After
 	public void after() {
@@ -77,6 +89,16 @@ public class ConsentInterceptorTest {
 		myInterceptor = new ConsentInterceptor(myConsentSvc);
 		ourServlet.registerInterceptor(myInterceptor);
 		ourPatientProvider.clear();
+
+		// Mocks don't run default methods, so have the bulk methods call the single resource ones
+		lenient().when(myConsentSvc.canSeeResources(any(), any(), any())).thenAnswer(t -> {
+			List<IBaseResource> resources = t.getArgument(1);
+			return resources.stream().map(r -> myConsentSvc.canSeeResource(t.getArgument(0), r, t.getArgument(2))).collect(Collectors.toList());
+		});
+		lenient().when(myConsentSvc.willSeeResources(any(), any(), any())).thenAnswer(t -> {
+			List<IBaseResource> resources = t.getArgument(1);
+			return resources.stream().map(r -> myConsentSvc.willSeeResource(t.getArgument(0), r, t.getArgument(2))).collect(Collectors.toList());
+		});
 	}
 
 	@Test
@@ -171,7 +193,9 @@ public class ConsentInterceptorTest {
 		}
 
 		verify(myConsentSvc, times(1)).startOperation(any(), any());
+		verify(myConsentSvc, times(1)).canSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(2)).canSeeResource(any(), any(), any());
+		verify(myConsentSvc, times(1)).willSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(3)).willSeeResource(any(), any(), any());
 		verify(myConsentSvc, times(1)).completeOperationSuccess(any(), any());
 		verify(myConsentSvc, times(0)).completeOperationFailure(any(), any(), any());
@@ -202,7 +226,9 @@ public class ConsentInterceptorTest {
 		}
 
 		verify(myConsentSvc, times(1)).startOperation(any(), any());
+		verify(myConsentSvc, times(1)).canSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(2)).canSeeResource(any(), any(), any());
+		verify(myConsentSvc, times(1)).willSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(3)).willSeeResource(any(), any(), any());
 		verify(myConsentSvc, times(1)).completeOperationSuccess(any(), any());
 		verify(myConsentSvc, times(0)).completeOperationFailure(any(), any(), any());
@@ -229,7 +255,9 @@ public class ConsentInterceptorTest {
 		}
 
 		verify(myConsentSvc, times(1)).startOperation(any(), any());
+		verify(myConsentSvc, times(1)).canSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(2)).canSeeResource(any(), any(), any());
+		verify(myConsentSvc, times(1)).willSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(3)).willSeeResource(any(), any(), any()); // the two patients + the bundle
 		verify(myConsentSvc, times(1)).completeOperationSuccess(any(), any());
 		verify(myConsentSvc, times(0)).completeOperationFailure(any(), any(), any());
@@ -267,7 +295,9 @@ public class ConsentInterceptorTest {
 		}
 
 		verify(myConsentSvc, times(1)).startOperation(any(), any());
+		verify(myConsentSvc, times(1)).canSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(2)).canSeeResource(any(), any(), any());
+		verify(myConsentSvc, times(1)).willSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(3)).willSeeResource(any(), any(), any());
 		verify(myConsentSvc, times(1)).completeOperationSuccess(any(), any());
 		verify(myConsentSvc, times(0)).completeOperationFailure(any(), any(), any());
@@ -307,7 +337,9 @@ public class ConsentInterceptorTest {
 		}
 
 		verify(myConsentSvc, times(1)).startOperation(any(), any());
+		verify(myConsentSvc, times(1)).canSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(2)).canSeeResource(any(), any(), any());
+		verify(myConsentSvc, times(1)).willSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(4)).willSeeResource(any(), any(), any());
 		verify(myConsentSvc, times(1)).completeOperationSuccess(any(), any());
 		verify(myConsentSvc, times(0)).completeOperationFailure(any(), any(), any());
@@ -344,13 +376,155 @@ public class ConsentInterceptorTest {
 		}
 
 		verify(myConsentSvc, times(1)).startOperation(any(), any());
+		verify(myConsentSvc, times(1)).canSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(2)).canSeeResource(any(), any(), any());
+		verify(myConsentSvc, times(1)).willSeeResources(any(), any(), any());
 		verify(myConsentSvc, times(3)).willSeeResource(any(), any(), any());
 		verify(myConsentSvc, times(1)).completeOperationSuccess(any(), any());
 		verify(myConsentSvc, times(0)).completeOperationFailure(any(), any(), any());
 		verifyNoMoreInteractions(myConsentSvc);
 	}
 
+	@Test
+	public void testBulkMethodsCalledOncePerPage() throws IOException {
+		ourPatientProvider.store((Patient) new Patient().setActive(true).setId("PTA"));
+		ourPatientProvider.store((Patient) new Patient().setActive(false).setId("PTB"));
+		ourPatientProvider.store((Patient) new Patient().setActive(false).setId("PTC"));
+
+		when(myConsentSvc.startOperation(any(), any())).thenReturn(ConsentOutcome.PROCEED);
+		doAnswer(t -> {
+			List<IBaseResource> resources = t.getArgument(1);
+			return resources.stream().map(r -> ConsentOutcome.PROCEED).collect(Collectors.toList());
+		}).when(myConsentSvc).canSeeResources(any(), any(), any());
+		doAnswer(t -> {
+			List<IBaseResource> resources = t.getArgument(1);
+			return resources.stream().map(r -> {
+				if ("PTB".equals(r.getIdElement().getIdPart())) {
+					return ConsentOutcome.REJECT;
+				}
+				return ConsentOutcome.PROCEED;
+			}).collect(Collectors.toList());
+		}).when(myConsentSvc).willSeeResources(any(), any(), any());
+		when(myConsentSvc.willSeeResource(any(), any(), any())).thenReturn(ConsentOutcome.PROCEED);
+
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient");
+
+		try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			String responseContent = IOUtils.toString(status.getEntity().getContent(), Charsets.UTF_8);
+			ourLog.info("Response: {}", responseContent);
+			Bundle response = ourCtx.newJsonParser().parseResource(Bundle.class, responseContent);
+			assertEquals(2, response.getEntry().size());
+			assertEquals("PTA", response.getEntry().get(0).getResource().getIdElement().getIdPart());
+			assertEquals("PTC", response.getEntry().get(1).getResource().getIdElement().getIdPart());
+		}
+
+		verify(myConsentSvc, times(1)).startOperation(any(), any());
+		verify(myConsentSvc, times(1)).canSeeResources(any(), myResourcesCaptor.capture(), any());
+		assertEquals(3, myResourcesCaptor.getValue().size());
+		verify(myConsentSvc, times(1)).willSeeResources(any(), myResourcesCaptor.capture(), any());
+		assertEquals(3, myResourcesCaptor.getValue().size());
+		verify(myConsentSvc, times(1)).willSeeResource(any(), any(), any()); // the bundle
+		verify(myConsentSvc, times(1)).completeOperationSuccess(any(), any());
+		verifyNoMoreInteractions(myConsentSvc);
+	}
+
+	@Test
+	public void testSeeResourceModifiesContainedResourcesInParallel() throws IOException {
+		for (int i = 0; i < 10; i++) {
+			Patient patient = new Patient();
+			patient.setId("PT" + i);
+			Organization org = new Organization();
+			org.setId("org");
+			org.setName("ORG" + i);
+			patient.getContained().add(org);
+			patient.getManagingOrganization().setReference("#org");
+			ourPatientProvider.store(patient);
+		}
+
+		Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+		when(myConsentSvc.startOperation(any(), any())).thenReturn(ConsentOutcome.PROCEED);
+		when(myConsentSvc.canSeeResource(any(), any(), any())).thenReturn(ConsentOutcome.PROCEED);
+		when(myConsentSvc.willSeeResource(any(RequestDetails.class), any(IBaseResource.class), any())).thenAnswer(t -> {
+			IBaseResource resource = (IBaseResource) t.getArguments()[1];
+			if (resource instanceof Organization) {
+				threadNames.add(Thread.currentThread().getName());
+				((Organization) resource).setName("MASKED");
+			}
+			return ConsentOutcome.PROCEED;
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(2, r -> new Thread(r, "consent-worker"));
+		try {
+			myInterceptor.setOutgoingResponseExecutor(executor);
+			myInterceptor.setOutgoingResponseParallelThreshold(5);
+
+			HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient");
+
+			try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+				assertEquals(200, status.getStatusLine().getStatusCode());
+				String responseContent = IOUtils.toString(status.getEntity().getContent(), Charsets.UTF_8);
+				ourLog.info("Response: {}", responseContent);
+				Bundle response = ourCtx.newJsonParser().parseResource(Bundle.class, responseContent);
+				assertEquals(10, response.getEntry().size());
+				for (Bundle.BundleEntryComponent next : response.getEntry()) {
+					Patient patient = (Patient) next.getResource();
+					assertEquals("MASKED", ((Organization) patient.getContained().get(0)).getName());
+				}
+				assertThat(responseContent, not(containsString("ORG1")));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(Collections.singleton("consent-worker"), threadNames);
+		verify(myConsentSvc, times(21)).willSeeResource(any(), any(), any()); // the patients, the organizations, and the bundle
+	}
+
+	@Test
+	public void testSeeResourceFailureInParallelCancelsRemainingEntries() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			Patient patient = new Patient();
+			patient.setId("PT" + i);
+			ourPatientProvider.store(patient);
+		}
+
+		AtomicInteger patientChecks = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(1);
+		when(myConsentSvc.startOperation(any(), any())).thenReturn(ConsentOutcome.PROCEED);
+		when(myConsentSvc.canSeeResource(any(), any(), any())).thenReturn(ConsentOutcome.PROCEED);
+		when(myConsentSvc.willSeeResource(any(RequestDetails.class), any(IBaseResource.class), any())).thenAnswer(t -> {
+			IBaseResource resource = (IBaseResource) t.getArguments()[1];
+			if (resource instanceof Patient) {
+				if (patientChecks.incrementAndGet() == 1) {
+					throw new NullPointerException("A MESSAGE");
+				}
+				// Only returns once the request has failed, unless it is interrupted by being cancelled
+				latch.await(10, TimeUnit.SECONDS);
+			}
+			return ConsentOutcome.PROCEED;
+		});
+
+		ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "consent-worker"));
+		try {
+			myInterceptor.setOutgoingResponseExecutor(executor);
+			myInterceptor.setOutgoingResponseParallelThreshold(5);
+
+			HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient");
+
+			try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+				assertEquals(500, status.getStatusLine().getStatusCode());
+			}
+		} finally {
+			latch.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		}
+
+		// The failing entry, and at most the one the worker had already started when the rest were cancelled
+		assertThat(patientChecks.get(), lessThanOrEqualTo(2));
+	}
+
 	@Test
 	public void testOutcomeException() throws IOException {
 		when(myConsentSvc.startOperation(any(), any())).thenReturn(ConsentOutcome.PROCEED);
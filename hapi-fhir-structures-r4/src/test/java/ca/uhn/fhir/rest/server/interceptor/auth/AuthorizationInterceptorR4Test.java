@@ -50,6 +50,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItems;
 import static org.junit.Assert.*;
 
 public class AuthorizationInterceptorR4Test {
@@ -2805,6 +2806,173 @@ public class AuthorizationInterceptorR4Test {
 
 	}
 
+	@Test
+	public void testReadByCompartmentWithMultipleOwners() throws Exception {
+		ourServlet.registerInterceptor(new AuthorizationInterceptor(PolicyEnum.DENY) {
+			@Override
+			public List<IAuthRule> buildRuleList(RequestDetails theRequestDetails) {
+				return new RuleBuilder()
+					.allow("Rule 1").read().resourcesOfType(Observation.class).inCompartment("Patient", Arrays.asList(new IdType("Patient/1"), new IdType("Patient/2")))
+					.build();
+			}
+		});
+
+		HttpGet httpGet;
+		HttpResponse status;
+		String respString;
+
+		ourReturn = new ArrayList<>();
+		ourReturn.add(createObservation(10, "Patient/1"));
+		ourReturn.add(createObservation(11, "Patient/2"));
+		ourHitMethod = false;
+		httpGet = new HttpGet("http://localhost:" + ourPort + "/Observation?subject=Patient/1&_format=json");
+		status = ourClient.execute(httpGet);
+		respString = extractResponseAndClose(status);
+		assertEquals(200, status.getStatusLine().getStatusCode());
+		assertTrue(ourHitMethod);
+		Assert.assertEquals(2, ourCtx.newJsonParser().parseResource(Bundle.class, respString).getEntry().size());
+
+		ourReturn.add(createObservation(12, "Patient/3"));
+		ourHitMethod = false;
+		httpGet = new HttpGet("http://localhost:" + ourPort + "/Observation?subject=Patient/1&_format=json");
+		status = ourClient.execute(httpGet);
+		respString = extractResponseAndClose(status);
+		assertEquals(403, status.getStatusLine().getStatusCode());
+		assertThat(respString, containsString("Access denied by default policy (no applicable rules)"));
+		assertTrue(ourHitMethod);
+	}
+
+	@Test
+	public void testRuleListCache() throws Exception {
+		List<String> builtForKeys = new ArrayList<>();
+		AuthorizationInterceptor interceptor = new AuthorizationInterceptor(PolicyEnum.DENY) {
+			@Override
+			public List<IAuthRule> buildRuleList(RequestDetails theRequestDetails) {
+				String key = getRuleListCacheKey(theRequestDetails);
+				builtForKeys.add(key);
+				if ("Bearer A".equals(key)) {
+					return new RuleBuilder().allowAll().build();
+				}
+				return new RuleBuilder().denyAll().build();
+			}
+
+			@Override
+			protected String getRuleListCacheKey(RequestDetails theRequestDetails) {
+				return theRequestDetails.getHeader(Constants.HEADER_AUTHORIZATION);
+			}
+		};
+		ourServlet.registerInterceptor(interceptor);
+
+		ourReturn = Collections.singletonList(createPatient(1));
+		assertEquals(200, executeReadWithAuthorization("Bearer A"));
+		assertEquals(200, executeReadWithAuthorization("Bearer A"));
+		assertEquals(403, executeReadWithAuthorization("Bearer B"));
+		assertEquals(403, executeReadWithAuthorization("Bearer B"));
+		assertEquals(Arrays.asList("Bearer A", "Bearer B"), builtForKeys);
+
+		interceptor.clearRuleListCache();
+		assertEquals(200, executeReadWithAuthorization("Bearer A"));
+		assertEquals(Arrays.asList("Bearer A", "Bearer B", "Bearer A"), builtForKeys);
+
+		interceptor.setRuleListCacheMillis(0);
+		assertEquals(200, executeReadWithAuthorization("Bearer A"));
+		assertEquals(200, executeReadWithAuthorization("Bearer A"));
+		assertEquals(Arrays.asList("Bearer A", "Bearer B", "Bearer A", "Bearer A", "Bearer A"), builtForKeys);
+	}
+
+	@Test
+	public void testRuleListIndexedByOutputResourceType() {
+		List<IAuthRule> rules = new RuleBuilder()
+			.allow("Rule 1").read().resourcesOfType(Observation.class).withAnyId().andThen()
+			.allow("Rule 2").read().resourcesOfType(Patient.class).inCompartment("Patient", new IdType("Patient/1")).andThen()
+			.allow("Rule 3").read().allResources().withAnyId().forTenantIds("TENANT_A").andThen()
+			.allow("Rule 4").metadata()
+			.build();
+		AuthorizationRuleList ruleList = new AuthorizationRuleList(rules);
+
+		assertEquals(Arrays.asList(rules.get(0), rules.get(2)), ruleList.getRulesForOutputResource(RestOperationTypeEnum.SEARCH_TYPE, "Observation"));
+		assertEquals(Arrays.asList(rules.get(1), rules.get(2)), ruleList.getRulesForOutputResource(RestOperationTypeEnum.SEARCH_TYPE, "Patient"));
+		assertEquals(Collections.singletonList(rules.get(2)), ruleList.getRulesForOutputResource(RestOperationTypeEnum.SEARCH_TYPE, "Encounter"));
+		assertEquals(rules.subList(0, 3), ruleList.getRulesForOutputResource(RestOperationTypeEnum.SEARCH_TYPE, null));
+	}
+
+	@Test
+	public void testSearchReturningSeveralTypes() throws Exception {
+		ourServlet.registerInterceptor(new AuthorizationInterceptor(PolicyEnum.DENY) {
+			@Override
+			public List<IAuthRule> buildRuleList(RequestDetails theRequestDetails) {
+				return new RuleBuilder()
+					.allow("Rule 1").read().resourcesOfType(Observation.class).withAnyId().andThen()
+					.allow("Rule 2").read().resourcesOfType(Patient.class).inCompartment("Patient", new IdType("Patient/1"))
+					.build();
+			}
+		});
+
+		HttpGet httpGet;
+		HttpResponse status;
+		String respString;
+
+		ourReturn = new ArrayList<>();
+		ourReturn.add(createObservation(10, "Patient/2"));
+		ourReturn.add(createPatient(1));
+		ourHitMethod = false;
+		httpGet = new HttpGet("http://localhost:" + ourPort + "/Observation?_format=json");
+		status = ourClient.execute(httpGet);
+		respString = extractResponseAndClose(status);
+		assertEquals(200, status.getStatusLine().getStatusCode());
+		assertTrue(ourHitMethod);
+		Assert.assertEquals(2, ourCtx.newJsonParser().parseResource(Bundle.class, respString).getEntry().size());
+
+		ourReturn.add(createPatient(2));
+		ourHitMethod = false;
+		httpGet = new HttpGet("http://localhost:" + ourPort + "/Observation?_format=json");
+		status = ourClient.execute(httpGet);
+		respString = extractResponseAndClose(status);
+		assertEquals(403, status.getStatusLine().getStatusCode());
+		assertThat(respString, containsString("Access denied by default policy (no applicable rules)"));
+		assertTrue(ourHitMethod);
+	}
+
+	@Test
+	public void testOverriddenApplyRulesSeesOutgoingResources() throws Exception {
+		List<String> outputResources = Collections.synchronizedList(new ArrayList<>());
+		ourServlet.registerInterceptor(new AuthorizationInterceptor(PolicyEnum.DENY) {
+			@Override
+			public List<IAuthRule> buildRuleList(RequestDetails theRequestDetails) {
+				return new RuleBuilder()
+					.allow("Rule 1").read().resourcesOfType(Observation.class).withAnyId()
+					.build();
+			}
+
+			@Override
+			public Verdict applyRulesAndReturnDecision(RestOperationTypeEnum theOperation, RequestDetails theRequestDetails, IBaseResource theInputResource, IIdType theInputResourceId, IBaseResource theOutputResource, Pointcut thePointcut) {
+				if (theOutputResource != null) {
+					outputResources.add(theOutputResource.getIdElement().toUnqualifiedVersionless().getValue());
+				}
+				return super.applyRulesAndReturnDecision(theOperation, theRequestDetails, theInputResource, theInputResourceId, theOutputResource, thePointcut);
+			}
+		});
+
+		ourReturn = new ArrayList<>();
+		ourReturn.add(createObservation(10, "Patient/2"));
+		ourReturn.add(createObservation(11, "Patient/2"));
+		ourHitMethod = false;
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Observation?_format=json");
+		HttpResponse status = ourClient.execute(httpGet);
+		extractResponseAndClose(status);
+		assertEquals(200, status.getStatusLine().getStatusCode());
+		assertTrue(ourHitMethod);
+		assertThat(outputResources, hasItems("Observation/10", "Observation/11"));
+	}
+
+	private int executeReadWithAuthorization(String theAuthorization) throws IOException {
+		HttpGet httpGet = new HttpGet("http://localhost:" + ourPort + "/Patient/1");
+		httpGet.addHeader(Constants.HEADER_AUTHORIZATION, theAuthorization);
+		HttpResponse status = ourClient.execute(httpGet);
+		extractResponseAndClose(status);
+		return status.getStatusLine().getStatusCode();
+	}
+
 	@Test
 	public void testReadPageWrong() throws Exception {
 		ourServlet.registerInterceptor(new AuthorizationInterceptor(PolicyEnum.DENY) {
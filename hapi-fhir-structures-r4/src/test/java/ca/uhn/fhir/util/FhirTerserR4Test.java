@@ -185,6 +185,28 @@ public class FhirTerserR4Test {
 		Assert.assertEquals("COMMENTS", obs.getNote().get(0).getText());
 	}
 
+	@Test
+	public void testIsSourceInCompartmentForTargets() {
+		Observation obs = new Observation();
+		obs.setSubject(new Reference("Patient/2"));
+		FhirTerser t = ourCtx.newTerser();
+
+		assertTrue(t.isSourceInCompartmentForTarget("Patient", obs, Arrays.asList(new IdType("Patient/1"), new IdType("Patient/2/_history/3"))));
+		assertFalse(t.isSourceInCompartmentForTarget("Patient", obs, Arrays.asList(new IdType("Patient/1"), new IdType("Patient/3"))));
+		assertFalse(t.isSourceInCompartmentForTarget("Patient", obs, Collections.emptyList()));
+
+		Patient patient = new Patient();
+		patient.setId("Patient/3");
+		assertTrue(t.isSourceInCompartmentForTarget("Patient", patient, Arrays.asList(new IdType("Patient/1"), new IdType("Patient/3"))));
+
+		try {
+			t.isSourceInCompartmentForTarget("Patient", obs, Arrays.asList(new IdType("Patient/1"), new IdType("2")));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("theTarget must have a populated resource type (theTarget.getResourceType() does not return a value)", e.getMessage());
+		}
+	}
+
 	@Test
 	public void testGetAllPopulatedChildElementsOfTypeDescendsIntoContained() {
 		Patient p = new Patient();